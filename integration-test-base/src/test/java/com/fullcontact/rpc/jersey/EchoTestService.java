@@ -1,5 +1,7 @@
 package com.fullcontact.rpc.jersey;
 
+import com.fullcontact.rpc.TestBatchRequest;
+import com.fullcontact.rpc.TestBatchResponse;
 import com.fullcontact.rpc.TestRequest;
 import com.fullcontact.rpc.TestResponse;
 import com.fullcontact.rpc.TestServiceGrpc;
@@ -10,6 +12,7 @@ import io.grpc.Metadata;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * gRPC service that echos the request into the response
@@ -43,6 +46,10 @@ public class EchoTestService extends TestServiceGrpc.TestServiceImplBase {
 
     @Override
     public void testMethod4(TestRequest request, StreamObserver<TestResponse> responseObserver) {
+        if (request.getNt().getF1().equals("serviceEtag")) {
+            // Versions the response itself, rather than leaving it to the fingerprint of the body.
+            HttpHeaderContext.setResponseHeader("ETag", "\"v" + request.getUint3() + "\"");
+        }
         responseObserver.onNext(TestResponse.newBuilder().setRequest(request).build());
         responseObserver.onCompleted();
     }
@@ -59,6 +66,31 @@ public class EchoTestService extends TestServiceGrpc.TestServiceImplBase {
         responseObserver.onCompleted();
     }
 
+    @Override
+    public void testMethod7(TestRequest request, StreamObserver<TestResponse> responseObserver) {
+        responseObserver.onNext(TestResponse.newBuilder().setRequest(request).build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Echos each request, with int3 set to the size of the batch. Responds with the size of the batch and the names of
+     * the request headers it received as headers.
+     */
+    @Override
+    public void batchTestMethod(TestBatchRequest request, StreamObserver<TestBatchResponse> responseObserver) {
+        HttpHeaderContext.setResponseHeader("X-Batch-Size", String.valueOf(request.getRequestsCount()));
+        HttpHeaderContext.setResponseHeader("X-Batch-Headers",
+                String.join(",", new TreeSet<>(HttpHeaderContext.requestHeaders().keySet())));
+
+        TestBatchResponse.Builder response = TestBatchResponse.newBuilder();
+        for (TestRequest r : request.getRequestsList()) {
+            response.addResponses(TestResponse.newBuilder()
+                    .setRequest(r.toBuilder().setInt3(request.getRequestsCount())));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
     @Override
     public void streamMethod1(TestRequest request, StreamObserver<TestResponse> responseObserver) {
         HttpHeaderContext.addResponseHeader("X-Stream-Test", "Hello, World!");
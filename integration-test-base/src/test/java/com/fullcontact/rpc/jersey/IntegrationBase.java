@@ -2,18 +2,36 @@ package com.fullcontact.rpc.jersey;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fullcontact.rpc.NestedNestedType;
 import com.fullcontact.rpc.NestedType;
 import com.fullcontact.rpc.TestEnum;
 import com.fullcontact.rpc.TestRequest;
 import com.fullcontact.rpc.TestResponse;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.protobuf.Any;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.google.protobuf.util.Durations;
 import com.google.protobuf.util.JsonFormat;
+import com.google.rpc.DebugInfo;
+import com.google.rpc.RetryInfo;
 import com.google.rpc.Status;
 import io.dropwizard.testing.junit.ResourceTestRule;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import org.assertj.core.util.Strings;
 import org.junit.Test;
@@ -27,6 +45,14 @@ import org.junit.runners.JUnit4;
  */
 @RunWith(JUnit4.class)
 public abstract class IntegrationBase {
+    /**
+     * Configuration of the resources under test, compressing responses of any size for clients accepting it.
+     */
+    public static final GrpcJerseyConfig CONFIG = GrpcJerseyConfig.global().toBuilder()
+            .compressResponses(true)
+            .compressionMinimumSize(0)
+            .build();
+
     public abstract ResourceTestRule resources();
 
     public abstract boolean supportsHttpHeaders();
@@ -49,6 +75,81 @@ public abstract class IntegrationBase {
         assertThat(response.getRequest().getNt().getF1()).isEqualTo("abcd");
     }
 
+    @Test
+    public void testBasicGet_compressed() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/users/string1/1234/abcd")
+                .request()
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip")
+                .get();
+
+        assertThat(response.getHeaderString(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+        JsonFormat.parser().merge(new InputStreamReader(
+                new GZIPInputStream(response.readEntity(InputStream.class)), StandardCharsets.UTF_8),
+                responseFromJson);
+
+        assertThat(responseFromJson.getRequest().getS()).isEqualTo("string1");
+    }
+
+    @Test
+    public void testBasicGet_partialResponse() throws Exception {
+        String responseJson = resources().getJerseyTest()
+                .target("/users/string1/1234/abcd")
+                .queryParam("fields", "request.s,request.int3,request.readMask")
+                .request()
+                .buildGet()
+                .invoke(String.class);
+
+        TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+        JsonFormat.parser().merge(responseJson, responseFromJson);
+        TestResponse response = responseFromJson.build();
+
+        assertThat(responseJson).contains("\"int3\"").doesNotContain("uint3");
+        assertThat(response.getRequest().getS()).isEqualTo("string1");
+        // Forwarded to the service through the request's FieldMask.
+        assertThat(response.getRequest().getReadMask().getPathsList())
+                .containsExactly("request.int3", "request.read_mask", "request.s");
+    }
+
+    @Test
+    public void testBasicGet_partialResponseWithUnknownField() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/users/string1/1234/abcd")
+                .queryParam("fields", "request.nope")
+                .request()
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    public void testBasicGet_overConcurrencyLimit() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(1).build();
+        ConcurrencyLimits.global().setMethodLimiter("TestService/TestMethod", limiter);
+        try {
+            // Hold the only slot.
+            assertThat(limiter.tryAcquire()).isTrue();
+            Response response = resources().getJerseyTest()
+                    .target("/users/string1/1234/abcd")
+                    .request()
+                    .get();
+
+            assertThat(response.getStatus()).isEqualTo(503);
+            assertThat(response.getHeaderString("Retry-After")).isEqualTo("1");
+
+            limiter.release();
+            response = resources().getJerseyTest()
+                    .target("/users/string1/1234/abcd")
+                    .request()
+                    .get();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+        } finally {
+            ConcurrencyLimits.global().setMethodLimiter("TestService/TestMethod", null);
+        }
+    }
+
     @Test
     public void testBasicGetWith1RepeatedIntParam() throws Exception {
         // /users/{s}/{uint3}/{nt.f1}?rep=1&rep=2&rep=3
@@ -149,6 +250,66 @@ public abstract class IntegrationBase {
         assertThat(response.getRequest()).isEqualTo(request);
     }
 
+    @Test
+    public void testBatch() throws Exception {
+        TestRequest request = TestRequest.newBuilder().setS("Hello").build();
+        String batch = "[{\"method\": \"POST\", \"path\": \"/users/\", \"body\": "
+                + JsonFormat.printer().print(request) + "},"
+                + "{\"path\": \"/users/string1/1234/abcd?d=1.5\"},"
+                + "{\"path\": \"/nowhere\"},"
+                + "{\"method\": \"DELETE\", \"path\": \"/users/\"}]";
+        String responseJson = resources().getJerseyTest()
+                .target("/$batch")
+                .request()
+                .buildPost(Entity.entity(batch, "application/json"))
+                .invoke(String.class);
+
+        JsonArray results = new JsonParser().parse(responseJson).getAsJsonArray();
+        assertThat(results).hasSize(4);
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).getAsJsonObject().get("index").getAsInt()).isEqualTo(i);
+        }
+
+        TestResponse.Builder first = TestResponse.newBuilder();
+        JsonFormat.parser().merge(results.get(0).getAsJsonObject().get("body").toString(), first);
+        assertThat(first.getRequest()).isEqualTo(request);
+
+        TestResponse.Builder second = TestResponse.newBuilder();
+        JsonFormat.parser().merge(results.get(1).getAsJsonObject().get("body").toString(), second);
+        assertThat(second.getRequest().getS()).isEqualTo("string1");
+        assertThat(second.getRequest().getD()).isEqualTo(1.5);
+
+        assertThat(results.get(2).getAsJsonObject().get("status").getAsInt()).isEqualTo(404);
+        assertThat(results.get(3).getAsJsonObject().get("status").getAsInt()).isEqualTo(405);
+    }
+
+    @Test
+    public void testBatch_unordered() throws Exception {
+        String batch = "[{\"path\": \"/users/a/1/b\"}, {\"path\": \"/users/c/2/d\"}]";
+        String responseLines = resources().getJerseyTest()
+                .target("/$batch")
+                .queryParam("ordered", false)
+                .request()
+                .buildPost(Entity.entity(batch, "application/json"))
+                .invoke(String.class);
+
+        assertThat(responseLines.split("\n"))
+                .extracting(line -> new JsonParser().parse(line).getAsJsonObject().get("index").getAsInt())
+                .containsOnly(0, 1)
+                .hasSize(2);
+    }
+
+    @Test
+    public void testBatch_malformed() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/$batch")
+                .request()
+                .buildPost(Entity.entity("{\"path\": \"/users/a/1/b\"}", "application/json"))
+                .invoke();
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
     @Test
     public void testPost__nestedBinding() throws Exception {
         NestedType request = NestedType.newBuilder().setF1("World").build();
@@ -166,6 +327,23 @@ public abstract class IntegrationBase {
         assertThat(response.getRequest().getNt()).isEqualTo(request);
     }
 
+    @Test
+    public void testPost__multiLevelNestedBinding() throws Exception {
+        NestedNestedType request = NestedNestedType.newBuilder().addF1("World").build();
+        String responseJson = resources().getJerseyTest()
+                .target("/users_nested2/")
+                .request()
+                .buildPost(Entity.entity(JsonFormat.printer().print(request),
+                        "application/json; charset=utf-8"))
+                .invoke(String.class);
+
+        TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+        JsonFormat.parser().merge(responseJson, responseFromJson);
+        TestResponse response = responseFromJson.build();
+
+        assertThat(response.getRequest().getNt().getNnt()).isEqualTo(request);
+    }
+
     @Test
     public void testAdvancedGet() throws Exception {
         // /users/{s=hello/**}/x/{uint3}/{nt.f1}/*/**/test
@@ -270,6 +448,130 @@ public abstract class IntegrationBase {
         assertThat(false);
     }
 
+    @Test
+    public void testCachedGetFromYaml() throws Exception {
+        // /yaml_users/{s}/{uint3}/{nt.f1}, cached for 60s
+        long hits = ResponseCaching.responseCache().stats().getHitCount();
+        String first = resources().getJerseyTest()
+                .target("/yaml_users/string1/1234/testCachedGetFromYaml")
+                .request()
+                .buildGet()
+                .invoke(String.class);
+        String second = resources().getJerseyTest()
+                .target("/yaml_users/string1/1234/testCachedGetFromYaml")
+                .request()
+                .buildGet()
+                .invoke(String.class);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(ResponseCaching.responseCache().stats().getHitCount()).isGreaterThan(hits);
+    }
+
+    @Test
+    public void testConditionalGetFromYaml() throws Exception {
+        // /yaml_users/{s}/{uint3}/{nt.f1}, tagged with an ETag
+        Response response = resources().getJerseyTest()
+                .target("/yaml_users/string1/1234/testConditionalGetFromYaml")
+                .request()
+                .get();
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(etag).matches("\"[0-9a-f]{16}\"");
+
+        Response notModified = resources().getJerseyTest()
+                .target("/yaml_users/string1/1234/testConditionalGetFromYaml")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getHeaderString(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(notModified.hasEntity()).isFalse();
+    }
+
+    @Test
+    public void testConditionalGetFromYaml_serviceEtag() throws Exception {
+        if (!supportsHttpHeaders()) {
+            return;
+        }
+
+        // /yaml_users/{s}/{uint3}/{nt.f1} is also cached and single-flight, the service sets ETag "v<uint3>".
+        Response response = resources().getJerseyTest()
+                .target("/yaml_users/string1/1/serviceEtag")
+                .request()
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+
+        // Answered from the cache.
+        Response cached = resources().getJerseyTest()
+                .target("/yaml_users/string1/1/serviceEtag")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\"")
+                .get();
+
+        assertThat(cached.getStatus()).isEqualTo(304);
+        assertThat(cached.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+        assertThat(cached.hasEntity()).isFalse();
+
+        // Answered by the service, through the cache and single-flight.
+        Response called = resources().getJerseyTest()
+                .target("/yaml_users/string1/2/serviceEtag")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\", \"v2\"")
+                .get();
+
+        assertThat(called.getStatus()).isEqualTo(304);
+        assertThat(called.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"v2\"");
+        assertThat(called.hasEntity()).isFalse();
+
+        // Stale tags get the response.
+        Response stale = resources().getJerseyTest()
+                .target("/yaml_users/string1/2/serviceEtag")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\"")
+                .get();
+
+        assertThat(stale.getStatus()).isEqualTo(200);
+        assertThat(stale.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"v2\"");
+    }
+
+    @Test
+    public void testBatchedGetFromYaml() throws Exception {
+        // /batched_users/{s}, batched into BatchTestMethod over a 50ms window
+        List<Future<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            responses.add(resources().getJerseyTest()
+                    .target("/batched_users/user" + i)
+                    .request()
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                    .header("X-Caller", "user" + i)
+                    .async()
+                    .get());
+        }
+
+        int largestBatch = 0;
+        for (int i = 0; i < responses.size(); i++) {
+            Response httpResponse = responses.get(i).get(5, TimeUnit.SECONDS);
+            TestResponse.Builder response = TestResponse.newBuilder();
+            JsonFormat.parser().merge(httpResponse.readEntity(String.class), response);
+
+            assertThat(response.getRequest().getS()).isEqualTo("user" + i);
+            largestBatch = Math.max(largestBatch, response.getRequest().getInt3());
+
+            if (supportsHttpHeaders()) {
+                // Every request of the batch gets the response headers of the batch RPC, which only received the
+                // key headers shared by the batch, not the X-Caller of its first request.
+                assertThat(httpResponse.getHeaderString("X-Batch-Size"))
+                        .isEqualTo(String.valueOf(response.getRequest().getInt3()));
+                assertThat(httpResponse.getHeaderString("X-Batch-Headers")).isEqualTo(HttpHeaders.AUTHORIZATION);
+            }
+        }
+        assertThat(largestBatch).isGreaterThan(1);
+    }
+
     @Test
     public void testBasicPostYaml() throws Exception {
         TestRequest request = TestRequest.newBuilder()
@@ -307,6 +609,38 @@ public abstract class IntegrationBase {
         assertThat(response.getRequest().getNt()).isEqualTo(request);
     }
 
+    @Test
+    public void testPostYaml_jsonOutput() throws Exception {
+        // TestMethod6 omits default values, preserves proto field names and prints compact JSON
+        String responseJson = resources().getJerseyTest()
+                .target("/yaml_users/")
+                .request()
+                .buildPost(Entity.entity("{\"s\": \"Hello\", \"repStr\": [\"a\"]}", "application/json; charset=utf-8"))
+                .invoke(String.class);
+
+        assertThat(responseJson).isEqualTo("{\"request\":{\"s\":\"Hello\",\"rep_str\":[\"a\"]}}");
+    }
+
+    @Test
+    public void testPostAny() throws Exception {
+        String responseJson = resources().getJerseyTest()
+                .target("/users/")
+                .request()
+                .buildPost(Entity.entity(
+                        "{\"s\": \"Hello\", \"any\": {\"@type\": \"type.googleapis.com/NestedType\", \"f1\": \"x\"}}",
+                        "application/json; charset=utf-8"))
+                .invoke(String.class);
+
+        TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+        JsonFormat.parser()
+                .usingTypeRegistry(JsonFormat.TypeRegistry.newBuilder().add(NestedType.getDescriptor()).build())
+                .merge(responseJson, responseFromJson);
+        TestResponse response = responseFromJson.build();
+
+        assertThat(response.getRequest().getAny().unpack(NestedType.class))
+                .isEqualTo(NestedType.newBuilder().setF1("x").build());
+    }
+
     @Test
     public void testStreamGet() throws Exception {
         InputStream response = resources().getJerseyTest()
@@ -354,6 +688,30 @@ public abstract class IntegrationBase {
         assertThat(count).isEqualTo(10);
     }
 
+    @Test
+    public void testStreamGet_compressed() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/stream/hello")
+                .queryParam("int3", "3")
+                .request()
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .get();
+
+        assertThat(response.getHeaderString(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(response.readEntity(InputStream.class)), StandardCharsets.UTF_8));
+
+        int count = 0;
+        for (String json = reader.readLine(); !Strings.isNullOrEmpty(json); json = reader.readLine()) {
+            TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+            JsonFormat.parser().merge(json, responseFromJson);
+            assertThat(responseFromJson.getRequest().getS()).isEqualTo("hello");
+            count++;
+        }
+
+        assertThat(count).isEqualTo(3);
+    }
+
     @Test
     public void testStreamGet_noMessages_returnsHeaders() throws Exception {
         if (!supportsHttpHeaders()) {
@@ -491,8 +849,7 @@ public abstract class IntegrationBase {
         Status.Builder statusBuilder = Status.newBuilder();
         JsonFormat.parser().merge(json, statusBuilder);
 
-        // As expected, Status loses "cause" and "details" after transmission.
-        // Normally, details would be set, but JsonFormat doesn't support serializing Any.
+        // As expected, Status loses "cause" after transmission.
         Status expected = Status
                 .newBuilder()
                 .setCode(2)
@@ -536,14 +893,14 @@ public abstract class IntegrationBase {
 
         String json = reader.readLine();
         Status.Builder statusBuilder = Status.newBuilder();
-        JsonFormat.parser().merge(json, statusBuilder);
+        JsonFormat.parser().usingTypeRegistry(TypeRegistries.errorDetails()).merge(json, statusBuilder);
 
-        // As expected, Status loses "cause" and "details" after transmission.
-        // Normally, details would be set, but JsonFormat doesn't support serializing Any.
+        // As expected, Status loses "cause" after transmission, the DebugInfo trailer is kept as a detail.
         Status expected = Status
                 .newBuilder()
                 .setCode(15)
                 .setMessage("HTTP 500 (gRPC: DATA_LOSS): Fail-fast: Grue found in write-path.\ntest")
+                .addDetails(Any.pack(DebugInfo.newBuilder().setDetail("test2").build()))
                 .build();
 
         assertThat(statusBuilder.build()).isEqualTo(expected);
@@ -596,6 +953,141 @@ public abstract class IntegrationBase {
         assertThat(statusBuilder.build()).isEqualTo(expected);
     }
 
+    @Test
+    public void testStreamGet_serverSentEvents() throws Exception {
+        String response = resources().getJerseyTest()
+                .target("/stream/hello")
+                .queryParam("int3", "2")
+                .request()
+                .header(HttpHeaders.ACCEPT, "text/event-stream")
+                .header(ServerSentEvents.LAST_EVENT_ID, "7")
+                .get(String.class);
+
+        List<String> events = Splitter.on("\n\n").omitEmptyStrings().splitToList(response);
+        // The reconnection delay comes first, then the events, their id is the int6 the Last-Event-ID was bound to.
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0)).isEqualTo("retry: 3000");
+        for (String event : events.subList(1, events.size())) {
+            assertThat(event).startsWith("id: 7\ndata: ");
+
+            TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+            JsonFormat.parser().merge(event.substring("id: 7\ndata: ".length()), responseFromJson);
+            assertThat(responseFromJson.getRequest().getInt6()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void testStreamGet_jsonArray() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/stream/hello")
+                .queryParam("int3", "3")
+                .request()
+                .header(HttpHeaders.ACCEPT, "application/json; stream=array")
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        JsonArray array = new JsonParser().parse(response.readEntity(String.class)).getAsJsonArray();
+        assertThat(array).hasSize(3);
+        for (int i = 0; i < array.size(); i++) {
+            TestResponse.Builder responseFromJson = TestResponse.newBuilder();
+            JsonFormat.parser().merge(array.get(i).toString(), responseFromJson);
+            assertThat(responseFromJson.getRequest().getS()).isEqualTo("hello");
+        }
+    }
+
+    @Test
+    public void testStreamGet_jsonArrayEmpty() throws Exception {
+        String response = resources().getJerseyTest()
+                .target("/stream/hello")
+                .queryParam("int3", "0")
+                .request()
+                .header(HttpHeaders.ACCEPT, "application/json; stream=array")
+                .get(String.class);
+
+        assertThat(response).isEqualTo("[]");
+    }
+
+    @Test
+    public void testStreamGet_jsonArrayError() throws Exception {
+        String response = resources().getJerseyTest()
+                .target("/stream/explode")
+                .queryParam("int3", "2")
+                .request()
+                .header(HttpHeaders.ACCEPT, "application/json; stream=array")
+                .get(String.class);
+
+        JsonArray array = new JsonParser().parse(response).getAsJsonArray();
+        assertThat(array).hasSize(3);
+
+        // The error is the last element.
+        Status.Builder statusBuilder = Status.newBuilder();
+        JsonFormat.parser().merge(array.get(2).toString(), statusBuilder);
+        assertThat(statusBuilder.getCode()).isEqualTo(2);
+    }
+
+    @Test
+    public void testStreamGet_protobufStream() throws Exception {
+        Response response = resources().getJerseyTest()
+                .target("/stream/hello")
+                .queryParam("int3", "3")
+                .request()
+                .header(HttpHeaders.ACCEPT, "application/x-protobuf-stream")
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        List<TestResponse> messages = new ArrayList<>();
+        Status status = readProtobufStream(response.readEntity(InputStream.class), messages);
+
+        assertThat(messages).hasSize(3);
+        for (TestResponse message : messages) {
+            assertThat(message.getRequest().getS()).isEqualTo("hello");
+        }
+        // Completed streams end with an OK status.
+        assertThat(status).isEqualTo(Status.getDefaultInstance());
+    }
+
+    @Test
+    public void testStreamGet_protobufStreamError() throws Exception {
+        InputStream response = resources().getJerseyTest()
+                .target("/stream/explode")
+                .queryParam("int3", "2")
+                .request()
+                .header(HttpHeaders.ACCEPT, "application/x-protobuf-stream")
+                .get(InputStream.class);
+
+        List<TestResponse> messages = new ArrayList<>();
+        Status status = readProtobufStream(response, messages);
+
+        assertThat(messages).hasSize(2);
+        assertThat(status).isEqualTo(Status.newBuilder()
+                .setCode(2)
+                .setMessage("HTTP 500 (gRPC: UNKNOWN)")
+                .build());
+    }
+
+    /**
+     * Reads the messages of a {@link StreamFormat#PROTOBUF} stream, up to its terminal status.
+     */
+    private static Status readProtobufStream(InputStream stream, List<TestResponse> messages) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(stream);
+        while (!input.isAtEnd()) {
+            int tag = input.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case StreamFormat.MESSAGE_FIELD:
+                    messages.add(TestResponse.parseFrom(input.readBytes()));
+                    break;
+                case StreamFormat.STATUS_FIELD:
+                    Status status = Status.parseFrom(input.readBytes());
+                    assertThat(input.isAtEnd()).isTrue();
+                    return status;
+                default:
+                    throw new AssertionError("Unexpected frame " + tag);
+            }
+        }
+
+        throw new AssertionError("The stream ended without a status");
+    }
+
     @Test
     public void testUnaryError() throws Exception {
         Response response = resources().getJerseyTest()
@@ -605,12 +1097,15 @@ public abstract class IntegrationBase {
                 .invoke();
 
         Status.Builder statusBuilder = Status.newBuilder();
-        JsonFormat.parser().merge(response.readEntity(String.class), statusBuilder);
+        JsonFormat.parser()
+                .usingTypeRegistry(TypeRegistries.errorDetails())
+                .merge(response.readEntity(String.class), statusBuilder);
 
         Status expected = Status
                 .newBuilder()
                 .setCode(8)
                 .setMessage("HTTP 503 (gRPC: RESOURCE_EXHAUSTED)")
+                .addDetails(Any.pack(RetryInfo.newBuilder().setRetryDelay(Durations.fromSeconds(30)).build()))
                 .build();
 
         assertThat(response.getStatus()).isEqualTo(503);
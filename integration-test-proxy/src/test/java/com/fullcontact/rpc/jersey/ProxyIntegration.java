@@ -1,7 +1,10 @@
 package com.fullcontact.rpc.jersey;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.fullcontact.rpc.TestServiceGrpc;
 import com.fullcontact.rpc.TestServiceGrpcJerseyResource;
+import com.fullcontact.rpc.TestServiceGrpcRoutes;
 import io.dropwizard.testing.junit.ResourceTestRule;
 import io.grpc.Server;
 import io.grpc.inprocess.InProcessChannelBuilder;
@@ -9,6 +12,7 @@ import io.grpc.inprocess.InProcessServerBuilder;
 import java.io.IOException;
 import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -31,7 +35,8 @@ public class ProxyIntegration extends IntegrationBase {
     @ClassRule
     public static final ResourceTestRule resources =
             ResourceTestRule.builder()
-                    .addResource(new TestServiceGrpcJerseyResource(stub))
+                    .addResource(new TestServiceGrpcJerseyResource(stub, CONFIG))
+                    .addResource(new BatchResource(TestServiceGrpcRoutes.routes(stub)))
                     .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
                     .build();
 
@@ -52,4 +57,9 @@ public class ProxyIntegration extends IntegrationBase {
     public boolean supportsHttpHeaders() {
         return true;
     }
+
+    @Test
+    public void warmUp() throws Exception {
+        assertThat(new TestServiceGrpcJerseyResource(stub).warmUp(10)).isEmpty();
+    }
 }
@@ -0,0 +1,115 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.TestServiceGrpc;
+import com.fullcontact.rpc.TestServiceGrpcRoutes;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.protobuf.Message;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark of the routes generated with the static option: time to the first request through binding, the
+ * RPC and printing, then the time until throughput settles. Not part of the test suite, and only meaningful in a fresh
+ * JVM: run its {@link #main} from the test classpath (e.x. from an IDE).
+ */
+public final class StartupBenchmark {
+    private static final int WINDOW = 2_000;
+    private static final int MAX_WINDOWS = 100;
+    // Steady once a window is within 5% of the previous one.
+    private static final double TOLERANCE = 0.05;
+
+    private StartupBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+
+        Server server = InProcessServerBuilder.forName("StartupBenchmark")
+                .addService(new EchoTestService())
+                .directExecutor()
+                .build()
+                .start();
+        try {
+            TestServiceGrpc.TestServiceStub stub = TestServiceGrpc.newStub(
+                    InProcessChannelBuilder.forName("StartupBenchmark").directExecutor().build());
+            @SuppressWarnings("unchecked")
+            GrpcRoute<Message, Message> route = (GrpcRoute<Message, Message>) TestServiceGrpcRoutes.routes(stub)
+                    .stream()
+                    .filter(r -> r.getMethodName().equals("TestMethod") && r.getHttpMethod().equals("GET"))
+                    .findFirst()
+                    .get();
+            RouteRequest request = RouteRequest.builder()
+                    .pathParameters(route.match("GET", "/users/string/1234/ntf1").get())
+                    .queryParameters(ImmutableMap.of(
+                            "int3", ImmutableList.of("-5"),
+                            "enu", ImmutableList.of("SECOND"),
+                            "rep_str", ImmutableList.of("a", "b")))
+                    .build();
+
+            call(route, request);
+            long firstRequestNanos = System.nanoTime() - start;
+
+            double previous = 0;
+            int windows = 0;
+            long steadyNanos;
+            while (true) {
+                long windowStart = System.nanoTime();
+                for (int i = 0; i < WINDOW; i++) {
+                    call(route, request);
+                }
+                long now = System.nanoTime();
+                double throughput = WINDOW * 1e9 / (now - windowStart);
+                windows++;
+                if ((previous > 0 && Math.abs(throughput - previous) <= previous * TOLERANCE)
+                        || windows == MAX_WINDOWS) {
+                    steadyNanos = now - start;
+                    previous = throughput;
+                    break;
+                }
+                previous = throughput;
+            }
+
+            System.out.printf("time to first request: %dms, time to steady state: %dms (%d requests, %.0f req/s)%n",
+                    TimeUnit.NANOSECONDS.toMillis(firstRequestNanos),
+                    TimeUnit.NANOSECONDS.toMillis(steadyNanos),
+                    1 + windows * WINDOW,
+                    previous);
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    private static String call(GrpcRoute<Message, Message> route, RouteRequest request) throws Exception {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        route.getInvoker().invoke(
+                route.getBinder().bind(request),
+                request,
+                HttpHeaderInterceptors.clientInterceptor(ImmutableMultimap.of()),
+                new StreamObserver<Message>() {
+                    @Override
+                    public void onNext(Message value) {
+                        try {
+                            response.complete(route.getConfig().getUnaryPrinter().print(value));
+                        } catch (Exception e) {
+                            response.completeExceptionally(e);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        response.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+
+        return response.get(10, TimeUnit.SECONDS);
+    }
+}
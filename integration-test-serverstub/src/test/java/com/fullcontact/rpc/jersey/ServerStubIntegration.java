@@ -1,9 +1,13 @@
 package com.fullcontact.rpc.jersey;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.fullcontact.rpc.TestServiceGrpcJerseyResource;
+import com.fullcontact.rpc.TestServiceGrpcRoutes;
 import io.dropwizard.testing.junit.ResourceTestRule;
 import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -17,7 +21,8 @@ public class ServerStubIntegration extends IntegrationBase {
     @ClassRule
     public static final ResourceTestRule resources =
             ResourceTestRule.builder()
-                    .addResource(new TestServiceGrpcJerseyResource(new EchoTestService()))
+                    .addResource(new TestServiceGrpcJerseyResource(new EchoTestService(), CONFIG))
+                    .addResource(new BatchResource(TestServiceGrpcRoutes.routes(new EchoTestService())))
                     .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
                     .build();
 
@@ -30,4 +35,9 @@ public class ServerStubIntegration extends IntegrationBase {
     public boolean supportsHttpHeaders() {
         return false;
     }
+
+    @Test
+    public void warmUp() throws Exception {
+        assertThat(new TestServiceGrpcJerseyResource(new EchoTestService()).warmUp(10)).isEmpty();
+    }
 }
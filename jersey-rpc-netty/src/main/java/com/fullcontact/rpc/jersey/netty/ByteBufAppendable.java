@@ -0,0 +1,55 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * {@link Appendable} which encodes straight into a {@link ByteBuf} as UTF-8, letting printers write into a pooled
+ * buffer without an intermediate String.
+ */
+final class ByteBufAppendable implements Appendable {
+    private final ByteBuf buf;
+    // High surrogate of a pair split across two append(char) calls.
+    private char pendingHighSurrogate;
+
+    ByteBufAppendable(ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        flushPendingSurrogate();
+        ByteBufUtil.writeUtf8(buf, csq);
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        return append(csq.subSequence(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            ByteBufUtil.writeUtf8(buf, new String(new char[] {high, c}));
+        } else if (c < 0x80) {
+            buf.writeByte(c);
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else {
+            ByteBufUtil.writeUtf8(buf, String.valueOf(c));
+        }
+
+        return this;
+    }
+
+    private void flushPendingSurrogate() {
+        if (pendingHighSurrogate != 0) {
+            // Unpaired, let the encoder substitute it.
+            ByteBufUtil.writeUtf8(buf, String.valueOf(pendingHighSurrogate));
+            pendingHighSurrogate = 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Sets up HTTP/1.1 with cleartext HTTP/2 (h2c) support, both via prior knowledge and the HTTP/1.1 Upgrade header.
+ * HTTP/2 streams are converted to HTTP/1.1 objects so both protocols share the same {@link GatewayHandler}.
+ */
+class GatewayChannelInitializer extends ChannelInitializer<SocketChannel> {
+    private final GatewayHandler gatewayHandler;
+    private final int maxContentLength;
+
+    GatewayChannelInitializer(GatewayHandler gatewayHandler, int maxContentLength) {
+        this.gatewayHandler = gatewayHandler;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel ch) {
+        HttpServerCodec sourceCodec = new HttpServerCodec();
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol ->
+                AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                        ? new Http2ServerUpgradeCodec(http2Codec())
+                        : null);
+
+        ChannelPipeline pipeline = ch.pipeline();
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, http2Codec()));
+        pipeline.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, HttpMessage msg) {
+                // No upgrade took place, continue with plain HTTP/1.1.
+                ChannelPipeline pipeline = ctx.pipeline();
+                pipeline.addAfter(ctx.name(), null, gatewayHandler);
+                pipeline.replace(this, null, new HttpObjectAggregator(maxContentLength));
+                ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
+            }
+        });
+    }
+
+    private Http2MultiplexCodec http2Codec() {
+        return Http2MultiplexCodecBuilder.forServer(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.pipeline().addLast(
+                        new Http2StreamFrameToHttpObjectCodec(true),
+                        new HttpObjectAggregator(maxContentLength),
+                        gatewayHandler);
+            }
+        }).build();
+    }
+}
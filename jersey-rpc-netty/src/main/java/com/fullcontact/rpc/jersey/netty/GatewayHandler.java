@@ -0,0 +1,144 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import com.fullcontact.rpc.jersey.GrpcRoute;
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors;
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.fullcontact.rpc.jersey.RouteRequest;
+import com.fullcontact.rpc.jersey.RouteTable;
+import com.fullcontact.rpc.jersey.StreamFormat;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Message;
+import io.grpc.stub.StreamObserver;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Routes aggregated HTTP requests (HTTP/1.1, or HTTP/2 streams converted by
+ * {@link io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec}) to {@link GrpcRoute}s, through a
+ * {@link RouteTable}.
+ */
+@ChannelHandler.Sharable
+class GatewayHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private final RouteTable routes;
+    private final Executor executor;
+
+    /**
+     * @param executor executor to bind and invoke RPCs on, or null to do so on the event loop. Direct-mode routes run
+     * service code on this executor, so they should not use the event loop.
+     */
+    GatewayHandler(List<GrpcRoute<?, ?>> routes, Executor executor) {
+        this.routes = new RouteTable(routes);
+        this.executor = executor;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        boolean keepAlive = ctx.channel() instanceof Http2StreamChannel || HttpUtil.isKeepAlive(request);
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String httpMethod = request.method().name();
+
+        Optional<RouteTable.Match> match = routes.match(httpMethod, uri.rawPath());
+        if (match.isPresent()) {
+            dispatch(ctx, request, keepAlive, match.get().getRoute(),
+                    routeRequest(request, uri, match.get().getPathParameters()));
+            return;
+        }
+
+        SortedSet<String> allowedMethods = routes.allowedMethods(uri.rawPath());
+        if (allowedMethods.isEmpty()) {
+            NettyResponses.write(ctx, NettyResponses.empty(HttpResponseStatus.NOT_FOUND), keepAlive);
+        } else {
+            FullHttpResponse response = NettyResponses.empty(HttpResponseStatus.METHOD_NOT_ALLOWED);
+            response.headers().set(HttpHeaderNames.ALLOW, String.join(", ", allowedMethods));
+            NettyResponses.write(ctx, response, keepAlive);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+
+    private void dispatch(ChannelHandlerContext ctx,
+            FullHttpRequest request,
+            boolean keepAlive,
+            GrpcRoute<?, ?> route,
+            RouteRequest routeRequest) {
+        if (executor == null) {
+            invoke(ctx, request, keepAlive, route, routeRequest);
+            return;
+        }
+
+        // The request is released when channelRead0 returns, hold onto the body until it has been bound.
+        request.retain();
+        executor.execute(() -> {
+            try {
+                invoke(ctx, request, keepAlive, route, routeRequest);
+            } finally {
+                request.release();
+            }
+        });
+    }
+
+    private <ReqT extends Message, RespT extends Message> void invoke(ChannelHandlerContext ctx,
+            FullHttpRequest request,
+            boolean keepAlive,
+            GrpcRoute<ReqT, RespT> route,
+            RouteRequest routeRequest) {
+        HttpHeaderClientInterceptor interceptor = HttpHeaderInterceptors.clientInterceptor(routeRequest.getHeaders());
+        StreamObserver<RespT> observer;
+        if (route.isServerStreaming()) {
+            StreamFormat format = StreamFormat.fromAccept(request.headers().get(HttpHeaderNames.ACCEPT));
+            observer = new NettyStreamingObserver<>(
+                    ctx, interceptor, route.getConfig(), format, route.getEvents(), keepAlive);
+        } else {
+            observer = new NettyUnaryObserver<>(ctx, interceptor, route.getConfig(), keepAlive);
+        }
+
+        ReqT rpcRequest;
+        try {
+            rpcRequest = route.getBinder().bind(routeRequest);
+        } catch (Exception e) {
+            observer.onError(e);
+            return;
+        }
+
+        route.getInvoker().invoke(rpcRequest, routeRequest, interceptor, observer);
+    }
+
+    private static RouteRequest routeRequest(FullHttpRequest request,
+            QueryStringDecoder uri,
+            ImmutableMap<String, String> pathParameters) {
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+        for (Map.Entry<String, String> header : request.headers()) {
+            headers.put(header.getKey(), header.getValue());
+        }
+
+        ByteBuf content = request.content();
+        return RouteRequest.builder()
+                .pathParameters(pathParameters)
+                .queryParameters(uri.parameters())
+                .headers(headers.build())
+                // Decodes straight out of the request buffer.
+                .body(() -> new InputStreamReader(new ByteBufInputStream(content.duplicate()), StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import com.fullcontact.rpc.jersey.GrpcRoute;
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Serves {@link GrpcRoute}s (generated with the {@code routes} option) straight from Netty, without a servlet
+ * container or Jersey. Speaks HTTP/1.1 and cleartext HTTP/2.
+ *
+ * The event loop groups and channel type can be shared with a grpc-netty server so both listeners run on the same
+ * threads:
+ *
+ * <pre>{@code
+ * NettyGrpcGateway gateway = NettyGrpcGateway.forPort(8080)
+ *         .eventLoopGroups(bossGroup, workerGroup)
+ *         .addRoutes(TestServiceGrpcRoutes.routes(stub))
+ *         .build()
+ *         .start();
+ * }</pre>
+ */
+@Beta
+public final class NettyGrpcGateway {
+    private final SocketAddress address;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final boolean ownsEventLoopGroups;
+    private final Class<? extends ServerChannel> channelType;
+    private final GatewayChannelInitializer initializer;
+
+    private volatile Channel channel;
+
+    private NettyGrpcGateway(Builder builder) {
+        this.address = builder.address;
+        this.ownsEventLoopGroups = builder.bossGroup == null;
+        this.bossGroup = ownsEventLoopGroups ? new NioEventLoopGroup(1) : builder.bossGroup;
+        this.workerGroup = ownsEventLoopGroups ? new NioEventLoopGroup() : builder.workerGroup;
+        this.channelType = builder.channelType;
+        this.initializer = new GatewayChannelInitializer(
+                new GatewayHandler(builder.routes.build(), builder.executor), builder.maxContentLength);
+    }
+
+    public static Builder forPort(int port) {
+        return forAddress(new InetSocketAddress(port));
+    }
+
+    public static Builder forAddress(SocketAddress address) {
+        return new Builder(address);
+    }
+
+    /**
+     * Binds the listening socket.
+     */
+    public NettyGrpcGateway start() throws InterruptedException {
+        Preconditions.checkState(channel == null, "Already started");
+
+        channel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(channelType)
+                .option(ChannelOption.SO_BACKLOG, 128)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(initializer)
+                .bind(address)
+                .sync()
+                .channel();
+
+        return this;
+    }
+
+    /**
+     * Port the gateway is listening on, useful when started on port 0.
+     */
+    public int getPort() {
+        Preconditions.checkState(channel != null, "Not started");
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    /**
+     * Stops accepting connections. Event loop groups are only shut down if they weren't supplied to the builder.
+     */
+    public void shutdown() throws InterruptedException {
+        if (channel != null) {
+            channel.close().sync();
+        }
+
+        if (ownsEventLoopGroups) {
+            bossGroup.shutdownGracefully().sync();
+            workerGroup.shutdownGracefully().sync();
+        }
+    }
+
+    public static final class Builder {
+        private final SocketAddress address;
+        private final ImmutableList.Builder<GrpcRoute<?, ?>> routes = ImmutableList.builder();
+        private EventLoopGroup bossGroup;
+        private EventLoopGroup workerGroup;
+        private Class<? extends ServerChannel> channelType = NioServerSocketChannel.class;
+        private int maxContentLength = 4 * 1024 * 1024;
+        private Executor executor;
+
+        private Builder(SocketAddress address) {
+            this.address = address;
+        }
+
+        public Builder addRoutes(List<GrpcRoute<?, ?>> routes) {
+            this.routes.addAll(routes);
+            return this;
+        }
+
+        /**
+         * Event loop groups to run on, e.x. the ones given to {@code NettyServerBuilder}. They are not shut down with
+         * the gateway.
+         */
+        public Builder eventLoopGroups(EventLoopGroup bossGroup, EventLoopGroup workerGroup) {
+            this.bossGroup = Preconditions.checkNotNull(bossGroup, "bossGroup");
+            this.workerGroup = Preconditions.checkNotNull(workerGroup, "workerGroup");
+            return this;
+        }
+
+        /**
+         * Server channel type, must match the event loop groups. Defaults to {@link NioServerSocketChannel}.
+         */
+        public Builder channelType(Class<? extends ServerChannel> channelType) {
+            this.channelType = Preconditions.checkNotNull(channelType, "channelType");
+            return this;
+        }
+
+        /**
+         * Largest request body accepted, larger requests are rejected with 413. Defaults to 4MiB.
+         */
+        public Builder maxContentLength(int maxContentLength) {
+            Preconditions.checkArgument(maxContentLength > 0, "maxContentLength must be positive");
+            this.maxContentLength = maxContentLength;
+            return this;
+        }
+
+        /**
+         * Executor to bind and invoke RPCs on. By default this happens on the event loop, which is fine for client
+         * stubs (proxy mode) as they don't block. Routes generated in direct mode call the service implementation
+         * and should be given an executor unless the service never blocks.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public NettyGrpcGateway build() {
+            return new NettyGrpcGateway(this);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.Response;
+
+/**
+ * Helpers shared by the Netty observers for building and writing responses.
+ */
+final class NettyResponses {
+    static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    private NettyResponses() {}
+
+    static FullHttpResponse json(HttpResponseStatus status, ByteBuf content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, JSON_CONTENT_TYPE);
+        return response;
+    }
+
+    static FullHttpResponse empty(HttpResponseStatus status) {
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+    }
+
+    /**
+     * Converts the JAX-RS response produced by a {@link com.fullcontact.rpc.jersey.GrpcJerseyErrorHandler}.
+     */
+    static FullHttpResponse fromJaxRs(ChannelHandlerContext ctx, Response jaxRsResponse) {
+        Object entity = jaxRsResponse.getEntity();
+        ByteBuf content = entity == null
+                ? Unpooled.EMPTY_BUFFER
+                : ByteBufUtil.writeUtf8(ctx.alloc(), entity.toString());
+
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(jaxRsResponse.getStatus()), content);
+        for (Map.Entry<String, List<String>> header : jaxRsResponse.getStringHeaders().entrySet()) {
+            response.headers().add(header.getKey(), header.getValue());
+        }
+
+        if (!response.headers().contains(HttpHeaderNames.CONTENT_TYPE)) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, JSON_CONTENT_TYPE);
+        }
+
+        return response;
+    }
+
+    static void addHeaders(HttpResponse response, ImmutableMultimap<String, String> headers) {
+        for (Map.Entry<String, String> header : headers.entries()) {
+            response.headers().add(header.getKey(), header.getValue());
+        }
+    }
+
+    /**
+     * Writes a complete response, closing HTTP/1.x connections afterwards unless the client asked to keep them open.
+     */
+    static void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            ctx.writeAndFlush(response);
+        } else {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import com.fullcontact.rpc.jersey.GrpcJerseyConfig;
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.fullcontact.rpc.jersey.ServerSentEvents;
+import com.fullcontact.rpc.jersey.StreamFormat;
+import com.fullcontact.rpc.jersey.StreamTimer;
+import com.fullcontact.rpc.jersey.TypedJsonPrinter;
+import com.google.protobuf.Message;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * gRPC StreamObserver which publishes JSON-formatted messages from a gRPC server stream as a chunked response,
+ * framed by a {@link StreamFormat}. Netty counterpart of {@link com.fullcontact.rpc.jersey.JerseyStreamingObserver}.
+ *
+ * When used with a client stub, the upstream call is cancelled if the HTTP client disconnects.
+ *
+ * Streams are watched by the {@link StreamTimer} for SSE heartbeats and for the configured stream timeouts. Like the
+ * observer's callbacks, they write from outside the event loop, and the writes are queued to it in the order the
+ * observer makes them. A stream which times out is ended with DEADLINE_EXCEEDED and its upstream call cancelled.
+ */
+class NettyStreamingObserver<V extends Message> implements ClientResponseObserver<Message, V> {
+    private final ChannelHandlerContext ctx;
+    private final HttpHeaderClientInterceptor httpHeaderClientInterceptor;
+    private final GrpcJerseyConfig config;
+    private final StreamFormat format;
+    private final ServerSentEvents<V> events;
+    private final boolean keepAlive;
+
+    private volatile boolean first = true;
+    private volatile boolean closed = false;
+    // Set once the stream timed out, the upstream call's termination is then ignored.
+    private volatile boolean expired = false;
+    private volatile ClientCallStreamObserver<Message> requestStream;
+    // Guarded by this, the timer races with the observer's callbacks.
+    private boolean wroteElement = false;
+    // Null unless the stream has heartbeats or timeouts.
+    private final StreamTimer.Watch watch;
+
+    NettyStreamingObserver(ChannelHandlerContext ctx,
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            GrpcJerseyConfig config,
+            StreamFormat format,
+            ServerSentEvents<V> events,
+            boolean keepAlive) {
+        this.ctx = ctx;
+        this.httpHeaderClientInterceptor = httpHeaderClientInterceptor;
+        this.config = config;
+        this.format = format;
+        this.events = events;
+        this.keepAlive = keepAlive;
+        this.watch = StreamTimer.shared().watch(
+                new StreamTimer.Listener() {
+                    @Override
+                    public void onHeartbeat() {
+                        heartbeat();
+                    }
+
+                    @Override
+                    public void onExpired(Status status) {
+                        expire(status);
+                    }
+                },
+                format == StreamFormat.SSE ? config.getSseHeartbeat() : Duration.ZERO,
+                config.getStreamIdleTimeout(),
+                config.getStreamMaxDuration());
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Message> requestStream) {
+        this.requestStream = requestStream;
+        ctx.channel().closeFuture().addListener(future -> {
+            stopWatching();
+            if (!closed) {
+                closed = true;
+                requestStream.cancel("HTTP client disconnected", null);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onNext(V value) {
+        if (closed) {
+            if (!ctx.channel().isActive() || expired) {
+                // Messages already in flight when the client disconnected, or the stream timed out.
+                return;
+            }
+
+            throw new IllegalStateException("NettyStreamingObserver has already been closed");
+        }
+        if (watch != null) {
+            watch.touch();
+        }
+
+        addHeadersIfNotSent();
+
+        ByteBuf content = ctx.alloc().buffer();
+        try {
+            if (format == StreamFormat.SSE) {
+                ByteBufUtil.writeUtf8(content, events.eventPrefix(value));
+            }
+            frameStart(content);
+            TypedJsonPrinter.appendTo(config.getStreamPrinter(), value, new ByteBufAppendable(content));
+            frameEnd(content);
+        } catch (IOException e) {
+            content.release();
+            onError(e);
+            return;
+        }
+
+        ctx.writeAndFlush(new DefaultHttpContent(content));
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        stopWatching();
+        if (t instanceof EOFException || closed) {
+            closed = true;
+            // The client went away, there's not much we can do.
+            return;
+        }
+
+        addHeadersIfNotSent();
+        closed = true;
+
+        try {
+            // As we lack supported trailers in standard HTTP, we'll have to make do with emitting an error to the
+            // primary stream
+            Optional<String> errorPayload = config.getErrorHandler().handleStreamingError(t);
+            if (errorPayload.isPresent() && !errorPayload.get().isEmpty()) {
+                ByteBuf content = ctx.alloc().buffer();
+                frameStart(content);
+                ByteBufUtil.writeUtf8(content, errorPayload.get());
+                frameEnd(content);
+                ctx.write(new DefaultHttpContent(content));
+            }
+        } catch (IOException e) {
+            // Something really broke, try closing the connection.
+            ctx.close();
+            return;
+        }
+
+        finish();
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        stopWatching();
+        if (closed) {
+            return;
+        }
+
+        addHeadersIfNotSent();
+        closed = true;
+        finish();
+    }
+
+    private synchronized void heartbeat() {
+        if (closed || !ctx.channel().isActive()) {
+            stopWatching();
+            return;
+        }
+
+        addHeadersIfNotSent();
+        ctx.writeAndFlush(new DefaultHttpContent(ByteBufUtil.writeAscii(ctx.alloc(), ServerSentEvents.HEARTBEAT)));
+    }
+
+    private synchronized void expire(Status status) {
+        if (closed) {
+            return;
+        }
+
+        expired = true;
+        onError(status.asRuntimeException());
+        // Closed first, so the cancellation isn't written as the stream's error.
+        ClientCallStreamObserver<Message> call = requestStream;
+        if (call != null) {
+            call.cancel(status.getDescription(), null);
+        }
+    }
+
+    private void stopWatching() {
+        if (watch != null) {
+            watch.cancel();
+        }
+    }
+
+    private void finish() {
+        String end = format.end(!wroteElement);
+        if (!end.isEmpty()) {
+            ctx.write(new DefaultHttpContent(ByteBufUtil.writeUtf8(ctx.alloc(), end)));
+        }
+
+        if (keepAlive) {
+            ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void addHeadersIfNotSent() {
+        if (!first || closed) {
+            return;
+        } else {
+            first = false;
+        }
+
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, format.contentType());
+        HttpUtil.setTransferEncodingChunked(response, true);
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        NettyResponses.addHeaders(response, httpHeaderClientInterceptor.getHttpResponseHeaders());
+
+        ctx.write(response);
+
+        String streamPrefix = format == StreamFormat.SSE ? events.streamPrefix() : "";
+        if (!streamPrefix.isEmpty()) {
+            ctx.write(new DefaultHttpContent(ByteBufUtil.writeAscii(ctx.alloc(), streamPrefix)));
+        }
+    }
+
+    private void frameStart(ByteBuf content) {
+        ByteBufUtil.writeAscii(content, format.prefix(!wroteElement));
+        wroteElement = true;
+    }
+
+    private void frameEnd(ByteBuf content) {
+        ByteBufUtil.writeAscii(content, format.suffix());
+    }
+}
@@ -0,0 +1,80 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import com.fullcontact.rpc.jersey.GrpcJerseyConfig;
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.fullcontact.rpc.jersey.TypedJsonPrinter;
+import com.google.protobuf.Message;
+import io.grpc.stub.StreamObserver;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.IOException;
+import java.util.Optional;
+import javax.ws.rs.core.Response;
+
+/**
+ * gRPC StreamObserver which writes a single JSON response to a Netty channel. Netty counterpart of
+ * {@link com.fullcontact.rpc.jersey.JerseyUnaryObserver}.
+ */
+class NettyUnaryObserver<V extends Message> implements StreamObserver<V> {
+    private final ChannelHandlerContext ctx;
+    private final HttpHeaderClientInterceptor httpHeaderClientInterceptor;
+    private final GrpcJerseyConfig config;
+    private final boolean keepAlive;
+
+    private volatile boolean closed = false;
+
+    NettyUnaryObserver(ChannelHandlerContext ctx,
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            GrpcJerseyConfig config,
+            boolean keepAlive) {
+        this.ctx = ctx;
+        this.httpHeaderClientInterceptor = httpHeaderClientInterceptor;
+        this.config = config;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public void onNext(V value) {
+        if (closed) {
+            throw new IllegalStateException("NettyUnaryObserver has already been closed");
+        }
+
+        ByteBuf content = ctx.alloc().buffer();
+        try {
+            TypedJsonPrinter.appendTo(config.getUnaryPrinter(), value, new ByteBufAppendable(content));
+        } catch (IOException e) {
+            content.release();
+            onError(e);
+            return;
+        }
+
+        FullHttpResponse response = NettyResponses.json(HttpResponseStatus.OK, content);
+        NettyResponses.addHeaders(response, httpHeaderClientInterceptor.getHttpResponseHeaders());
+        closed = true;
+        NettyResponses.write(ctx, response, keepAlive);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (closed) {
+            // A response has already been written.
+            return;
+        }
+
+        closed = true;
+        Optional<Response> response = config.getErrorHandler()
+                .handleUnaryError(t, httpHeaderClientInterceptor.getHttpResponseHeaders());
+        if (response.isPresent()) {
+            NettyResponses.write(ctx, NettyResponses.fromJaxRs(ctx, response.get()), keepAlive);
+        } else {
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        closed = true;
+    }
+}
@@ -0,0 +1,211 @@
+package com.fullcontact.rpc.jersey.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.fullcontact.rpc.jersey.GrpcRoute;
+import com.fullcontact.rpc.jersey.PathTemplate;
+import com.fullcontact.rpc.jersey.RequestParser;
+import com.fullcontact.rpc.jersey.StreamFormat;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.Status;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link GatewayHandler}
+ */
+@RunWith(JUnit4.class)
+public class GatewayHandlerTest {
+    private static final ImmutableList<GrpcRoute<?, ?>> ROUTES = ImmutableList.of(
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("TestMethod")
+                    .httpMethod("GET")
+                    .pathTemplate(PathTemplate.compile("/users/{s}"))
+                    .binder(request -> {
+                        TestRequest.Builder r = TestRequest.newBuilder();
+                        RequestParser.parseQueryParams(request.getQueryParameters(), r);
+                        RequestParser.setFieldSafely(r, "s", request.pathParameter("s"));
+                        return r.build();
+                    })
+                    .invoker((r, request, interceptor, observer) -> {
+                        if (r.getS().equals("missing")) {
+                            observer.onError(Status.NOT_FOUND.asRuntimeException());
+                            return;
+                        }
+
+                        observer.onNext(TestResponse.newBuilder().setRequest(r).build());
+                        observer.onCompleted();
+                    })
+                    .build(),
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("TestMethod2")
+                    .httpMethod("POST")
+                    .pathTemplate(PathTemplate.compile("/users/"))
+                    .binder(request -> {
+                        TestRequest.Builder r = TestRequest.newBuilder();
+                        RequestParser.handleBody("*", r, request.getBody().openReader());
+                        return r.build();
+                    })
+                    .invoker((r, request, interceptor, observer) -> {
+                        observer.onNext(TestResponse.newBuilder().setRequest(r).build());
+                        observer.onCompleted();
+                    })
+                    .build(),
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("StreamMethod1")
+                    .httpMethod("GET")
+                    .pathTemplate(PathTemplate.compile("/stream/{s}"))
+                    .serverStreaming(true)
+                    .binder(request -> {
+                        TestRequest.Builder r = TestRequest.newBuilder();
+                        RequestParser.setFieldSafely(r, "s", request.pathParameter("s"));
+                        return r.build();
+                    })
+                    .invoker((r, request, interceptor, observer) -> {
+                        for (int i = 0; i < 2; i++) {
+                            observer.onNext(TestResponse.newBuilder().setRequest(r).build());
+                        }
+                        observer.onCompleted();
+                    })
+                    .build());
+
+    @Test
+    public void unary() throws Exception {
+        FullHttpResponse response = roundTrip(request(HttpMethod.GET, "/users/a%20b?int3=5", ""));
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo(NettyResponses.JSON_CONTENT_TYPE);
+        assertThat(parse(response.content().toString(StandardCharsets.UTF_8)).getRequest())
+                .isEqualTo(TestRequest.newBuilder().setS("a b").setInt3(5).build());
+        response.release();
+    }
+
+    @Test
+    public void unaryBody() throws Exception {
+        FullHttpResponse response = roundTrip(request(HttpMethod.POST, "/users", "{\"s\":\"✓\"}"));
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(parse(response.content().toString(StandardCharsets.UTF_8)).getRequest().getS()).isEqualTo("✓");
+        response.release();
+    }
+
+    @Test
+    public void badRequest() {
+        FullHttpResponse response = roundTrip(request(HttpMethod.POST, "/users/", "{\"s\":"));
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.BAD_REQUEST);
+        response.release();
+    }
+
+    @Test
+    public void rpcError() {
+        FullHttpResponse response = roundTrip(request(HttpMethod.GET, "/users/missing", ""));
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.NOT_FOUND);
+        assertThat(response.content().toString(StandardCharsets.UTF_8))
+                .contains("HTTP 404 (gRPC: NOT_FOUND)");
+        response.release();
+    }
+
+    @Test
+    public void unmatchedRoutes() {
+        FullHttpResponse notFound = roundTrip(request(HttpMethod.GET, "/nothing", ""));
+        assertThat(notFound.status()).isEqualTo(HttpResponseStatus.NOT_FOUND);
+
+        FullHttpResponse notAllowed = roundTrip(request(HttpMethod.DELETE, "/users/a", ""));
+        assertThat(notAllowed.status()).isEqualTo(HttpResponseStatus.METHOD_NOT_ALLOWED);
+        assertThat(notAllowed.headers().get(HttpHeaderNames.ALLOW)).isEqualTo("GET");
+    }
+
+    @Test
+    public void serverSentEvents() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new GatewayHandler(ROUTES, null));
+        FullHttpRequest request = request(HttpMethod.GET, "/stream/a", "");
+        request.headers().set(HttpHeaderNames.ACCEPT, "text/event-stream");
+        channel.writeInbound(request);
+
+        HttpResponse response = channel.readOutbound();
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE))
+                .isEqualTo(StreamFormat.SSE.contentType());
+
+        List<String> events = Splitter.on("\n\n").omitEmptyStrings().splitToList(readBody(channel));
+        assertThat(events).hasSize(2);
+        for (String event : events) {
+            assertThat(event).startsWith("data: ").doesNotContain("\n");
+            assertThat(parse(event.substring("data: ".length())).getRequest().getS()).isEqualTo("a");
+        }
+    }
+
+    @Test
+    public void jsonArrayStream() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new GatewayHandler(ROUTES, null));
+        FullHttpRequest request = request(HttpMethod.GET, "/stream/a", "");
+        request.headers().set(HttpHeaderNames.ACCEPT, "application/json; stream=array");
+        channel.writeInbound(request);
+
+        HttpResponse response = channel.readOutbound();
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE))
+                .isEqualTo(StreamFormat.JSON_ARRAY.contentType());
+
+        JsonArray array = new JsonParser().parse(readBody(channel)).getAsJsonArray();
+        assertThat(array).hasSize(2);
+        for (JsonElement element : array) {
+            assertThat(parse(element.toString()).getRequest().getS()).isEqualTo("a");
+        }
+    }
+
+    private static String readBody(EmbeddedChannel channel) {
+        StringBuilder body = new StringBuilder();
+        HttpContent content;
+        do {
+            content = channel.readOutbound();
+            body.append(content.content().toString(StandardCharsets.UTF_8));
+            content.release();
+        } while (!(content instanceof LastHttpContent));
+
+        return body.toString();
+    }
+
+    private static TestResponse parse(String json) throws InvalidProtocolBufferException {
+        TestResponse.Builder response = TestResponse.newBuilder();
+        JsonFormat.parser().merge(json, response);
+        return response.build();
+    }
+
+    private static FullHttpResponse roundTrip(FullHttpRequest request) {
+        EmbeddedChannel channel = new EmbeddedChannel(new GatewayHandler(ROUTES, null));
+        channel.writeInbound(request);
+        return channel.readOutbound();
+    }
+
+    private static FullHttpRequest request(HttpMethod method, String uri, String body) {
+        ByteBuf content = Unpooled.copiedBuffer(body, StandardCharsets.UTF_8);
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri, content);
+    }
+}
@@ -0,0 +1,417 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ascii;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.protobuf.Message;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.core.Response;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Dispatches a batch of sub-requests through {@link GrpcRoute}s concurrently, so that a single HTTP request can
+ * replace many. Container-neutral, see {@link BatchResource} for the Jersey endpoint.
+ *
+ * A batch is a JSON array of sub-requests:
+ * <pre>
+ * [{"method": "GET", "path": "/users/1?fields=name"},
+ *  {"method": "POST", "path": "/users", "query": {"dryRun": "true"}, "headers": {"X-Trace": "1"}, "body": {...}}]
+ * </pre>
+ * Each result is a JSON object with the sub-request's {@code index}, HTTP {@code status}, the response
+ * {@code headers} set by the service if any, and the {@code body} as the generated resource would have answered it.
+ *
+ * Sub-requests take a permit from the {@link ConcurrencyLimits} of their route's configuration like requests to the
+ * generated resource do, those over a limit are answered with the error handler's rejection. The other method options
+ * of generated resources ({@code cache}, {@code etag}, {@code single_flight}, {@code batch}, {@code executor}) don't
+ * apply to sub-requests.
+ */
+@Beta
+public class BatchDispatcher {
+    public static final int DEFAULT_MAX_REQUESTS = 100;
+
+    private final RouteTable routes;
+    private final Executor executor;
+    private final int maxRequests;
+
+    /**
+     * @param executor executor sub-requests are bound and invoked on, concurrently. Direct-mode routes run service code
+     * on it.
+     * @param maxRequests maximum number of sub-requests in a batch.
+     */
+    public BatchDispatcher(RouteTable routes, Executor executor, int maxRequests) {
+        this.routes = routes;
+        this.executor = executor;
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * Parses a batch.
+     *
+     * @throws IllegalArgumentException if the batch is malformed or too large.
+     */
+    public List<SubRequest> parse(Reader body) {
+        JsonArray batch;
+        try {
+            JsonElement json = new JsonParser().parse(body);
+            if (!json.isJsonArray()) {
+                throw new IllegalArgumentException("Batch must be a JSON array of requests");
+            }
+            batch = json.getAsJsonArray();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed batch: " + e.getMessage(), e);
+        }
+
+        if (batch.size() > maxRequests) {
+            throw new IllegalArgumentException("Batch exceeds " + maxRequests + " requests");
+        }
+
+        ImmutableList.Builder<SubRequest> requests = ImmutableList.builder();
+        for (JsonElement element : batch) {
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("Batch requests must be JSON objects");
+            }
+            requests.add(subRequest(element.getAsJsonObject()));
+        }
+        return requests.build();
+    }
+
+    /**
+     * Dispatches the sub-requests, each of them inheriting the given headers of the batch request.
+     *
+     * @param ordered whether results are passed to the listener in the order of the sub-requests, rather than as they
+     * complete.
+     */
+    public void dispatch(List<SubRequest> requests,
+            ImmutableMultimap<String, String> headers,
+            boolean ordered,
+            Listener listener) {
+        Results results = new Results(requests.size(), ordered, listener);
+        if (requests.isEmpty()) {
+            listener.onCompleted();
+            return;
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            int index = i;
+            SubRequest request = requests.get(i);
+            try {
+                executor.execute(Context.current().wrap(() -> dispatch(index, request, headers, results)));
+            } catch (RejectedExecutionException e) {
+                results.complete(index, result(index, Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                        ImmutableMultimap.of(), null));
+            }
+        }
+    }
+
+    private void dispatch(int index, SubRequest request, ImmutableMultimap<String, String> headers, Results results) {
+        Optional<RouteTable.Match> match = routes.match(request.getMethod(), request.getPath());
+        if (!match.isPresent()) {
+            Response.Status status = routes.allowedMethods(request.getPath()).isEmpty()
+                    ? Response.Status.NOT_FOUND
+                    : Response.Status.METHOD_NOT_ALLOWED;
+            results.complete(index, result(index, status.getStatusCode(), ImmutableMultimap.of(), null));
+            return;
+        }
+        if (match.get().getRoute().isServerStreaming()) {
+            results.complete(index, result(index, Response.Status.BAD_REQUEST.getStatusCode(), ImmutableMultimap.of(),
+                    new JsonPrimitive("Streaming methods can't be batched").toString()));
+            return;
+        }
+
+        ImmutableListMultimap<String, String> subRequestHeaders = ImmutableListMultimap.<String, String>builder()
+                .putAll(headers)
+                .putAll(request.getHeaders())
+                .build();
+        RouteRequest routeRequest = RouteRequest.builder()
+                .pathParameters(match.get().getPathParameters())
+                .queryParameters(request.getQueryParameters())
+                .headers(subRequestHeaders)
+                .body(() -> new StringReader(request.getBody()))
+                .build();
+        invoke(index, match.get().getRoute(), routeRequest, results);
+    }
+
+    private static <ReqT extends Message, RespT extends Message> void invoke(int index,
+            GrpcRoute<ReqT, RespT> route,
+            RouteRequest routeRequest,
+            Results results) {
+        HttpHeaderClientInterceptor interceptor = HttpHeaderInterceptors.clientInterceptor(routeRequest.getHeaders());
+        StreamObserver<RespT> observer = new ResultObserver<>(index, interceptor, route.getConfig(), results);
+
+        ConcurrencyLimits.Permit permit = ConcurrencyLimits.Permit.NONE;
+        if (route.getFullMethodName() != null) {
+            ConcurrencyLimits limits = route.getConfig().getLimits();
+            permit = limits.acquire(route.getFullMethodName());
+            if (permit == null) {
+                observer.onError(limits.rejection(route.getFullMethodName()));
+                return;
+            }
+        }
+
+        ReqT rpcRequest;
+        try {
+            rpcRequest = route.getBinder().bind(routeRequest);
+        } catch (Exception e) {
+            permit.release();
+            observer.onError(e);
+            return;
+        }
+
+        StreamObserver<RespT> rpcObserver = permit.releasing(observer);
+        try {
+            route.getInvoker().invoke(rpcRequest, routeRequest, interceptor, rpcObserver);
+        } catch (RuntimeException e) {
+            rpcObserver.onError(e);
+        }
+    }
+
+    private static SubRequest subRequest(JsonObject json) {
+        String method = string(json, "method").orElse("GET");
+        String path = string(json, "path")
+                .orElseThrow(() -> new IllegalArgumentException("Batch requests must have a path"));
+
+        Map<String, List<String>> queryParameters = new LinkedHashMap<>();
+        URI uri = URI.create(path);
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = decode(equals < 0 ? parameter : parameter.substring(0, equals));
+                String value = equals < 0 ? "" : decode(parameter.substring(equals + 1));
+                queryParameters.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+            }
+        }
+        for (Map.Entry<String, Collection<String>> parameter : values(json, "query").asMap().entrySet()) {
+            queryParameters.computeIfAbsent(parameter.getKey(), k -> new ArrayList<>()).addAll(parameter.getValue());
+        }
+
+        JsonElement body = json.get("body");
+        return SubRequest.builder()
+                .method(Ascii.toUpperCase(method))
+                .path(uri.getRawPath())
+                .queryParameters(queryParameters)
+                .headers(values(json, "headers"))
+                .body(body == null || body.isJsonNull() ? "" : body.toString())
+                .build();
+    }
+
+    private static Optional<String> string(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        if (value == null || value.isJsonNull()) {
+            return Optional.empty();
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Batch request " + name + " must be a string");
+        }
+        return Optional.of(value.getAsString());
+    }
+
+    /**
+     * Reads an object of strings, or arrays of strings.
+     */
+    private static ImmutableListMultimap<String, String> values(JsonObject json, String name) {
+        JsonElement object = json.get(name);
+        if (object == null || object.isJsonNull()) {
+            return ImmutableListMultimap.of();
+        }
+        if (!object.isJsonObject()) {
+            throw new IllegalArgumentException("Batch request " + name + " must be an object");
+        }
+
+        ImmutableListMultimap.Builder<String, String> values = ImmutableListMultimap.builder();
+        for (Map.Entry<String, JsonElement> entry : object.getAsJsonObject().entrySet()) {
+            Iterable<JsonElement> elements = entry.getValue().isJsonArray()
+                    ? entry.getValue().getAsJsonArray()
+                    : ImmutableList.of(entry.getValue());
+            for (JsonElement element : elements) {
+                if (!element.isJsonPrimitive()) {
+                    throw new IllegalArgumentException(
+                            "Batch request " + name + " must be strings, or arrays of strings: " + entry.getKey());
+                }
+                values.put(entry.getKey(), element.getAsString());
+            }
+        }
+        return values.build();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String result(int index, int status, ImmutableMultimap<String, String> headers, String body) {
+        StringBuilder result = new StringBuilder(body == null ? 48 : body.length() + 48)
+                .append("{\"index\":").append(index)
+                .append(",\"status\":").append(status);
+        if (!headers.isEmpty()) {
+            JsonObject headersJson = new JsonObject();
+            for (Map.Entry<String, Collection<String>> header : headers.asMap().entrySet()) {
+                JsonArray values = new JsonArray();
+                header.getValue().forEach(values::add);
+                headersJson.add(header.getKey(), values);
+            }
+            result.append(",\"headers\":").append(headersJson);
+        }
+        if (body != null) {
+            result.append(",\"body\":").append(body);
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * Receives the results of a batch. Calls are serialized.
+     */
+    public interface Listener {
+        void onResult(int index, String result);
+
+        void onCompleted();
+    }
+
+    @Value
+    @Builder
+    public static class SubRequest {
+        String method;
+        /**
+         * Raw (percent-encoded) path, without the query.
+         */
+        String path;
+        Map<String, List<String>> queryParameters;
+        ImmutableListMultimap<String, String> headers;
+        /**
+         * JSON body, empty if none.
+         */
+        String body;
+    }
+
+    private static class Results {
+        private final Listener listener;
+        private final boolean ordered;
+        // Guarded by this.
+        private final String[] pending;
+        private int next;
+        private int remaining;
+
+        Results(int size, boolean ordered, Listener listener) {
+            this.listener = listener;
+            this.ordered = ordered;
+            this.pending = new String[size];
+            this.remaining = size;
+        }
+
+        synchronized void complete(int index, String result) {
+            if (ordered) {
+                pending[index] = result;
+                for (; next < pending.length && pending[next] != null; next++) {
+                    listener.onResult(next, pending[next]);
+                    pending[next] = null;
+                }
+            } else {
+                listener.onResult(index, result);
+            }
+
+            if (--remaining == 0) {
+                listener.onCompleted();
+            }
+        }
+    }
+
+    private static class ResultObserver<V extends Message> implements StreamObserver<V> {
+        private final int index;
+        private final HttpHeaderClientInterceptor interceptor;
+        private final GrpcJerseyConfig config;
+        private final Results results;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ResultObserver(int index,
+                HttpHeaderClientInterceptor interceptor,
+                GrpcJerseyConfig config,
+                Results results) {
+            this.index = index;
+            this.interceptor = interceptor;
+            this.config = config;
+            this.results = results;
+        }
+
+        @Override
+        public void onNext(V value) {
+            String json;
+            try {
+                // Results are streamed, one per line when unordered.
+                json = TypedJsonPrinter.print(config.getStreamPrinter(), value);
+            } catch (Exception e) {
+                onError(e);
+                return;
+            }
+
+            if (closed.compareAndSet(false, true)) {
+                results.complete(index, result(index, Response.Status.OK.getStatusCode(),
+                        interceptor.getHttpResponseHeaders(), json));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            Optional<Response> response = config.getErrorHandler()
+                    .handleUnaryError(t, interceptor.getHttpResponseHeaders());
+            if (!response.isPresent()) {
+                results.complete(index, result(index, GrpcErrorUtil.grpcToHttpStatus(Status.fromThrowable(t)),
+                        interceptor.getHttpResponseHeaders(), null));
+                return;
+            }
+
+            ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+            response.get().getStringHeaders().forEach(headers::putAll);
+            results.complete(index, result(index, response.get().getStatus(), headers.build(),
+                    errorBody(response.get().getEntity())));
+        }
+
+        @Override
+        public void onCompleted() {}
+
+        private static String errorBody(Object entity) {
+            if (entity == null) {
+                return null;
+            }
+
+            String body = entity.toString();
+            // The default error handler answers (pretty-printed) JSON, except for unparseable requests.
+            try {
+                return new JsonParser().parse(body).toString();
+            } catch (JsonParseException e) {
+                return new JsonPrimitive(body).toString();
+            }
+        }
+    }
+}
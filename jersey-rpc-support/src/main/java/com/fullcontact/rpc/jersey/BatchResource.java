@@ -0,0 +1,146 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonPrimitive;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+/**
+ * Jersey resource serving {@code POST /$batch} over the {@link GrpcRoute}s emitted by the code generator (see the
+ * {@code routes} option), e.x.
+ * <pre>
+ * config.register(new BatchResource(MyServiceGrpcRoutes.routes(stub)));
+ * </pre>
+ *
+ * Sub-requests are dispatched concurrently, see {@link BatchDispatcher} for their format. By default results are
+ * streamed back as a JSON array in the order of the sub-requests, with {@code ?ordered=false} they are streamed as
+ * newline-delimited JSON as they complete.
+ */
+@Beta
+@Path("/$batch")
+public class BatchResource {
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson");
+    // Describe the batch request itself, not the sub-requests.
+    private static final Set<String> BATCH_HEADERS = ImmutableSet.of("content-length", "content-type",
+            "content-encoding", "transfer-encoding", "accept-encoding", "expect");
+
+    private final BatchDispatcher dispatcher;
+
+    public BatchResource(Iterable<? extends GrpcRoute<?, ?>> routes) {
+        this(new BatchDispatcher(new RouteTable(routes), RpcExecutor.executor(),
+                BatchDispatcher.DEFAULT_MAX_REQUESTS));
+    }
+
+    public BatchResource(BatchDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response batch(
+            @QueryParam("ordered") @DefaultValue("true") boolean ordered,
+            @Context HttpHeaders headers,
+            String body) {
+        List<BatchDispatcher.SubRequest> requests;
+        try {
+            requests = dispatcher.parse(new StringReader(body));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity("{\"message\":" + new JsonPrimitive(e.getMessage()) + "}")
+                    .build();
+        }
+
+        ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+        dispatcher.dispatch(requests, inheritedHeaders(headers), ordered,
+                ordered ? new ArrayWriter(output) : new LineWriter(output));
+
+        return Response.ok(output, ordered ? MediaType.APPLICATION_JSON_TYPE : NDJSON).build();
+    }
+
+    private static ImmutableListMultimap<String, String> inheritedHeaders(HttpHeaders headers) {
+        ImmutableListMultimap.Builder<String, String> inherited = ImmutableListMultimap.builder();
+        for (Map.Entry<String, List<String>> header : headers.getRequestHeaders().entrySet()) {
+            if (!BATCH_HEADERS.contains(header.getKey().toLowerCase())) {
+                inherited.putAll(header.getKey(), header.getValue());
+            }
+        }
+        return inherited.build();
+    }
+
+    private abstract static class ChunkWriter implements BatchDispatcher.Listener {
+        private final ChunkedOutput<String> output;
+
+        ChunkWriter(ChunkedOutput<String> output) {
+            this.output = output;
+        }
+
+        void write(String chunk) {
+            try {
+                output.write(chunk);
+            } catch (IOException e) {
+                // Client went away, remaining results are dropped.
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    private static class ArrayWriter extends ChunkWriter {
+        private boolean first = true;
+
+        ArrayWriter(ChunkedOutput<String> output) {
+            super(output);
+        }
+
+        @Override
+        public void onResult(int index, String result) {
+            write(first ? "[" + result : "," + result);
+            first = false;
+        }
+
+        @Override
+        public void onCompleted() {
+            write(first ? "[]" : "]");
+            close();
+        }
+    }
+
+    private static class LineWriter extends ChunkWriter {
+        LineWriter(ChunkedOutput<String> output) {
+            super(output);
+        }
+
+        @Override
+        public void onResult(int index, String result) {
+            write(result + "\n");
+        }
+
+        @Override
+        public void onCompleted() {
+            close();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive (AIMD) limit on the number of requests in flight. The limit grows by one for each RPC answering in time
+ * while the limit is being used, and is cut by the backoff ratio whenever an RPC is shed by the backend (e.x.
+ * UNAVAILABLE) or takes longer than the latency tolerance times the typical latency seen so far. Requests past the
+ * limit are rejected up front rather than parked.
+ *
+ * See {@link ConcurrencyLimits} for how limiters are applied to generated resources.
+ */
+public class ConcurrencyLimiter {
+    // Weight of each sample in the moving average of latency. Low, so a slowdown isn't quickly taken as the norm.
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final Duration retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    // Guarded by this.
+    private double typicalLatencyNanos;
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.retryAfter = builder.retryAfter;
+        this.limit = builder.initialLimit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Takes a slot if the limit hasn't been reached.
+     *
+     * @return false if the request should be rejected.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot taken by {@link #tryAcquire()}.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Adjusts the limit to the outcome of an RPC.
+     *
+     * @param latencyNanos time until the first response (or error) from the backend.
+     * @param dropped whether the backend shed the request, or it timed out.
+     */
+    public void onSample(long latencyNanos, boolean dropped) {
+        int current = inFlight.get();
+
+        synchronized (this) {
+            if (typicalLatencyNanos == 0) {
+                typicalLatencyNanos = latencyNanos;
+            }
+
+            if (dropped || latencyNanos > typicalLatencyNanos * latencyTolerance) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else {
+                typicalLatencyNanos += (latencyNanos - typicalLatencyNanos) * LATENCY_SMOOTHING;
+                // Only probe for a higher limit when it's actually being used.
+                if (current * 2 >= limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Delay clients are asked to wait before retrying rejected requests.
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    public static final class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2;
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        private Builder() {}
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Factor applied to the limit when requests are dropped or slow, defaults to 0.9.
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * How many times slower than typical a request may be before the limit is cut, defaults to 2.
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        public Builder retryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            Preconditions.checkArgument(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                    "expected 0 < minLimit <= initialLimit <= maxLimit");
+            Preconditions.checkArgument(0 < backoffRatio && backoffRatio < 1, "backoffRatio must be in (0, 1)");
+            Preconditions.checkArgument(latencyTolerance >= 1, "latencyTolerance must be at least 1");
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.protobuf.util.Durations;
+import com.google.rpc.RetryInfo;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+/**
+ * Registry of the {@link ConcurrencyLimiter}s applied by generated resources, read from their
+ * {@link GrpcJerseyConfig}: an optional global one shared by every method, and optional per-method ones. None are set
+ * by default. Limiters can be set and removed while requests are served.
+ *
+ * <pre>{@code
+ * ConcurrencyLimits limits = new ConcurrencyLimits();
+ * limits.setGlobalLimiter(ConcurrencyLimiter.builder().maxLimit(2000).build());
+ * GrpcJerseyConfig config = GrpcJerseyConfig.builder().limits(limits).build();
+ * }</pre>
+ *
+ * Resources constructed without a configuration use the JVM-global {@link #global()} registry.
+ *
+ * A permit is taken from each applicable limiter before the request is parsed. Requests over a limit are rejected
+ * through the {@link ErrorHandler} with RESOURCE_EXHAUSTED and a {@link RetryInfo}, which the default error handler
+ * translates to 503 with a Retry-After header.
+ *
+ * Streams are held open for as long as clients listen, so they neither count towards the global limiter nor sample
+ * latency (see {@link #acquireStream}): a stream method's limiter caps the streams open at its initial limit.
+ */
+public final class ConcurrencyLimits {
+    private static final ConcurrencyLimits GLOBAL = new ConcurrencyLimits();
+
+    private final ConcurrentMap<String, ConcurrencyLimiter> methodLimiters = new ConcurrentHashMap<>();
+    private volatile ConcurrencyLimiter globalLimiter;
+
+    /**
+     * JVM-global registry, used by {@link GrpcJerseyConfig#global()}.
+     */
+    public static ConcurrencyLimits global() {
+        return GLOBAL;
+    }
+
+    public Optional<ConcurrencyLimiter> globalLimiter() {
+        return Optional.ofNullable(globalLimiter);
+    }
+
+    /**
+     * Sets the limiter shared by all methods, null to remove it.
+     */
+    public void setGlobalLimiter(ConcurrencyLimiter limiter) {
+        globalLimiter = limiter;
+    }
+
+    public Optional<ConcurrencyLimiter> methodLimiter(String fullMethodName) {
+        return Optional.ofNullable(methodLimiters.get(fullMethodName));
+    }
+
+    /**
+     * Sets the limiter for a method (e.x. {@code package.Service/Method}), null to remove it.
+     */
+    public void setMethodLimiter(String fullMethodName, ConcurrencyLimiter limiter) {
+        if (limiter == null) {
+            methodLimiters.remove(fullMethodName);
+        } else {
+            methodLimiters.put(fullMethodName, limiter);
+        }
+    }
+
+    /**
+     * Takes a permit from the limiters applying to the method.
+     *
+     * @return permit to release once the request completes, or null if the request should be rejected with
+     * {@link #reject}.
+     */
+    public Permit acquire(String fullMethodName) {
+        ConcurrencyLimiter global = globalLimiter;
+        ConcurrencyLimiter method = methodLimiters.get(fullMethodName);
+        if (global == null && method == null) {
+            return Permit.NONE;
+        }
+
+        if (global != null && !global.tryAcquire()) {
+            return null;
+        }
+        if (method != null && !method.tryAcquire()) {
+            if (global != null) {
+                global.release();
+            }
+            return null;
+        }
+        return new Permit(global, method, System.nanoTime());
+    }
+
+    /**
+     * Takes a permit for a stream from the limiter of its method only, leaving the global limiter to unary requests.
+     * Stream permits don't sample latency, the method's limit therefore stays at its initial value.
+     *
+     * @return permit to release once the stream ends, or null if the stream should be rejected with {@link #reject}.
+     */
+    public Permit acquireStream(String fullMethodName) {
+        ConcurrencyLimiter method = methodLimiters.get(fullMethodName);
+        if (method == null) {
+            return Permit.NONE;
+        }
+
+        if (!method.tryAcquire()) {
+            return null;
+        }
+        return new Permit(null, method, -1);
+    }
+
+    /**
+     * Rejects a request which didn't get a permit, through the error handler of the resource's
+     * {@link GrpcJerseyConfig}.
+     */
+    public void reject(AsyncResponse asyncResponse,
+            String fullMethodName,
+            GrpcJerseyErrorHandler errorHandler) {
+        Optional<Response> response = errorHandler.handleUnaryError(rejection(fullMethodName), ImmutableMultimap.of());
+        if (response.isPresent()) {
+            asyncResponse.resume(response.get());
+        } else {
+            asyncResponse.cancel();
+        }
+    }
+
+    RuntimeException rejection(String fullMethodName) {
+        // The method's limiter is the one more likely to have been hit.
+        ConcurrencyLimiter limiter = methodLimiters.getOrDefault(fullMethodName, globalLimiter);
+        Duration retryAfter = limiter != null ? limiter.retryAfter() : Duration.ofSeconds(1);
+
+        Metadata trailers = new Metadata();
+        trailers.put(GrpcErrorUtil.RETRY_INFO_KEY, RetryInfo.newBuilder()
+                .setRetryDelay(Durations.fromMillis(retryAfter.toMillis()))
+                .build());
+        return Status.RESOURCE_EXHAUSTED
+                .withDescription("Concurrency limit exceeded")
+                .asRuntimeException(trailers);
+    }
+
+    /**
+     * Slot taken from the limiters applying to a request, released once.
+     */
+    public static class Permit {
+        static final Permit NONE = new Permit(null, null, 0);
+
+        private final ConcurrencyLimiter global;
+        private final ConcurrencyLimiter method;
+        // Negative for permits which don't sample latency.
+        private final long startNanos;
+        private final AtomicBoolean sampled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ConcurrencyLimiter global, ConcurrencyLimiter method, long startNanos) {
+            this.global = global;
+            this.method = method;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Wraps the observer of the RPC so the time to its first response (or error) is sampled by the limiters
+         * (unless it's a stream's), and the permit is released once the RPC completes. Client response observers
+         * still get the call's request stream, e.x. to cancel it.
+         */
+        public <V> StreamObserver<V> releasing(StreamObserver<V> observer) {
+            if (this == NONE) {
+                return observer;
+            }
+
+            return new ClientResponseObserver<Object, V>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+                    if (observer instanceof ClientResponseObserver) {
+                        ((ClientResponseObserver<Object, V>) observer).beforeStart(requestStream);
+                    }
+                }
+
+                @Override
+                public void onNext(V value) {
+                    sample(false);
+                    observer.onNext(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    sample(isDropped(t));
+                    release();
+                    observer.onError(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    release();
+                    observer.onCompleted();
+                }
+            };
+        }
+
+        /**
+         * Releases the permit without a sample, for requests which didn't reach the backend.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                if (global != null) {
+                    global.release();
+                }
+                if (method != null) {
+                    method.release();
+                }
+            }
+        }
+
+        private void sample(boolean dropped) {
+            if (startNanos >= 0 && sampled.compareAndSet(false, true)) {
+                long latencyNanos = System.nanoTime() - startNanos;
+                if (global != null) {
+                    global.onSample(latencyNanos, dropped);
+                }
+                if (method != null) {
+                    method.onSample(latencyNanos, dropped);
+                }
+            }
+        }
+
+        private static boolean isDropped(Throwable t) {
+            switch (Status.fromThrowable(t).getCode()) {
+                case RESOURCE_EXHAUSTED:
+                case UNAVAILABLE:
+                case DEADLINE_EXCEEDED:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
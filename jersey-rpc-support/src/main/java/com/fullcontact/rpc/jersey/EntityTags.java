@@ -0,0 +1,121 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Strong ETags and conditional GETs for methods with the {@code etag} option. Responses are tagged with a fingerprint
+ * of their serialized body, and requests whose {@code If-None-Match} matches are answered with 304 Not Modified.
+ *
+ * If the service sets its own ETag through {@link HttpHeaderContext}, that is used as is, and a matching request
+ * skips printing the response message altogether, unless the response is shared or stored through
+ * {@link SingleFlight} or {@link ResponseCaching}. Either way, the tag is checked against the validators of each
+ * request when it is resumed, so requests sharing a response each get their own answer.
+ */
+public final class EntityTags {
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+    private static final Splitter TAG_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private EntityTags() {}
+
+    /**
+     * Wraps the sink of a request so responses are tagged, and answered with 304 if the request already holds them.
+     */
+    public static UnaryResponseSink conditional(HttpHeaders requestHeaders, UnaryResponseSink sink) {
+        List<String> ifNoneMatch = requestHeaders.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+        return new UnaryResponseSink() {
+            @Override
+            public void resume(Response response) {
+                if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                    sink.resume(response);
+                    return;
+                }
+
+                String etag = response.getHeaderString(HttpHeaders.ETAG);
+                if (etag == null) {
+                    Optional<String> fingerprint = fingerprint(response.getEntity());
+                    if (!fingerprint.isPresent()) {
+                        sink.resume(response);
+                        return;
+                    }
+                    etag = fingerprint.get();
+                    response = Response.fromResponse(response).header(HttpHeaders.ETAG, etag).build();
+                }
+
+                sink.resume(matches(ifNoneMatch, etag) ? notModified(Response.fromResponse(response)) : response);
+            }
+
+            @Override
+            public void cancel() {
+                sink.cancel();
+            }
+
+            @Override
+            public Optional<Response> preempt(Multimap<String, String> responseHeaders) {
+                for (Map.Entry<String, String> header : responseHeaders.entries()) {
+                    if (Ascii.equalsIgnoreCase(header.getKey(), HttpHeaders.ETAG)
+                            && matches(ifNoneMatch, header.getValue())) {
+                        Response.ResponseBuilder builder = Response.ok();
+                        for (Map.Entry<String, String> responseHeader : responseHeaders.entries()) {
+                            builder.header(responseHeader.getKey(), responseHeader.getValue());
+                        }
+                        return Optional.of(notModified(builder));
+                    }
+                }
+                return Optional.empty();
+            }
+        };
+    }
+
+    /**
+     * Strong ETag for a serialized response body.
+     */
+    static Optional<String> fingerprint(Object entity) {
+        long hash;
+        if (entity instanceof String) {
+            hash = FINGERPRINT.hashString((String) entity, StandardCharsets.UTF_8).asLong();
+        } else if (entity instanceof byte[]) {
+            hash = FINGERPRINT.hashBytes((byte[]) entity).asLong();
+        } else {
+            return Optional.empty();
+        }
+        return Optional.of(String.format("\"%016x\"", hash));
+    }
+
+    /**
+     * Whether any of the If-None-Match header values match the ETag. Uses weak comparison, as specified for
+     * If-None-Match.
+     */
+    static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        String opaqueTag = opaqueTag(etag);
+        for (String value : ifNoneMatch) {
+            for (String tag : TAG_SPLITTER.split(value)) {
+                if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static Response notModified(Response.ResponseBuilder builder) {
+        return builder.status(Response.Status.NOT_MODIFIED).entity(null).build();
+    }
+}
@@ -16,16 +16,40 @@ public final class ErrorHandler {
 
     private ErrorHandler() {}
 
-    static Optional<Response> handleUnaryError(Throwable t, ImmutableMultimap<String, String> responseHeaders) {
+    /**
+     * The registered {@link GrpcJerseyErrorHandler}, used by resources constructed without a {@link GrpcJerseyConfig}.
+     */
+    public static GrpcJerseyErrorHandler errorHandler() {
+        return errorHandler;
+    }
+
+    /**
+     * Delegates to the registered {@link GrpcJerseyErrorHandler}. Public for use by runtimes outside of this package,
+     * should not be used by the end user.
+     */
+    public static Optional<Response> handleUnaryError(Throwable t, ImmutableMultimap<String, String> responseHeaders) {
         return errorHandler.handleUnaryError(t, responseHeaders);
     }
 
-    static Optional<String> handleStreamingError(Throwable t) throws IOException {
+    /**
+     * Delegates to the registered {@link GrpcJerseyErrorHandler}. Public for use by runtimes outside of this package,
+     * should not be used by the end user.
+     */
+    public static Optional<String> handleStreamingError(Throwable t) throws IOException {
         return errorHandler.handleStreamingError(t);
     }
 
     /**
-     * Overrides the default error handler on a global basis. Beware, this shouldn't be done after requests start.
+     * Delegates to the registered {@link GrpcJerseyErrorHandler}. Public for use by runtimes outside of this package,
+     * should not be used by the end user.
+     */
+    public static Optional<com.google.rpc.Status> handleBinaryStreamingError(Throwable t) {
+        return errorHandler.handleBinaryStreamingError(t);
+    }
+
+    /**
+     * Overrides the default error handler on a global basis. Beware, this shouldn't be done after requests start, and
+     * only applies to resources constructed afterwards. Prefer passing a {@link GrpcJerseyConfig} to the resource.
      */
     public static void setErrorHandler(GrpcJerseyErrorHandler errorHandler) {
         ErrorHandler.errorHandler = errorHandler;
@@ -0,0 +1,245 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DoubleValue;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.UInt64Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decoders of query and path parameter values, one per field of a message type, built once per type and cached along
+ * with the field paths resolved on it. Values are expected to be percent-decoded already (by Jersey, Netty's
+ * QueryStringDecoder or {@link PathTemplate}).
+ *
+ * Values follow the proto3 JSON mapping of the field: bytes are base64 (standard or URL-safe, padding optional), enums
+ * are bound by name (case-insensitive) or number, and {@code Timestamp}, {@code Duration}, {@code FieldMask} and the
+ * wrapper types by their JSON string form, e.x. {@code ?since=2019-01-01T00:00:00Z&timeout=1.5s}.
+ */
+final class FieldDecoders {
+    // Bounds the cached paths of recursive types, which have infinitely many.
+    private static final int MAX_CACHED_PATHS = 256;
+    private static final ConcurrentMap<Descriptors.Descriptor, FieldDecoders> BY_TYPE = new ConcurrentHashMap<>();
+    private static final ImmutableMap<String, Message> WRAPPERS = wrappers(
+            DoubleValue.getDefaultInstance(),
+            FloatValue.getDefaultInstance(),
+            Int64Value.getDefaultInstance(),
+            UInt64Value.getDefaultInstance(),
+            Int32Value.getDefaultInstance(),
+            UInt32Value.getDefaultInstance(),
+            BoolValue.getDefaultInstance(),
+            StringValue.getDefaultInstance(),
+            BytesValue.getDefaultInstance());
+
+    private final Descriptors.Descriptor type;
+    private final ImmutableMap<FieldDescriptor, Decoder> decoders;
+    private final ConcurrentMap<String, ImmutableList<FieldDescriptor>> paths = new ConcurrentHashMap<>();
+
+    private FieldDecoders(Descriptors.Descriptor type) {
+        ImmutableMap.Builder<FieldDescriptor, Decoder> decoders = ImmutableMap.builder();
+        for (FieldDescriptor field : type.getFields()) {
+            decoders.put(field, decoder(field));
+        }
+
+        this.type = type;
+        this.decoders = decoders.build();
+    }
+
+    static FieldDecoders of(Descriptors.Descriptor type) {
+        FieldDecoders fieldDecoders = BY_TYPE.get(type);
+        if (fieldDecoders != null) {
+            return fieldDecoders;
+        }
+
+        return BY_TYPE.computeIfAbsent(type, FieldDecoders::new);
+    }
+
+    /**
+     * Same as {@link ProtobufDescriptorJavaUtil#fieldPath(Descriptors.Descriptor, String)}, but resolves each path
+     * once.
+     */
+    ImmutableList<FieldDescriptor> fieldPath(String path) {
+        ImmutableList<FieldDescriptor> fields = paths.get(path);
+        if (fields == null) {
+            fields = ProtobufDescriptorJavaUtil.fieldPath(type, path);
+            // Unknown paths aren't cached, they're client controlled.
+            if (!fields.isEmpty() && paths.size() < MAX_CACHED_PATHS) {
+                paths.putIfAbsent(path, fields);
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Decodes the values of a field, a list for repeated fields.
+     */
+    static Object decode(FieldDescriptor field, List<String> values) throws InvalidProtocolBufferException {
+        Decoder decoder = of(field.getContainingType()).decoders.get(field);
+
+        if (!field.isRepeated()) {
+            if (values.size() != 1) {
+                throw new InvalidProtocolBufferException("Unable to map " + field + " to value: " + values);
+            }
+            return decoder.decode(values.get(0));
+        }
+
+        List<Object> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            result.add(decoder.decode(value));
+        }
+        return result;
+    }
+
+    private static Decoder decoder(FieldDescriptor field) {
+        if (field.isMapField()) {
+            return unsupported(field);
+        }
+
+        switch (field.getJavaType()) {
+            case MESSAGE:
+                return messageDecoder(field);
+            case ENUM:
+                return new EnumDecoder(field);
+            default:
+                return scalarDecoder(field);
+        }
+    }
+
+    private static Decoder scalarDecoder(FieldDescriptor field) {
+        String name = field.getFullName();
+        switch (field.getType()) {
+            case DOUBLE:
+                return value -> ParamDecoders.parseDouble(name, value);
+            case FLOAT:
+                return value -> ParamDecoders.parseFloat(name, value);
+            case BOOL:
+                return Boolean::parseBoolean;
+            case STRING:
+                return value -> value;
+            case BYTES:
+                return value -> ParamDecoders.parseBytes(name, value);
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return value -> ParamDecoders.parseInt32(name, value);
+            case UINT32:
+            case FIXED32:
+                return value -> ParamDecoders.parseUInt32(name, value);
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return value -> ParamDecoders.parseInt64(name, value);
+            case UINT64:
+            case FIXED64:
+                return value -> ParamDecoders.parseUInt64(name, value);
+            default:
+                return unsupported(field);
+        }
+    }
+
+    private static Decoder messageDecoder(FieldDescriptor field) {
+        String name = field.getFullName();
+        String typeName = field.getMessageType().getFullName();
+        if (typeName.equals(Timestamp.getDescriptor().getFullName())) {
+            return value -> ParamDecoders.parseTimestamp(name, value);
+        }
+        if (typeName.equals(Duration.getDescriptor().getFullName())) {
+            return value -> ParamDecoders.parseDuration(name, value);
+        }
+        if (typeName.equals(FieldMask.getDescriptor().getFullName())) {
+            return value -> ParamDecoders.parseFieldMask(name, value);
+        }
+
+        Message wrapper = WRAPPERS.get(typeName);
+        if (wrapper != null) {
+            FieldDescriptor valueField = wrapper.getDescriptorForType().findFieldByName("value");
+            Decoder valueDecoder = scalarDecoder(valueField);
+            return value -> wrapper.newBuilderForType().setField(valueField, valueDecoder.decode(value)).build();
+        }
+
+        return unsupported(field);
+    }
+
+    private static Decoder unsupported(FieldDescriptor field) {
+        return value -> {
+            throw invalid(field, value);
+        };
+    }
+
+    private static InvalidProtocolBufferException invalid(FieldDescriptor field, String value) {
+        return ParamDecoders.invalid(field.getFullName(), value);
+    }
+
+    private static ImmutableMap<String, Message> wrappers(Message... wrappers) {
+        ImmutableMap.Builder<String, Message> byName = ImmutableMap.builder();
+        for (Message wrapper : wrappers) {
+            byName.put(wrapper.getDescriptorForType().getFullName(), wrapper);
+        }
+        return byName.build();
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        Object decode(String value) throws InvalidProtocolBufferException;
+    }
+
+    private static final class EnumDecoder implements Decoder {
+        private final FieldDescriptor field;
+        private final ImmutableMap<String, Descriptors.EnumValueDescriptor> byName;
+        // Case-insensitive fallback, compared without allocating an upper-cased copy of the value.
+        private final Map<String, Descriptors.EnumValueDescriptor> byNameIgnoringCase =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        EnumDecoder(FieldDescriptor field) {
+            ImmutableMap.Builder<String, Descriptors.EnumValueDescriptor> byName = ImmutableMap.builder();
+            for (Descriptors.EnumValueDescriptor value : field.getEnumType().getValues()) {
+                byName.put(value.getName(), value);
+                byNameIgnoringCase.putIfAbsent(value.getName(), value);
+            }
+
+            this.field = field;
+            this.byName = byName.build();
+        }
+
+        @Override
+        public Object decode(String value) throws InvalidProtocolBufferException {
+            Descriptors.EnumValueDescriptor enumValue = byName.get(value);
+            if (enumValue == null) {
+                enumValue = byNameIgnoringCase.get(value);
+            }
+            if (enumValue == null && !value.isEmpty()
+                    && (Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')) {
+                try {
+                    enumValue = field.getEnumType().findValueByNumber(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw invalid(field, value);
+                }
+            }
+            if (enumValue == null) {
+                throw invalid(field, value);
+            }
+
+            return enumValue;
+        }
+    }
+}
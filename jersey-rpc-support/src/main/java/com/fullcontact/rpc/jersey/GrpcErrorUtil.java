@@ -3,6 +3,7 @@ package com.fullcontact.rpc.jersey;
 import com.google.common.base.Strings;
 import com.google.protobuf.Any;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.Durations;
 import com.google.protobuf.util.JsonFormat;
 import com.google.rpc.DebugInfo;
@@ -10,6 +11,8 @@ import com.google.rpc.RetryInfo;
 import io.grpc.Metadata;
 import io.grpc.Status;
 import io.grpc.protobuf.ProtoUtils;
+import io.grpc.protobuf.StatusProto;
+import java.util.stream.Collectors;
 import javax.ws.rs.core.Response;
 import lombok.Value;
 
@@ -91,13 +94,19 @@ public class GrpcErrorUtil {
 
         payload.setMessage(errorMessage.toString());
 
+        // Details of a google.rpc.Status sent by the service (grpc-status-details-bin), e.x. BadRequest.
+        com.google.rpc.Status statusProto = StatusProto.fromThrowable(t);
+        if (statusProto != null) {
+            payload.addAllDetails(statusProto.getDetailsList());
+        }
+
         if (trailer != null) {
-            if (trailer.containsKey(RETRY_INFO_KEY)) {
+            if (trailer.containsKey(RETRY_INFO_KEY) && !hasDetail(payload, RetryInfo.class)) {
                 RetryInfo retryInfo = trailer.get(RETRY_INFO_KEY);
                 payload.addDetails(Any.pack(retryInfo));
             }
 
-            if (trailer.containsKey(DEBUG_INFO_KEY)) {
+            if (trailer.containsKey(DEBUG_INFO_KEY) && !hasDetail(payload, DebugInfo.class)) {
                 DebugInfo debugInfo = trailer.get(DEBUG_INFO_KEY);
                 payload.addDetails(Any.pack(debugInfo));
             }
@@ -110,6 +119,13 @@ public class GrpcErrorUtil {
     }
 
     public static Response createJerseyResponse(Throwable t) {
+        return createJerseyResponse(t, TypeRegistries.errorDetails());
+    }
+
+    /**
+     * Translates the error to a response, printing its details with the registry (e.x. the one of the resource).
+     */
+    public static Response createJerseyResponse(Throwable t, JsonFormat.TypeRegistry registry) {
         GrpcErrorUtil.GrpcError grpcError = GrpcErrorUtil.throwableToStatus(t);
         int httpStatusCode = GrpcErrorUtil.grpcToHttpStatus(grpcError.getStatus());
 
@@ -126,7 +142,7 @@ public class GrpcErrorUtil {
                 }
             }
 
-            httpResponse.entity(JsonFormat.printer().print(grpcError.getPayload().toBuilder().clearDetails().build()));
+            httpResponse.entity(printPayload(grpcError.getPayload(), JsonFormat.printer(), registry));
         } catch (InvalidProtocolBufferException e) {
             // this should never happen
             throw new RuntimeException(e);
@@ -135,6 +151,49 @@ public class GrpcErrorUtil {
         return httpResponse.build();
     }
 
+    /**
+     * Prints an error payload along with its {@code google.rpc} error details, see
+     * {@link #printPayload(com.google.rpc.Status, JsonFormat.Printer, JsonFormat.TypeRegistry)}.
+     */
+    public static String printPayload(com.google.rpc.Status payload, JsonFormat.Printer printer)
+            throws InvalidProtocolBufferException {
+        return printPayload(payload, printer, TypeRegistries.errorDetails());
+    }
+
+    /**
+     * Prints an error payload along with its details, whose types are resolved with the registry (e.x.
+     * {@link TypeRegistries#forService}). Details of types it doesn't know (e.x. packed from a .proto the service
+     * doesn't import) are left out, as they can't be printed.
+     *
+     * @param printer printer without a type registry
+     */
+    public static String printPayload(com.google.rpc.Status payload,
+            JsonFormat.Printer printer,
+            JsonFormat.TypeRegistry registry)
+            throws InvalidProtocolBufferException {
+        com.google.rpc.Status printable = payload;
+        for (Any detail : payload.getDetailsList()) {
+            if (registry.find(typeName(detail.getTypeUrl())) == null) {
+                printable = payload.toBuilder().clearDetails().addAllDetails(
+                        payload.getDetailsList().stream()
+                                .filter(d -> registry.find(typeName(d.getTypeUrl())) != null)
+                                .collect(Collectors.toList()))
+                        .build();
+                break;
+            }
+        }
+
+        return printer.usingTypeRegistry(registry).print(printable);
+    }
+
+    private static String typeName(String typeUrl) {
+        return typeUrl.substring(typeUrl.lastIndexOf('/') + 1);
+    }
+
+    private static boolean hasDetail(com.google.rpc.Status.Builder payload, Class<? extends Message> type) {
+        return payload.getDetailsList().stream().anyMatch(detail -> detail.is(type));
+    }
+
     @Value
     static class GrpcError {
         Status status;
@@ -0,0 +1,202 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.google.protobuf.util.JsonFormat;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Immutable JSON, error handling, streaming and serving configuration of a generated resource (or of
+ * {@link GrpcRoute}s), passed to its constructor. Resources built with different configurations can coexist in the
+ * same JVM, and read the configuration from final fields on every request.
+ *
+ * <pre>{@code
+ * GrpcJerseyConfig config = GrpcJerseyConfig.builder()
+ *         .unaryPrinter(JsonFormat.printer().omittingInsignificantWhitespace())
+ *         .errorHandler(new MyErrorHandler())
+ *         .build();
+ * resourceConfig.register(new UserServiceGrpcJerseyResource(stub, config));
+ * }</pre>
+ *
+ * Resources constructed without one use {@link #global()}, a snapshot of the {@link JsonHandler},
+ * {@link ErrorHandler}, {@link ResponseCaching}, {@link ResponseCompression} and {@link RpcExecutor} overrides taken
+ * when the resource is constructed, along with the JVM-global {@link ConcurrencyLimits}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class GrpcJerseyConfig {
+    private static final GrpcJerseyConfig DEFAULTS = builder().build();
+
+    /**
+     * Reads request bodies.
+     */
+    @NonNull
+    @Builder.Default
+    JsonFormat.Parser parser = JsonFormat.parser();
+    /**
+     * Prints unary responses.
+     */
+    @NonNull
+    @Builder.Default
+    JsonFormat.Printer unaryPrinter = TypedJsonPrinter.printer(JsonOutput.getDefaultInstance());
+    /**
+     * Prints streamed messages, which must fit on a single line.
+     */
+    @NonNull
+    @Builder.Default
+    JsonFormat.Printer streamPrinter = TypedJsonPrinter.printer(JsonOutput.newBuilder().setCompact(true).build());
+    /**
+     * Prints partial responses (see {@link ResponseMask}). Must not include default value fields, the fields in the
+     * mask are included on top of it.
+     */
+    @NonNull
+    @Builder.Default
+    JsonFormat.Printer partialPrinter = JsonFormat.printer();
+    @NonNull
+    @Builder.Default
+    GrpcJerseyErrorHandler errorHandler = new GrpcJerseyErrorHandler.Default();
+    /**
+     * Interval of the heartbeat comments written to idle server-sent event streams, so proxies and load balancers
+     * don't close them. The first heartbeat sends the response headers if no message has been sent yet. Zero disables
+     * heartbeats.
+     */
+    @NonNull
+    @Builder.Default
+    Duration sseHeartbeat = Duration.ofSeconds(15);
+    /**
+     * How long a server stream may go without a message before it's ended with DEADLINE_EXCEEDED and its upstream
+     * call cancelled, so a stuck backend doesn't hold the response forever. Heartbeats don't count as messages. Zero
+     * disables the timeout.
+     */
+    @NonNull
+    @Builder.Default
+    Duration streamIdleTimeout = Duration.ZERO;
+    /**
+     * How long a server stream may last before it's ended with DEADLINE_EXCEEDED and its upstream call cancelled.
+     * Zero disables the limit.
+     */
+    @NonNull
+    @Builder.Default
+    Duration streamMaxDuration = Duration.ZERO;
+    /**
+     * Concurrency limiters applied to the methods, none by default.
+     */
+    @NonNull
+    @Builder.Default
+    ConcurrencyLimits limits = new ConcurrencyLimits();
+    /**
+     * Cache of the methods with the {@code cache} option. Defaults to a {@link LruResponseCache} of 32MiB, of its own
+     * for every configuration built.
+     */
+    @NonNull
+    @Builder.Default
+    ResponseCache responseCache = new LruResponseCache(ResponseCaching.DEFAULT_MAX_BYTES);
+    /**
+     * Executor the RPCs of resources generated with the {@code executor} option are invoked on, and their blocking
+     * stream writes performed on. Defaults to the library's default {@link RpcExecutor}.
+     */
+    @NonNull
+    @Builder.Default
+    Executor rpcExecutor = RpcExecutor.defaultExecutor();
+    /**
+     * Compress responses with the best encoding the request accepts, see {@link ResponseCompression}. Disabled by
+     * default.
+     */
+    @Builder.Default
+    boolean compressResponses = false;
+    /**
+     * Size in bytes below which unary responses aren't compressed. Streams are sent as is until they reach it.
+     */
+    @Builder.Default
+    int compressionMinimumSize = ResponseCompression.DEFAULT_MINIMUM_SIZE;
+    /**
+     * Compressed streams are flushed once this many messages were written since the last flush, see
+     * {@link StreamCompressor}.
+     */
+    @Builder.Default
+    int streamFlushMessages = 16;
+    /**
+     * Compressed streams are flushed once this many (uncompressed) bytes were written since the last flush.
+     */
+    @Builder.Default
+    int streamFlushBytes = 16 * 1024;
+    /**
+     * How long a message of a compressed stream may be held back before the stream is flushed.
+     */
+    @NonNull
+    @Builder.Default
+    Duration streamFlushDelay = Duration.ofMillis(50);
+
+    /**
+     * Configuration of the library defaults, regardless of the JVM-global overrides.
+     */
+    public static GrpcJerseyConfig defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Snapshot of the JVM-global {@link JsonHandler}, {@link ErrorHandler}, {@link ResponseCaching},
+     * {@link ResponseCompression} and {@link RpcExecutor} overrides, and the JVM-global {@link ConcurrencyLimits}.
+     */
+    public static GrpcJerseyConfig global() {
+        return builder()
+                .parser(JsonHandler.parser())
+                .unaryPrinter(JsonHandler.unaryPrinter())
+                .streamPrinter(JsonHandler.streamPrinter())
+                .partialPrinter(JsonHandler.partialPrinter())
+                .errorHandler(ErrorHandler.errorHandler())
+                .limits(ConcurrencyLimits.global())
+                .responseCache(ResponseCaching.responseCache())
+                .rpcExecutor(RpcExecutor.executor())
+                .compressResponses(ResponseCompression.isEnabled())
+                .compressionMinimumSize(ResponseCompression.minimumSize())
+                .build();
+    }
+
+    /**
+     * Replaces the printers with the ones of a method's {@code json} option.
+     */
+    public GrpcJerseyConfig withJsonOutput(JsonOutputProfile profile) {
+        return toBuilder()
+                .unaryPrinter(profile.unaryPrinter())
+                .streamPrinter(profile.streamPrinter())
+                .partialPrinter(profile.partialPrinter())
+                .build();
+    }
+
+    /**
+     * Resolves {@code google.protobuf.Any} fields and the details of errors with the registry, e.x.
+     * {@link TypeRegistries#forService}. The parser, printers and error handler keep a registry they were already
+     * configured with.
+     */
+    public GrpcJerseyConfig withTypeRegistry(JsonFormat.TypeRegistry registry) {
+        return toBuilder()
+                .errorHandler(errorHandler.withTypeRegistry(registry))
+                .parser(withTypeRegistry(parser, registry))
+                .unaryPrinter(withTypeRegistry(unaryPrinter, registry))
+                .streamPrinter(withTypeRegistry(streamPrinter, registry))
+                .partialPrinter(withTypeRegistry(partialPrinter, registry))
+                .build();
+    }
+
+    private static JsonFormat.Parser withTypeRegistry(JsonFormat.Parser parser, JsonFormat.TypeRegistry registry) {
+        try {
+            return parser.usingTypeRegistry(registry);
+        } catch (IllegalArgumentException e) {
+            // Only one registry is allowed.
+            return parser;
+        }
+    }
+
+    private static JsonFormat.Printer withTypeRegistry(JsonFormat.Printer printer, JsonFormat.TypeRegistry registry) {
+        try {
+            return TypedJsonPrinter.usingTypeRegistry(printer, registry);
+        } catch (IllegalArgumentException e) {
+            // Only one registry is allowed.
+            return printer;
+        }
+    }
+}
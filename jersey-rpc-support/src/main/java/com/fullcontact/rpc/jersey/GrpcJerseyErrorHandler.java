@@ -3,6 +3,7 @@ package com.fullcontact.rpc.jersey;
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
 import com.google.rpc.Status;
 import java.io.IOException;
 import java.util.Map;
@@ -32,20 +33,60 @@ public interface GrpcJerseyErrorHandler {
      * there isn't a real way to signal well-formed errors except via another streaming payload.
      *
      * @param t throwable raised.
-     * @return Literal string, if you want JSON-encoded data use the {@link JsonHandler#streamPrinter()} to retain
-     * server-sent events compatibility. Return {@link Optional#empty()} to silently abort.
+     * @return Literal string, if you want JSON-encoded data use {@link GrpcErrorUtil#printPayload} with a printer
+     * omitting insignificant whitespace to retain server-sent events compatibility. Return {@link Optional#empty()} to
+     * silently abort.
      * @throws IOException usually if serialization of errors break.
      */
     Optional<String> handleStreamingError(Throwable t) throws IOException;
 
+    /**
+     * Handles an exception raised in a server streaming RPC handler whose stream was negotiated as
+     * {@link StreamFormat#PROTOBUF}, the binary counterpart of {@link #handleStreamingError}. The status is written as
+     * the terminal frame of the stream. Defaults to the payload the default handler prints for other streams.
+     *
+     * @param t throwable raised.
+     * @return status ending the stream, return {@link Optional#empty()} to silently abort.
+     */
+    default Optional<Status> handleBinaryStreamingError(Throwable t) {
+        return Optional.of(GrpcErrorUtil.throwableToStatus(t).getPayload());
+    }
+
+    /**
+     * Returns a handler resolving the types of error details with the registry, e.x. the one a generated resource
+     * builds for its service (see {@link GrpcJerseyConfig#withTypeRegistry}). Defaults to this handler as it is.
+     */
+    default GrpcJerseyErrorHandler withTypeRegistry(JsonFormat.TypeRegistry registry) {
+        return this;
+    }
+
+    /**
+     * Prints error details of the {@code google.rpc} types, or of the types of the registry it's given through
+     * {@link #withTypeRegistry}.
+     */
     class Default implements GrpcJerseyErrorHandler {
+        // Errors are part of the stream, so they're printed on a single line like its messages.
+        private static final JsonFormat.Printer STREAM_ERROR_PRINTER = JsonFormat.printer()
+                .includingDefaultValueFields()
+                .omittingInsignificantWhitespace();
+
+        private final JsonFormat.TypeRegistry registry;
+
+        public Default() {
+            this(TypeRegistries.errorDetails());
+        }
+
+        public Default(JsonFormat.TypeRegistry registry) {
+            this.registry = registry;
+        }
+
         @Override
         public Optional<Response> handleUnaryError(Throwable t, ImmutableMultimap<String, String> responseHeaders) {
             Response response;
             if (t instanceof InvalidProtocolBufferException) {
                 response = Response.status(Response.Status.BAD_REQUEST).entity(t.getMessage()).build();
             } else {
-                response = GrpcErrorUtil.createJerseyResponse(t);
+                response = GrpcErrorUtil.createJerseyResponse(t, registry);
             }
 
             if (!responseHeaders.isEmpty()) {
@@ -64,12 +105,19 @@ public interface GrpcJerseyErrorHandler {
         public Optional<String> handleStreamingError(Throwable t) throws InvalidProtocolBufferException {
             Status grpcError = GrpcErrorUtil.throwableToStatus(t).getPayload();
 
-            // JsonFormat doesn't support serializing Any.
-            if (!grpcError.getDetailsList().isEmpty()) {
-                grpcError = grpcError.toBuilder().clearDetails().build();
+            return Optional.of(GrpcErrorUtil.printPayload(grpcError, STREAM_ERROR_PRINTER, registry));
+        }
+
+        /**
+         * Only one registry is allowed, a handler already given one keeps it. Subclasses are kept as they are.
+         */
+        @Override
+        public GrpcJerseyErrorHandler withTypeRegistry(JsonFormat.TypeRegistry registry) {
+            if (getClass() != Default.class || this.registry != TypeRegistries.errorDetails()) {
+                return this;
             }
 
-            return Optional.of(JsonHandler.streamPrinter().print(grpcError));
+            return new Default(registry);
         }
     }
 }
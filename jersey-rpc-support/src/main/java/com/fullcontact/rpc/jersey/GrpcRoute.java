@@ -0,0 +1,84 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Message;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A single HTTP binding of a gRPC method, independent of any particular HTTP container. Instances are emitted by the
+ * code generator (see the {@code routes} option) and carry the same binding rules as the generated Jersey resource
+ * methods.
+ *
+ * @param <ReqT> RPC request type
+ * @param <RespT> RPC response type
+ */
+@Beta
+@Value
+@Builder
+public class GrpcRoute<ReqT extends Message, RespT extends Message> {
+    /**
+     * Simple name of the RPC method, e.x. "TestMethod".
+     */
+    String methodName;
+    /**
+     * Full name of the RPC method, e.x. "package.TestService/TestMethod", which its concurrency limiter is set for
+     * (see {@link ConcurrencyLimits}). Null if the route isn't limited.
+     */
+    String fullMethodName;
+    /**
+     * HTTP method, e.x. "GET".
+     */
+    String httpMethod;
+    PathTemplate pathTemplate;
+    boolean serverStreaming;
+    Binder<ReqT> binder;
+    Invoker<ReqT, RespT> invoker;
+    /**
+     * Printers and error handler of the route, defaults to a snapshot of the JVM-global ones.
+     */
+    @Builder.Default
+    GrpcJerseyConfig config = GrpcJerseyConfig.global();
+    /**
+     * Event ids and reconnection delay of server-sent event streams, from the method's {@code sse} option.
+     */
+    @Builder.Default
+    ServerSentEvents<RespT> events = ServerSentEvents.none();
+
+    /**
+     * Matches the request line against this route.
+     *
+     * @return path variables if both the HTTP method and the path match
+     */
+    public Optional<ImmutableMap<String, String>> match(String httpMethod, String rawPath) {
+        if (!this.httpMethod.equalsIgnoreCase(httpMethod)) {
+            return Optional.empty();
+        }
+
+        return pathTemplate.match(rawPath);
+    }
+
+    /**
+     * Builds the RPC request from the path, query and body of the HTTP request.
+     */
+    @FunctionalInterface
+    public interface Binder<ReqT> {
+        ReqT bind(RouteRequest request) throws IOException;
+    }
+
+    /**
+     * Invokes the RPC. Proxy-mode implementations attach the request headers and the given interceptor to the stub.
+     */
+    @FunctionalInterface
+    public interface Invoker<ReqT, RespT> {
+        void invoke(ReqT request,
+                RouteRequest routeRequest,
+                HttpHeaderClientInterceptor interceptor,
+                StreamObserver<RespT> observer);
+    }
+}
@@ -47,9 +47,33 @@ public class HttpHeaderInterceptors {
      * generated code, should not be used by the end user.
      */
     public static HttpHeaderClientInterceptor clientInterceptor(HttpHeaders httpHeaders) {
+        return new HttpHeaderClientInterceptor(toMultimapFromJerseyHeaders(httpHeaders));
+    }
+
+    /**
+     * Variant of {@link #clientInterceptor(HttpHeaders)} for runtimes which don't use JAX-RS. Public for use in
+     * generated code and alternate runtimes, should not be used by the end user.
+     */
+    public static HttpHeaderClientInterceptor clientInterceptor(ImmutableMultimap<String, String> httpHeaders) {
         return new HttpHeaderClientInterceptor(httpHeaders);
     }
 
+    /**
+     * Returns the given request headers, e.x. the {@code key_headers} forwarded to a batch RPC shared by several
+     * requests. Public for use in generated code, should not be used by the end user.
+     */
+    public static ImmutableMultimap<String, String> selectHeaders(HttpHeaders httpHeaders, String... names) {
+        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
+        for (String name : names) {
+            List<String> values = httpHeaders.getRequestHeader(name);
+            if (values != null) {
+                builder.putAll(name, values);
+            }
+        }
+
+        return builder.build();
+    }
+
     private static Headers headersFromMultimap(Multimap<String, String> headers) {
         Headers.Builder builder = Headers.newBuilder();
 
@@ -95,8 +119,8 @@ public class HttpHeaderInterceptors {
         private ImmutableMultimap<String, String> httpResponseHeaders = ImmutableMultimap.of();
         private boolean receivedHeaders = false;
 
-        HttpHeaderClientInterceptor(HttpHeaders httpRequestHeaders) {
-            this.httpRequestHeaders = toMultimapFromJerseyHeaders(httpRequestHeaders);
+        HttpHeaderClientInterceptor(ImmutableMultimap<String, String> httpRequestHeaders) {
+            this.httpRequestHeaders = httpRequestHeaders;
         }
 
         @Override
@@ -139,10 +163,18 @@ public class HttpHeaderInterceptors {
             };
         }
 
-        ImmutableMultimap<String, String> getHttpResponseHeaders() {
+        public ImmutableMultimap<String, String> getHttpResponseHeaders() {
             return httpResponseHeaders;
         }
 
+        /**
+         * Takes the response headers received by another interceptor, e.x. the one of the call shared by a batch.
+         */
+        void copyResponseHeaders(HttpHeaderClientInterceptor other) {
+            receivedHeaders = other.receivedHeaders;
+            httpResponseHeaders = other.httpResponseHeaders;
+        }
+
         Response.ResponseBuilder withResponseHeaders(Response.ResponseBuilder builder) {
             if (!httpResponseHeaders.isEmpty()) {
                 for (Map.Entry<String, String> header : httpResponseHeaders.entries()) {
@@ -2,40 +2,90 @@ package com.fullcontact.rpc.jersey;
 
 import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
-import io.grpc.stub.StreamObserver;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Variant;
 
 /**
- * gRPC StreamObserver which publishes JSON-formatted messages from a gRPC server stream. Uses underlying servlet.
- * {@link AsyncContext}.
+ * gRPC StreamObserver which publishes JSON-formatted messages from a gRPC server stream, framed by a
+ * {@link StreamFormat}, or binary ones for {@link StreamFormat#PROTOBUF}. Uses underlying servlet {@link AsyncContext}.
+ *
+ * Streams are watched by the {@link StreamTimer} for SSE heartbeats, and for the idle timeout and maximum duration of
+ * the {@link GrpcJerseyConfig}. A stream exceeding either is ended with DEADLINE_EXCEEDED, and its upstream call (when
+ * used with a client stub) is cancelled.
+ *
+ * With a write executor, messages are only requested from the upstream call (when used with a client stub) as they're
+ * written, so a slow client holds back the call rather than having the stream queued in memory. Services called
+ * directly are blocked in {@link #onNext} while {@link #MAX_PENDING_WRITES} messages are waiting to be written.
  *
  * @author Michael Rose (xorlev)
  */
-public class JerseyStreamingObserver<V extends Message> implements StreamObserver<V> {
+public class JerseyStreamingObserver<V extends Message> implements ClientResponseObserver<Message, V> {
     public static final List<Variant> VARIANT_LIST = ImmutableList.of(
             new Variant(MediaType.APPLICATION_JSON_TYPE, (String) null, null),
-            new Variant(new MediaType("text", "event-stream"), (String) null, null)
+            new Variant(new MediaType("text", "event-stream"), (String) null, null),
+            new Variant(StreamFormat.PROTOBUF_STREAM, (String) null, null)
     );
+    /**
+     * Messages which may be queued on the write executor before {@link #onNext} blocks.
+     */
+    public static final int MAX_PENDING_WRITES = 16;
 
     private final AsyncContext asyncContext;
-    private final HttpHeaderClientInterceptor httpHeaderClientInterceptor;
+    // Replaced by the one of the upstream call when subscribing to a StreamHub stream, before anything is written.
+    private volatile HttpHeaderClientInterceptor httpHeaderClientInterceptor;
     private final HttpServletResponse httpServletResponse;
     private final ServletOutputStream outputStream;
-    private final boolean sse;
+    private final StreamFormat format;
+    private final ServerSentEvents<V> events;
+    private final Executor writeExecutor;
+    private final boolean ownWriteExecutor;
+    // Null unless writes happen on a write executor.
+    private final Semaphore pendingWrites;
+    private final Optional<ResponseCompression.Encoding> encoding;
+    private final GrpcJerseyConfig config;
 
+    // Wraps outputStream once headers are sent, if the response may be compressed.
+    private StreamCompressor compressedStream;
+    // Only accessed from the (sequential) write executor.
+    private boolean flushScheduled = false;
+    // Writes the frames of PROTOBUF streams once headers are sent, reused like the buffer.
+    private CodedOutputStream frames;
+    // Null unless the stream has heartbeats or timeouts.
+    private final StreamTimer.Watch watch;
+
+    private volatile ClientCallStreamObserver<Message> requestStream;
+    // Whether messages are requested from the upstream call as they're written.
+    private volatile boolean flowControlled = false;
     private volatile boolean first = true;
     private volatile boolean closed = false;
+    // Set once the stream timed out, the upstream call's termination is then ignored.
+    private volatile boolean expired = false;
+    // Notified when the stream ends, see StreamHub.
+    private volatile Runnable closeListener;
+    // Only accessed from the (sequential) write executor.
+    private boolean wroteElement = false;
 
     // Reusable buffer used in the context of a single streaming request, starts at 128 bytes.
     private StringBuilder buffer = new StringBuilder(128);
@@ -46,30 +96,286 @@ public class JerseyStreamingObserver<V extends Message> implements StreamObserve
             HttpServletResponse httpServletResponse,
             boolean sse)
             throws IOException {
+        this(httpHeaderClientInterceptor, httpServletRequest, httpServletResponse, sse, null);
+    }
+
+    /**
+     * @param writeExecutor executor to perform the (blocking) writes to the servlet output stream on, in order. If
+     * null, writes happen on the thread calling the observer.
+     */
+    public JerseyStreamingObserver(
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse,
+            boolean sse,
+            Executor writeExecutor)
+            throws IOException {
+        this(httpHeaderClientInterceptor,
+                httpServletRequest,
+                httpServletResponse,
+                sse,
+                writeExecutor,
+                GrpcJerseyConfig.global());
+    }
+
+    /**
+     * @param writeExecutor executor to perform the (blocking) writes to the servlet output stream on, in order. If
+     * null, writes happen on the thread calling the observer.
+     */
+    public JerseyStreamingObserver(
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse,
+            boolean sse,
+            Executor writeExecutor,
+            GrpcJerseyConfig config)
+            throws IOException {
+        this(httpHeaderClientInterceptor,
+                httpServletRequest,
+                httpServletResponse,
+                sse ? StreamFormat.SSE : StreamFormat.NDJSON,
+                writeExecutor,
+                config);
+    }
+
+    /**
+     * @param format framing of the messages, see {@link StreamFormat#negotiate}
+     * @param writeExecutor executor to perform the (blocking) writes to the servlet output stream on, in order. If
+     * null, writes happen on the thread calling the observer.
+     * @param config printers and error handler of the resource
+     */
+    public JerseyStreamingObserver(
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse,
+            StreamFormat format,
+            Executor writeExecutor,
+            GrpcJerseyConfig config)
+            throws IOException {
+        this(httpHeaderClientInterceptor,
+                httpServletRequest,
+                httpServletResponse,
+                format,
+                ServerSentEvents.none(),
+                writeExecutor,
+                config);
+    }
+
+    /**
+     * @param format framing of the messages, see {@link StreamFormat#negotiate}
+     * @param events event ids and reconnection delay of SSE streams
+     * @param writeExecutor executor to perform the (blocking) writes to the servlet output stream on, in order. If
+     * null, writes happen on the thread calling the observer, and heartbeats and timeouts on the RPC executor of the
+     * config.
+     * @param config printers, error handler, SSE heartbeat interval, stream timeouts, compression and RPC executor of
+     * the resource
+     */
+    public JerseyStreamingObserver(
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse,
+            StreamFormat format,
+            ServerSentEvents<V> events,
+            Executor writeExecutor,
+            GrpcJerseyConfig config)
+            throws IOException {
         this.asyncContext = httpServletRequest.getAsyncContext();
         this.httpHeaderClientInterceptor = httpHeaderClientInterceptor;
         this.httpServletResponse = httpServletResponse;
         this.outputStream = asyncContext.getResponse().getOutputStream();
-        this.sse = sse;
+        this.format = format;
+        this.events = events;
+        this.encoding = config.isCompressResponses()
+                ? ResponseCompression.negotiate(
+                        Collections.list(httpServletRequest.getHeaders(HttpHeaders.ACCEPT_ENCODING)))
+                : Optional.empty();
+        this.config = config;
+
+        Duration heartbeat = format == StreamFormat.SSE ? config.getSseHeartbeat() : Duration.ZERO;
+        boolean watched = !heartbeat.isZero()
+                || !config.getStreamIdleTimeout().isZero()
+                || !config.getStreamMaxDuration().isZero()
+                || encoding.isPresent();
+        this.ownWriteExecutor = writeExecutor != null;
+        this.pendingWrites = writeExecutor != null ? new Semaphore(MAX_PENDING_WRITES) : null;
+        if (writeExecutor != null) {
+            this.writeExecutor = MoreExecutors.newSequentialExecutor(writeExecutor);
+        } else if (watched) {
+            // Serializes heartbeats, timeouts and delayed flushes with the writes of the thread calling the observer.
+            this.writeExecutor = MoreExecutors.newSequentialExecutor(MoreExecutors.directExecutor());
+        } else {
+            this.writeExecutor = MoreExecutors.directExecutor();
+        }
+
+        this.watch = StreamTimer.shared().watch(
+                new TimerListener(),
+                heartbeat,
+                config.getStreamIdleTimeout(),
+                config.getStreamMaxDuration());
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Message> requestStream) {
+        this.requestStream = requestStream;
+        if (ownWriteExecutor) {
+            // The call still requests its first message, the next ones are requested once written.
+            requestStream.disableAutoInboundFlowControl();
+            flowControlled = true;
+        }
     }
 
     @Override
     public void onNext(V value) {
+        if (expired) {
+            if (requestStream != null) {
+                // Messages already in flight when the upstream call was cancelled.
+                return;
+            }
+            // Like the observer of a cancelled gRPC call, for services called directly.
+            throw Status.CANCELLED.withDescription("Stream timed out").asRuntimeException();
+        }
         if (closed) {
             throw new IllegalStateException("JerseyStreamingObserver has already been closed");
         }
+        if (watch != null) {
+            watch.touch();
+        }
+        if (format == StreamFormat.PROTOBUF) {
+            // Serialized straight into the output stream on the write executor, never printed.
+            enqueue(() -> writeFrame(value));
+            return;
+        }
 
-        addHeadersIfNotSent();
-
+        String json;
+        String eventPrefix;
         try {
-            write(JsonHandler.streamPrinter().print(value));
+            json = TypedJsonPrinter.print(config.getStreamPrinter(), value);
+            eventPrefix = format == StreamFormat.SSE ? events.eventPrefix(value) : "";
         } catch (IOException e) {
             onError(e);
+            return;
+        }
+
+        enqueue(() -> writeMessage(eventPrefix, json));
+    }
+
+    /**
+     * Queues the write of a message, blocking while too many are pending. Once written, the next message is requested
+     * from the upstream call.
+     */
+    private void enqueue(Runnable write) {
+        if (pendingWrites == null) {
+            writeExecutor.execute(write);
+            return;
+        }
+
+        try {
+            pendingWrites.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted while waiting for the client").asRuntimeException();
+        }
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    write.run();
+                } finally {
+                    written();
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingWrites.release();
+            throw e;
+        }
+    }
+
+    private void written() {
+        pendingWrites.release();
+        ClientCallStreamObserver<Message> call = requestStream;
+        if (flowControlled && !closed) {
+            call.request(1);
         }
     }
 
     @Override
     public void onError(Throwable t) {
+        if (expired) {
+            return;
+        }
+        writeExecutor.execute(() -> handleError(t));
+    }
+
+    @Override
+    public void onCompleted() {
+        if (expired) {
+            return;
+        }
+        writeExecutor.execute(this::handleCompleted);
+    }
+
+    /**
+     * Writes a message of a {@link StreamHub} stream, on the write executor.
+     */
+    void writeShared(StreamHub.Frame<V> frame) {
+        if (watch != null) {
+            watch.touch();
+        }
+        if (format == StreamFormat.PROTOBUF) {
+            writeFrame(frame.getMessage());
+            return;
+        }
+
+        String json;
+        try {
+            json = frame.json();
+        } catch (IOException e) {
+            handleError(e);
+            return;
+        }
+        writeMessage(frame.getEventPrefix(), json);
+    }
+
+    /**
+     * Runs the task on the write executor, but never on the calling thread if writes would otherwise happen there.
+     */
+    void dispatch(Runnable task) {
+        if (ownWriteExecutor) {
+            writeExecutor.execute(task);
+        } else {
+            config.getRpcExecutor().execute(() -> writeExecutor.execute(task));
+        }
+    }
+
+    /**
+     * Whether the stream ended, e.x. because the client went away or it timed out.
+     */
+    boolean isClosed() {
+        return closed || expired;
+    }
+
+    /**
+     * Runs the listener on the write executor when the stream ends.
+     */
+    void onClose(Runnable listener) {
+        this.closeListener = listener;
+    }
+
+    /**
+     * Sends the response headers of another call, for streams subscribed to a call opened by another request.
+     */
+    void shareResponseHeaders(HttpHeaderClientInterceptor httpHeaderClientInterceptor) {
+        this.httpHeaderClientInterceptor = httpHeaderClientInterceptor;
+    }
+
+    /**
+     * Ends the stream with the error, on the write executor.
+     */
+    void handleError(Throwable t) {
+        // The stream may have ended already, e.x. it expired while the end of the call was queued.
+        if (closed) {
+            return;
+        }
+        closing();
         if (t instanceof EOFException) {
             closed = true;
             // The client went away, there's not much we can do.
@@ -82,40 +388,105 @@ public class JerseyStreamingObserver<V extends Message> implements StreamObserve
 
             // As we lack supported trailers in standard HTTP, we'll have to make do with emitting an error to the
             // primary stream
-            Optional<String> errorPayload = ErrorHandler.handleStreamingError(t);
-            if (errorPayload.isPresent()) {
-                write(errorPayload.get());
+            if (format == StreamFormat.PROTOBUF) {
+                Optional<com.google.rpc.Status> status = config.getErrorHandler().handleBinaryStreamingError(t);
+                if (status.isPresent()) {
+                    writeStatus(status.get());
+                }
+            } else {
+                Optional<String> errorPayload = config.getErrorHandler().handleStreamingError(t);
+                if (errorPayload.isPresent()) {
+                    write(errorPayload.get());
+                }
             }
 
             closed = true;
-            outputStream.close();
+            writeEnd();
+            closeStream();
             asyncContext.complete();
         } catch (IOException e) {
-            // Something really broke, try closing the connection.
-            try {
-                outputStream.close();
-                asyncContext.complete();
-            } catch (IOException e1) {
-                // Ignored if we already have.
-            }
+            abort();
         }
     }
 
-    @Override
-    public void onCompleted() {
-        addHeadersIfNotSent();
-
+    /**
+     * Ends the stream, on the write executor.
+     */
+    void handleCompleted() {
+        if (closed) {
+            return;
+        }
+        closing();
         try {
+            addHeadersIfNotSent();
+            if (format == StreamFormat.PROTOBUF) {
+                // Tells a complete stream from one cut short.
+                writeStatus(com.google.rpc.Status.getDefaultInstance());
+            }
             closed = true;
+            writeEnd();
             outputStream.flush();
-            outputStream.close();
+            closeStream();
             asyncContext.complete();
         } catch (IOException e) {
-            onError(e);
+            if (closed) {
+                // Failed while writing the end of the stream, there's no error to write it after.
+                abort();
+            } else {
+                handleError(e);
+            }
+        }
+    }
+
+    /**
+     * Something really broke, try closing the connection.
+     */
+    private void abort() {
+        closed = true;
+        try {
+            closeStream();
+            asyncContext.complete();
+        } catch (IOException e) {
+            // Ignored if we already have.
+        }
+    }
+
+    private void writeMessage(String eventPrefix, String json) {
+        if (closed) {
+            return;
+        }
+
+        try {
+            addHeadersIfNotSent();
+            if (format == StreamFormat.SSE) {
+                buffer.append(eventPrefix);
+            }
+            write(json);
+        } catch (IOException e) {
+            handleError(e);
         }
     }
 
-    private void addHeadersIfNotSent() {
+    private void writeFrame(Message value) {
+        if (closed) {
+            return;
+        }
+
+        try {
+            addHeadersIfNotSent();
+            frames.writeMessage(StreamFormat.MESSAGE_FIELD, value);
+            flushFrames();
+        } catch (IOException e) {
+            handleError(e);
+        }
+    }
+
+    private void writeStatus(com.google.rpc.Status status) throws IOException {
+        frames.writeMessage(StreamFormat.STATUS_FIELD, status);
+        flushFrames();
+    }
+
+    private void addHeadersIfNotSent() throws IOException {
         if (!first || closed) {
             return;
         } else {
@@ -125,6 +496,72 @@ public class JerseyStreamingObserver<V extends Message> implements StreamObserve
         for (Map.Entry<String, String> header : httpHeaderClientInterceptor.getHttpResponseHeaders().entries()) {
             httpServletResponse.addHeader(header.getKey(), header.getValue());
         }
+
+        if (encoding.isPresent()) {
+            httpServletResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            compressedStream = new StreamCompressor(outputStream, encoding.get(), config, () ->
+                    httpServletResponse.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.get().token()));
+        }
+
+        if (format == StreamFormat.PROTOBUF) {
+            // JSON is assumed otherwise, consumers need it to tell the frames apart.
+            httpServletResponse.setContentType(format.contentType());
+            frames = CodedOutputStream.newInstance(compressedStream != null ? compressedStream : outputStream);
+        }
+
+        if (format == StreamFormat.SSE) {
+            // Sent along with whatever is written first.
+            buffer.append(events.streamPrefix());
+        }
+    }
+
+    private void handleHeartbeat() {
+        if (closed) {
+            return;
+        }
+
+        try {
+            addHeadersIfNotSent();
+            buffer.append(ServerSentEvents.HEARTBEAT);
+            flushBuffer(false);
+        } catch (IOException e) {
+            handleError(e);
+        }
+    }
+
+    private void handleExpired(Status status) {
+        if (closed) {
+            return;
+        }
+
+        ClientCallStreamObserver<Message> call = requestStream;
+        if (call != null) {
+            call.cancel(status.getDescription(), null);
+        }
+        handleError(status.asRuntimeException());
+    }
+
+    /**
+     * Stops watching the stream and notifies the close listener, once it starts ending.
+     */
+    private void closing() {
+        if (watch != null) {
+            watch.cancel();
+        }
+
+        Runnable listener = closeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private void closeStream() throws IOException {
+        // Closing the compressed stream writes out its trailer, and closes the underlying one.
+        if (compressedStream != null) {
+            compressedStream.close();
+        } else {
+            outputStream.close();
+        }
     }
 
     private void write(String value) throws IOException {
@@ -132,18 +569,43 @@ public class JerseyStreamingObserver<V extends Message> implements StreamObserve
             return;
         }
 
-        if (sse) {
-            buffer.append("data: ");
-        }
+        buffer.append(format.prefix(!wroteElement)).append(value).append(format.suffix());
+        wroteElement = true;
+        flushBuffer(true);
+    }
 
-        buffer.append(value).append('\n');
+    private void writeEnd() throws IOException {
+        buffer.append(format.end(!wroteElement));
+        if (buffer.length() > 0) {
+            flushBuffer(false);
+        }
+    }
 
-        if (sse) {
-            buffer.append('\n');
+    private void flushFrames() throws IOException {
+        // Only writes out the frames' buffer, the underlying stream is flushed like the JSON buffer's.
+        frames.flush();
+        if (compressedStream != null) {
+            endMessage();
+        } else {
+            outputStream.flush();
         }
+    }
 
-        outputStream.print(buffer.toString());
-        outputStream.flush();
+    /**
+     * @param message whether the buffer holds a message, which a compressed stream may hold back until its next flush
+     */
+    private void flushBuffer(boolean message) throws IOException {
+        if (compressedStream != null) {
+            compressedStream.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            if (message) {
+                endMessage();
+            } else {
+                compressedStream.flush();
+            }
+        } else {
+            outputStream.print(buffer.toString());
+            outputStream.flush();
+        }
 
         // Reset buffer position to 0. At this point, the buffer will have a capacity of the max size(value) passed
         // through so far. In the majority of cases, other messages will be of similar (or larger) size,
@@ -151,4 +613,44 @@ public class JerseyStreamingObserver<V extends Message> implements StreamObserve
         // allocate new buffers per message
         buffer.setLength(0);
     }
+
+    /**
+     * Ends a message of a compressed stream, flushing it later if the compressor holds it back.
+     */
+    private void endMessage() throws IOException {
+        if (compressedStream.endMessage() && !flushScheduled) {
+            flushScheduled = true;
+            StreamTimer.shared().schedule(() -> dispatch(this::handleDelayedFlush),
+                    config.getStreamFlushDelay().toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void handleDelayedFlush() {
+        flushScheduled = false;
+        if (closed) {
+            return;
+        }
+
+        try {
+            compressedStream.flush();
+        } catch (IOException e) {
+            handleError(e);
+        }
+    }
+
+    /**
+     * Hands the timer's callbacks to the write executor, so they don't block the timer.
+     */
+    private class TimerListener implements StreamTimer.Listener {
+        @Override
+        public void onHeartbeat() {
+            dispatch(JerseyStreamingObserver.this::handleHeartbeat);
+        }
+
+        @Override
+        public void onExpired(Status status) {
+            expired = true;
+            dispatch(() -> handleExpired(status));
+        }
+    }
 }
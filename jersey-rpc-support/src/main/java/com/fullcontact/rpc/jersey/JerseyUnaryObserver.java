@@ -12,14 +12,42 @@ import javax.ws.rs.core.Response;
  * gRPC StreamObserver which publishes to a Jersey AsyncResponse. Used for unary (singular request/response) semantics.
  */
 public class JerseyUnaryObserver<V extends Message> implements StreamObserver<V> {
-    private final AsyncResponse asyncResponse;
+    private final UnaryResponseSink sink;
     private final HttpHeaderClientInterceptor httpHeaderClientInterceptor;
+    private final ResponseMask responseMask;
+    private final GrpcJerseyConfig config;
 
     private volatile boolean closed = false;
 
     public JerseyUnaryObserver(AsyncResponse asyncResponse, HttpHeaderClientInterceptor httpHeaderClientInterceptor) {
-        this.asyncResponse = asyncResponse;
+        this(UnaryResponseSink.of(asyncResponse), httpHeaderClientInterceptor);
+    }
+
+    public JerseyUnaryObserver(UnaryResponseSink sink, HttpHeaderClientInterceptor httpHeaderClientInterceptor) {
+        this(sink, httpHeaderClientInterceptor, null);
+    }
+
+    /**
+     * @param responseMask fields of the response to print, or null for all of them
+     */
+    public JerseyUnaryObserver(UnaryResponseSink sink,
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            ResponseMask responseMask) {
+        this(sink, httpHeaderClientInterceptor, responseMask, GrpcJerseyConfig.global());
+    }
+
+    /**
+     * @param responseMask fields of the response to print, or null for all of them
+     * @param config printers and error handler of the resource
+     */
+    public JerseyUnaryObserver(UnaryResponseSink sink,
+            HttpHeaderClientInterceptor httpHeaderClientInterceptor,
+            ResponseMask responseMask,
+            GrpcJerseyConfig config) {
+        this.sink = sink;
         this.httpHeaderClientInterceptor = httpHeaderClientInterceptor;
+        this.responseMask = responseMask;
+        this.config = config;
     }
 
     @Override
@@ -28,11 +56,16 @@ public class JerseyUnaryObserver<V extends Message> implements StreamObserver<V>
             throw new IllegalStateException("JerseyUnaryObserver has already been closed");
         }
         try {
-            Response response = httpHeaderClientInterceptor
-                    .withResponseHeaders(Response.ok())
-                    .entity(JsonHandler.unaryPrinter().print(value))
-                    .build();
-            asyncResponse.resume(response);
+            Optional<Response> preempted = sink.preempt(httpHeaderClientInterceptor.getHttpResponseHeaders());
+            Response response = preempted.isPresent()
+                    ? preempted.get()
+                    : httpHeaderClientInterceptor
+                            .withResponseHeaders(Response.ok())
+                            .entity(responseMask == null
+                                    ? TypedJsonPrinter.print(config.getUnaryPrinter(), value)
+                                    : responseMask.print(value, config.getPartialPrinter()))
+                            .build();
+            sink.resume(response);
             closed = true;
         } catch (InvalidProtocolBufferException e) {
             onError(e);
@@ -42,12 +75,12 @@ public class JerseyUnaryObserver<V extends Message> implements StreamObserver<V>
     @Override
     public void onError(Throwable t) {
         closed = true;
-        Optional<Response> response = ErrorHandler
+        Optional<Response> response = config.getErrorHandler()
                 .handleUnaryError(t, httpHeaderClientInterceptor.getHttpResponseHeaders());
         if (response.isPresent()) {
-            asyncResponse.resume(response.get());
+            sink.resume(response.get());
         } else {
-            asyncResponse.cancel();
+            sink.cancel();
         }
     }
 
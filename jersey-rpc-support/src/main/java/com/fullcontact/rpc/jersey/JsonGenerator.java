@@ -0,0 +1,161 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+
+/**
+ * Output of {@link TypedJsonPrinter}, with the whitespace and string escaping of {@link JsonFormat}: unless compact, a
+ * line per field indented by two spaces, and strings escaped like Gson's (HTML-safe) defaults.
+ */
+final class JsonGenerator {
+    private static final String[] REPLACEMENTS = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            REPLACEMENTS[c] = String.format("\\u%04x", c);
+        }
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+        REPLACEMENTS['<'] = "\\u003c";
+        REPLACEMENTS['>'] = "\\u003e";
+        REPLACEMENTS['&'] = "\\u0026";
+        REPLACEMENTS['='] = "\\u003d";
+        REPLACEMENTS['\''] = "\\u0027";
+    }
+
+    private final Appendable output;
+    private final TypedJsonPrinter printer;
+    private final JsonFormat.Printer fallback;
+    private final boolean compact;
+    private final StringBuilder indent = new StringBuilder();
+    // Indents are written lazily, before the first token of a line.
+    private boolean atStartOfLine = true;
+
+    /**
+     * @param fallback printer of the messages the typed printer doesn't support, configured like it
+     */
+    JsonGenerator(Appendable output, TypedJsonPrinter printer, JsonFormat.Printer fallback) {
+        this.output = output;
+        this.printer = printer;
+        this.fallback = fallback;
+        this.compact = printer.options().getCompact();
+    }
+
+    /**
+     * Writes a token, which must not contain line breaks.
+     */
+    void write(CharSequence token) throws IOException {
+        startLine();
+        output.append(token);
+    }
+
+    void write(char c) throws IOException {
+        startLine();
+        output.append(c);
+    }
+
+    /**
+     * Line break between fields, omitted when compact.
+     */
+    void newLine() throws IOException {
+        if (!compact) {
+            output.append('\n');
+            atStartOfLine = true;
+        }
+    }
+
+    /**
+     * Space after separators, omitted when compact.
+     */
+    void space() throws IOException {
+        if (!compact) {
+            write(' ');
+        }
+    }
+
+    void indent() {
+        indent.append("  ");
+    }
+
+    void outdent() {
+        indent.setLength(indent.length() - 2);
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     */
+    void string(String value) throws IOException {
+        write('"');
+
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = REPLACEMENTS[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+
+            if (last < i) {
+                output.append(value, last, i);
+            }
+            output.append(replacement);
+            last = i + 1;
+        }
+        if (last < length) {
+            output.append(value, last, length);
+        }
+
+        output.append('"');
+    }
+
+    /**
+     * Writes a (nested) message with the writer of its class.
+     */
+    void message(MessageOrBuilder message) throws IOException {
+        printer.writer(message.getClass()).write(message, this);
+    }
+
+    /**
+     * Writes a message with the fallback printer, indenting its lines at the current level.
+     */
+    void fallback(MessageOrBuilder message) throws IOException {
+        String json = fallback.print(message);
+
+        int start = 0;
+        int newLine;
+        while ((newLine = json.indexOf('\n', start)) >= 0) {
+            if (start < newLine) {
+                write(json.subSequence(start, newLine));
+            }
+            output.append('\n');
+            atStartOfLine = true;
+            start = newLine + 1;
+        }
+        if (start < json.length()) {
+            write(json.subSequence(start, json.length()));
+        }
+    }
+
+    private void startLine() throws IOException {
+        if (atStartOfLine) {
+            atStartOfLine = false;
+            output.append(indent);
+        }
+    }
+}
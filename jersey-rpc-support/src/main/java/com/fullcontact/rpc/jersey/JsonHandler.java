@@ -1,16 +1,18 @@
 package com.fullcontact.rpc.jersey;
 
+import com.fullcontact.rpc.JsonOutput;
 import com.google.protobuf.util.JsonFormat;
 
 /**
- * Holder for JsonFormat printers/parsers. Allows JVM-global overrides of printer.
+ * Holder for JsonFormat printers/parsers. Allows JVM-global overrides of printer, which apply to resources constructed
+ * afterwards without a {@link GrpcJerseyConfig}. Prefer passing a {@link GrpcJerseyConfig} to the resource.
  */
 public final class JsonHandler {
     private static JsonFormat.Parser PARSER = JsonFormat.parser();
-    private static JsonFormat.Printer UNARY = JsonFormat.printer().includingDefaultValueFields();
-    private static JsonFormat.Printer STREAM = JsonFormat.printer()
-            .includingDefaultValueFields()
-            .omittingInsignificantWhitespace();
+    private static JsonFormat.Printer UNARY = TypedJsonPrinter.printer(JsonOutput.getDefaultInstance());
+    private static JsonFormat.Printer STREAM =
+            TypedJsonPrinter.printer(JsonOutput.newBuilder().setCompact(true).build());
+    private static JsonFormat.Printer PARTIAL = JsonFormat.printer();
 
     private JsonHandler() {}
 
@@ -26,6 +28,10 @@ public final class JsonHandler {
         return STREAM;
     }
 
+    public static JsonFormat.Printer partialPrinter() {
+        return PARTIAL;
+    }
+
     /**
      * Sets the {@link com.google.protobuf.util.JsonFormat.Parser} used to read incoming requests.
      *
@@ -52,4 +58,15 @@ public final class JsonHandler {
     public static void setStreamPrinter(JsonFormat.Printer printer) {
         JsonHandler.STREAM = printer;
     }
+
+    /**
+     * Sets the {@link com.google.protobuf.util.JsonFormat.Printer} used for partial responses (see
+     * {@link ResponseMask}). It must not include default value fields, the fields in the mask are included on top of
+     * it.
+     *
+     * <p>This method should only be called during initialization.
+     */
+    public static void setPartialPrinter(JsonFormat.Printer printer) {
+        JsonHandler.PARTIAL = printer;
+    }
 }
@@ -0,0 +1,55 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.google.protobuf.util.JsonFormat;
+
+/**
+ * Printers for the {@code json} option of a method or service, see {@link JsonOutput}. Generated resources build one
+ * per method with the option when the class is loaded, and apply it over their {@link GrpcJerseyConfig} (see
+ * {@link GrpcJerseyConfig#withJsonOutput(JsonOutputProfile)}). Methods without it use the printers of the config.
+ */
+public final class JsonOutputProfile {
+    private final JsonOutput options;
+    private final JsonFormat.Printer unaryPrinter;
+    private final JsonFormat.Printer streamPrinter;
+    private final JsonFormat.Printer partialPrinter;
+
+    private JsonOutputProfile(JsonOutput options) {
+        JsonFormat.Printer base = JsonFormat.printer();
+        if (options.getEnumsAsInts()) {
+            base = base.printingEnumsAsInts();
+        }
+        if (options.getPreserveProtoFieldNames()) {
+            base = base.preservingProtoFieldNames();
+        }
+
+        this.options = options;
+        this.partialPrinter = options.getCompact() ? base.omittingInsignificantWhitespace() : base;
+        this.unaryPrinter = TypedJsonPrinter.printer(options);
+        // Streamed messages are always printed on a single line, for SSE and newline-delimited JSON.
+        this.streamPrinter = TypedJsonPrinter.printer(options.toBuilder().setCompact(true).build());
+    }
+
+    public static JsonOutputProfile of(JsonOutput options) {
+        return new JsonOutputProfile(options);
+    }
+
+    public JsonOutput options() {
+        return options;
+    }
+
+    public JsonFormat.Printer unaryPrinter() {
+        return unaryPrinter;
+    }
+
+    public JsonFormat.Printer streamPrinter() {
+        return streamPrinter;
+    }
+
+    /**
+     * Printer for partial responses (see {@link ResponseMask}), which never includes default value fields on its own.
+     */
+    public JsonFormat.Printer partialPrinter() {
+        return partialPrinter;
+    }
+}
@@ -0,0 +1,61 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory {@link ResponseCache} bounded by the approximate number of bytes held, evicting the least recently used
+ * entries first. Expired entries are dropped when next looked up, or evicted along the way.
+ */
+public class LruResponseCache implements ResponseCache {
+    private final Cache<RequestKey, CachedResponse> cache;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruResponseCache(long maxBytes) {
+        this(maxBytes, System::currentTimeMillis);
+    }
+
+    LruResponseCache(long maxBytes, LongSupplier clock) {
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((RequestKey key, CachedResponse response) -> key.weight() + response.weight())
+                .removalListener((RemovalNotification<RequestKey, CachedResponse> notification) -> {
+                    if (notification.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Optional<CachedResponse> get(RequestKey key) {
+        CachedResponse response = cache.getIfPresent(key);
+        if (response != null && response.isExpired(clock.getAsLong())) {
+            // Leave a fresher entry stored concurrently alone.
+            cache.asMap().remove(key, response);
+            response = null;
+        }
+
+        (response == null ? misses : hits).increment();
+        return Optional.ofNullable(response);
+    }
+
+    @Override
+    public void put(RequestKey key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    @Override
+    public ResponseCacheStats stats() {
+        return new ResponseCacheStats(hits.sum(), misses.sum(), evictions.sum(), cache.size());
+    }
+}
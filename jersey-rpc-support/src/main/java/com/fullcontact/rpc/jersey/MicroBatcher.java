@@ -0,0 +1,225 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Accumulates concurrent unary requests into a single call of a batch RPC. Used by generated resources for methods with
+ * the {@code batch} option.
+ *
+ * Requests open a batch, which is sent once its window elapses or once it holds {@code maxSize} requests, whichever
+ * comes first. Only requests with the same key (e.x. the same credentials) are batched together. Responses are fanned
+ * back out in the order of the requests, a failed batch fails each of its requests. Batches are sent from the RPC
+ * executor, never from the request thread or the timer. Windows are timed by the {@link StreamTimer#shared()}
+ * timer.
+ *
+ * The batch RPC is called with the stub, and so the headers, of the first request of the batch. Its response headers
+ * are handed to the header interceptors of the other requests, so each request responds with them.
+ *
+ * @param <S> stub type, the batch RPC is called with the stub of the first request of each batch
+ * @param <ReqT> request type of the unary method
+ * @param <RespT> response type of the unary method
+ */
+public final class MicroBatcher<S, ReqT, RespT> {
+    private final ConcurrentMap<Object, Batch> open = new ConcurrentHashMap<>();
+    private final long windowMicros;
+    private final int maxSize;
+    private final BatchCall<S, ReqT, RespT> call;
+    private final Executor executor;
+
+    public MicroBatcher(long windowMicros, int maxSize, BatchCall<S, ReqT, RespT> call) {
+        this(windowMicros, maxSize, call, RpcExecutor.executor());
+    }
+
+    /**
+     * @param executor executor to send batches from, e.x. the RPC executor of the resource's {@link GrpcJerseyConfig}
+     */
+    public MicroBatcher(long windowMicros, int maxSize, BatchCall<S, ReqT, RespT> call, Executor executor) {
+        this.windowMicros = windowMicros;
+        this.maxSize = maxSize;
+        this.call = call;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a request to the open batch for the key, or opens a new one.
+     */
+    public void add(Object key, S stub, ReqT request, StreamObserver<RespT> observer) {
+        add(key, stub, request, null, observer);
+    }
+
+    /**
+     * Adds a request to the open batch for the key, or opens a new one. The interceptor, if any, is the one attached to
+     * the stub, and receives the response headers of the batch RPC.
+     */
+    public void add(Object key, S stub, ReqT request, HttpHeaderClientInterceptor interceptor,
+            StreamObserver<RespT> observer) {
+        // Set within ConcurrentMap#compute, acted upon outside of it.
+        AtomicReference<Batch> opened = new AtomicReference<>();
+        AtomicReference<Batch> full = new AtomicReference<>();
+        open.compute(key, (k, batch) -> {
+            if (batch == null) {
+                batch = new Batch(k, stub);
+                opened.set(batch);
+            }
+
+            batch.requests.add(request);
+            batch.interceptors.add(interceptor);
+            batch.observers.add(observer);
+            if (batch.requests.size() >= maxSize) {
+                full.set(batch);
+                return null;
+            }
+            return batch;
+        });
+
+        if (full.get() != null) {
+            RpcExecutor.execute(executor, full.get(), full.get()::send);
+        } else if (opened.get() != null) {
+            Batch batch = opened.get();
+            StreamTimer.shared().schedule(() -> {
+                // Unless it filled up in the meantime.
+                if (open.remove(batch.key, batch)) {
+                    RpcExecutor.execute(executor, batch, batch::send);
+                }
+            }, windowMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Number of batches currently accumulating requests.
+     */
+    public int openBatches() {
+        return open.size();
+    }
+
+    /**
+     * Adapts an observer of the unary responses to the batch response type.
+     */
+    public static <BatchRespT, RespT> StreamObserver<BatchRespT> responses(
+            StreamObserver<List<RespT>> observer,
+            Function<BatchRespT, List<RespT>> responses) {
+        return new StreamObserver<BatchRespT>() {
+            @Override
+            public void onNext(BatchRespT value) {
+                observer.onNext(responses.apply(value));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                observer.onError(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                observer.onCompleted();
+            }
+        };
+    }
+
+    /**
+     * Performs the batch RPC. Implementations build the batch request from the requests, and pass the responses of
+     * the batch response to the observer (see {@link #responses}).
+     */
+    @FunctionalInterface
+    public interface BatchCall<S, ReqT, RespT> {
+        void call(S stub, List<ReqT> requests, StreamObserver<List<RespT>> observer);
+    }
+
+    private class Batch implements StreamObserver<List<RespT>> {
+        private final Object key;
+        private final S stub;
+        // Only mutated within ConcurrentMap#compute, and only read once the batch has been removed from the map.
+        private final List<ReqT> requests = new ArrayList<>();
+        private final List<HttpHeaderClientInterceptor> interceptors = new ArrayList<>();
+        private final List<StreamObserver<RespT>> observers = new ArrayList<>();
+
+        private volatile boolean done;
+
+        Batch(Object key, S stub) {
+            this.key = key;
+            this.stub = stub;
+        }
+
+        void send() {
+            // The batch is shared between requests, so it doesn't inherit the deadline or cancellation of any.
+            Context previous = Context.ROOT.attach();
+            try {
+                call.call(stub, requests, this);
+            } catch (RuntimeException e) {
+                onError(e);
+            } finally {
+                Context.ROOT.detach(previous);
+            }
+        }
+
+        @Override
+        public void onNext(List<RespT> responses) {
+            if (done) {
+                return;
+            }
+            done = true;
+
+            if (responses.size() != observers.size()) {
+                fail(Status.INTERNAL
+                        .withDescription("Batch returned " + responses.size() + " responses for "
+                                + observers.size() + " requests")
+                        .asRuntimeException());
+                return;
+            }
+
+            shareResponseHeaders();
+            for (int i = 0; i < observers.size(); i++) {
+                observers.get(i).onNext(responses.get(i));
+                observers.get(i).onCompleted();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                return;
+            }
+            done = true;
+
+            fail(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (!done) {
+                onError(Status.INTERNAL.withDescription("Batch completed without a response").asRuntimeException());
+            }
+        }
+
+        private void fail(Throwable t) {
+            shareResponseHeaders();
+            for (StreamObserver<RespT> observer : observers) {
+                observer.onError(t);
+            }
+        }
+
+        private void shareResponseHeaders() {
+            HttpHeaderClientInterceptor first = interceptors.get(0);
+            if (first == null) {
+                return;
+            }
+
+            for (int i = 1; i < interceptors.size(); i++) {
+                if (interceptors.get(i) != null) {
+                    interceptors.get(i).copyResponseHeaders(first);
+                }
+            }
+        }
+    }
+}
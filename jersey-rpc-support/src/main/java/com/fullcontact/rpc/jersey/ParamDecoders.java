@@ -0,0 +1,194 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ProtocolMessageEnum;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.FieldMaskUtil;
+import com.google.protobuf.util.Timestamps;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Typed decoders of query and path parameter values, called by code generated with the {@code static} option so that
+ * binding a request doesn't go through descriptors. Values follow the same rules as the descriptor-driven binding (see
+ * {@link RequestParser}), and invalid values fail with the same errors.
+ *
+ * {@code field} is the full name of the field being decoded, e.x. {@code TestRequest.uint3}, and only used in errors.
+ */
+public final class ParamDecoders {
+    private static final ClassValue<EnumTable<?>> ENUMS = new ClassValue<EnumTable<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected EnumTable<?> computeValue(Class<?> type) {
+            return new EnumTable(type);
+        }
+    };
+
+    private ParamDecoders() {}
+
+    /**
+     * The only value of a singular field.
+     */
+    public static String single(String field, List<String> values) throws InvalidProtocolBufferException {
+        if (values.size() != 1) {
+            throw new InvalidProtocolBufferException("Unable to map " + field + " to value: " + values);
+        }
+
+        return values.get(0);
+    }
+
+    public static double parseDouble(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static float parseFloat(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static int parseInt32(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    // uint{32,64} are stored "signed" in Java
+    public static int parseUInt32(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Integer.parseUnsignedInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static long parseInt64(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static long parseUInt64(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Long.parseUnsignedLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    /**
+     * Base64, standard or URL-safe, padding optional.
+     */
+    public static ByteString parseBytes(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            if (value.indexOf('-') >= 0 || value.indexOf('_') >= 0) {
+                return UnsafeByteOperations.unsafeWrap(Base64.getUrlDecoder().decode(value));
+            }
+            return UnsafeByteOperations.unsafeWrap(Base64.getDecoder().decode(value));
+        } catch (IllegalArgumentException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static Timestamp parseTimestamp(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Timestamps.parse(value);
+        } catch (ParseException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static Duration parseDuration(String field, String value) throws InvalidProtocolBufferException {
+        try {
+            return Durations.parse(value);
+        } catch (ParseException e) {
+            throw invalid(field, value);
+        }
+    }
+
+    public static FieldMask parseFieldMask(String field, String value) {
+        return FieldMaskUtil.fromJsonString(value);
+    }
+
+    /**
+     * Enum value by name (case-insensitive) or number.
+     */
+    public static <E extends Enum<E> & ProtocolMessageEnum> E parseEnum(String field, String value, Class<E> type)
+            throws InvalidProtocolBufferException {
+        @SuppressWarnings("unchecked")
+        EnumTable<E> table = (EnumTable<E>) ENUMS.get(type);
+
+        E enumValue = table.byName.get(value);
+        if (enumValue == null) {
+            enumValue = table.byNameIgnoringCase.get(value);
+        }
+        if (enumValue == null && !value.isEmpty()
+                && (Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')) {
+            try {
+                enumValue = table.byNumber.get(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                throw invalid(field, value);
+            }
+        }
+        if (enumValue == null) {
+            throw invalid(field, value);
+        }
+
+        return enumValue;
+    }
+
+    /**
+     * Fails for fields which can't be bound from a parameter, e.x. messages other than well-known types. Typed so it
+     * can stand in for the value of any setter.
+     */
+    public static <T> T unsupported(String field, String value) throws InvalidProtocolBufferException {
+        throw invalid(field, value);
+    }
+
+    static InvalidProtocolBufferException invalid(String field, String value) {
+        return new InvalidProtocolBufferException("Unable to map " + field + " to value: " + value);
+    }
+
+    private static final class EnumTable<E extends Enum<E> & ProtocolMessageEnum> {
+        private final ImmutableMap<String, E> byName;
+        private final ImmutableMap<Integer, E> byNumber;
+        // Case-insensitive fallback, compared without allocating an upper-cased copy of the value.
+        private final Map<String, E> byNameIgnoringCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        EnumTable(Class<E> type) {
+            ImmutableMap.Builder<String, E> byName = ImmutableMap.builder();
+            Map<Integer, E> byNumber = new TreeMap<>();
+            for (E value : type.getEnumConstants()) {
+                // proto3's UNRECOGNIZED has no number and can't be set.
+                if (value.name().equals("UNRECOGNIZED")) {
+                    continue;
+                }
+                byName.put(value.name(), value);
+                byNameIgnoringCase.putIfAbsent(value.name(), value);
+                byNumber.putIfAbsent(value.getNumber(), value);
+            }
+
+            this.byName = byName.build();
+            this.byNumber = ImmutableMap.copyOf(byNumber);
+        }
+    }
+}
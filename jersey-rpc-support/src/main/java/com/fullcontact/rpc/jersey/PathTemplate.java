@@ -0,0 +1,168 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Compiled form of the Jersey-compatible path emitted by the code generator (e.x. {@code /users/{s}/{path: hello/.+}}),
+ * used by runtimes which route requests without Jersey.
+ *
+ * Variables without an explicit pattern match a single path segment, as they do in Jersey. Captured values are
+ * percent-decoded after matching, so an encoded '/' is never treated as a segment separator.
+ */
+@EqualsAndHashCode(of = "template")
+public final class PathTemplate {
+    private static final String SEGMENT_PATTERN = "[^/]+";
+
+    private final String template;
+    private final Pattern pattern;
+    private final ImmutableList<String> variables;
+    private final int literalCharacters;
+
+    private PathTemplate(String template, Pattern pattern, ImmutableList<String> variables, int literalCharacters) {
+        this.template = template;
+        this.pattern = pattern;
+        this.variables = variables;
+        this.literalCharacters = literalCharacters;
+    }
+
+    /**
+     * Compiles a Jersey-compatible path template.
+     *
+     * @throws IllegalArgumentException if the template has unbalanced braces
+     */
+    public static PathTemplate compile(String template) {
+        // Like Jersey, a trailing slash on either the template or the request path is optional.
+        String path = template.endsWith("/") ? template.substring(0, template.length() - 1) : template;
+        StringBuilder regex = new StringBuilder();
+        ImmutableList.Builder<String> variables = ImmutableList.builder();
+        int literalCharacters = 0;
+
+        int position = 0;
+        while (position < path.length()) {
+            int open = path.indexOf('{', position);
+            if (open < 0) {
+                literalCharacters += appendLiteral(regex, path.substring(position));
+                break;
+            }
+
+            literalCharacters += appendLiteral(regex, path.substring(position, open));
+            int close = findClosingBrace(path, open);
+            String variable = path.substring(open + 1, close);
+
+            int colon = variable.indexOf(':');
+            String name = (colon < 0 ? variable : variable.substring(0, colon)).trim();
+            String variablePattern = colon < 0 ? SEGMENT_PATTERN : variable.substring(colon + 1).trim();
+
+            variables.add(name);
+            regex.append('(').append(variablePattern).append(')');
+            position = close + 1;
+        }
+
+        return new PathTemplate(template, Pattern.compile(regex + "/?"), variables.build(), literalCharacters);
+    }
+
+    /**
+     * Matches a raw (still percent-encoded) request path against this template.
+     *
+     * @return decoded variable values by name, or empty if the path doesn't match
+     */
+    public Optional<ImmutableMap<String, String>> match(String rawPath) {
+        Matcher matcher = pattern.matcher(rawPath);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        ImmutableMap.Builder<String, String> values = ImmutableMap.builder();
+        for (int i = 0; i < variables.size(); i++) {
+            values.put(variables.get(i), decode(matcher.group(i + 1)));
+        }
+
+        return Optional.of(values.build());
+    }
+
+    /**
+     * Variable names in the order they appear in the template.
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * Number of literal characters in the template. Templates with more literal characters are more specific, which
+     * mirrors the precedence rules Jersey applies when more than one resource method matches.
+     */
+    public int literalCharacters() {
+        return literalCharacters;
+    }
+
+    public String template() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    /**
+     * Percent-decodes a single path component as UTF-8. Unlike {@link java.net.URLDecoder}, '+' is left as-is.
+     */
+    static String decode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2))) {
+                bytes.write(Character.digit(value.charAt(i + 1), 16) << 4 | Character.digit(value.charAt(i + 2), 16));
+                i += 2;
+            } else if (c < 0x80) {
+                bytes.write(c);
+            } else {
+                int codePoint = value.codePointAt(i);
+                byte[] encoded = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isHex(char c) {
+        return Character.digit(c, 16) >= 0;
+    }
+
+    private static int appendLiteral(StringBuilder regex, String literal) {
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal));
+        }
+
+        return CharMatcher.isNot('/').countIn(literal);
+    }
+
+    private static int findClosingBrace(String template, int open) {
+        int depth = 0;
+        for (int i = open; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Unbalanced '{' in path template: " + template);
+    }
+}
@@ -0,0 +1,66 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import java.util.List;
+import javax.ws.rs.core.HttpHeaders;
+import lombok.Value;
+
+/**
+ * Identity of a request for {@link SingleFlight}, {@link ResponseCache} and {@link MicroBatcher}. Requests are
+ * identical if they call the same method with the same request bytes and the same values for each of the key headers.
+ */
+@Value
+public class RequestKey {
+    String fullMethodName;
+    ByteString request;
+    List<List<String>> headerValues;
+    /**
+     * Requested response fields, empty for the whole response.
+     */
+    String fields;
+
+    public static RequestKey of(String fullMethodName, Message request, HttpHeaders headers, String... keyHeaders) {
+        return of(fullMethodName, request.toByteString(), headers, keyHeaders);
+    }
+
+    /**
+     * Identity of the request headers only, e.x. for {@link MicroBatcher} which batches different requests together.
+     */
+    public static RequestKey ofHeaders(String fullMethodName, HttpHeaders headers, String... keyHeaders) {
+        return of(fullMethodName, ByteString.EMPTY, headers, keyHeaders);
+    }
+
+    private static RequestKey of(String fullMethodName, ByteString request, HttpHeaders headers, String... keyHeaders) {
+        ImmutableList.Builder<List<String>> headerValues = ImmutableList.builder();
+        for (String keyHeader : keyHeaders) {
+            List<String> values = headers.getRequestHeader(keyHeader);
+            headerValues.add(values == null ? ImmutableList.of() : ImmutableList.copyOf(values));
+        }
+
+        return new RequestKey(fullMethodName, request, headerValues.build(), "");
+    }
+
+    /**
+     * Differentiates requests for different partial responses.
+     */
+    public RequestKey withFields(ResponseMask responseMask) {
+        return responseMask == null
+                ? this
+                : new RequestKey(fullMethodName, request, headerValues, responseMask.toString());
+    }
+
+    /**
+     * Approximate retained size in bytes, used to weigh cache entries.
+     */
+    int weight() {
+        int weight = fullMethodName.length() + request.size() + fields.length();
+        for (List<String> values : headerValues) {
+            for (String value : values) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
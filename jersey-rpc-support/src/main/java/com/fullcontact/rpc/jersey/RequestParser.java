@@ -1,20 +1,22 @@
 package com.fullcontact.rpc.jersey;
 
-import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.protobuf.DescriptorProtos;
 import com.google.protobuf.Descriptors;
-import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
-import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.util.JsonFormat;
 import io.grpc.Metadata;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.MetadataUtils;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriInfo;
@@ -36,16 +38,31 @@ public class RequestParser {
             V.Builder builder,
             List<DescriptorProtos.FieldDescriptorProto> pathParams)
             throws InvalidProtocolBufferException {
-        Set<DescriptorProtos.FieldDescriptorProto> pathDescriptors = Sets.newHashSet(pathParams);
+        parseQueryParams(uriInfo.getQueryParameters(), builder, pathParams);
+    }
 
-        for (String queryParam : uriInfo.getQueryParameters().keySet()) {
-            ImmutableList<Descriptors.FieldDescriptor> descriptors =
-                    ProtobufDescriptorJavaUtil.fieldPath(builder.getDescriptorForType(), queryParam);
+    public static <V extends Message> void parseQueryParams(Map<String, List<String>> queryParameters,
+            V.Builder builder,
+            DescriptorProtos.FieldDescriptorProto... pathParams)
+            throws InvalidProtocolBufferException {
+        parseQueryParams(queryParameters, builder, ImmutableList.copyOf(pathParams));
+    }
+
+    public static <V extends Message> void parseQueryParams(Map<String, List<String>> queryParameters,
+            V.Builder builder,
+            List<DescriptorProtos.FieldDescriptorProto> pathParams)
+            throws InvalidProtocolBufferException {
+        FieldDecoders fieldDecoders = FieldDecoders.of(builder.getDescriptorForType());
+        Set<DescriptorProtos.FieldDescriptorProto> pathDescriptors =
+                pathParams.isEmpty() ? ImmutableSet.of() : Sets.newHashSet(pathParams);
+
+        for (Map.Entry<String, List<String>> queryParam : queryParameters.entrySet()) {
+            ImmutableList<Descriptors.FieldDescriptor> descriptors = fieldDecoders.fieldPath(queryParam.getKey());
             if (!descriptors.isEmpty()) {
                 Descriptors.FieldDescriptor field = Iterables.getLast(descriptors);
 
-                if (!pathDescriptors.contains(field.toProto())) {
-                    setFieldSafely(builder, queryParam, uriInfo.getQueryParameters().get(queryParam));
+                if (pathDescriptors.isEmpty() || !pathDescriptors.contains(field.toProto())) {
+                    setField(builder, descriptors, queryParam.getValue());
                 }
             }
         }
@@ -66,6 +83,21 @@ public class RequestParser {
         return newHeaders;
     }
 
+    public static <T extends AbstractStub<T>> T parseHeaders(Multimap<String, String> headers, T stub) {
+        return MetadataUtils.attachHeaders(stub, parseHeaders(headers));
+    }
+
+    public static Metadata parseHeaders(Multimap<String, String> headers) {
+        Metadata newHeaders = new Metadata();
+
+        headers.asMap().forEach((k, v) -> {
+                    newHeaders.put(Metadata.Key.of(k, Metadata.ASCII_STRING_MARSHALLER), Iterables.getFirst(v, ""));
+                }
+        );
+
+        return newHeaders;
+    }
+
     public static void setFieldSafely(Message.Builder builder, String path, String value)
             throws InvalidProtocolBufferException {
         setFieldSafely(builder, path, ImmutableList.of(value));
@@ -73,123 +105,111 @@ public class RequestParser {
 
     public static void setFieldSafely(Message.Builder builder, String path, List<String> value)
             throws InvalidProtocolBufferException {
-        Descriptors.Descriptor descriptor = builder.getDescriptorForType();
-
         ImmutableList<Descriptors.FieldDescriptor> fieldDescriptors =
-                ProtobufDescriptorJavaUtil.fieldPath(descriptor, path);
-
-        Message.Builder fieldBuilder = builder;
-        for (Descriptors.FieldDescriptor fieldDescriptor : fieldDescriptors) {
-            if (fieldDescriptor.getType() == Descriptors.FieldDescriptor.Type.MESSAGE) {
-                fieldBuilder = fieldBuilder.getFieldBuilder(fieldDescriptor);
-            }
-        }
+                FieldDecoders.of(builder.getDescriptorForType()).fieldPath(path);
 
         if (fieldDescriptors.isEmpty()) {
             throw new IllegalArgumentException("Path " + path + " doesn't exist from root: "
                     + builder.getDescriptorForType().getName());
         }
 
+        setField(builder, fieldDescriptors, value);
+    }
+
+    private static void setField(Message.Builder builder,
+            ImmutableList<Descriptors.FieldDescriptor> fieldDescriptors,
+            List<String> value) throws InvalidProtocolBufferException {
+        // Descend to the builder holding the last field, which may itself be a message (e.x. a FieldMask).
+        Message.Builder fieldBuilder = builder;
+        for (Descriptors.FieldDescriptor fieldDescriptor : fieldDescriptors.subList(0, fieldDescriptors.size() - 1)) {
+            fieldBuilder = fieldBuilder.getFieldBuilder(fieldDescriptor);
+        }
+
         setFieldSafely(fieldBuilder, fieldDescriptors.get(fieldDescriptors.size() - 1), value);
     }
 
     public static void setFieldSafely(Message.Builder builder, Descriptors.FieldDescriptor fd, List<String> value)
             throws InvalidProtocolBufferException {
-        Object valueToSet = getValueFor(fd, value);
-        builder.setField(fd, valueToSet);
+        builder.setField(fd, FieldDecoders.decode(fd, value));
     }
 
-    private static Object getValueFor(FieldDescriptor fd, List<String> value) throws InvalidProtocolBufferException {
-        Object result;
-        if (!fd.isRepeated()) {
-            if (value.size() != 1) {
-                throw new InvalidProtocolBufferException("Unable to map " + fd + " to value: " + value);
-            }
-            result = getUnaryValueFor(fd, value.get(0));
-        } else {
-            List<Object> listResult = new ArrayList<>(value.size());
-            for (String valueStr : value) {
-                listResult.add(getUnaryValueFor(fd, valueStr));
-            }
-            result = listResult;
-        }
-        return result;
+    public static <V extends Message> void handleBody(
+            String fieldPath,
+            V.Builder builder,
+            String body) throws InvalidProtocolBufferException {
+        handleBody(fieldPath, builder, body, JsonHandler.parser());
     }
 
-    private static Object getUnaryValueFor(Descriptors.FieldDescriptor fd, String value)
-            throws InvalidProtocolBufferException {
-        try {
-            switch (fd.getType()) {
-                case DOUBLE:
-                    return Double.parseDouble(value);
-                case FLOAT:
-                    return Float.parseFloat(value);
-                case BOOL:
-                    return Boolean.parseBoolean(value);
-                case STRING:
-                    return value;
-                case BYTES:
-                    return UnsafeByteOperations.unsafeWrap(value.getBytes());
-                case ENUM:
-                    Descriptors.EnumValueDescriptor enumValueDescriptor =
-                            fd.getEnumType().findValueByName(value.toUpperCase());
-                    return enumValueDescriptor; // TODO eh?
-                case INT32:
-                    return Integer.parseInt(value);
-                case UINT32:
-                case FIXED32:
-                case SFIXED32:
-                case SINT32:
-                    return Integer.parseUnsignedInt(value);
-                case INT64:
-                    return Long.parseLong(value);
-                case UINT64:
-                case FIXED64:
-                case SFIXED64:
-                case SINT64:
-                    return Long.parseUnsignedLong(value);
-                // all are unsigned 64-bit ints
-                case GROUP:
-                    // unsupported
-                case MESSAGE:
-                    // unsupported
-                default:
-                    throw new InvalidProtocolBufferException("Unable to map " + fd + " to value: " + value);
-            }
-        } catch (NumberFormatException e) {
-            throw new InvalidProtocolBufferException("Unable to map " + fd + " to value: " + value);
-        }
+    /**
+     * Merges the JSON body into the field at the path ("*" for the whole request), with the parser of the resource's
+     * {@link GrpcJerseyConfig}. Generated resources resolve the path when they're generated and use
+     * {@link #mergeBody(Message.Builder, String, JsonFormat.Parser)} instead.
+     */
+    public static <V extends Message> void handleBody(
+            String fieldPath,
+            V.Builder builder,
+            String body,
+            JsonFormat.Parser parser) throws InvalidProtocolBufferException {
+        mergeBody(bodyBuilder(fieldPath, builder), body, parser);
     }
 
+    /**
+     * Variant of {@link #handleBody(String, Message.Builder, String)} which reads the body as a stream, allowing
+     * runtimes to avoid materializing the request entity as a String.
+     */
     public static <V extends Message> void handleBody(
             String fieldPath,
             V.Builder builder,
-            String body) throws InvalidProtocolBufferException {
+            Reader body) throws IOException {
+        handleBody(fieldPath, builder, body, JsonHandler.parser());
+    }
+
+    public static <V extends Message> void handleBody(
+            String fieldPath,
+            V.Builder builder,
+            Reader body,
+            JsonFormat.Parser parser) throws IOException {
+        mergeBody(bodyBuilder(fieldPath, builder), body, parser);
+    }
+
+    /**
+     * Merges the JSON body into the builder of the body field, e.x. {@code r.getNtBuilder()} for {@code body: "nt"}.
+     */
+    public static void mergeBody(Message.Builder target, String body, JsonFormat.Parser parser)
+            throws InvalidProtocolBufferException {
+        parser.merge(body, target);
+    }
+
+    public static void mergeBody(Message.Builder target, Reader body, JsonFormat.Parser parser) throws IOException {
+        try (Reader reader = body) {
+            parser.merge(reader, target);
+        }
+    }
+
+    private static Message.Builder bodyBuilder(String fieldPath, Message.Builder builder)
+            throws InvalidProtocolBufferException {
         // * maps all body fields to the top-level proto
-        // IDENT maps all body fields to nested proto
-        // TODO: handle multiple levels of nesting
-        Message.Builder toMerge;
+        // a.b maps all body fields to the nested proto
         if ("*".equals(fieldPath)) {
-            toMerge = builder;
-        } else {
-            ImmutableList<Descriptors.FieldDescriptor> fieldDescriptors =
-                    ProtobufDescriptorJavaUtil.fieldPath(builder.getDescriptorForType(), fieldPath);
-
-            if (fieldDescriptors.isEmpty()) {
-                // todo bad request
-                return;
-            }
+            return builder;
+        }
 
-            toMerge = builder;
-            for (Descriptors.FieldDescriptor fd : fieldDescriptors) {
-                if (fd.getType() == Descriptors.FieldDescriptor.Type.MESSAGE) {
-                    toMerge = toMerge.getFieldBuilder(fd);
-                }
-            }
+        ImmutableList<Descriptors.FieldDescriptor> fieldDescriptors =
+                FieldDecoders.of(builder.getDescriptorForType()).fieldPath(fieldPath);
+        if (fieldDescriptors.isEmpty()) {
+            throw new InvalidProtocolBufferException("Body field path " + fieldPath + " doesn't exist from root: "
+                    + builder.getDescriptorForType().getName());
         }
 
-        if (toMerge != null) {
-            JsonHandler.parser().merge(body, toMerge);
+        Message.Builder toMerge = builder;
+        for (Descriptors.FieldDescriptor fd : fieldDescriptors) {
+            if (fd.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE || fd.isRepeated()) {
+                throw new InvalidProtocolBufferException("Body field path " + fieldPath
+                        + " must refer to a singular message field: " + fd.getFullName());
+            }
+            toMerge = toMerge.getFieldBuilder(fd);
         }
+
+        return toMerge;
     }
 }
@@ -0,0 +1,53 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.ImmutableListMultimap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Value;
+
+/**
+ * Cache of serialized responses for methods with the {@code cache} option. See {@link LruResponseCache} for the
+ * default implementation, and {@link ResponseCaching} to install another one.
+ *
+ * Implementations must be thread-safe, and are responsible for not returning expired entries.
+ */
+public interface ResponseCache {
+    Optional<CachedResponse> get(RequestKey key);
+
+    void put(RequestKey key, CachedResponse response);
+
+    ResponseCacheStats stats();
+
+    /**
+     * A successful response, with its body already printed to JSON.
+     */
+    @Value
+    class CachedResponse {
+        byte[] body;
+        ImmutableListMultimap<String, String> headers;
+        long expiresAtMillis;
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+
+        /**
+         * Approximate retained size in bytes.
+         */
+        public int weight() {
+            int weight = body.length;
+            for (Map.Entry<String, String> header : headers.entries()) {
+                weight += header.getKey().length() + header.getValue().length();
+            }
+            return weight;
+        }
+    }
+
+    @Value
+    class ResponseCacheStats {
+        long hitCount;
+        long missCount;
+        long evictionCount;
+        long size;
+    }
+}
@@ -0,0 +1,139 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.ResponseCache.CachedResponse;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableListMultimap;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Holder for the JVM-global {@link ResponseCache}, and the glue used by resources generated for methods with the
+ * {@code cache} option. Resources use the cache of their {@link GrpcJerseyConfig}, the JVM-global one if they're
+ * constructed without a configuration. Defaults to a {@link LruResponseCache} of 32MiB.
+ */
+public final class ResponseCaching {
+    static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+    private static final Splitter DIRECTIVE_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private static volatile ResponseCache responseCache = new LruResponseCache(DEFAULT_MAX_BYTES);
+
+    private ResponseCaching() {}
+
+    public static ResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Overrides the response cache on a global basis. Beware, this shouldn't be done after requests start, resources
+     * constructed before keep the previous cache.
+     */
+    public static void setResponseCache(ResponseCache responseCache) {
+        ResponseCaching.responseCache = responseCache;
+    }
+
+    /**
+     * Resumes the sink with the cached response for the key, if any.
+     *
+     * @return true if the sink was resumed, false if the request missed the cache.
+     */
+    public static boolean resumeIfCached(ResponseCache cache, RequestKey key, UnaryResponseSink sink) {
+        Optional<CachedResponse> cached = cache.get(key);
+        if (!cached.isPresent()) {
+            return false;
+        }
+
+        Response.ResponseBuilder builder = Response.ok(cached.get().getBody());
+        for (Map.Entry<String, String> header : cached.get().getHeaders().entries()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        sink.resume(builder.build());
+        return true;
+    }
+
+    /**
+     * Wraps the sink so successful responses are stored in the cache on their way out.
+     *
+     * @param defaultTtlMillis how long to cache responses without a Cache-Control max-age, 0 to not cache them.
+     */
+    public static UnaryResponseSink storing(ResponseCache cache,
+            RequestKey key,
+            long defaultTtlMillis,
+            UnaryResponseSink sink) {
+        return new UnaryResponseSink() {
+            @Override
+            public void resume(Response response) {
+                sink.resume(store(cache, key, defaultTtlMillis, response));
+            }
+
+            @Override
+            public void cancel() {
+                sink.cancel();
+            }
+        };
+    }
+
+    private static Response store(ResponseCache cache, RequestKey key, long defaultTtlMillis, Response response) {
+        if (response.getStatus() != Response.Status.OK.getStatusCode() || !(response.getEntity() instanceof String)) {
+            return response;
+        }
+        long ttlMillis = ttlMillis(response.getStringHeaders().get(HttpHeaders.CACHE_CONTROL), defaultTtlMillis);
+        if (ttlMillis <= 0) {
+            return response;
+        }
+
+        // Encode once, hits and this response share the bytes.
+        byte[] body = ((String) response.getEntity()).getBytes(StandardCharsets.UTF_8);
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.builder();
+        response.getStringHeaders().forEach(headers::putAll);
+        cache.put(key,
+                new CachedResponse(body, headers.build(), System.currentTimeMillis() + ttlMillis));
+
+        return Response.fromResponse(response).entity(body).build();
+    }
+
+    /**
+     * How long to cache a response given its Cache-Control header values. s-maxage takes precedence over max-age as
+     * the cache is shared between clients.
+     */
+    static long ttlMillis(List<String> cacheControl, long defaultTtlMillis) {
+        if (cacheControl == null) {
+            return defaultTtlMillis;
+        }
+
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        for (String value : cacheControl) {
+            for (String directive : DIRECTIVE_SPLITTER.split(value)) {
+                String name = directive.toLowerCase();
+                if (name.equals("no-store") || name.equals("no-cache") || name.equals("private")) {
+                    return 0;
+                } else if (name.startsWith("max-age=")) {
+                    maxAge = parseSeconds(directive.substring("max-age=".length()));
+                } else if (name.startsWith("s-maxage=")) {
+                    sharedMaxAge = parseSeconds(directive.substring("s-maxage=".length()));
+                }
+            }
+        }
+
+        if (sharedMaxAge != null) {
+            return TimeUnit.SECONDS.toMillis(sharedMaxAge);
+        } else if (maxAge != null) {
+            return TimeUnit.SECONDS.toMillis(maxAge);
+        }
+        return defaultTtlMillis;
+    }
+
+    private static Long parseSeconds(String seconds) {
+        try {
+            return Long.parseLong(seconds.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            // Malformed, treat as stale.
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Holder for the JVM-global response compression settings, and the glue used by generated resources to negotiate a
+ * content coding from the request's {@code Accept-Encoding}. Resources compress responses as their
+ * {@link GrpcJerseyConfig} says, following the JVM-global settings if they're constructed without a configuration.
+ * Disabled by default, as containers are often already configured to compress responses.
+ *
+ * Unary responses smaller than the minimum size are sent as is. Serialized bodies served from the
+ * {@link ResponseCache} are only compressed once per encoding. Streaming responses are compressed as a whole once they
+ * reach the minimum size, and flushed every few messages rather than after each one, see {@link StreamCompressor}.
+ */
+public final class ResponseCompression {
+    public static final int DEFAULT_MINIMUM_SIZE = 1024;
+
+    private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Splitter PARAMETER_SPLITTER = Splitter.on(';').trimResults();
+
+    private static volatile boolean enabled = false;
+    private static volatile int minimumSize = DEFAULT_MINIMUM_SIZE;
+
+    private ResponseCompression() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables compression on a global basis. Beware, this shouldn't be done after requests start, resources
+     * constructed before keep the previous setting.
+     */
+    public static void setEnabled(boolean enabled) {
+        ResponseCompression.enabled = enabled;
+    }
+
+    public static int minimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     * Sets the size in bytes below which unary responses aren't compressed, on a global basis.
+     */
+    public static void setMinimumSize(int minimumSize) {
+        ResponseCompression.minimumSize = minimumSize;
+    }
+
+    /**
+     * Wraps the sink of a request so successful responses are compressed with the best encoding it accepts, if the
+     * resource's configuration enables compression.
+     */
+    public static UnaryResponseSink compressing(HttpHeaders requestHeaders,
+            UnaryResponseSink sink,
+            GrpcJerseyConfig config) {
+        if (!config.isCompressResponses()) {
+            return sink;
+        }
+
+        int minimumSize = config.getCompressionMinimumSize();
+        Optional<Encoding> encoding = negotiate(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        return new UnaryResponseSink() {
+            @Override
+            public void resume(Response response) {
+                sink.resume(compress(encoding, minimumSize, response));
+            }
+
+            @Override
+            public void cancel() {
+                sink.cancel();
+            }
+        };
+    }
+
+    /**
+     * Picks the encoding with the highest quality value in the Accept-Encoding header values, preferring gzip.
+     */
+    public static Optional<Encoding> negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return Optional.empty();
+        }
+
+        Map<String, Double> qualities = new HashMap<>();
+        for (String value : acceptEncoding) {
+            for (String coding : LIST_SPLITTER.split(value)) {
+                List<String> parameters = PARAMETER_SPLITTER.splitToList(coding);
+                double quality = 1;
+                for (String parameter : parameters.subList(1, parameters.size())) {
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                qualities.put(parameters.get(0).toLowerCase(), quality);
+            }
+        }
+
+        Encoding best = null;
+        double bestQuality = 0;
+        for (Encoding encoding : Encoding.values()) {
+            Double quality = qualities.getOrDefault(encoding.token, qualities.get("*"));
+            if (quality != null && quality > bestQuality) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private static Response compress(Optional<Encoding> encoding, int minimumSize, Response response) {
+        Object entity = response.getEntity();
+        if (response.getStatus() != Response.Status.OK.getStatusCode()
+                || response.getHeaderString(HttpHeaders.CONTENT_ENCODING) != null
+                || !(entity instanceof String || entity instanceof byte[])) {
+            return response;
+        }
+
+        // Cached bodies are shared byte arrays, and memoized by identity. Printed bodies are encoded once here.
+        boolean shared = entity instanceof byte[];
+        byte[] body = shared ? (byte[]) entity : ((String) entity).getBytes(StandardCharsets.UTF_8);
+        if (body.length < minimumSize) {
+            return response;
+        }
+
+        Response.ResponseBuilder builder = Response.fromResponse(response)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!encoding.isPresent()) {
+            return builder.build();
+        }
+
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            // The compressed representation is no longer byte-for-byte identical.
+            builder.header(HttpHeaders.ETAG, null).header(HttpHeaders.ETAG, "W/" + etag);
+        }
+
+        return builder
+                .entity(shared ? encoding.get().encodeShared(body) : encoding.get().encode(body))
+                .header(HttpHeaders.CONTENT_ENCODING, encoding.get().token)
+                .build();
+    }
+
+    public enum Encoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String token;
+        private final Cache<byte[], byte[]> encodedBodies = CacheBuilder.newBuilder().weakKeys().build();
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        /**
+         * Content-Encoding token.
+         */
+        public String token() {
+            return token;
+        }
+
+        /**
+         * Wraps a stream so each flush emits everything written so far (SYNC_FLUSH), for streaming responses.
+         */
+        public DeflaterOutputStream syncFlushStream(OutputStream out) throws IOException {
+            return this == GZIP ? new GZIPOutputStream(out, true) : new DeflaterOutputStream(out, true);
+        }
+
+        byte[] encode(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+            try (OutputStream compressed = this == GZIP ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+                compressed.write(body);
+            } catch (IOException e) {
+                // ByteArrayOutputStream doesn't throw.
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        byte[] encodeShared(byte[] body) {
+            try {
+                return encodedBodies.get(body, () -> encode(body));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
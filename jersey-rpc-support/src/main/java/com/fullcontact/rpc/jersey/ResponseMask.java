@@ -0,0 +1,234 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.FieldMaskUtil;
+import com.google.protobuf.util.JsonFormat;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Partial response requested through the {@code fields} query parameter, e.x. {@code ?fields=request.s,request.nt}.
+ * Paths are relative to the response message, in either their proto ({@code rep_str}) or JSON ({@code repStr}) form.
+ *
+ * Masks are compiled once per response type and {@code fields} value into a tree of field descriptors, which trims
+ * responses before they are printed. Fields within the mask are printed even if they have their default value.
+ */
+public final class ResponseMask {
+    public static final String QUERY_PARAMETER = "fields";
+
+    private static final Cache<String, ResponseMask> COMPILED = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .build();
+    private static final String FIELD_MASK_TYPE = FieldMask.getDescriptor().getFullName();
+
+    private final FieldMask fieldMask;
+    private final Node root;
+    private final ImmutableSet<FieldDescriptor> alwaysPrinted;
+    private final JsonFormat.Printer printer;
+    // Masked printer derived from the partial printer last passed to print(Message, Printer).
+    private volatile DerivedPrinter derived;
+
+    private ResponseMask(FieldMask fieldMask, Node root, ImmutableSet<FieldDescriptor> alwaysPrinted) {
+        this.fieldMask = fieldMask;
+        this.root = root;
+        this.alwaysPrinted = alwaysPrinted;
+        this.printer = JsonHandler.partialPrinter().includingDefaultValueFields(alwaysPrinted);
+    }
+
+    /**
+     * Reads the mask from the {@code fields} query parameter of the request, if any.
+     *
+     * @return null if the request doesn't ask for a partial response
+     * @throws InvalidProtocolBufferException if a path doesn't exist in the response type
+     */
+    public static ResponseMask fromQuery(UriInfo uriInfo, Descriptors.Descriptor responseType)
+            throws InvalidProtocolBufferException {
+        return fromQuery(uriInfo.getQueryParameters().get(QUERY_PARAMETER), responseType);
+    }
+
+    public static ResponseMask fromQuery(List<String> values, Descriptors.Descriptor responseType)
+            throws InvalidProtocolBufferException {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+
+        return compile(responseType, Joiner.on(',').join(values));
+    }
+
+    /**
+     * Compiles a comma-separated list of paths against a response type, or returns the already compiled mask.
+     */
+    public static ResponseMask compile(Descriptors.Descriptor responseType, String fields)
+            throws InvalidProtocolBufferException {
+        try {
+            return COMPILED.get(responseType.getFullName() + '?' + fields, () -> doCompile(responseType, fields));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof InvalidProtocolBufferException) {
+                throw (InvalidProtocolBufferException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ResponseMask doCompile(Descriptors.Descriptor responseType, String fields)
+            throws InvalidProtocolBufferException {
+        FieldMask fieldMask = FieldMaskUtil.normalize(FieldMaskUtil.fromJsonString(fields.replace(" ", "")));
+        if (fieldMask.getPathsCount() == 0 || !FieldMaskUtil.isValid(responseType, fieldMask)) {
+            throw new InvalidProtocolBufferException("Invalid fields for " + responseType.getName() + ": " + fields);
+        }
+
+        Node root = new Node();
+        for (String path : fieldMask.getPathsList()) {
+            Node node = root;
+            Descriptors.Descriptor type = responseType;
+            for (String name : path.split("\\.")) {
+                FieldDescriptor field = type.findFieldByName(name);
+                node = node.children.computeIfAbsent(field, f -> new Node());
+                type = field.getJavaType() == FieldDescriptor.JavaType.MESSAGE ? field.getMessageType() : null;
+            }
+        }
+
+        Set<FieldDescriptor> alwaysPrinted = new HashSet<>();
+        root.collectFields(alwaysPrinted, new HashSet<>());
+        return new ResponseMask(fieldMask, root.freeze(), ImmutableSet.copyOf(alwaysPrinted));
+    }
+
+    public FieldMask fieldMask() {
+        return fieldMask;
+    }
+
+    /**
+     * Sets the mask on the request, if it has a top-level {@code google.protobuf.FieldMask} field (e.x. a
+     * {@code read_mask}) which isn't set yet, so the service can skip producing the omitted fields.
+     */
+    public void forward(Message.Builder request) {
+        for (FieldDescriptor field : request.getDescriptorForType().getFields()) {
+            if (!field.isRepeated()
+                    && field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+                    && field.getMessageType().getFullName().equals(FIELD_MASK_TYPE)) {
+                if (!request.hasField(field)) {
+                    request.setField(field, fieldMask);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the message with only the fields in the mask
+     */
+    public Message apply(Message message) {
+        return root.apply(message);
+    }
+
+    public String print(Message message) throws InvalidProtocolBufferException {
+        return printer.print(apply(message));
+    }
+
+    /**
+     * Prints the fields in the mask with the partial printer of a {@link GrpcJerseyConfig}.
+     */
+    public String print(Message message, JsonFormat.Printer partialPrinter) throws InvalidProtocolBufferException {
+        DerivedPrinter derived = this.derived;
+        if (derived == null || derived.partialPrinter != partialPrinter) {
+            // Resources keep their printers for their lifetime, so this is usually a single entry.
+            derived = new DerivedPrinter(partialPrinter, partialPrinter.includingDefaultValueFields(alwaysPrinted));
+            this.derived = derived;
+        }
+
+        return derived.printer.print(apply(message));
+    }
+
+    @Override
+    public String toString() {
+        return FieldMaskUtil.toString(fieldMask);
+    }
+
+    private static class DerivedPrinter {
+        private final JsonFormat.Printer partialPrinter;
+        private final JsonFormat.Printer printer;
+
+        DerivedPrinter(JsonFormat.Printer partialPrinter, JsonFormat.Printer printer) {
+            this.partialPrinter = partialPrinter;
+            this.printer = printer;
+        }
+    }
+
+    private static class Node {
+        // Empty for fields selected as a whole.
+        private Map<FieldDescriptor, Node> children = new LinkedHashMap<>();
+
+        Message apply(Message message) {
+            Message.Builder builder = message.newBuilderForType();
+            for (Map.Entry<FieldDescriptor, Node> child : children.entrySet()) {
+                FieldDescriptor field = child.getKey();
+                Node node = child.getValue();
+                // Valid masks only select repeated fields as a whole.
+                if (node.children.isEmpty()) {
+                    if (field.isRepeated() ? message.getRepeatedFieldCount(field) > 0 : message.hasField(field)) {
+                        builder.setField(field, message.getField(field));
+                    }
+                } else if (message.hasField(field)) {
+                    builder.setField(field, node.apply((Message) message.getField(field)));
+                }
+            }
+            return builder.build();
+        }
+
+        /**
+         * Collects the fields to print even if unset: the ones in the mask, and those of messages selected as a whole
+         * (to match unmasked responses).
+         */
+        void collectFields(Set<FieldDescriptor> fields, Set<Descriptors.Descriptor> visited) {
+            for (Map.Entry<FieldDescriptor, Node> child : children.entrySet()) {
+                FieldDescriptor field = child.getKey();
+                fields.add(field);
+                if (child.getValue().children.isEmpty()) {
+                    if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                        collectAllFields(field.getMessageType(), fields, visited);
+                    }
+                } else {
+                    child.getValue().collectFields(fields, visited);
+                }
+            }
+        }
+
+        private static void collectAllFields(Descriptors.Descriptor type,
+                Set<FieldDescriptor> fields,
+                Set<Descriptors.Descriptor> visited) {
+            if (!visited.add(type)) {
+                return;
+            }
+
+            for (FieldDescriptor field : type.getFields()) {
+                fields.add(field);
+                if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                    collectAllFields(field.getMessageType(), fields, visited);
+                }
+            }
+        }
+
+        Node freeze() {
+            for (Node child : children.values()) {
+                child.freeze();
+            }
+            children = ImmutableMap.copyOf(children);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Container-neutral view of an HTTP request, as consumed by the {@link GrpcRoute} binders emitted by the code
+ * generator.
+ */
+@Value
+@Builder
+public class RouteRequest {
+    private static final Body EMPTY_BODY = () -> new StringReader("");
+
+    /**
+     * Decoded path variables, keyed by the variable name in the path template.
+     */
+    @Builder.Default
+    ImmutableMap<String, String> pathParameters = ImmutableMap.of();
+    /**
+     * Decoded query parameters.
+     */
+    @Builder.Default
+    Map<String, List<String>> queryParameters = ImmutableMap.of();
+    @Builder.Default
+    ImmutableMultimap<String, String> headers = ImmutableMultimap.of();
+    @Builder.Default
+    Body body = EMPTY_BODY;
+
+    /**
+     * First value of a header, looked up case-insensitively, or null if there's none.
+     */
+    public String header(String name) {
+        for (Map.Entry<String, String> header : headers.entries()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    public String pathParameter(String name) {
+        String value = pathParameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("No path parameter named: " + name);
+        }
+
+        return value;
+    }
+
+    /**
+     * Request entity. Opened lazily so runtimes can hand their own buffers to the JSON parser without first copying
+     * them into a String.
+     */
+    @FunctionalInterface
+    public interface Body {
+        Reader openReader() throws IOException;
+    }
+}
@@ -0,0 +1,62 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import lombok.Value;
+
+/**
+ * Matches requests to {@link GrpcRoute}s. Routes are tried in order of decreasing specificity, matching the precedence
+ * Jersey applies to the generated resources: more literal characters first, then more path variables.
+ */
+@Beta
+public class RouteTable {
+    private static final Comparator<GrpcRoute<?, ?>> SPECIFICITY = Comparator
+            .<GrpcRoute<?, ?>>comparingInt(route -> route.getPathTemplate().literalCharacters())
+            .thenComparingInt(route -> route.getPathTemplate().variables().size())
+            .reversed();
+
+    private final ImmutableList<GrpcRoute<?, ?>> routes;
+
+    public RouteTable(Iterable<? extends GrpcRoute<?, ?>> routes) {
+        this.routes = ImmutableList.sortedCopyOf(SPECIFICITY, routes);
+    }
+
+    /**
+     * @return the most specific route matching both the HTTP method and the (raw, still percent-encoded) path.
+     */
+    public Optional<Match> match(String httpMethod, String rawPath) {
+        for (GrpcRoute<?, ?> route : routes) {
+            Optional<ImmutableMap<String, String>> pathParameters = route.match(httpMethod, rawPath);
+            if (pathParameters.isPresent()) {
+                return Optional.of(new Match(route, pathParameters.get()));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * HTTP methods of the routes matching the path, e.x. for the Allow header of a 405. Empty if no route matches.
+     */
+    public SortedSet<String> allowedMethods(String rawPath) {
+        TreeSet<String> allowedMethods = new TreeSet<>();
+        for (GrpcRoute<?, ?> route : routes) {
+            if (route.getPathTemplate().match(rawPath).isPresent()) {
+                allowedMethods.add(route.getHttpMethod());
+            }
+        }
+
+        return allowedMethods;
+    }
+
+    @Value
+    public static class Match {
+        GrpcRoute<?, ?> route;
+        ImmutableMap<String, String> pathParameters;
+    }
+}
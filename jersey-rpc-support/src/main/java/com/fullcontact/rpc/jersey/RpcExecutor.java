@@ -0,0 +1,103 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Holder for the JVM-global executor used by resources generated with the {@code executor} option. Those resources
+ * invoke RPCs and perform blocking stream writes on the executor of their {@link GrpcJerseyConfig} rather than on the
+ * container's request thread, so the container's thread pool no longer needs to be sized for backend latency.
+ * Resources constructed without a configuration use the JVM-global one.
+ *
+ * Defaults to a virtual-thread-per-task executor when running on JDK 21+, otherwise to a cached thread pool (the same
+ * default gRPC servers use).
+ */
+public final class RpcExecutor {
+    private static final Executor DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    private static volatile Executor executor = DEFAULT_EXECUTOR;
+
+    private RpcExecutor() {}
+
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Runs the task on the RPC executor, propagating the current gRPC {@link Context}. If the executor rejects the
+     * task, the observer is failed with RESOURCE_EXHAUSTED instead, and if the task throws it is failed with the
+     * exception's status.
+     */
+    public static void execute(StreamObserver<?> observer, Runnable task) {
+        execute(executor, observer, task);
+    }
+
+    /**
+     * Runs the task on the executor, e.x. the one of a resource's {@link GrpcJerseyConfig}, propagating the current
+     * gRPC {@link Context}. If the executor rejects the task, the observer is failed with RESOURCE_EXHAUSTED instead,
+     * and if the task throws (e.x. a service failing synchronously) it is failed with the exception's status, so the
+     * request is still answered.
+     */
+    public static void execute(Executor executor, StreamObserver<?> observer, Runnable task) {
+        Runnable failing = () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                observer.onError(Status.fromThrowable(t).asRuntimeException(Status.trailersFromThrowable(t)));
+            }
+        };
+
+        try {
+            executor.execute(Context.current().wrap(failing));
+        } catch (RejectedExecutionException e) {
+            observer.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("RPC executor rejected the request")
+                    .withCause(e)
+                    .asRuntimeException());
+        }
+    }
+
+    /**
+     * Overrides the executor on a global basis. Beware, this shouldn't be done after requests start, resources
+     * constructed before keep the previous executor.
+     */
+    public static void setExecutor(Executor executor) {
+        RpcExecutor.executor = executor;
+    }
+
+    /**
+     * Creates {@code Executors.newVirtualThreadPerTaskExecutor()} if the running JDK supports virtual threads.
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            // Pre-21 JDK, or virtual threads are still a preview feature which hasn't been enabled.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The library's default executor, shared by every configuration which doesn't set one.
+     */
+    static Executor defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    private static Executor newDefaultExecutor() {
+        return newVirtualThreadPerTaskExecutor().orElseGet(() -> Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("grpc-jersey-rpc-%d")
+                        .build()));
+    }
+}
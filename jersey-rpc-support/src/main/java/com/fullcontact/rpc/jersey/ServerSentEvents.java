@@ -0,0 +1,77 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.CharMatcher;
+import com.google.protobuf.Message;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Server-sent event settings of a server-streaming method, emitted by the code generator from its {@code sse} option.
+ * Only apply to streams negotiated as {@link StreamFormat#SSE}.
+ *
+ * <pre>{@code
+ * ServerSentEvents<ListEventsResponse> events = ServerSentEvents.<ListEventsResponse>builder()
+ *         .eventId(response -> String.valueOf(response.getOffset()))
+ *         .retryMillis(5_000)
+ *         .build();
+ * }</pre>
+ *
+ * @param <V> streamed message type
+ */
+@Value
+@Builder
+public class ServerSentEvents<V extends Message> {
+    /**
+     * Request header carrying the id of the last event a reconnecting client received.
+     */
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+    /**
+     * Comment line keeping idle streams alive, ignored by clients.
+     */
+    public static final String HEARTBEAT = ":\n\n";
+
+    private static final ServerSentEvents<?> NONE = ServerSentEvents.builder().build();
+    private static final CharMatcher LINE_BREAKS = CharMatcher.anyOf("\r\n\0");
+
+    /**
+     * Id of the event carrying a message, events don't have ids if null.
+     */
+    Function<? super V, String> eventId;
+    /**
+     * How long clients wait before reconnecting, left to the client if 0.
+     */
+    long retryMillis;
+
+    /**
+     * Events with neither ids nor a reconnection delay.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V extends Message> ServerSentEvents<V> none() {
+        return (ServerSentEvents<V>) NONE;
+    }
+
+    /**
+     * Written once when the stream starts.
+     */
+    public String streamPrefix() {
+        return retryMillis > 0 ? "retry: " + retryMillis + "\n\n" : "";
+    }
+
+    /**
+     * Written before the {@code data} of the event carrying the message.
+     */
+    public String eventPrefix(V message) {
+        if (eventId == null) {
+            return "";
+        }
+
+        String id = eventId.apply(message);
+        // Line breaks would end the field, clients ignore ids with NULs.
+        if (id == null || LINE_BREAKS.matchesAnyOf(id)) {
+            return "";
+        }
+
+        return "id: " + id + "\n";
+    }
+}
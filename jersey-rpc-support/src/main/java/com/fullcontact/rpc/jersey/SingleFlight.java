@@ -0,0 +1,78 @@
+package com.fullcontact.rpc.jersey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * Coalesces concurrent identical requests into a single in-flight RPC. Used by generated resources for methods with
+ * the {@code single_flight} option.
+ *
+ * The first request for a key becomes the leader and performs the RPC, requests arriving while it is in flight are
+ * parked and resumed with the leader's response, which is only serialized once.
+ */
+public final class SingleFlight {
+    private final ConcurrentMap<RequestKey, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the call in flight for the given key, or starts a new one.
+     *
+     * @return sink to perform the RPC with if this request leads a new call, or null if it joined an existing call and
+     * will be resumed once that completes.
+     */
+    public UnaryResponseSink join(RequestKey key, UnaryResponseSink sink) {
+        boolean[] leader = new boolean[1];
+        Flight flight = flights.compute(key, (k, existing) -> {
+            if (existing == null) {
+                leader[0] = true;
+                existing = new Flight(k);
+            }
+
+            existing.waiters.add(sink);
+            return existing;
+        });
+
+        return leader[0] ? flight : null;
+    }
+
+    /**
+     * Number of calls currently in flight.
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private class Flight implements UnaryResponseSink {
+        private final RequestKey key;
+        // Only mutated within ConcurrentMap#compute, and only read once the flight has been removed from the map.
+        private final List<UnaryResponseSink> waiters = new ArrayList<>();
+
+        Flight(RequestKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void resume(Response response) {
+            for (UnaryResponseSink waiter : land()) {
+                // Each waiter gets its own Response, as the container mutates them on the way out. The entity itself
+                // is shared.
+                waiter.resume(Response.fromResponse(response).build());
+            }
+        }
+
+        @Override
+        public void cancel() {
+            for (UnaryResponseSink waiter : land()) {
+                waiter.cancel();
+            }
+        }
+
+        private List<UnaryResponseSink> land() {
+            // Later requests start a new flight from here on.
+            flights.remove(key, this);
+            return waiters;
+        }
+    }
+}
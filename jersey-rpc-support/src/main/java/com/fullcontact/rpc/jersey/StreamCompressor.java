@@ -0,0 +1,120 @@
+package com.fullcontact.rpc.jersey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses the body of a server stream, see {@link JerseyStreamingObserver}. The start of the stream is held back
+ * until it reaches the minimum size of the {@link GrpcJerseyConfig}, so short streams are sent as is. The compressor is
+ * then flushed (SYNC_FLUSH) every {@link GrpcJerseyConfig#getStreamFlushMessages()} messages or
+ * {@link GrpcJerseyConfig#getStreamFlushBytes()} bytes rather than after each message, the caller flushes messages
+ * waiting for longer than {@link GrpcJerseyConfig#getStreamFlushDelay()}.
+ *
+ * Not thread-safe, used from the write executor of the stream.
+ */
+final class StreamCompressor extends OutputStream {
+    private final OutputStream out;
+    private final ResponseCompression.Encoding encoding;
+    private final Runnable onCompressed;
+    private final int minimumSize;
+    private final int flushMessages;
+    private final int flushBytes;
+
+    // Start of the stream, until it's known whether it's compressed.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    // Compressor, or the underlying stream if the stream is sent as is. Null until known.
+    private OutputStream target;
+    // Since the last flush.
+    private int messages;
+    private long bytes;
+
+    /**
+     * @param onCompressed called once it's known the stream is compressed, before anything is written, e.x. to set
+     * the Content-Encoding of the response
+     */
+    StreamCompressor(OutputStream out,
+            ResponseCompression.Encoding encoding,
+            GrpcJerseyConfig config,
+            Runnable onCompressed) {
+        this.out = out;
+        this.encoding = encoding;
+        this.onCompressed = onCompressed;
+        this.minimumSize = config.getCompressionMinimumSize();
+        this.flushMessages = config.getStreamFlushMessages();
+        this.flushBytes = config.getStreamFlushBytes();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        bytes += len;
+        if (target != null) {
+            target.write(b, off, len);
+            return;
+        }
+
+        pending.write(b, off, len);
+        if (pending.size() >= minimumSize) {
+            start(true);
+        }
+    }
+
+    /**
+     * Marks the end of a message, flushing the stream if enough was written since the last flush.
+     *
+     * @return whether the stream still holds back messages, which should be flushed once the flush delay elapsed
+     */
+    boolean endMessage() throws IOException {
+        messages++;
+        if (target != null && (messages >= flushMessages || bytes >= flushBytes)) {
+            flush();
+        }
+        return messages > 0;
+    }
+
+    /**
+     * Sends everything written so far, as is if the stream hasn't reached the minimum size yet.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (messages == 0 && bytes == 0) {
+            return;
+        }
+        if (target == null) {
+            start(false);
+        }
+
+        // Flushing a compressor SYNC_FLUSHes it, then flushes the underlying stream.
+        target.flush();
+        messages = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Ends the stream, writing out the trailer of the compressor if any, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (target == null) {
+            start(false);
+        }
+        target.close();
+    }
+
+    private void start(boolean compressed) throws IOException {
+        if (compressed) {
+            onCompressed.run();
+            target = encoding.syncFlushStream(out);
+        } else {
+            target = out;
+        }
+
+        pending.writeTo(target);
+        pending = null;
+    }
+}
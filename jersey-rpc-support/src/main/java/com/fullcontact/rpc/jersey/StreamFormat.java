@@ -0,0 +1,157 @@
+package com.fullcontact.rpc.jersey;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Variant;
+
+/**
+ * Framing of the messages of a server stream, negotiated from the request's {@code Accept} header.
+ *
+ * <ul>
+ * <li>{@link #NDJSON}, the default: a message per line.</li>
+ * <li>{@link #SSE} for {@code text/event-stream}: a server-sent event per message.</li>
+ * <li>{@link #JSON_ARRAY} for {@code application/json; stream=array}: a single JSON array, written progressively.
+ * Errors are its last element.</li>
+ * <li>{@link #PROTOBUF} for {@code application/x-protobuf-stream}: binary messages, each prefixed with its length, then
+ * a terminal status. Only negotiated by Jersey resources.</li>
+ * </ul>
+ */
+public enum StreamFormat {
+    NDJSON("application/json; charset=utf-8"),
+    SSE("text/event-stream; charset=utf-8"),
+    JSON_ARRAY("application/json; charset=utf-8"),
+    /**
+     * The stream is the binary encoding of a message with {@code repeated V message = 1} and
+     * {@code google.rpc.Status status = 2}: every frame is a field tag, then the varint length of its message, then the
+     * message. Each response message is a {@code message} frame, and the stream ends with a {@code status} frame, OK
+     * (code 0) if it completed, otherwise the error. A stream without a status frame was cut short.
+     */
+    PROTOBUF("application/x-protobuf-stream");
+
+    /**
+     * Field number of the frames carrying the response messages, see {@link #PROTOBUF}.
+     */
+    public static final int MESSAGE_FIELD = 1;
+    /**
+     * Field number of the terminal status frame, see {@link #PROTOBUF}.
+     */
+    public static final int STATUS_FIELD = 2;
+
+    static final MediaType PROTOBUF_STREAM = new MediaType("application", "x-protobuf-stream");
+    private static final MediaType EVENT_STREAM = new MediaType("text", "event-stream");
+    private static final String STREAM_PARAMETER = "stream";
+    private static final String ARRAY = "array";
+
+    private final String contentType;
+
+    StreamFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Format of a Jersey request. Selecting the variant adds {@code Vary: Accept} to the response.
+     */
+    public static StreamFormat negotiate(Request request, HttpHeaders headers) {
+        Variant variant = request.selectVariant(JerseyStreamingObserver.VARIANT_LIST);
+        if (variant != null && EVENT_STREAM.equals(variant.getMediaType())) {
+            return SSE;
+        }
+        if (variant != null && PROTOBUF_STREAM.equals(variant.getMediaType())) {
+            return PROTOBUF;
+        }
+
+        for (MediaType mediaType : headers.getAcceptableMediaTypes()) {
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE) && !mediaType.isWildcardType()
+                    && !mediaType.isWildcardSubtype()
+                    && ARRAY.equalsIgnoreCase(mediaType.getParameters().get(STREAM_PARAMETER))) {
+                return JSON_ARRAY;
+            }
+        }
+
+        return NDJSON;
+    }
+
+    /**
+     * Format for a raw {@code Accept} header, which may be null. Never {@link #PROTOBUF}, only JSON formats are served
+     * by the Netty gateway.
+     */
+    public static StreamFormat fromAccept(String accept) {
+        if (accept == null) {
+            return NDJSON;
+        }
+        if (accept.contains("text/event-stream")) {
+            return SSE;
+        }
+
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(MediaType.APPLICATION_JSON)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String[] parameter = parts[i].split("=", 2);
+                if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase(STREAM_PARAMETER)
+                        && unquote(parameter[1].trim()).equalsIgnoreCase(ARRAY)) {
+                    return JSON_ARRAY;
+                }
+            }
+        }
+
+        return NDJSON;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Written before a message (or a trailing error).
+     *
+     * @param first whether it's the first thing written to the stream
+     */
+    public String prefix(boolean first) {
+        switch (this) {
+            case SSE:
+                return "data: ";
+            case JSON_ARRAY:
+                return first ? "[" : ",";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Written after a message (or a trailing error).
+     */
+    public String suffix() {
+        switch (this) {
+            case SSE:
+                return "\n\n";
+            case JSON_ARRAY:
+            case PROTOBUF:
+                return "";
+            default:
+                return "\n";
+        }
+    }
+
+    /**
+     * Written when the stream ends, after its last message or error.
+     *
+     * @param empty whether nothing was written to the stream
+     */
+    public String end(boolean empty) {
+        if (this == JSON_ARRAY) {
+            return empty ? "[]" : "]";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,354 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.FanoutOptions;
+import com.fullcontact.rpc.jersey.HttpHeaderInterceptors.HttpHeaderClientInterceptor;
+import com.google.common.math.IntMath;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.Getter;
+
+/**
+ * Shares server streams between identical concurrent requests, so upstream streams scale with distinct requests rather
+ * than with clients. Used by generated resources for methods with the {@code fanout} option.
+ *
+ * The first request for a key opens the stream, requests arriving while it is open subscribe to it and receive its
+ * messages from then on, with the response headers of the first request. Messages go into a ring buffer every
+ * subscriber reads with its own cursor on its write executor, so a slow subscriber never holds back the stream or the
+ * other subscribers, and are printed once (only if a subscriber streams JSON). Subscribers falling behind by more than
+ * the buffer are handled according to the {@link FanoutOptions.SlowConsumer} policy. The upstream call is cancelled
+ * once its last subscriber leaves.
+ *
+ * @param <V> streamed message type
+ */
+public final class StreamHub<V extends Message> {
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final ConcurrentMap<RequestKey, Stream> streams = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final int mask;
+    private final FanoutOptions.SlowConsumer slowConsumer;
+
+    public StreamHub(FanoutOptions options) {
+        int size = options.getBufferSize() > 0 ? options.getBufferSize() : DEFAULT_BUFFER_SIZE;
+        // Positions map to slots with a mask. A subscriber can be at most one less than the size behind.
+        this.bufferSize = IntMath.ceilingPowerOfTwo(Math.max(size, 2));
+        this.mask = bufferSize - 1;
+        this.slowConsumer = options.getSlowConsumer();
+    }
+
+    /**
+     * Subscribes the observer to the open stream for the key, or opens a new one.
+     *
+     * @param interceptor captures the response headers of the upstream call if this request opens the stream
+     * @param events event ids of the messages, used if this request opens the stream
+     * @param config printer of the messages, used if this request opens the stream
+     * @return observer to perform the RPC with if this request opens a new stream, or null if it subscribed to an
+     * open one.
+     */
+    public StreamObserver<V> subscribe(RequestKey key,
+            JerseyStreamingObserver<V> observer,
+            HttpHeaderClientInterceptor interceptor,
+            ServerSentEvents<V> events,
+            GrpcJerseyConfig config) {
+        boolean[] opened = new boolean[1];
+        AtomicReference<Subscriber> subscriber = new AtomicReference<>();
+        Stream stream = streams.compute(key, (k, existing) -> {
+            if (existing == null) {
+                opened[0] = true;
+                existing = new Stream(k, interceptor, events, config);
+            } else {
+                observer.shareResponseHeaders(existing.interceptor);
+            }
+
+            subscriber.set(new Subscriber(existing, observer));
+            existing.subscribers.add(subscriber.get());
+            return existing;
+        });
+
+        observer.onClose(subscriber.get()::leave);
+        // Catches up with messages the stream didn't signal it with while it was subscribing, or finds out it's
+        // already closed.
+        subscriber.get().signal();
+        return opened[0] ? stream : null;
+    }
+
+    /**
+     * Number of streams currently open.
+     */
+    public int size() {
+        return streams.size();
+    }
+
+    /**
+     * Message of a stream, shared by its subscribers.
+     */
+    static final class Frame<V extends Message> {
+        @Getter
+        private final V message;
+        @Getter
+        private final String eventPrefix;
+        private final JsonFormat.Printer printer;
+        private volatile String json;
+
+        Frame(V message, String eventPrefix, JsonFormat.Printer printer) {
+            this.message = message;
+            this.eventPrefix = eventPrefix;
+            this.printer = printer;
+        }
+
+        /**
+         * The message printed by the first JSON subscriber to write it, subscribers racing it print it again.
+         */
+        String json() throws IOException {
+            String printed = json;
+            if (printed == null) {
+                printed = TypedJsonPrinter.print(printer, message);
+                json = printed;
+            }
+            return printed;
+        }
+    }
+
+    /**
+     * Observer of the upstream call, writing its messages to the ring buffer.
+     */
+    private class Stream implements ClientResponseObserver<Message, V> {
+        private final RequestKey key;
+        private final HttpHeaderClientInterceptor interceptor;
+        private final ServerSentEvents<V> events;
+        private final GrpcJerseyConfig config;
+        private final AtomicReferenceArray<Frame<V>> frames = new AtomicReferenceArray<>(bufferSize);
+        // Only added to within ConcurrentMap#compute, streams don't gain subscribers once they left the map.
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        // Number of messages written so far, the position of the next one.
+        private volatile long written = 0;
+        private volatile boolean done = false;
+        private volatile Throwable error;
+        // Set once the last subscriber left.
+        private volatile boolean abandoned = false;
+        private volatile ClientCallStreamObserver<Message> requestStream;
+
+        Stream(RequestKey key,
+                HttpHeaderClientInterceptor interceptor,
+                ServerSentEvents<V> events,
+                GrpcJerseyConfig config) {
+            this.key = key;
+            this.interceptor = interceptor;
+            this.events = events;
+            this.config = config;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<Message> requestStream) {
+            this.requestStream = requestStream;
+        }
+
+        @Override
+        public void onNext(V value) {
+            if (abandoned) {
+                if (requestStream != null) {
+                    // Messages already in flight when the upstream call was cancelled.
+                    return;
+                }
+                // Like the observer of a cancelled gRPC call, for services called directly.
+                throw Status.CANCELLED.withDescription("All subscribers left").asRuntimeException();
+            }
+            if (done) {
+                return;
+            }
+
+            Frame<V> frame = new Frame<>(value, events.eventPrefix(value), config.getStreamPrinter());
+            // Only ever called by one thread at a time, like any StreamObserver.
+            long position = written;
+            frames.set((int) (position & mask), frame);
+            written = position + 1;
+            signalAll();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                return;
+            }
+            error = t;
+            end();
+        }
+
+        @Override
+        public void onCompleted() {
+            end();
+        }
+
+        private void end() {
+            if (done) {
+                return;
+            }
+
+            // Identical requests open a new stream from here on.
+            streams.remove(key, this);
+            done = true;
+            signalAll();
+        }
+
+        private void signalAll() {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.signal();
+            }
+        }
+    }
+
+    /**
+     * Cursor of a request's observer over the stream it subscribed to.
+     */
+    private class Subscriber {
+        private final Stream stream;
+        private final JerseyStreamingObserver<V> observer;
+        // Number of signals since the last drain started, drains never run concurrently.
+        private final AtomicInteger signals = new AtomicInteger();
+        private final AtomicBoolean left = new AtomicBoolean();
+
+        // Only accessed from drain().
+        private long cursor;
+        private boolean finished = false;
+
+        Subscriber(Stream stream, JerseyStreamingObserver<V> observer) {
+            this.stream = stream;
+            this.observer = observer;
+            this.cursor = stream.written;
+        }
+
+        void signal() {
+            if (signals.getAndIncrement() == 0) {
+                observer.dispatch(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                drainAvailable();
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainAvailable() {
+            if (finished) {
+                return;
+            }
+            if (observer.isClosed()) {
+                finished = true;
+                leave();
+                return;
+            }
+
+            // Read before the frames, every frame is written by the time the stream is done.
+            boolean done = stream.done;
+            while (true) {
+                if (!catchUp()) {
+                    return;
+                }
+                if (cursor == stream.written) {
+                    break;
+                }
+
+                Frame<V> frame = stream.frames.get((int) (cursor & mask));
+                if (stream.written - cursor >= bufferSize) {
+                    // Overwritten while it was read, catch up again.
+                    continue;
+                }
+
+                observer.writeShared(frame);
+                cursor++;
+                if (observer.isClosed()) {
+                    finished = true;
+                    leave();
+                    return;
+                }
+            }
+
+            if (done) {
+                finished = true;
+                if (stream.error != null) {
+                    observer.handleError(stream.error);
+                } else {
+                    observer.handleCompleted();
+                }
+            }
+        }
+
+        /**
+         * Applies the slow consumer policy if the subscriber is behind.
+         *
+         * @return false if it disconnected the subscriber
+         */
+        private boolean catchUp() {
+            long head = stream.written;
+            long behind = head - cursor;
+            if (behind >= bufferSize) {
+                switch (slowConsumer) {
+                    case DROP:
+                        cursor = head - (bufferSize - 1);
+                        return true;
+                    case COALESCE_LATEST:
+                        cursor = head - 1;
+                        return true;
+                    default:
+                        finished = true;
+                        observer.handleError(Status.RESOURCE_EXHAUSTED
+                                .withDescription("Subscriber fell behind the stream by more than " + (bufferSize - 1)
+                                        + " messages")
+                                .asRuntimeException());
+                        return false;
+                }
+            }
+            if (behind > 1 && slowConsumer == FanoutOptions.SlowConsumer.COALESCE_LATEST) {
+                cursor = head - 1;
+            }
+            return true;
+        }
+
+        void leave() {
+            if (!left.compareAndSet(false, true)) {
+                return;
+            }
+
+            boolean[] last = new boolean[1];
+            streams.computeIfPresent(stream.key, (k, open) -> {
+                if (open != stream) {
+                    return open;
+                }
+
+                open.subscribers.remove(this);
+                if (open.subscribers.isEmpty()) {
+                    last[0] = true;
+                    open.abandoned = true;
+                    return null;
+                }
+                return open;
+            });
+            if (!last[0]) {
+                // Still has subscribers, or already done.
+                stream.subscribers.remove(this);
+                return;
+            }
+
+            ClientCallStreamObserver<Message> call = stream.requestStream;
+            if (call != null) {
+                call.cancel("All subscribers left", null);
+            }
+        }
+    }
+}
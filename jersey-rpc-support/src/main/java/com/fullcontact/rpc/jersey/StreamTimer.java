@@ -0,0 +1,421 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed wheel timer watching every active stream for heartbeats, idle timeouts and its maximum duration, on a single
+ * thread rather than with scheduled tasks per stream.
+ *
+ * Each stream has at most one entry in the wheel, due at the earliest of its deadlines. Messages don't move the entry:
+ * {@link Watch#touch()} records the time of the last message, and the entry is rescheduled from it when it comes due.
+ * Deadlines are rounded up to the next tick (100ms for the {@link #shared()} timer).
+ *
+ * The timer also runs one-shot tasks at their exact deadline rather than on ticks, e.x. the windows of
+ * {@link MicroBatcher} batches, so the library has a single timer thread.
+ *
+ * Listeners and tasks are called on the timer thread, so they must not block: they hand their work to the stream's
+ * executor or channel, or to the {@link RpcExecutor}.
+ */
+public final class StreamTimer {
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Watch> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Watch> cancellations = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> submitted = new ConcurrentLinkedQueue<>();
+    // Only accessed from the timer thread.
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>(
+            (a, b) -> Long.signum(a.deadlineNanos - b.deadlineNanos));
+    private final Thread thread;
+
+    // Time of the last tick, read by Watch#touch() rather than System.nanoTime().
+    private volatile long clockNanos;
+    private volatile boolean stopped = false;
+    // Only accessed from the timer thread.
+    private long tick = 0;
+
+    /**
+     * Callbacks of a watched stream, called on the timer thread.
+     */
+    public interface Listener {
+        /**
+         * The stream had neither a message nor a heartbeat for the heartbeat interval.
+         */
+        void onHeartbeat();
+
+        /**
+         * The stream was idle for its idle timeout, or exceeded its maximum duration. The watch is over.
+         *
+         * @param status DEADLINE_EXCEEDED, describing which deadline was exceeded
+         */
+        void onExpired(Status status);
+    }
+
+    private static final class Holder {
+        private static final StreamTimer SHARED = new StreamTimer(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE,
+                new ThreadFactoryBuilder().setNameFormat("grpc-jersey-stream-timer").setDaemon(true).build());
+    }
+
+    StreamTimer(long tickMillis, int wheelSize, ThreadFactory threadFactory) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two, was " + wheelSize);
+        }
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.clockNanos = startNanos;
+        this.thread = threadFactory.newThread(this::run);
+        thread.start();
+    }
+
+    /**
+     * Timer shared by all streams of the JVM.
+     */
+    public static StreamTimer shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Starts watching a stream. Zero durations disable the corresponding callback.
+     *
+     * @param heartbeat interval of {@link Listener#onHeartbeat()} while the stream is idle
+     * @param idleTimeout how long the stream may go without a message
+     * @param maxDuration how long the stream may last
+     * @return null if all durations are zero, there's nothing to watch
+     */
+    public Watch watch(Listener listener, Duration heartbeat, Duration idleTimeout, Duration maxDuration) {
+        long heartbeatNanos = Math.max(heartbeat.toNanos(), 0);
+        long idleTimeoutNanos = Math.max(idleTimeout.toNanos(), 0);
+        long maxDurationNanos = Math.max(maxDuration.toNanos(), 0);
+        if (heartbeatNanos == 0 && idleTimeoutNanos == 0 && maxDurationNanos == 0) {
+            return null;
+        }
+
+        Watch watch = new Watch(listener, heartbeatNanos, idleTimeoutNanos, maxDurationNanos);
+        scheduled.add(watch);
+        return watch;
+    }
+
+    /**
+     * Runs the task on the timer thread once the delay elapsed. The task must not block.
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        submitted.add(new Task(System.nanoTime() + unit.toNanos(delay), task));
+        // Wakes the thread up so it parks until the earlier deadline, if need be.
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the timer thread, for tests.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!stopped) {
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            long now = System.nanoTime();
+            while (true) {
+                long wakeUp = runTasks(now, tickEnd);
+                if (now - tickEnd >= 0 || stopped) {
+                    break;
+                }
+                LockSupport.parkNanos(this, wakeUp - now);
+                now = System.nanoTime();
+            }
+
+            clockNanos = now;
+            transferScheduled();
+            removeCancelled();
+            expire(wheel[(int) (tick & mask)], now);
+            tick++;
+        }
+    }
+
+    /**
+     * Runs the tasks which are due.
+     *
+     * @return when to wake up next, the earliest of the tick's end and the next task's deadline
+     */
+    private long runTasks(long now, long tickEnd) {
+        Task task;
+        while ((task = submitted.poll()) != null) {
+            tasks.add(task);
+        }
+
+        while ((task = tasks.peek()) != null && task.deadlineNanos - now <= 0) {
+            tasks.poll();
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                // The timer thread outlives a broken task.
+            }
+        }
+
+        return task != null ? earlier(task.deadlineNanos, tickEnd) : tickEnd;
+    }
+
+    private void transferScheduled() {
+        Watch watch;
+        while ((watch = scheduled.poll()) != null) {
+            if (!watch.cancelled) {
+                insert(watch, tick);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Watch watch;
+        while ((watch = cancellations.poll()) != null) {
+            if (watch.bucket != null) {
+                watch.bucket.remove(watch);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        // Detached first, so watches rescheduled into the same slot wait for the next round.
+        Watch watch = bucket.clear();
+        while (watch != null) {
+            Watch next = watch.next;
+            watch.prev = null;
+            watch.next = null;
+            if (watch.remainingRounds > 0) {
+                watch.remainingRounds--;
+                bucket.add(watch);
+            } else if (!watch.cancelled) {
+                check(watch, now);
+            }
+            watch = next;
+        }
+    }
+
+    /**
+     * Calls the listener for the deadlines the watch reached, and reschedules it for the next one.
+     */
+    private void check(Watch watch, long now) {
+        if (watch.maxDurationNanos > 0 && now - (watch.startNanos + watch.maxDurationNanos) >= 0) {
+            watch.expire(Status.DEADLINE_EXCEEDED.withDescription(
+                    "Stream exceeded its maximum duration of " + toMillis(watch.maxDurationNanos) + "ms"));
+            return;
+        }
+
+        long lastActivity = watch.lastActivityNanos;
+        if (watch.idleTimeoutNanos > 0 && now - lastActivity >= watch.idleTimeoutNanos) {
+            watch.expire(Status.DEADLINE_EXCEEDED.withDescription(
+                    "Stream idle for " + toMillis(watch.idleTimeoutNanos) + "ms"));
+            return;
+        }
+
+        long due = Long.MAX_VALUE;
+        boolean hasDue = false;
+        if (watch.heartbeatNanos > 0) {
+            long idleSince = later(lastActivity, watch.lastHeartbeatNanos);
+            if (now - idleSince >= watch.heartbeatNanos) {
+                watch.heartbeat();
+                watch.lastHeartbeatNanos = now;
+                idleSince = now;
+            }
+            due = idleSince + watch.heartbeatNanos;
+            hasDue = true;
+        }
+        if (watch.idleTimeoutNanos > 0) {
+            long idleDeadline = lastActivity + watch.idleTimeoutNanos;
+            due = hasDue ? earlier(due, idleDeadline) : idleDeadline;
+            hasDue = true;
+        }
+        if (watch.maxDurationNanos > 0) {
+            long maxDeadline = watch.startNanos + watch.maxDurationNanos;
+            due = hasDue ? earlier(due, maxDeadline) : maxDeadline;
+        }
+
+        watch.deadlineNanos = due;
+        // Never back into the bucket being expired.
+        insert(watch, tick + 1);
+    }
+
+    /**
+     * @param minTick first tick the watch can be expired on, the current one unless it was already expired
+     */
+    private void insert(Watch watch, long minTick) {
+        long elapsed = watch.deadlineNanos - startNanos;
+        // The tick which ends at or after the deadline.
+        long dueTick = Math.max((elapsed + tickNanos - 1) / tickNanos - 1, minTick);
+        watch.remainingRounds = (dueTick - minTick) / wheel.length;
+        wheel[(int) (dueTick & mask)].add(watch);
+    }
+
+    private static long later(long a, long b) {
+        return a - b > 0 ? a : b;
+    }
+
+    private static long earlier(long a, long b) {
+        return a - b < 0 ? a : b;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static long minPositive(long... values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            if (value > 0) {
+                min = Math.min(min, value);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * A watched stream, cancel it once the stream ends.
+     */
+    public final class Watch {
+        private final Listener listener;
+        private final long heartbeatNanos;
+        private final long idleTimeoutNanos;
+        private final long maxDurationNanos;
+        private final long startNanos;
+
+        private volatile long lastActivityNanos;
+        private volatile boolean cancelled = false;
+
+        // Only accessed from the timer thread.
+        private long lastHeartbeatNanos;
+        private long deadlineNanos;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Watch prev;
+        private Watch next;
+
+        private Watch(Listener listener, long heartbeatNanos, long idleTimeoutNanos, long maxDurationNanos) {
+            this.listener = listener;
+            this.heartbeatNanos = heartbeatNanos;
+            this.idleTimeoutNanos = idleTimeoutNanos;
+            this.maxDurationNanos = maxDurationNanos;
+            this.startNanos = System.nanoTime();
+            this.lastActivityNanos = startNanos;
+            this.lastHeartbeatNanos = startNanos;
+            // Checked first once every deadline could have been reached, then rescheduled from the actual ones.
+            this.deadlineNanos = startNanos + minPositive(heartbeatNanos, idleTimeoutNanos, maxDurationNanos);
+        }
+
+        /**
+         * Records a message, resetting the idle timeout and the heartbeat interval. Only a volatile write, the wheel
+         * isn't touched.
+         */
+        public void touch() {
+            lastActivityNanos = clockNanos;
+        }
+
+        /**
+         * Stops watching the stream, its listener isn't called anymore (unless it's being called).
+         */
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+            // Removed from the wheel on the next tick.
+            cancellations.add(this);
+        }
+
+        private void heartbeat() {
+            try {
+                listener.onHeartbeat();
+            } catch (RuntimeException e) {
+                // The timer thread outlives a broken listener.
+            }
+        }
+
+        private void expire(Status status) {
+            cancelled = true;
+            try {
+                listener.onExpired(status);
+            } catch (RuntimeException e) {
+                // The timer thread outlives a broken listener.
+            }
+        }
+    }
+
+    private static final class Task {
+        private final long deadlineNanos;
+        private final Runnable runnable;
+
+        private Task(long deadlineNanos, Runnable runnable) {
+            this.deadlineNanos = deadlineNanos;
+            this.runnable = runnable;
+        }
+    }
+
+    /**
+     * Doubly-linked list of the watches due in a slot of the wheel, for O(1) removal.
+     */
+    private static final class Bucket {
+        private Watch head;
+        private Watch tail;
+
+        void add(Watch watch) {
+            watch.bucket = this;
+            watch.prev = tail;
+            watch.next = null;
+            if (tail == null) {
+                head = watch;
+            } else {
+                tail.next = watch;
+            }
+            tail = watch;
+        }
+
+        /**
+         * Empties the bucket.
+         *
+         * @return its former head, the watches are still linked to each other
+         */
+        Watch clear() {
+            Watch first = head;
+            for (Watch watch = head; watch != null; watch = watch.next) {
+                watch.bucket = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+
+        void remove(Watch watch) {
+            if (watch.prev == null) {
+                head = watch.next;
+            } else {
+                watch.prev.next = watch.next;
+            }
+            if (watch.next == null) {
+                tail = watch.prev;
+            } else {
+                watch.next.prev = watch.prev;
+            }
+            watch.bucket = null;
+            watch.prev = null;
+            watch.next = null;
+        }
+    }
+}
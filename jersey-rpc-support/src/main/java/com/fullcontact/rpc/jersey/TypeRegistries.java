@@ -0,0 +1,90 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.util.JsonFormat;
+import com.google.rpc.ErrorDetailsProto;
+import io.grpc.ServiceDescriptor;
+import io.grpc.protobuf.ProtoFileDescriptorSupplier;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link JsonFormat.TypeRegistry}s resolving the type URLs of {@code google.protobuf.Any} fields, e.x. the
+ * {@code details} of errors. Generated resources build one from the .proto file of their service, covering every
+ * message it (transitively) imports along with the {@code google.rpc} error details. Registries are built once per
+ * file, type URLs then resolve with a single map lookup.
+ */
+public final class TypeRegistries {
+    private static final JsonFormat.TypeRegistry ERROR_DETAILS = JsonFormat.TypeRegistry.newBuilder()
+            .add(ErrorDetailsProto.getDescriptor().getMessageTypes())
+            .build();
+    private static final ConcurrentMap<String, JsonFormat.TypeRegistry> BY_FILE = new ConcurrentHashMap<>();
+
+    private TypeRegistries() {}
+
+    /**
+     * Registry of the {@code google.rpc} error details (RetryInfo, DebugInfo, BadRequest...).
+     */
+    public static JsonFormat.TypeRegistry errorDetails() {
+        return ERROR_DETAILS;
+    }
+
+    /**
+     * Registry of the .proto file of a gRPC service, or of the error details only if the service wasn't generated from
+     * a .proto file.
+     */
+    public static JsonFormat.TypeRegistry forService(ServiceDescriptor serviceDescriptor) {
+        Object schema = serviceDescriptor.getSchemaDescriptor();
+        if (schema instanceof ProtoFileDescriptorSupplier) {
+            return forFile(((ProtoFileDescriptorSupplier) schema).getFileDescriptor());
+        }
+
+        return ERROR_DETAILS;
+    }
+
+    /**
+     * Registry of all messages of the file and of the files it imports, along with the error details.
+     */
+    public static JsonFormat.TypeRegistry forFile(Descriptors.FileDescriptor file) {
+        JsonFormat.TypeRegistry registry = BY_FILE.get(file.getFullName());
+        if (registry != null) {
+            return registry;
+        }
+
+        return BY_FILE.computeIfAbsent(file.getFullName(), name -> register(file));
+    }
+
+    private static JsonFormat.TypeRegistry register(Descriptors.FileDescriptor file) {
+        Map<String, Descriptors.Descriptor> types = new LinkedHashMap<>();
+        collect(ErrorDetailsProto.getDescriptor(), types, new HashSet<>());
+        collect(file, types, new HashSet<>());
+
+        return JsonFormat.TypeRegistry.newBuilder().add(types.values()).build();
+    }
+
+    private static void collect(Descriptors.FileDescriptor file,
+            Map<String, Descriptors.Descriptor> types,
+            Set<String> visited) {
+        if (!visited.add(file.getFullName())) {
+            return;
+        }
+
+        for (Descriptors.Descriptor type : file.getMessageTypes()) {
+            collect(type, types);
+        }
+        for (Descriptors.FileDescriptor dependency : file.getDependencies()) {
+            collect(dependency, types, visited);
+        }
+    }
+
+    private static void collect(Descriptors.Descriptor type, Map<String, Descriptors.Descriptor> types) {
+        types.put(type.getFullName(), type);
+        for (Descriptors.Descriptor nested : type.getNestedTypes()) {
+            collect(nested, types);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.jersey.TypedMessageWriters.MessageWriter;
+import com.google.common.collect.MapMaker;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Prints messages exactly like a {@link JsonFormat.Printer}, with writers specialized per message class which call
+ * the typed getters of the generated classes instead of going through descriptors and reflection for every field. A
+ * class' writer is built the first time one of its messages is printed. Builders, proto2 messages,
+ * {@code google.protobuf.Any}, {@code Struct}, {@code Value} and {@code ListValue} are printed by JsonFormat.
+ *
+ * Only printers built by {@link #printer(JsonOutput)} are specialized, which include the default printers of
+ * {@link GrpcJerseyConfig} and {@link JsonHandler}, and the ones of methods with a {@code json} option. Other printers
+ * are used as they are.
+ *
+ * <pre>{@code
+ * GrpcJerseyConfig config = GrpcJerseyConfig.builder()
+ *         .unaryPrinter(TypedJsonPrinter.printer(JsonOutput.newBuilder().setCompact(true).build()))
+ *         .build();
+ * }</pre>
+ */
+public final class TypedJsonPrinter {
+    // Printers are compared by identity, and don't keep their specialization (nor its writers) alive.
+    private static final ConcurrentMap<JsonFormat.Printer, TypedJsonPrinter> SPECIALIZED =
+            new MapMaker().weakKeys().makeMap();
+    private static final ConcurrentMap<JsonOutput, TypedJsonPrinter> BY_OPTIONS = new ConcurrentHashMap<>();
+
+    private final JsonOutput options;
+    private final ClassValue<MessageWriter> writers = new ClassValue<MessageWriter>() {
+        @Override
+        protected MessageWriter computeValue(Class<?> type) {
+            return TypedMessageWriters.forType(type, options);
+        }
+    };
+
+    private TypedJsonPrinter(JsonOutput options) {
+        this.options = options;
+    }
+
+    /**
+     * JsonFormat printer configured by the options, which {@link #print} and {@link #appendTo} specialize.
+     */
+    public static JsonFormat.Printer printer(JsonOutput options) {
+        JsonFormat.Printer printer = JsonFormat.printer();
+        if (!options.getOmitDefaultValues()) {
+            printer = printer.includingDefaultValueFields();
+        }
+        if (options.getEnumsAsInts()) {
+            printer = printer.printingEnumsAsInts();
+        }
+        if (options.getPreserveProtoFieldNames()) {
+            printer = printer.preservingProtoFieldNames();
+        }
+        if (options.getCompact()) {
+            printer = printer.omittingInsignificantWhitespace();
+        }
+
+        SPECIALIZED.put(printer, BY_OPTIONS.computeIfAbsent(options, TypedJsonPrinter::new));
+        return printer;
+    }
+
+    /**
+     * Prints a message with the printer, specialized if it was built by {@link #printer(JsonOutput)}.
+     */
+    public static String print(JsonFormat.Printer printer, MessageOrBuilder message)
+            throws InvalidProtocolBufferException {
+        TypedJsonPrinter typed = SPECIALIZED.get(printer);
+        if (typed == null) {
+            return printer.print(message);
+        }
+
+        try {
+            StringBuilder json = new StringBuilder();
+            typed.write(message, printer, json);
+            return json.toString();
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            // Unreachable, StringBuilders don't throw.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends a message printed with the printer, specialized if it was built by {@link #printer(JsonOutput)}.
+     */
+    public static void appendTo(JsonFormat.Printer printer, MessageOrBuilder message, Appendable output)
+            throws IOException {
+        TypedJsonPrinter typed = SPECIALIZED.get(printer);
+        if (typed == null) {
+            printer.appendTo(message, output);
+        } else {
+            typed.write(message, printer, output);
+        }
+    }
+
+    /**
+     * {@link JsonFormat.Printer#usingTypeRegistry}, keeping the specialization of the printer.
+     */
+    static JsonFormat.Printer usingTypeRegistry(JsonFormat.Printer printer, JsonFormat.TypeRegistry registry) {
+        JsonFormat.Printer withRegistry = printer.usingTypeRegistry(registry);
+        TypedJsonPrinter typed = SPECIALIZED.get(printer);
+        if (typed != null) {
+            SPECIALIZED.put(withRegistry, typed);
+        }
+
+        return withRegistry;
+    }
+
+    JsonOutput options() {
+        return options;
+    }
+
+    MessageWriter writer(Class<?> type) {
+        return writers.get(type);
+    }
+
+    private void write(MessageOrBuilder message, JsonFormat.Printer fallback, Appendable output) throws IOException {
+        JsonGenerator generator = new JsonGenerator(output, this, fallback);
+        generator.message(message);
+    }
+}
@@ -0,0 +1,775 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Any;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DoubleValue;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.Internal;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.UInt64Value;
+import com.google.protobuf.Value;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.FieldMaskUtil;
+import com.google.protobuf.util.Timestamps;
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writers of {@link TypedJsonPrinter}, specialized per message class. Fields are read through the typed getters of
+ * the generated class (e.x. {@code getUint3()}, {@code getRepStrList()}), bound with {@link LambdaMetafactory} so the
+ * JIT can inline them, and printed in field number order like {@link com.google.protobuf.util.JsonFormat}.
+ */
+final class TypedMessageWriters {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Prints with the JsonFormat printer the typed printer stands in for.
+     */
+    static final MessageWriter FALLBACK = (message, generator) -> generator.fallback(message);
+
+    private static final ImmutableSet<String> WRAPPERS = ImmutableSet.of(
+            DoubleValue.getDescriptor().getFullName(),
+            FloatValue.getDescriptor().getFullName(),
+            Int64Value.getDescriptor().getFullName(),
+            UInt64Value.getDescriptor().getFullName(),
+            Int32Value.getDescriptor().getFullName(),
+            UInt32Value.getDescriptor().getFullName(),
+            BoolValue.getDescriptor().getFullName(),
+            StringValue.getDescriptor().getFullName(),
+            BytesValue.getDescriptor().getFullName());
+
+    // Need a type registry, or have printers of their own in JsonFormat.
+    private static final ImmutableSet<String> FALLBACK_TYPES = ImmutableSet.of(
+            Any.getDescriptor().getFullName(),
+            Struct.getDescriptor().getFullName(),
+            Value.getDescriptor().getFullName(),
+            ListValue.getDescriptor().getFullName());
+
+    private TypedMessageWriters() {}
+
+    /**
+     * Writer of a message class. Falls back to JsonFormat for builders, dynamic messages, proto2 messages (and their
+     * extensions), {@code google.protobuf.Any}, {@code Struct}, {@code Value} and {@code ListValue}, and classes whose
+     * getters can't be bound, e.x. ones protoc renamed to avoid a clash.
+     */
+    static MessageWriter forType(Class<?> type, JsonOutput options) {
+        if (!GeneratedMessageV3.class.isAssignableFrom(type)) {
+            return FALLBACK;
+        }
+
+        Message defaultInstance;
+        try {
+            defaultInstance = (Message) type.getMethod("getDefaultInstance").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return FALLBACK;
+        }
+
+        Descriptors.Descriptor descriptor = defaultInstance.getDescriptorForType();
+        String typeName = descriptor.getFullName();
+        if (typeName.equals(Timestamp.getDescriptor().getFullName())) {
+            return TypedMessageWriters::writeTimestamp;
+        }
+        if (typeName.equals(Duration.getDescriptor().getFullName())) {
+            return TypedMessageWriters::writeDuration;
+        }
+        if (typeName.equals(FieldMask.getDescriptor().getFullName())) {
+            return (message, generator) -> {
+                generator.write('"');
+                generator.write(FieldMaskUtil.toJsonString((FieldMask) message));
+                generator.write('"');
+            };
+        }
+        if (FALLBACK_TYPES.contains(typeName)) {
+            return FALLBACK;
+        }
+        if (descriptor.getFile().getSyntax() != Descriptors.FileDescriptor.Syntax.PROTO3) {
+            return FALLBACK;
+        }
+
+        try {
+            if (WRAPPERS.contains(typeName)) {
+                // Printed as their value, even when it's the default.
+                FieldWriter value = fieldWriter(type, descriptor.findFieldByName("value"), options);
+                value.probe(defaultInstance);
+                return value::writeValue;
+            }
+
+            List<FieldWriter> fields = new ArrayList<>();
+            List<FieldDescriptor> byNumber = new ArrayList<>(descriptor.getFields());
+            byNumber.sort(Comparator.comparingInt(FieldDescriptor::getNumber));
+            for (FieldDescriptor field : byNumber) {
+                FieldWriter writer = fieldWriter(type, field, options);
+                // Fails if the bound getters can't be linked, e.x. when the class isn't visible from this class loader.
+                writer.probe(defaultInstance);
+                fields.add(writer);
+            }
+
+            return new FieldsWriter(fields.toArray(new FieldWriter[0]));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return FALLBACK;
+        }
+    }
+
+    private static void writeTimestamp(MessageOrBuilder message, JsonGenerator generator) throws IOException {
+        Timestamp timestamp = (Timestamp) message;
+        if (!Timestamps.isValid(timestamp)) {
+            // Let JsonFormat fail the way it does.
+            generator.fallback(message);
+            return;
+        }
+
+        generator.write('"');
+        generator.write(Timestamps.toString(timestamp));
+        generator.write('"');
+    }
+
+    private static void writeDuration(MessageOrBuilder message, JsonGenerator generator) throws IOException {
+        Duration duration = (Duration) message;
+        if (!Durations.isValid(duration)) {
+            generator.fallback(message);
+            return;
+        }
+
+        generator.write('"');
+        generator.write(Durations.toString(duration));
+        generator.write('"');
+    }
+
+    private static FieldWriter fieldWriter(Class<?> type, FieldDescriptor field, JsonOutput options)
+            throws ReflectiveOperationException {
+        String accessor = ProtobufDescriptorJavaUtil.javaAccessorName(field);
+        String name = "\"" + (options.getPreserveProtoFieldNames() ? field.getName() : field.getJsonName()) + "\":";
+
+        Descriptors.OneofDescriptor oneof = field.getContainingOneof();
+        Predicate<Object> has;
+        Presence presence;
+        if (oneof != null) {
+            Function<Object, Object> oneofCase = getter(type,
+                    "get" + ProtobufDescriptorJavaUtil.javaAccessorName(oneof) + "Case",
+                    Internal.EnumLite.class);
+            int number = field.getNumber();
+            has = message -> ((Internal.EnumLite) oneofCase.apply(message)).getNumber() == number;
+            presence = Presence.HAS;
+        } else if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && !field.isRepeated()) {
+            has = booleanGetter(type, "has" + accessor);
+            presence = Presence.HAS;
+        } else {
+            has = null;
+            presence = options.getOmitDefaultValues() ? Presence.NOT_DEFAULT : Presence.ALWAYS;
+        }
+
+        if (field.isMapField()) {
+            FieldDescriptor keyField = field.getMessageType().findFieldByName("key");
+            FieldDescriptor valueField = field.getMessageType().findFieldByName("value");
+            String getter = valueField.getJavaType() == FieldDescriptor.JavaType.ENUM
+                    ? "get" + accessor + "ValueMap"
+                    : "get" + accessor + "Map";
+            return new MapWriter(name, presence, has,
+                    getter(type, getter, Map.class),
+                    intGetter(type, "get" + accessor + "Count"),
+                    valueWriter(keyField, options),
+                    valueWriter(valueField, options));
+        }
+        if (field.isRepeated()) {
+            String getter = field.getJavaType() == FieldDescriptor.JavaType.ENUM
+                    ? "get" + accessor + "ValueList"
+                    : "get" + accessor + "List";
+            return new RepeatedWriter(name, presence, has,
+                    getter(type, getter, List.class),
+                    intGetter(type, "get" + accessor + "Count"),
+                    valueWriter(field, options));
+        }
+
+        String getter = "get" + accessor;
+        switch (field.getType()) {
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return new IntWriter(name, presence, has, intGetter(type, getter), false);
+            case UINT32:
+            case FIXED32:
+                return new IntWriter(name, presence, has, intGetter(type, getter), true);
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return new LongWriter(name, presence, has, longGetter(type, getter), false);
+            case UINT64:
+            case FIXED64:
+                return new LongWriter(name, presence, has, longGetter(type, getter), true);
+            case BOOL:
+                return new BooleanWriter(name, presence, has, booleanGetter(type, getter));
+            case FLOAT:
+                return new FloatWriter(name, presence, has, floatGetter(type, getter));
+            case DOUBLE:
+                return new DoubleWriter(name, presence, has, doubleGetter(type, getter));
+            case STRING:
+                return new ObjectWriter(name, presence, has, getter(type, getter, String.class),
+                        value -> ((String) value).isEmpty(), valueWriter(field, options));
+            case BYTES:
+                return new ObjectWriter(name, presence, has, getter(type, getter, ByteString.class),
+                        value -> ((ByteString) value).isEmpty(), valueWriter(field, options));
+            case ENUM:
+                return new EnumWriter(name, presence, has, intGetter(type, getter + "Value"),
+                        new EnumFormat(field.getEnumType(), options));
+            case MESSAGE:
+                return new ObjectWriter(name, presence, has, getter(type, getter, Message.class),
+                        value -> false, valueWriter(field, options));
+            default:
+                // Groups, which proto3 doesn't have.
+                throw new NoSuchMethodException("Unsupported field " + field.getFullName());
+        }
+    }
+
+    /**
+     * Writer of the (boxed) values of a field, or the elements of a repeated field, or the keys and values of a map.
+     * Enums are their number.
+     */
+    private static ValueWriter valueWriter(FieldDescriptor field, JsonOutput options) {
+        switch (field.getType()) {
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return (value, generator) -> generator.write(Integer.toString((Integer) value));
+            case UINT32:
+            case FIXED32:
+                return (value, generator) -> generator.write(Integer.toUnsignedString((Integer) value));
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return (value, generator) -> writeQuoted(Long.toString((Long) value), generator);
+            case UINT64:
+            case FIXED64:
+                return (value, generator) -> writeQuoted(Long.toUnsignedString((Long) value), generator);
+            case BOOL:
+                return (value, generator) -> generator.write((Boolean) value ? "true" : "false");
+            case FLOAT:
+                return (value, generator) -> generator.write(formatFloat((Float) value));
+            case DOUBLE:
+                return (value, generator) -> generator.write(formatDouble((Double) value));
+            case STRING:
+                return (value, generator) -> generator.string((String) value);
+            case BYTES:
+                return (value, generator) ->
+                        writeQuoted(Base64.getEncoder().encodeToString(((ByteString) value).toByteArray()), generator);
+            case ENUM:
+                EnumFormat format = new EnumFormat(field.getEnumType(), options);
+                return (value, generator) -> generator.write(format.format((Integer) value));
+            default:
+                return (value, generator) -> generator.message((MessageOrBuilder) value);
+        }
+    }
+
+    /**
+     * Map keys are always quoted.
+     */
+    private static void writeKey(Object key, ValueWriter writer, JsonGenerator generator) throws IOException {
+        if (key instanceof String || key instanceof Long) {
+            // Already quoted.
+            writer.write(key, generator);
+        } else {
+            generator.write('"');
+            writer.write(key, generator);
+            generator.write('"');
+        }
+    }
+
+    private static void writeQuoted(String value, JsonGenerator generator) throws IOException {
+        generator.write('"');
+        generator.write(value);
+        generator.write('"');
+    }
+
+    private static String formatFloat(float value) {
+        if (Float.isNaN(value)) {
+            return "\"NaN\"";
+        }
+        if (Float.isInfinite(value)) {
+            return value < 0 ? "\"-Infinity\"" : "\"Infinity\"";
+        }
+        return Float.toString(value);
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "\"NaN\"";
+        }
+        if (Double.isInfinite(value)) {
+            return value < 0 ? "\"-Infinity\"" : "\"Infinity\"";
+        }
+        return Double.toString(value);
+    }
+
+    private static ToIntFunction<Object> intGetter(Class<?> type, String name) throws ReflectiveOperationException {
+        return bind(type, name, int.class, ToIntFunction.class, "applyAsInt", int.class);
+    }
+
+    private static ToLongFunction<Object> longGetter(Class<?> type, String name) throws ReflectiveOperationException {
+        return bind(type, name, long.class, ToLongFunction.class, "applyAsLong", long.class);
+    }
+
+    private static ToDoubleFunction<Object> floatGetter(Class<?> type, String name)
+            throws ReflectiveOperationException {
+        // Widened to double, which narrows back to the same float.
+        return bind(type, name, float.class, ToDoubleFunction.class, "applyAsDouble", double.class);
+    }
+
+    private static ToDoubleFunction<Object> doubleGetter(Class<?> type, String name)
+            throws ReflectiveOperationException {
+        return bind(type, name, double.class, ToDoubleFunction.class, "applyAsDouble", double.class);
+    }
+
+    private static Predicate<Object> booleanGetter(Class<?> type, String name) throws ReflectiveOperationException {
+        return bind(type, name, boolean.class, Predicate.class, "test", boolean.class);
+    }
+
+    private static Function<Object, Object> getter(Class<?> type, String name, Class<?> returnType)
+            throws ReflectiveOperationException {
+        return bind(type, name, returnType, Function.class, "apply", Object.class);
+    }
+
+    /**
+     * Binds a getter of the class to a functional interface taking the message as its only argument.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T bind(Class<?> type,
+            String name,
+            Class<?> returnType,
+            Class<? super T> function,
+            String functionMethod,
+            Class<?> functionReturnType) throws ReflectiveOperationException {
+        Method method = type.getMethod(name);
+        boolean returns = returnType.isPrimitive()
+                ? method.getReturnType() == returnType
+                : returnType.isAssignableFrom(method.getReturnType());
+        if (!returns) {
+            throw new NoSuchMethodException(type.getName() + "." + name + "() doesn't return " + returnType.getName());
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    functionMethod,
+                    MethodType.methodType(function),
+                    MethodType.methodType(functionReturnType, Object.class),
+                    LOOKUP.unreflect(method),
+                    MethodType.methodType(functionReturnType, type));
+            return (T) site.getTarget().invoke();
+        } catch (ReflectiveOperationException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new ReflectiveOperationException("Unable to bind " + type.getName() + "." + name + "()", t);
+        }
+    }
+
+    /**
+     * Writes a message of a given class.
+     */
+    @FunctionalInterface
+    interface MessageWriter {
+        void write(MessageOrBuilder message, JsonGenerator generator) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(Object value, JsonGenerator generator) throws IOException;
+    }
+
+    private enum Presence {
+        // Printed regardless of its value, e.x. with default values included.
+        ALWAYS,
+        // Printed unless it has the default value (of its type), or is empty.
+        NOT_DEFAULT,
+        // Printed if set: singular messages and members of oneofs.
+        HAS
+    }
+
+    private static final class FieldsWriter implements MessageWriter {
+        private final FieldWriter[] fields;
+
+        FieldsWriter(FieldWriter[] fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public void write(MessageOrBuilder message, JsonGenerator generator) throws IOException {
+            generator.write('{');
+            generator.newLine();
+            generator.indent();
+
+            boolean printed = false;
+            for (FieldWriter field : fields) {
+                printed |= field.write(message, generator, printed);
+            }
+            if (printed) {
+                generator.newLine();
+            }
+
+            generator.outdent();
+            generator.write('}');
+        }
+    }
+
+    private abstract static class FieldWriter {
+        private final String name;
+        private final Presence presence;
+        private final Predicate<Object> has;
+
+        FieldWriter(String name, Presence presence, Predicate<Object> has) {
+            this.name = name;
+            this.presence = presence;
+            this.has = has;
+        }
+
+        /**
+         * Writes the field if it's printed, after a separator from the previous field if there is one.
+         *
+         * @return whether the field was printed
+         */
+        final boolean write(Object message, JsonGenerator generator, boolean separate) throws IOException {
+            if ((presence == Presence.HAS && !has.test(message))
+                    || (presence == Presence.NOT_DEFAULT && isDefault(message))) {
+                return false;
+            }
+
+            if (separate) {
+                generator.write(',');
+                generator.newLine();
+            }
+            generator.write(name);
+            generator.space();
+            writeValue(message, generator);
+
+            return true;
+        }
+
+        /**
+         * Calls every getter once, so linkage errors surface when the writer is built.
+         */
+        void probe(Object message) {
+            if (has != null) {
+                has.test(message);
+            }
+            isDefault(message);
+        }
+
+        abstract boolean isDefault(Object message);
+
+        abstract void writeValue(Object message, JsonGenerator generator) throws IOException;
+    }
+
+    private static final class IntWriter extends FieldWriter {
+        private final ToIntFunction<Object> getter;
+        private final boolean unsigned;
+
+        IntWriter(String name, Presence presence, Predicate<Object> has, ToIntFunction<Object> getter,
+                boolean unsigned) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.unsigned = unsigned;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return getter.applyAsInt(message) == 0;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            int value = getter.applyAsInt(message);
+            generator.write(unsigned ? Integer.toUnsignedString(value) : Integer.toString(value));
+        }
+    }
+
+    private static final class LongWriter extends FieldWriter {
+        private final ToLongFunction<Object> getter;
+        private final boolean unsigned;
+
+        LongWriter(String name, Presence presence, Predicate<Object> has, ToLongFunction<Object> getter,
+                boolean unsigned) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.unsigned = unsigned;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return getter.applyAsLong(message) == 0L;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            long value = getter.applyAsLong(message);
+            writeQuoted(unsigned ? Long.toUnsignedString(value) : Long.toString(value), generator);
+        }
+    }
+
+    private static final class BooleanWriter extends FieldWriter {
+        private final Predicate<Object> getter;
+
+        BooleanWriter(String name, Presence presence, Predicate<Object> has, Predicate<Object> getter) {
+            super(name, presence, has);
+            this.getter = getter;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return !getter.test(message);
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            generator.write(getter.test(message) ? "true" : "false");
+        }
+    }
+
+    private static final class FloatWriter extends FieldWriter {
+        private final ToDoubleFunction<Object> getter;
+
+        FloatWriter(String name, Presence presence, Predicate<Object> has, ToDoubleFunction<Object> getter) {
+            super(name, presence, has);
+            this.getter = getter;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            // -0.0 isn't the default, like in the generated classes.
+            return Float.floatToIntBits((float) getter.applyAsDouble(message)) == 0;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            generator.write(formatFloat((float) getter.applyAsDouble(message)));
+        }
+    }
+
+    private static final class DoubleWriter extends FieldWriter {
+        private final ToDoubleFunction<Object> getter;
+
+        DoubleWriter(String name, Presence presence, Predicate<Object> has, ToDoubleFunction<Object> getter) {
+            super(name, presence, has);
+            this.getter = getter;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return Double.doubleToLongBits(getter.applyAsDouble(message)) == 0L;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            generator.write(formatDouble(getter.applyAsDouble(message)));
+        }
+    }
+
+    private static final class EnumWriter extends FieldWriter {
+        private final ToIntFunction<Object> getter;
+        private final EnumFormat format;
+
+        EnumWriter(String name, Presence presence, Predicate<Object> has, ToIntFunction<Object> getter,
+                EnumFormat format) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.format = format;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return getter.applyAsInt(message) == 0;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            generator.write(format.format(getter.applyAsInt(message)));
+        }
+    }
+
+    /**
+     * Strings, bytes and messages.
+     */
+    private static final class ObjectWriter extends FieldWriter {
+        private final Function<Object, Object> getter;
+        private final Predicate<Object> isDefault;
+        private final ValueWriter writer;
+
+        ObjectWriter(String name, Presence presence, Predicate<Object> has, Function<Object, Object> getter,
+                Predicate<Object> isDefault, ValueWriter writer) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.isDefault = isDefault;
+            this.writer = writer;
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return isDefault.test(getter.apply(message));
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            writer.write(getter.apply(message), generator);
+        }
+    }
+
+    private static final class RepeatedWriter extends FieldWriter {
+        private final Function<Object, Object> getter;
+        private final ToIntFunction<Object> count;
+        private final ValueWriter element;
+
+        RepeatedWriter(String name, Presence presence, Predicate<Object> has, Function<Object, Object> getter,
+                ToIntFunction<Object> count, ValueWriter element) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.count = count;
+            this.element = element;
+        }
+
+        @Override
+        void probe(Object message) {
+            super.probe(message);
+            getter.apply(message);
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return count.applyAsInt(message) == 0;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            List<?> values = (List<?>) getter.apply(message);
+
+            generator.write('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    generator.write(',');
+                    generator.space();
+                }
+                element.write(values.get(i), generator);
+            }
+            generator.write(']');
+        }
+    }
+
+    private static final class MapWriter extends FieldWriter {
+        private final Function<Object, Object> getter;
+        private final ToIntFunction<Object> count;
+        private final ValueWriter key;
+        private final ValueWriter value;
+
+        MapWriter(String name, Presence presence, Predicate<Object> has, Function<Object, Object> getter,
+                ToIntFunction<Object> count, ValueWriter key, ValueWriter value) {
+            super(name, presence, has);
+            this.getter = getter;
+            this.count = count;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        void probe(Object message) {
+            super.probe(message);
+            getter.apply(message);
+        }
+
+        @Override
+        boolean isDefault(Object message) {
+            return count.applyAsInt(message) == 0;
+        }
+
+        @Override
+        void writeValue(Object message, JsonGenerator generator) throws IOException {
+            Map<?, ?> entries = (Map<?, ?>) getter.apply(message);
+
+            generator.write('{');
+            generator.newLine();
+            generator.indent();
+
+            boolean printed = false;
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                if (printed) {
+                    generator.write(',');
+                    generator.newLine();
+                }
+                printed = true;
+
+                writeKey(entry.getKey(), key, generator);
+                generator.write(':');
+                generator.space();
+                value.write(entry.getValue(), generator);
+            }
+            if (printed) {
+                generator.newLine();
+            }
+
+            generator.outdent();
+            generator.write('}');
+        }
+    }
+
+    /**
+     * Enum values by number: their quoted name, or the number if printing enums as ints or the value is unknown.
+     * {@code google.protobuf.NullValue} is always null.
+     */
+    private static final class EnumFormat {
+        private final ImmutableMap<Integer, String> names;
+        private final boolean asInts;
+        private final boolean nullValue;
+
+        EnumFormat(Descriptors.EnumDescriptor type, JsonOutput options) {
+            ImmutableMap.Builder<Integer, String> names = ImmutableMap.builder();
+            for (Descriptors.EnumValueDescriptor value : type.getValues()) {
+                // Aliases print as the first value with the number.
+                if (type.findValueByNumber(value.getNumber()) == value) {
+                    names.put(value.getNumber(), "\"" + value.getName() + "\"");
+                }
+            }
+
+            this.names = names.build();
+            this.asInts = options.getEnumsAsInts();
+            this.nullValue = type.getFullName().equals(NullValue.getDescriptor().getFullName());
+        }
+
+        String format(int number) {
+            if (nullValue) {
+                return "null";
+            }
+
+            String name = asInts ? null : names.get(number);
+            return name != null ? name : Integer.toString(number);
+        }
+    }
+}
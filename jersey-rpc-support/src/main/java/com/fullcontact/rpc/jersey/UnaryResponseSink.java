@@ -0,0 +1,39 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.collect.Multimap;
+import java.util.Optional;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+/**
+ * Destination of the response to a unary call, usually the request's {@link AsyncResponse}. Lets features such as
+ * {@link SingleFlight} and {@link ResponseCaching} sit between the {@link JerseyUnaryObserver} and the container.
+ */
+public interface UnaryResponseSink {
+    void resume(Response response);
+
+    void cancel();
+
+    /**
+     * Offered the response headers set by the service before the response message is printed. Returns the response
+     * to resume with instead if the body isn't needed, e.x. 304 Not Modified. Only the sink the observer resumes is
+     * offered them, sinks sharing or storing the response (e.x. single-flight, cache) don't forward it.
+     */
+    default Optional<Response> preempt(Multimap<String, String> responseHeaders) {
+        return Optional.empty();
+    }
+
+    static UnaryResponseSink of(AsyncResponse asyncResponse) {
+        return new UnaryResponseSink() {
+            @Override
+            public void resume(Response response) {
+                asyncResponse.resume(response);
+            }
+
+            @Override
+            public void cancel() {
+                asyncResponse.cancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,393 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.FieldMaskUtil;
+import com.google.protobuf.util.JsonFormat;
+import com.google.protobuf.util.Timestamps;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Support for the {@code warmUp()} methods generated with the {@code warmup} option. Synthesizes representative
+ * messages from descriptors, so that binding and serialization of every route can be exercised before a server takes
+ * traffic: descriptors get initialized, {@link JsonFormat} builds its per-type caches and the JIT compiles the hot
+ * paths.
+ *
+ * Samples set every field, recursive types down to a few levels. {@code google.protobuf.Any}, {@code Struct} and
+ * {@code Value} fields are left unset, they need a type registry or have no representative value.
+ *
+ * Unary handlers are called on a resource of their own, with the {@link #config(GrpcJerseyConfig)} of the resource
+ * warmed up and a stub answering with sampled responses (see {@link #channel()}), through a {@link WarmUpCall}.
+ */
+public final class WarmUp {
+    /**
+     * Iterations of each route, on the order of the requests it takes for the JIT to compile them.
+     */
+    public static final int DEFAULT_ITERATIONS = 2_000;
+
+    private static final int MAX_DEPTH = 4;
+    private static final String SAMPLE = "sample";
+    private static final ImmutableSet<String> SKIPPED_TYPES = ImmutableSet.of(
+            "google.protobuf.Any",
+            "google.protobuf.Struct",
+            "google.protobuf.Value",
+            "google.protobuf.ListValue");
+
+    private WarmUp() {}
+
+    /**
+     * Synthesizes a message of the type with all of its fields set.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Message> T sample(T defaultInstance) {
+        Message.Builder builder = defaultInstance.newBuilderForType();
+        Set<String> onPath = new HashSet<>();
+        onPath.add(defaultInstance.getDescriptorForType().getFullName());
+        fill(builder, 0, onPath);
+
+        return (T) builder.build();
+    }
+
+    private static void fill(Message.Builder builder, int depth, Set<String> onPath) {
+        for (FieldDescriptor field : builder.getDescriptorForType().getFields()) {
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                Descriptors.Descriptor type = field.getMessageType();
+                if (SKIPPED_TYPES.contains(type.getFullName())) {
+                    continue;
+                }
+                if (!field.isMapField() && (depth >= MAX_DEPTH || !onPath.add(type.getFullName()))) {
+                    // Recursive types are sampled once per path.
+                    continue;
+                }
+
+                int values = field.isRepeated() && !field.isMapField() ? 2 : 1;
+                for (int i = 0; i < values; i++) {
+                    Message.Builder fieldBuilder = builder.newBuilderForField(field);
+                    fill(fieldBuilder, depth + 1, onPath);
+                    setOrAdd(builder, field, fieldBuilder.build());
+                }
+                onPath.remove(type.getFullName());
+            } else if (field.isRepeated()) {
+                builder.addRepeatedField(field, scalar(field));
+                builder.addRepeatedField(field, scalar(field));
+            } else {
+                builder.setField(field, scalar(field));
+            }
+        }
+
+        // Well-known types with constraints on their values.
+        String typeName = builder.getDescriptorForType().getFullName();
+        if (typeName.equals(FieldMask.getDescriptor().getFullName())) {
+            builder.clear().mergeFrom(FieldMask.newBuilder().addPaths(SAMPLE).build());
+        } else if (typeName.equals(Timestamp.getDescriptor().getFullName())
+                || typeName.equals(Duration.getDescriptor().getFullName())) {
+            builder.setField(builder.getDescriptorForType().findFieldByName("nanos"), 1_000_000);
+        }
+    }
+
+    private static void setOrAdd(Message.Builder builder, FieldDescriptor field, Object value) {
+        if (field.isRepeated()) {
+            builder.addRepeatedField(field, value);
+        } else {
+            builder.setField(field, value);
+        }
+    }
+
+    private static Object scalar(FieldDescriptor field) {
+        switch (field.getJavaType()) {
+            case INT:
+                return 1;
+            case LONG:
+                return 1L;
+            case FLOAT:
+                return 1.5f;
+            case DOUBLE:
+                return 1.5d;
+            case BOOLEAN:
+                return true;
+            case STRING:
+                return SAMPLE;
+            case BYTE_STRING:
+                return ByteString.copyFromUtf8(SAMPLE);
+            case ENUM:
+                // The first value other than the default, so it's printed.
+                List<Descriptors.EnumValueDescriptor> values = field.getEnumType().getValues();
+                return values.size() > 1 ? values.get(1) : values.get(0);
+            default:
+                throw new IllegalArgumentException("Not a scalar: " + field.getFullName());
+        }
+    }
+
+    /**
+     * Query parameters binding the scalar and well-known type fields of a sample, e.x. {@code nt.f1=sample}.
+     */
+    public static Map<String, List<String>> queryParameters(Message sample) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        collectQueryParameters(sample, "", parameters);
+
+        return parameters;
+    }
+
+    private static void collectQueryParameters(Message message, String prefix, Map<String, List<String>> parameters) {
+        for (Map.Entry<FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+            FieldDescriptor field = entry.getKey();
+            if (field.isMapField()) {
+                continue;
+            }
+
+            String name = prefix + field.getName();
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && !isParameterType(field.getMessageType())) {
+                if (!field.isRepeated()) {
+                    collectQueryParameters((Message) entry.getValue(), name + ".", parameters);
+                }
+                continue;
+            }
+
+            ImmutableList.Builder<String> values = ImmutableList.builder();
+            if (field.isRepeated()) {
+                for (Object value : (List<?>) entry.getValue()) {
+                    values.add(format(field, value));
+                }
+            } else {
+                values.add(format(field, entry.getValue()));
+            }
+            parameters.put(name, values.build());
+        }
+    }
+
+    /**
+     * Path parameter for a field of a sample, e.x. {@code sample} for {@code nt.f1}.
+     */
+    public static String pathParameter(Message sample, String path) {
+        ImmutableList<FieldDescriptor> fields =
+                ProtobufDescriptorJavaUtil.fieldPath(sample.getDescriptorForType(), path);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Path " + path + " doesn't exist from root: "
+                    + sample.getDescriptorForType().getName());
+        }
+
+        Object value = sample;
+        for (FieldDescriptor field : fields) {
+            value = ((Message) value).getField(field);
+            if (field.isRepeated()) {
+                List<?> values = (List<?>) value;
+                value = values.isEmpty() ? "" : values.get(0);
+            }
+        }
+
+        return format(fields.get(fields.size() - 1), value);
+    }
+
+    private static boolean isParameterType(Descriptors.Descriptor type) {
+        String typeName = type.getFullName();
+        return typeName.equals(Timestamp.getDescriptor().getFullName())
+                || typeName.equals(Duration.getDescriptor().getFullName())
+                || typeName.equals(FieldMask.getDescriptor().getFullName())
+                || (typeName.startsWith("google.protobuf.") && typeName.endsWith("Value")
+                && !SKIPPED_TYPES.contains(typeName));
+    }
+
+    /**
+     * Formats a value the way {@link ParamDecoders} reads it back.
+     */
+    private static String format(FieldDescriptor field, Object value) {
+        switch (field.getType()) {
+            case UINT32:
+            case FIXED32:
+                return Integer.toUnsignedString((Integer) value);
+            case UINT64:
+            case FIXED64:
+                return Long.toUnsignedString((Long) value);
+            case BYTES:
+                return Base64.getEncoder().encodeToString(((ByteString) value).toByteArray());
+            case ENUM:
+                return ((Descriptors.EnumValueDescriptor) value).getName();
+            case MESSAGE:
+                return formatMessage((Message) value);
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private static String formatMessage(Message message) {
+        if (message instanceof Timestamp) {
+            return Timestamps.toString((Timestamp) message);
+        }
+        if (message instanceof Duration) {
+            return Durations.toString((Duration) message);
+        }
+        if (message instanceof FieldMask) {
+            return FieldMaskUtil.toJsonString((FieldMask) message);
+        }
+
+        // Wrappers
+        FieldDescriptor valueField = message.getDescriptorForType().findFieldByName("value");
+        return format(valueField, message.getField(valueField));
+    }
+
+    /**
+     * Configuration of the resource the handlers are warmed up on. Its concurrency limits, response cache and
+     * executor are its own, so warm-up calls don't count towards the limits, never serve or replace cached responses,
+     * and are answered before the handler returns.
+     */
+    public static GrpcJerseyConfig config(GrpcJerseyConfig config) {
+        return config.toBuilder()
+                .limits(new ConcurrencyLimits())
+                .responseCache(DiscardingCache.INSTANCE)
+                .rpcExecutor(MoreExecutors.directExecutor())
+                .build();
+    }
+
+    /**
+     * Channel answering every call with a sample of its response type, for the client stubs of resources warmed up.
+     * Only protobuf methods are supported.
+     */
+    public static Channel channel() {
+        return new SampleChannel();
+    }
+
+    /**
+     * Prints a message and round-trips it through the binary format, as the response path and gRPC's marshallers do.
+     */
+    public static void serialize(Message message, JsonFormat.Printer printer) throws InvalidProtocolBufferException {
+        TypedJsonPrinter.print(printer, message);
+        message.getParserForType().parseFrom(message.toByteString());
+    }
+
+    /**
+     * Runs the warm-up of each route and collects the routes which failed.
+     */
+    public static final class Runner {
+        private final int iterations;
+        private final Map<String, Exception> failures = new LinkedHashMap<>();
+
+        public Runner(int iterations) {
+            this.iterations = iterations;
+        }
+
+        /**
+         * Runs a route's warm-up, stopping at the first failure.
+         *
+         * @param route description of the route, e.x. "GET /users/{id}"
+         */
+        public void run(String route, Task task) {
+            try {
+                for (int i = 0; i < iterations; i++) {
+                    task.run();
+                }
+            } catch (Exception e) {
+                failures.put(route, e);
+            }
+        }
+
+        /**
+         * Routes which failed to warm up, by route. Empty if all of them did.
+         */
+        public Map<String, Exception> failures() {
+            return ImmutableMap.copyOf(failures);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Lets responses be stored, so the caching path is warmed up, but never returns them.
+     */
+    private static final class DiscardingCache implements ResponseCache {
+        private static final DiscardingCache INSTANCE = new DiscardingCache();
+
+        @Override
+        public Optional<CachedResponse> get(RequestKey key) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(RequestKey key, CachedResponse response) {
+        }
+
+        @Override
+        public ResponseCacheStats stats() {
+            return new ResponseCacheStats(0, 0, 0, 0);
+        }
+    }
+
+    private static final class SampleChannel extends Channel {
+        // Samples by method, sampling every call would dwarf the handler.
+        private final Map<String, Message> samples = new ConcurrentHashMap<>();
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method,
+                CallOptions callOptions) {
+            return new ClientCall<ReqT, RespT>() {
+                private Listener<RespT> listener;
+
+                @Override
+                public void start(Listener<RespT> listener, Metadata headers) {
+                    this.listener = listener;
+                }
+
+                @Override
+                public void request(int numMessages) {
+                }
+
+                @Override
+                public void cancel(String message, Throwable cause) {
+                }
+
+                @Override
+                public void sendMessage(ReqT message) {
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void halfClose() {
+                    listener.onHeaders(new Metadata());
+                    listener.onMessage((RespT) samples.computeIfAbsent(method.getFullMethodName(),
+                            name -> sample(prototype(method))));
+                    listener.onClose(Status.OK, new Metadata());
+                }
+            };
+        }
+
+        @Override
+        public String authority() {
+            return "warm-up";
+        }
+
+        private static Message prototype(MethodDescriptor<?, ?> method) {
+            if (!(method.getResponseMarshaller() instanceof MethodDescriptor.PrototypeMarshaller)) {
+                throw new IllegalArgumentException("Not a protobuf method: " + method.getFullMethodName());
+            }
+            return (Message) ((MethodDescriptor.PrototypeMarshaller<?>) method.getResponseMarshaller())
+                    .getMessagePrototype();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.common.base.Joiner;
+import com.google.protobuf.Descriptors;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Stands in for the Jersey request and response of a handler called by the generated {@code warmUp()} methods, see
+ * {@link WarmUp}. The request accepts gzip and asks for every top-level field of the response through
+ * {@code fields}, so compression and {@link ResponseMask} are warmed up along with the handler. The response is
+ * discarded, {@link #check()} fails the warm-up of the route if it was an error.
+ */
+public final class WarmUpCall implements AsyncResponse {
+    private final MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+    private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+    // Response or Throwable the call was resumed with, null until then.
+    private volatile Object response;
+    private volatile boolean cancelled;
+
+    public WarmUpCall(Map<String, List<String>> query, Descriptors.Descriptor responseType) {
+        query.forEach(this.query::put);
+        if (!query.containsKey(ResponseMask.QUERY_PARAMETER) && !responseType.getFields().isEmpty()) {
+            this.query.putSingle(ResponseMask.QUERY_PARAMETER, responseType.getFields().stream()
+                    .map(Descriptors.FieldDescriptor::getName)
+                    .collect(Collectors.joining(",")));
+        }
+        headers.putSingle(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+
+    public UriInfo uriInfo() {
+        return new QueryUriInfo();
+    }
+
+    public HttpHeaders headers() {
+        return new RequestHeaders();
+    }
+
+    /**
+     * Fails if the handler answered with an error. Calls answered asynchronously may not have been answered yet.
+     */
+    public void check() {
+        if (cancelled) {
+            throw new IllegalStateException("Call was cancelled");
+        }
+
+        Object response = this.response;
+        if (response instanceof Throwable) {
+            throw new IllegalStateException("Call failed", (Throwable) response);
+        }
+        if (response instanceof Response && ((Response) response).getStatus() >= 400) {
+            throw new IllegalStateException("Call was answered with " + ((Response) response).getStatus());
+        }
+    }
+
+    @Override
+    public boolean resume(Object response) {
+        this.response = response;
+        return true;
+    }
+
+    @Override
+    public boolean resume(Throwable response) {
+        this.response = response;
+        return true;
+    }
+
+    @Override
+    public boolean cancel() {
+        cancelled = true;
+        return true;
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return response == null && !cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return !isSuspended();
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+        throw unsupported();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+        throw unsupported();
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+        throw unsupported();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("WarmUpCall hasn't implemented this method");
+    }
+
+    private class RequestHeaders implements HttpHeaders {
+        @Override
+        public List<String> getRequestHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public String getHeaderString(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? null : Joiner.on(',').join(values);
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getRequestHeaders() {
+            return headers;
+        }
+
+        @Override
+        public List<MediaType> getAcceptableMediaTypes() {
+            throw unsupported();
+        }
+
+        @Override
+        public List<Locale> getAcceptableLanguages() {
+            throw unsupported();
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            throw unsupported();
+        }
+
+        @Override
+        public Locale getLanguage() {
+            throw unsupported();
+        }
+
+        @Override
+        public Map<String, Cookie> getCookies() {
+            throw unsupported();
+        }
+
+        @Override
+        public Date getDate() {
+            throw unsupported();
+        }
+
+        @Override
+        public int getLength() {
+            throw unsupported();
+        }
+    }
+
+    private class QueryUriInfo implements UriInfo {
+        @Override
+        public MultivaluedMap<String, String> getQueryParameters() {
+            return query;
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getQueryParameters(boolean decode) {
+            return query;
+        }
+
+        @Override
+        public String getPath() {
+            throw unsupported();
+        }
+
+        @Override
+        public String getPath(boolean decode) {
+            throw unsupported();
+        }
+
+        @Override
+        public List<PathSegment> getPathSegments() {
+            throw unsupported();
+        }
+
+        @Override
+        public List<PathSegment> getPathSegments(boolean decode) {
+            throw unsupported();
+        }
+
+        @Override
+        public URI getRequestUri() {
+            throw unsupported();
+        }
+
+        @Override
+        public UriBuilder getRequestUriBuilder() {
+            throw unsupported();
+        }
+
+        @Override
+        public URI getAbsolutePath() {
+            throw unsupported();
+        }
+
+        @Override
+        public UriBuilder getAbsolutePathBuilder() {
+            throw unsupported();
+        }
+
+        @Override
+        public URI getBaseUri() {
+            throw unsupported();
+        }
+
+        @Override
+        public UriBuilder getBaseUriBuilder() {
+            throw unsupported();
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getPathParameters() {
+            throw unsupported();
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getPathParameters(boolean decode) {
+            throw unsupported();
+        }
+
+        @Override
+        public List<String> getMatchedURIs() {
+            throw unsupported();
+        }
+
+        @Override
+        public List<String> getMatchedURIs(boolean decode) {
+            throw unsupported();
+        }
+
+        @Override
+        public List<Object> getMatchedResources() {
+            throw unsupported();
+        }
+
+        @Override
+        public URI resolve(URI uri) {
+            throw unsupported();
+        }
+
+        @Override
+        public URI relativize(URI uri) {
+            throw unsupported();
+        }
+    }
+}
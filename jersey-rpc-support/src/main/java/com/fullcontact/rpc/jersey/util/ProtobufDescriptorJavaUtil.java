@@ -20,6 +20,14 @@ public class ProtobufDescriptorJavaUtil {
         return fd.getOptions().getJavaPackage();
     }
 
+    /**
+     * Outer class generated by grpc-java for the service, e.x. com.foo.FooServiceGrpc.
+     */
+    public static String grpcClass(DescriptorProtos.FileDescriptorProto fd,
+            DescriptorProtos.ServiceDescriptorProto sdp) {
+        return javaPackage(fd) + "." + sdp.getName() + "Grpc";
+    }
+
     public static String grpcImplBaseClass(DescriptorProtos.FileDescriptorProto fd,
             DescriptorProtos.ServiceDescriptorProto sdp) {
         String serviceName = sdp.getName();
@@ -40,34 +48,73 @@ public class ProtobufDescriptorJavaUtil {
         return serviceName + "GrpcJerseyResource";
     }
 
+    public static String routesClassName(DescriptorProtos.ServiceDescriptorProto sdp) {
+        String serviceName = sdp.getName();
+
+        return serviceName + "GrpcRoutes";
+    }
+
+    public static String bindersClassName(DescriptorProtos.ServiceDescriptorProto sdp) {
+        String serviceName = sdp.getName();
+
+        return serviceName + "GrpcJerseyBinders";
+    }
+
     /**
      * Generate a class name from a descriptor. Handles options such as java_multiple_files, java_package, and
-     * java_outer_classname
+     * java_outer_classname, as well as nested types.
      */
     public static String genClassName(Descriptors.Descriptor descriptor) {
-        String pkg = descriptor.getFile().getOptions().getJavaPackage();
-        String outerClassName = descriptor.getFile().getOptions().getJavaOuterClassname();
-        boolean multipleFiles = descriptor.getFile().getOptions().getJavaMultipleFiles();
+        return className(descriptor.getFile(), descriptor.getContainingType(), descriptor.getName(), '.');
+    }
+
+    public static String genClassName(Descriptors.EnumDescriptor descriptor) {
+        return className(descriptor.getFile(), descriptor.getContainingType(), descriptor.getName(), '.');
+    }
+
+    /**
+     * Binary name of the class generated for a descriptor, e.x. com.foo.Outer$Nested, as used by reflection metadata.
+     */
+    public static String binaryClassName(Descriptors.Descriptor descriptor) {
+        return className(descriptor.getFile(), descriptor.getContainingType(), descriptor.getName(), '$');
+    }
+
+    public static String binaryClassName(Descriptors.EnumDescriptor descriptor) {
+        return className(descriptor.getFile(), descriptor.getContainingType(), descriptor.getName(), '$');
+    }
+
+    private static String className(Descriptors.FileDescriptor file,
+            Descriptors.Descriptor containingType,
+            String name,
+            char nestedSeparator) {
+        if (containingType != null) {
+            return className(file, containingType.getContainingType(), containingType.getName(), nestedSeparator)
+                    + nestedSeparator + name;
+        }
+
+        String pkg = file.getOptions().getJavaPackage();
+        String outerClassName = file.getOptions().getJavaOuterClassname();
+        boolean multipleFiles = file.getOptions().getJavaMultipleFiles();
 
         StringBuilder sb = new StringBuilder(pkg);
         sb.append(".");
 
         if (multipleFiles) {
-            sb.append(descriptor.getName());
+            sb.append(name);
         } else {
             String baseClassName;
             if (!outerClassName.isEmpty()) {
                 baseClassName = outerClassName;
             } else {
-                String baseName = descriptor.getFile().getName();
+                String baseName = file.getName();
                 baseName = baseName.substring(baseName.lastIndexOf('/') + 1);
                 baseName = baseName.replace(".proto", "").replace(".protodevel", "");
                 baseClassName = CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, baseName);
             }
 
             sb.append(baseClassName)
-                    .append(".")
-                    .append(descriptor.getName());
+                    .append(nestedSeparator)
+                    .append(name);
         }
 
         return sb.toString();
@@ -103,4 +150,40 @@ public class ProtobufDescriptorJavaUtil {
 
         return pathList.build();
     }
+
+    /**
+     * Name of a field in its generated Java accessors, e.x. "FooBar2X" for field "foo_bar2x" (getFooBar2X). Follows
+     * protoc's own conversion.
+     */
+    public static String javaAccessorName(Descriptors.FieldDescriptor field) {
+        return upperCamelCase(field.getName());
+    }
+
+    /**
+     * Name of a oneof in its generated Java accessors, e.x. "Choice" for oneof "choice" (getChoiceCase).
+     */
+    public static String javaAccessorName(Descriptors.OneofDescriptor oneof) {
+        return upperCamelCase(oneof.getName());
+    }
+
+    private static String upperCamelCase(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean capitalizeNext = true;
+        for (char c : name.toCharArray()) {
+            if (c >= 'a' && c <= 'z') {
+                sb.append(capitalizeNext ? Character.toUpperCase(c) : c);
+                capitalizeNext = false;
+            } else if (c >= 'A' && c <= 'Z') {
+                sb.append(c);
+                capitalizeNext = false;
+            } else if (c >= '0' && c <= '9') {
+                sb.append(c);
+                capitalizeNext = true;
+            } else {
+                capitalizeNext = true;
+            }
+        }
+
+        return sb.toString();
+    }
 }
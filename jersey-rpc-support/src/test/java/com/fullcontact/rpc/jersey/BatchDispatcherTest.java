@@ -0,0 +1,170 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.grpc.Status;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link BatchDispatcher}
+ */
+@RunWith(JUnit4.class)
+public class BatchDispatcherTest {
+    private static final ConcurrencyLimits LIMITS = new ConcurrencyLimits();
+    private static final ImmutableList<GrpcRoute<?, ?>> ROUTES = ImmutableList.of(
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("TestMethod")
+                    .httpMethod("GET")
+                    .pathTemplate(PathTemplate.compile("/users/{s}"))
+                    .binder(request -> {
+                        TestRequest.Builder r = TestRequest.newBuilder();
+                        RequestParser.parseQueryParams(request.getQueryParameters(), r);
+                        RequestParser.setFieldSafely(r, "s", request.pathParameter("s"));
+                        return r.build();
+                    })
+                    .invoker((r, request, interceptor, observer) -> {
+                        if (r.getS().equals("missing")) {
+                            observer.onError(Status.NOT_FOUND.asRuntimeException());
+                            return;
+                        }
+
+                        observer.onNext(TestResponse.newBuilder().setRequest(r).build());
+                        observer.onCompleted();
+                    })
+                    .build(),
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("StreamMethod1")
+                    .httpMethod("GET")
+                    .pathTemplate(PathTemplate.compile("/stream/{s}"))
+                    .serverStreaming(true)
+                    .binder(request -> TestRequest.getDefaultInstance())
+                    .invoker((r, request, interceptor, observer) -> observer.onCompleted())
+                    .build(),
+            GrpcRoute.<TestRequest, TestResponse>builder()
+                    .methodName("TestMethod2")
+                    .fullMethodName("TestService/TestMethod2")
+                    .httpMethod("GET")
+                    .pathTemplate(PathTemplate.compile("/limited/{s}"))
+                    .config(GrpcJerseyConfig.builder().limits(LIMITS).build())
+                    .binder(request -> TestRequest.getDefaultInstance())
+                    // Never answers, holding its permit.
+                    .invoker((r, request, interceptor, observer) -> {})
+                    .build());
+
+    // Runs tasks once the batch has been dispatched, in reverse.
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final BatchDispatcher dispatcher = new BatchDispatcher(new RouteTable(ROUTES), tasks::add, 3);
+    private final List<String> results = new ArrayList<>();
+    private boolean completed;
+
+    @Test
+    public void resultsAreOrdered() {
+        dispatch("[{\"path\": \"/users/a?uint3=1\"}, {\"path\": \"/users/b\", \"query\": {\"rep\": [\"1\", \"2\"]}},"
+                + "{\"path\": \"/users/missing\"}]", true);
+
+        assertThat(results).hasSize(3);
+        assertThat(results).extracting(r -> json(r).get("index").getAsInt()).containsExactly(0, 1, 2);
+        assertThat(json(results.get(0)).getAsJsonObject("body").getAsJsonObject("request").get("uint3").getAsInt())
+                .isEqualTo(1);
+        assertThat(json(results.get(1)).getAsJsonObject("body").getAsJsonObject("request").get("rep").toString())
+                .isEqualTo("[1,2]");
+        assertThat(json(results.get(2)).get("status").getAsInt()).isEqualTo(404);
+        assertThat(completed).isTrue();
+    }
+
+    @Test
+    public void resultsAreUnordered() {
+        dispatch("[{\"path\": \"/users/a\"}, {\"path\": \"/users/b\"}]", false);
+
+        assertThat(results).extracting(r -> json(r).get("index").getAsInt()).containsExactly(1, 0);
+        assertThat(completed).isTrue();
+    }
+
+    @Test
+    public void unroutableRequests() {
+        dispatch("[{\"method\": \"POST\", \"path\": \"/users/a\"}, {\"path\": \"/nowhere\"}, "
+                + "{\"path\": \"/stream/a\"}]", true);
+
+        assertThat(results).extracting(r -> json(r).get("status").getAsInt()).containsExactly(405, 404, 400);
+    }
+
+    @Test
+    public void emptyBatch() {
+        dispatch("[]", true);
+
+        assertThat(results).isEmpty();
+        assertThat(completed).isTrue();
+    }
+
+    @Test
+    public void subRequestsTakePermits() {
+        LIMITS.setMethodLimiter("TestService/TestMethod2", ConcurrencyLimiter.builder().initialLimit(1).build());
+        try {
+            dispatch("[{\"path\": \"/limited/a\"}, {\"path\": \"/limited/b\"}]", false);
+        } finally {
+            LIMITS.setMethodLimiter("TestService/TestMethod2", null);
+        }
+
+        // The second sub-request, dispatched first, holds the only permit.
+        assertThat(results).hasSize(1);
+        assertThat(json(results.get(0)).get("index").getAsInt()).isEqualTo(0);
+        assertThat(json(results.get(0)).get("status").getAsInt()).isEqualTo(503);
+        assertThat(completed).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyRequests() {
+        dispatcher.parse(new StringReader("[{\"path\": \"/\"}, {\"path\": \"/\"}, {\"path\": \"/\"}, {\"path\": \"/\"}]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnArray() {
+        dispatcher.parse(new StringReader("{\"path\": \"/\"}"));
+    }
+
+    @Test
+    public void nonStringValues() {
+        for (String value : new String[] {"{}", "null", "[[\"a\"]]", "[{}]"}) {
+            try {
+                dispatcher.parse(new StringReader("[{\"path\": \"/\", \"headers\": {\"X-A\": " + value + "}}]"));
+                throw new AssertionError("Expected " + value + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e).hasMessageContaining("X-A");
+            }
+        }
+    }
+
+    private void dispatch(String batch, boolean ordered) {
+        dispatcher.dispatch(dispatcher.parse(new StringReader(batch)), ImmutableMultimap.of(), ordered,
+                new BatchDispatcher.Listener() {
+                    @Override
+                    public void onResult(int index, String result) {
+                        results.add(result);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed = true;
+                    }
+                });
+
+        for (Runnable task : ImmutableList.copyOf(tasks).reverse()) {
+            task.run();
+        }
+    }
+
+    private static JsonObject json(String result) {
+        return new JsonParser().parse(result).getAsJsonObject();
+    }
+}
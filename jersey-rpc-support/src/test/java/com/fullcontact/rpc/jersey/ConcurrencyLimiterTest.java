@@ -0,0 +1,164 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ConcurrencyLimiter} and {@link ConcurrencyLimits}
+ */
+@RunWith(JUnit4.class)
+public class ConcurrencyLimiterTest {
+    private static final String METHOD = "TestService/TestMethod";
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrencyLimits limits = new ConcurrencyLimits();
+
+    @Test
+    public void rejectsPastLimit() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(2).minLimit(1).build();
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    public void growsWhileUsedAndBacksOff() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(10).maxLimit(12).build();
+
+        // Unused limit doesn't grow.
+        limiter.onSample(10 * MILLI, false);
+        assertThat(limiter.limit()).isEqualTo(10);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.onSample(10 * MILLI, false);
+        limiter.onSample(10 * MILLI, false);
+        limiter.onSample(10 * MILLI, false);
+        assertThat(limiter.limit()).isEqualTo(12);
+
+        limiter.onSample(10 * MILLI, true);
+        assertThat(limiter.limit()).isEqualTo(10);
+
+        // Much slower than typical.
+        limiter.onSample(100 * MILLI, false);
+        assertThat(limiter.limit()).isEqualTo(9);
+    }
+
+    @Test
+    public void permitsSampleAndRelease() {
+        ConcurrencyLimiter method = ConcurrencyLimiter.builder().initialLimit(1).build();
+        limits.setMethodLimiter(METHOD, method);
+
+        ConcurrencyLimits.Permit permit = limits.acquire(METHOD);
+        assertThat(permit).isNotNull();
+        assertThat(limits.acquire(METHOD)).isNull();
+        assertThat(limits.acquire("TestService/Other")).isSameAs(ConcurrencyLimits.Permit.NONE);
+        // Limits of other configurations are independent.
+        assertThat(ConcurrencyLimits.global().acquire(METHOD)).isSameAs(ConcurrencyLimits.Permit.NONE);
+
+        List<Object> events = new ArrayList<>();
+        StreamObserver<String> observer = permit.releasing(new StreamObserver<String>() {
+            @Override
+            public void onNext(String value) {
+                events.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                events.add("completed");
+            }
+        });
+        observer.onNext("value");
+        observer.onError(Status.UNAVAILABLE.asRuntimeException());
+
+        assertThat(events).hasSize(2);
+        assertThat(method.inFlight()).isEqualTo(0);
+        // Released once only.
+        permit.release();
+        assertThat(method.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void permitsReleaseWhenTheServiceThrows() {
+        ConcurrencyLimiter method = ConcurrencyLimiter.builder().initialLimit(1).build();
+        limits.setMethodLimiter(METHOD, method);
+
+        RecordingSink sink = new RecordingSink();
+        StreamObserver<TestRequest> observer = limits.acquire(METHOD)
+                .releasing(new JerseyUnaryObserver<>(sink, HttpHeaderInterceptors.clientInterceptor(
+                        ImmutableMultimap.of())));
+        RpcExecutor.execute(MoreExecutors.directExecutor(), observer, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(sink.responses()).extracting(Response::getStatus).containsExactly(500);
+        assertThat(method.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void streamsOnlyTakeFromTheirMethodLimiterWithoutSampling() {
+        ConcurrencyLimiter global = ConcurrencyLimiter.builder().initialLimit(1).build();
+        ConcurrencyLimiter method = ConcurrencyLimiter.builder().initialLimit(2).maxLimit(10).build();
+        limits.setGlobalLimiter(global);
+
+        assertThat(limits.acquireStream(METHOD)).isSameAs(ConcurrencyLimits.Permit.NONE);
+
+        limits.setMethodLimiter(METHOD, method);
+        ConcurrencyLimits.Permit first = limits.acquireStream(METHOD);
+        ConcurrencyLimits.Permit second = limits.acquireStream(METHOD);
+        assertThat(limits.acquireStream(METHOD)).isNull();
+        assertThat(global.inFlight()).isEqualTo(0);
+
+        StreamObserver<String> observer = first.releasing(new StreamObserver<String>() {
+            @Override
+            public void onNext(String value) {}
+
+            @Override
+            public void onError(Throwable t) {}
+
+            @Override
+            public void onCompleted() {}
+        });
+        observer.onNext("value");
+        observer.onCompleted();
+        second.release();
+
+        assertThat(method.inFlight()).isEqualTo(0);
+        assertThat(method.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectionCarriesRetryAfter() {
+        limits.setGlobalLimiter(ConcurrencyLimiter.builder().retryAfter(Duration.ofSeconds(5)).build());
+
+        Response response = ErrorHandler
+                .handleUnaryError(limits.rejection(METHOD), ImmutableMultimap.of())
+                .get();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeaderString("Retry-After")).isEqualTo("5");
+    }
+}
@@ -0,0 +1,91 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link EntityTags}
+ */
+@RunWith(JUnit4.class)
+public class EntityTagsTest {
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void fingerprintsSerializedBodies() {
+        String etag = EntityTags.fingerprint("{\"s\":\"a\"}").get();
+
+        assertThat(etag).matches("\"[0-9a-f]{16}\"");
+        assertThat(EntityTags.fingerprint("{\"s\":\"a\"}".getBytes())).contains(etag);
+        assertThat(EntityTags.fingerprint("{\"s\":\"b\"}").get()).isNotEqualTo(etag);
+        assertThat(EntityTags.fingerprint(null)).isEmpty();
+    }
+
+    @Test
+    public void matchesIfNoneMatch() {
+        assertThat(EntityTags.matches(null, "\"a\"")).isFalse();
+        assertThat(EntityTags.matches(ImmutableList.of("\"b\", \"a\""), "\"a\"")).isTrue();
+        assertThat(EntityTags.matches(ImmutableList.of("W/\"a\""), "\"a\"")).isTrue();
+        assertThat(EntityTags.matches(ImmutableList.of("*"), "\"a\"")).isTrue();
+        assertThat(EntityTags.matches(ImmutableList.of("\"b\""), "\"a\"")).isFalse();
+    }
+
+    @Test
+    public void answersMatchingRequestsWithNotModified() {
+        String body = "{\"s\":\"a\"}";
+        String etag = EntityTags.fingerprint(body).get();
+
+        EntityTags.conditional(new HttpHeadersMap(), sink).resume(Response.ok(body).build());
+        EntityTags.conditional(new HttpHeadersMap().put(HttpHeaders.IF_NONE_MATCH, etag), sink)
+                .resume(Response.ok(body).build());
+
+        assertThat(sink.responses()).extracting(Response::getStatus).containsExactly(200, 304);
+        assertThat(sink.responses()).extracting(r -> r.getHeaderString(HttpHeaders.ETAG)).containsExactly(etag, etag);
+        assertThat(sink.get(0).getEntity()).isEqualTo(body);
+        assertThat(sink.get(1).hasEntity()).isFalse();
+    }
+
+    @Test
+    public void serviceSetTagPreemptsPrinting() {
+        UnaryResponseSink conditional = EntityTags.conditional(
+                new HttpHeadersMap().put(HttpHeaders.IF_NONE_MATCH, "\"v1\""), sink);
+
+        assertThat(conditional.preempt(ImmutableMultimap.of("etag", "\"v2\""))).isEmpty();
+        Response preempted = conditional
+                .preempt(ImmutableMultimap.of("etag", "\"v1\"", "Cache-Control", "max-age=60"))
+                .get();
+        assertThat(preempted.getStatus()).isEqualTo(304);
+        assertThat(preempted.getHeaderString(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=60");
+        // Sinks sharing the response don't forward the headers, its message is printed.
+        assertThat(new SingleFlight().join(RequestKey.ofHeaders("TestService/TestMethod", new HttpHeadersMap()),
+                conditional).preempt(ImmutableMultimap.of("etag", "\"v1\""))).isEmpty();
+    }
+
+    @Test
+    public void serviceSetTagIsCheckedPerRequest() {
+        // Like the leader and a follower of a single-flight, resumed with the same response.
+        UnaryResponseSink stale = EntityTags.conditional(
+                new HttpHeadersMap().put(HttpHeaders.IF_NONE_MATCH, "\"v1\""), sink);
+        UnaryResponseSink current = EntityTags.conditional(
+                new HttpHeadersMap().put(HttpHeaders.IF_NONE_MATCH, "\"v2\""), sink);
+        Response response = Response.ok("{}")
+                .header("etag", "\"v2\"")
+                .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+                .build();
+
+        stale.resume(response);
+        current.resume(Response.fromResponse(response).build());
+
+        assertThat(sink.responses()).extracting(Response::getStatus).containsExactly(200, 304);
+        assertThat(sink.responses()).extracting(r -> r.getHeaderString(HttpHeaders.ETAG))
+                .containsExactly("\"v2\"", "\"v2\"");
+        assertThat(sink.get(1).getHeaderString(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=60");
+        assertThat(sink.get(1).hasEntity()).isFalse();
+    }
+}
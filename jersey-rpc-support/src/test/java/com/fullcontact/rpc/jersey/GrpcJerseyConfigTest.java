@@ -0,0 +1,109 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.NestedType;
+import com.fullcontact.rpc.TestRequest;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.protobuf.Any;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.Status;
+import io.grpc.protobuf.StatusProto;
+import java.util.Optional;
+import javax.ws.rs.core.Response;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link GrpcJerseyConfig}
+ */
+@RunWith(JUnit4.class)
+public class GrpcJerseyConfigTest {
+    private static final TestRequest REQUEST = TestRequest.newBuilder().setS("s").build();
+
+    private final RecordingSink resumed = new RecordingSink();
+
+    @After
+    public void tearDown() {
+        JsonHandler.setUnaryPrinter(GrpcJerseyConfig.defaults().getUnaryPrinter());
+        ResponseCompression.setEnabled(false);
+    }
+
+    @Test
+    public void configurationsCoexist() {
+        GrpcJerseyConfig compact = GrpcJerseyConfig.builder()
+                .unaryPrinter(JsonFormat.printer().omittingInsignificantWhitespace())
+                .errorHandler(new GrpcJerseyErrorHandler.Default() {
+                    @Override
+                    public Optional<Response> handleUnaryError(Throwable t,
+                            ImmutableMultimap<String, String> responseHeaders) {
+                        return Optional.of(Response.status(418).build());
+                    }
+                })
+                .build();
+
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, compact).onNext(REQUEST);
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, GrpcJerseyConfig.defaults()).onNext(REQUEST);
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, compact)
+                .onError(Status.NOT_FOUND.asRuntimeException());
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, GrpcJerseyConfig.defaults())
+                .onError(Status.NOT_FOUND.asRuntimeException());
+
+        assertThat(resumed.get(0).getEntity()).isEqualTo("{\"s\":\"s\"}");
+        assertThat((String) resumed.get(1).getEntity()).contains("\"int3\": 0");
+        assertThat(resumed.responses()).extracting(Response::getStatus).containsExactly(200, 200, 418, 404);
+    }
+
+    @Test
+    public void globalSnapshotsJsonHandler() {
+        JsonFormat.Printer printer = JsonFormat.printer();
+        JsonHandler.setUnaryPrinter(printer);
+
+        assertThat(GrpcJerseyConfig.global().getUnaryPrinter()).isSameAs(printer);
+        assertThat(GrpcJerseyConfig.defaults().getUnaryPrinter()).isNotSameAs(printer);
+    }
+
+    @Test
+    public void globalSnapshotsServingOverrides() {
+        ResponseCompression.setEnabled(true);
+        GrpcJerseyConfig global = GrpcJerseyConfig.global();
+        ResponseCompression.setEnabled(false);
+
+        assertThat(global.isCompressResponses()).isTrue();
+        assertThat(GrpcJerseyConfig.global().isCompressResponses()).isFalse();
+        assertThat(global.getLimits()).isSameAs(ConcurrencyLimits.global());
+        assertThat(global.getResponseCache()).isSameAs(ResponseCaching.responseCache());
+        assertThat(global.getRpcExecutor()).isSameAs(RpcExecutor.executor());
+
+        GrpcJerseyConfig defaults = GrpcJerseyConfig.defaults();
+        assertThat(defaults.isCompressResponses()).isFalse();
+        assertThat(defaults.getLimits()).isNotSameAs(ConcurrencyLimits.global());
+        assertThat(defaults.getResponseCache()).isNotSameAs(ResponseCaching.responseCache());
+        // Shared rather than a thread pool per configuration.
+        assertThat(GrpcJerseyConfig.builder().build().getRpcExecutor()).isSameAs(defaults.getRpcExecutor());
+    }
+
+    @Test
+    public void typeRegistryAppliesToErrorDetails() {
+        com.google.rpc.Status payload = com.google.rpc.Status.newBuilder()
+                .setCode(Status.Code.NOT_FOUND.value())
+                .addDetails(Any.pack(NestedType.newBuilder().setF1("x").build()))
+                .build();
+        GrpcJerseyConfig config = GrpcJerseyConfig.defaults()
+                .withTypeRegistry(TypeRegistries.forFile(TestRequest.getDescriptor().getFile()));
+
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, config)
+                .onError(StatusProto.toStatusRuntimeException(payload));
+        new JerseyUnaryObserver<TestRequest>(resumed, interceptor(), null, GrpcJerseyConfig.defaults())
+                .onError(StatusProto.toStatusRuntimeException(payload));
+
+        assertThat((String) resumed.get(0).getEntity()).contains("type.googleapis.com/NestedType");
+        assertThat((String) resumed.get(1).getEntity()).doesNotContain("NestedType");
+    }
+
+    private static HttpHeaderInterceptors.HttpHeaderClientInterceptor interceptor() {
+        return HttpHeaderInterceptors.clientInterceptor(ImmutableMultimap.of());
+    }
+}
@@ -0,0 +1,63 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.TestEnum;
+import com.fullcontact.rpc.TestRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link JsonOutputProfile}
+ */
+@RunWith(JUnit4.class)
+public class JsonOutputProfileTest {
+    private static final TestRequest REQUEST = TestRequest.newBuilder()
+            .setS("s")
+            .setEnu(TestEnum.SECOND)
+            .addRepStr("a")
+            .build();
+
+    @Test
+    public void defaultsMatchJsonHandler() throws Exception {
+        JsonOutputProfile profile = JsonOutputProfile.of(JsonOutput.getDefaultInstance());
+
+        assertThat(profile.unaryPrinter().print(REQUEST)).isEqualTo(JsonHandler.unaryPrinter().print(REQUEST));
+        assertThat(profile.streamPrinter().print(REQUEST)).isEqualTo(JsonHandler.streamPrinter().print(REQUEST));
+    }
+
+    @Test
+    public void compactProfile() throws Exception {
+        JsonOutputProfile profile = JsonOutputProfile.of(JsonOutput.newBuilder()
+                .setOmitDefaultValues(true)
+                .setEnumsAsInts(true)
+                .setPreserveProtoFieldNames(true)
+                .setCompact(true)
+                .build());
+
+        String expected = "{\"s\":\"s\",\"enu\":1,\"rep_str\":[\"a\"]}";
+        assertThat(profile.unaryPrinter().print(REQUEST)).isEqualTo(expected);
+        assertThat(profile.streamPrinter().print(REQUEST)).isEqualTo(expected);
+    }
+
+    @Test
+    public void streamedMessagesAreAlwaysCompact() throws Exception {
+        JsonOutputProfile profile = JsonOutputProfile.of(JsonOutput.newBuilder().setOmitDefaultValues(true).build());
+
+        assertThat(profile.unaryPrinter().print(REQUEST)).contains("\n");
+        assertThat(profile.streamPrinter().print(REQUEST)).isEqualTo("{\"s\":\"s\",\"enu\":\"SECOND\",\"repStr\":[\"a\"]}");
+    }
+
+    @Test
+    public void maskedFieldsArePrintedWithDefaults() throws Exception {
+        JsonOutputProfile profile = JsonOutputProfile.of(JsonOutput.newBuilder()
+                .setOmitDefaultValues(true)
+                .setCompact(true)
+                .build());
+        ResponseMask mask = ResponseMask.compile(TestRequest.getDescriptor(), "s,int3");
+
+        assertThat(mask.print(REQUEST, profile.partialPrinter())).isEqualTo("{\"s\":\"s\",\"int3\":0}");
+    }
+}
@@ -0,0 +1,44 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.TestResponse;
+import com.google.protobuf.util.JsonFormat;
+
+/**
+ * Throughput of {@link TypedJsonPrinter} against JsonFormat printing a {@link TestResponse} with every field set, for
+ * the default unary and stream printers. Not part of the test suite, run its {@link #main} from the test classpath
+ * (e.x. from an IDE). {@link TypedJsonPrinterTest} checks that both print the same.
+ */
+public final class JsonPrinterBenchmark {
+    private static final TestResponse RESPONSE = WarmUp.sample(TestResponse.getDefaultInstance());
+    private static final int WARM_UP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    private JsonPrinterBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        compare("unary", TypedJsonPrinter.printer(JsonOutput.getDefaultInstance()));
+        compare("stream", TypedJsonPrinter.printer(JsonOutput.newBuilder().setCompact(true).build()));
+    }
+
+    private static void compare(String name, JsonFormat.Printer printer) throws Exception {
+        double jsonFormat = throughput(() -> printer.print(RESPONSE));
+        double typed = throughput(() -> TypedJsonPrinter.print(printer, RESPONSE));
+
+        System.out.printf("%s printer: JsonFormat %.0f msg/s, typed %.0f msg/s (%.1fx)%n",
+                name, jsonFormat, typed, typed / jsonFormat);
+    }
+
+    private static double throughput(WarmUp.Task print) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            print.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            print.run();
+        }
+
+        return ITERATIONS * 1e9 / (System.nanoTime() - start);
+    }
+}
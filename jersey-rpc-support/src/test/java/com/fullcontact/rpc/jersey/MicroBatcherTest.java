@@ -0,0 +1,143 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link MicroBatcher}
+ */
+@RunWith(JUnit4.class)
+public class MicroBatcherTest {
+    private final Executor defaultExecutor = RpcExecutor.executor();
+    private final List<List<String>> batches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        RpcExecutor.setExecutor(Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        RpcExecutor.setExecutor(defaultExecutor);
+    }
+
+    @Test
+    public void sendsFullBatches() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(60_000_000, 2, this::echo);
+        RecordingObserver first = new RecordingObserver();
+        RecordingObserver second = new RecordingObserver();
+
+        batcher.add("key", "stub", "a", first);
+        assertThat(batches).isEmpty();
+        assertThat(batcher.openBatches()).isEqualTo(1);
+
+        batcher.add("key", "stub", "b", second);
+        assertThat(batches).containsExactly(ImmutableList.of("a", "b"));
+        assertThat(batcher.openBatches()).isEqualTo(0);
+        assertThat(first.values).containsExactly("stub:a");
+        assertThat(second.values).containsExactly("stub:b");
+        assertThat(first.completed && second.completed).isTrue();
+    }
+
+    @Test
+    public void sendsBatchesOnceTheirWindowElapses() throws Exception {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(1_000, 100, this::echo);
+        CountDownLatch completed = new CountDownLatch(2);
+        RecordingObserver first = new RecordingObserver(completed);
+        RecordingObserver second = new RecordingObserver(completed);
+
+        batcher.add("key", "stub", "a", first);
+        batcher.add("other", "stub", "b", second);
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first.values).containsExactly("stub:a");
+        assertThat(second.values).containsExactly("stub:b");
+    }
+
+    @Test
+    public void failsRequestsOfMismatchedBatches() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(60_000_000, 2,
+                (stub, requests, observer) -> {
+                    observer.onNext(ImmutableList.of("only one"));
+                    observer.onCompleted();
+                });
+        RecordingObserver first = new RecordingObserver();
+        RecordingObserver second = new RecordingObserver();
+
+        batcher.add("key", "stub", "a", first);
+        batcher.add("key", "stub", "b", second);
+
+        assertThat(first.values).isEmpty();
+        assertThat(Status.fromThrowable(first.error).getCode()).isEqualTo(Status.Code.INTERNAL);
+        assertThat(Status.fromThrowable(second.error).getCode()).isEqualTo(Status.Code.INTERNAL);
+    }
+
+    @Test
+    public void failsRequestsOfFailedBatches() {
+        MicroBatcher<String, String, String> batcher = new MicroBatcher<>(60_000_000, 1,
+                (stub, requests, observer) -> observer.onError(Status.UNAVAILABLE.asRuntimeException()));
+        RecordingObserver observer = new RecordingObserver();
+
+        batcher.add("key", "stub", "a", observer);
+
+        assertThat(Status.fromThrowable(observer.error).getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+    }
+
+    private void echo(String stub, List<String> requests, StreamObserver<List<String>> observer) {
+        synchronized (batches) {
+            batches.add(ImmutableList.copyOf(requests));
+        }
+
+        ImmutableList.Builder<String> responses = ImmutableList.builder();
+        for (String request : requests) {
+            responses.add(stub + ":" + request);
+        }
+        observer.onNext(responses.build());
+        observer.onCompleted();
+    }
+
+    private static class RecordingObserver implements StreamObserver<String> {
+        private final CountDownLatch latch;
+        private final List<String> values = new ArrayList<>();
+        private volatile Throwable error;
+        private volatile boolean completed;
+
+        RecordingObserver() {
+            this(new CountDownLatch(1));
+        }
+
+        RecordingObserver(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onNext(String value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            latch.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestEnum;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.Durations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ParamDecoders}
+ */
+@RunWith(JUnit4.class)
+public class ParamDecodersTest {
+    @Test
+    public void scalars() throws Exception {
+        assertThat(ParamDecoders.parseUInt32("TestRequest.uint3", "3000000000")).isEqualTo(-1294967296);
+        assertThat(ParamDecoders.parseUInt64("TestRequest.uint6", "10000000000000000000"))
+                .isEqualTo(-8446744073709551616L);
+        assertThat(ParamDecoders.parseBytes("TestRequest.bytearray", "c3RyaW5n").toStringUtf8()).isEqualTo("string");
+        assertThat(ParamDecoders.parseDuration("TestRequest.dur", "1.5s")).isEqualTo(Durations.fromMillis(1500));
+    }
+
+    @Test
+    public void enumsByNameOrNumber() throws Exception {
+        assertThat(ParamDecoders.parseEnum("TestRequest.enu", "SECOND", TestEnum.class)).isEqualTo(TestEnum.SECOND);
+        assertThat(ParamDecoders.parseEnum("TestRequest.enu", "second", TestEnum.class)).isEqualTo(TestEnum.SECOND);
+        assertThat(ParamDecoders.parseEnum("TestRequest.enu", "1", TestEnum.class)).isEqualTo(TestEnum.SECOND);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void unknownEnumNumber() throws Exception {
+        ParamDecoders.parseEnum("TestRequest.enu", "42", TestEnum.class);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void invalidNumber() throws Exception {
+        ParamDecoders.parseInt32("TestRequest.int3", "abc");
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void singleValue() throws Exception {
+        ParamDecoders.single("TestRequest.s", ImmutableList.of("a", "b"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link PathTemplate}
+ */
+@RunWith(JUnit4.class)
+public class PathTemplateTest {
+    @Test
+    public void matchesSimpleVariables() {
+        PathTemplate template = PathTemplate.compile("/users/{s}/{uint3}/{nt.f1}");
+
+        assertThat(template.variables()).containsExactly("s", "uint3", "nt.f1");
+        assertThat(template.match("/users/a/1/b"))
+                .isEqualTo(Optional.of(ImmutableMap.of("s", "a", "uint3", "1", "nt.f1", "b")));
+        assertThat(template.match("/users/a/1/b/")).isPresent();
+        assertThat(template.match("/users/a/1")).isEmpty();
+        assertThat(template.match("/users/a/1/b/c")).isEmpty();
+    }
+
+    @Test
+    public void matchesVariablesWithPatterns() {
+        PathTemplate template = PathTemplate.compile("/users/{s: hello/.+}/x/{uint3}/{nt.f1}/{1: [^/]+}/{2: .+}/test");
+
+        assertThat(template.match("/users/hello/world/x/1/b/y/z/z/test")).isEqualTo(Optional.of(ImmutableMap.of(
+                "s", "hello/world", "uint3", "1", "nt.f1", "b", "1", "y", "2", "z/z")));
+        assertThat(template.match("/users/goodbye/world/x/1/b/y/z/test")).isEmpty();
+    }
+
+    @Test
+    public void decodesAfterMatching() {
+        PathTemplate template = PathTemplate.compile("/users/{s}");
+
+        assertThat(template.match("/users/a%2Fb"))
+                .isEqualTo(Optional.of(ImmutableMap.of("s", "a/b")));
+        assertThat(template.match("/users/%E2%9C%93+"))
+                .isEqualTo(Optional.of(ImmutableMap.of("s", "✓+")));
+    }
+
+    @Test
+    public void trailingSlashIsOptional() {
+        PathTemplate template = PathTemplate.compile("/users/");
+
+        assertThat(template.match("/users")).isPresent();
+        assertThat(template.match("/users/")).isPresent();
+        assertThat(template.match("/users//")).isEmpty();
+    }
+
+    @Test
+    public void quotesLiterals() {
+        PathTemplate template = PathTemplate.compile("/v1.0/users");
+
+        assertThat(template.match("/v1.0/users")).isPresent();
+        assertThat(template.match("/v1x0/users")).isEmpty();
+        assertThat(template.literalCharacters()).isEqualTo(9);
+    }
+}
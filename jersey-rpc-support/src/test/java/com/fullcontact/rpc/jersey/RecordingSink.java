@@ -0,0 +1,38 @@
+package com.fullcontact.rpc.jersey;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test support class, a {@link UnaryResponseSink} recording the responses it's resumed with. The same sink can be
+ * handed to several requests, e.x. the leader and followers of a {@link SingleFlight}, to record them in order.
+ * Cancelling it fails the test.
+ */
+public class RecordingSink implements UnaryResponseSink {
+    private final List<Response> responses = new ArrayList<>();
+
+    @Override
+    public synchronized void resume(Response response) {
+        responses.add(response);
+    }
+
+    @Override
+    public void cancel() {
+        throw new AssertionError("Unexpected cancellation of the response");
+    }
+
+    /**
+     * Responses resumed with so far, in order.
+     */
+    public synchronized List<Response> responses() {
+        return new ArrayList<>(responses);
+    }
+
+    /**
+     * The n-th response resumed with.
+     */
+    public synchronized Response get(int n) {
+        return responses.get(n);
+    }
+}
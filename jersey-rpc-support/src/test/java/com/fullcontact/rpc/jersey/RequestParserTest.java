@@ -8,7 +8,11 @@ import com.fullcontact.rpc.TestEnum;
 import com.fullcontact.rpc.TestRequest;
 import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.util.Durations;
 import com.google.protobuf.util.JsonFormat;
+import com.google.protobuf.util.Timestamps;
 import io.grpc.Metadata;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,7 +31,7 @@ public class RequestParserTest {
 
         UriInfoMap uriInfoMap = new UriInfoMap()
                 .put("s", "string")
-                .put("bytearray", "string")
+                .put("bytearray", "c3RyaW5n")
                 .put("boolean", "true")
                 .put("nt.f1", "2")
                 .put("uint3", "3000000000")
@@ -61,6 +65,55 @@ public class RequestParserTest {
         assertThat(r.getRepStrList()).isEqualTo(ImmutableList.of("a", ""));
     }
 
+    @Test
+    public void parseQueryParams_fieldMask() throws Exception {
+        TestRequest.Builder request = TestRequest.newBuilder();
+
+        RequestParser.parseQueryParams(new UriInfoMap().put("read_mask", "s,nt.f1,repStr"), request);
+
+        assertThat(request.getReadMask().getPathsList()).containsExactly("s", "nt.f1", "rep_str");
+    }
+
+    @Test
+    public void parseQueryParams_wellKnownTypes() throws Exception {
+        TestRequest.Builder request = TestRequest.newBuilder();
+
+        UriInfoMap uriInfoMap = new UriInfoMap()
+                .put("ts", "2019-01-01T00:00:01.5Z")
+                .put("dur", "1.5s")
+                .put("wrapped_uint3", "3000000000");
+
+        RequestParser.parseQueryParams(uriInfoMap, request);
+
+        assertThat(request.getTs()).isEqualTo(Timestamps.parse("2019-01-01T00:00:01.500Z"));
+        assertThat(request.getDur()).isEqualTo(Durations.fromMillis(1500));
+        assertThat(request.getWrappedUint3()).isEqualTo(UInt32Value.newBuilder().setValue(-1294967296).build());
+    }
+
+    @Test
+    public void parseQueryParams_jsonMapping() throws Exception {
+        TestRequest.Builder request = TestRequest.newBuilder();
+
+        UriInfoMap uriInfoMap = new UriInfoMap()
+                .put("bytearray", "-_8")
+                .put("enu", "1")
+                .put("sint3", "-5");
+
+        RequestParser.parseQueryParams(uriInfoMap, request);
+
+        assertThat(request.getBytearray()).isEqualTo(ByteString.copyFrom(new byte[] {(byte) 0xfb, (byte) 0xff}));
+        assertThat(request.getEnu()).isEqualTo(TestEnum.SECOND);
+        assertThat(request.getSint3()).isEqualTo(-5);
+
+        RequestParser.setFieldSafely(request, "enu", "first");
+        assertThat(request.getEnu()).isEqualTo(TestEnum.FIRST);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void parseQueryParams_unknownEnumValue() throws Exception {
+        RequestParser.parseQueryParams(new UriInfoMap().put("enu", "THIRD"), TestRequest.newBuilder());
+    }
+
     @Test
     public void parseHeaders() throws Exception {
         HttpHeadersMap headersMap = new HttpHeadersMap()
@@ -149,4 +202,9 @@ public class RequestParserTest {
         assertThat(deserialized.build()).isEqualTo(expected);
     }
 
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void handleBody__missingPath() throws Exception {
+        RequestParser.handleBody("nt.missing", TestRequest.newBuilder(), "{}");
+    }
+
 }
@@ -0,0 +1,75 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.jersey.ResponseCache.CachedResponse;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ResponseCaching} and {@link LruResponseCache}
+ */
+@RunWith(JUnit4.class)
+public class ResponseCachingTest {
+    @Test
+    public void ttlFromCacheControl() {
+        assertThat(ResponseCaching.ttlMillis(null, 1000)).isEqualTo(1000);
+        assertThat(ResponseCaching.ttlMillis(ImmutableList.of("public, max-age=60"), 1000)).isEqualTo(60_000);
+        assertThat(ResponseCaching.ttlMillis(ImmutableList.of("max-age=60", "s-maxage=5"), 1000)).isEqualTo(5_000);
+        assertThat(ResponseCaching.ttlMillis(ImmutableList.of("max-age=60, private"), 1000)).isEqualTo(0);
+        assertThat(ResponseCaching.ttlMillis(ImmutableList.of("No-Store"), 1000)).isEqualTo(0);
+        assertThat(ResponseCaching.ttlMillis(ImmutableList.of("max-age=soon"), 1000)).isEqualTo(0);
+    }
+
+    @Test
+    public void storesSuccessfulResponses() {
+        LruResponseCache cache = new LruResponseCache(1024);
+        RequestKey key = key("a");
+        RecordingSink resumed = new RecordingSink();
+        UnaryResponseSink sink = ResponseCaching.storing(cache, key, 0, resumed);
+
+        sink.resume(Response.status(404).entity("{}").header(HttpHeaders.CACHE_CONTROL, "max-age=60").build());
+        sink.resume(Response.ok("{}").build());
+        assertThat(cache.get(key)).isEmpty();
+
+        sink.resume(Response.ok("{\"s\":\"a\"}").header(HttpHeaders.CACHE_CONTROL, "max-age=60").build());
+        CachedResponse cached = cache.get(key).get();
+        assertThat(cached.getBody()).isEqualTo("{\"s\":\"a\"}".getBytes());
+        assertThat(cached.getHeaders().get(HttpHeaders.CACHE_CONTROL)).containsExactly("max-age=60");
+        assertThat(resumed.get(2).getEntity()).isSameAs(cached.getBody());
+    }
+
+    @Test
+    public void expiresAndEvicts() {
+        AtomicLong now = new AtomicLong();
+        LruResponseCache cache = new LruResponseCache(1024, now::get);
+
+        cache.put(key("a"), new CachedResponse(new byte[100], ImmutableListMultimap.of(), 1000));
+        assertThat(cache.get(key("a"))).isPresent();
+        now.set(1000);
+        assertThat(cache.get(key("a"))).isEmpty();
+
+        for (int i = 0; i < 20; i++) {
+            cache.put(key("k" + i), new CachedResponse(new byte[100], ImmutableListMultimap.of(), 2000));
+        }
+
+        ResponseCache.ResponseCacheStats stats = cache.stats();
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getEvictionCount()).isGreaterThan(0);
+        assertThat(stats.getSize()).isLessThan(20);
+        // Most recent entry survives.
+        assertThat(cache.get(key("k19"))).isPresent();
+    }
+
+    private static RequestKey key(String s) {
+        return RequestKey.of("TestService/TestMethod", TestRequest.newBuilder().setS(s).build(), new HttpHeadersMap());
+    }
+}
@@ -0,0 +1,76 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.jersey.ResponseCompression.Encoding;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ResponseCompression}
+ */
+@RunWith(JUnit4.class)
+public class ResponseCompressionTest {
+    private static final String BODY = "{\"s\":\"" + Strings.repeat("a", 2048) + "\"}";
+
+    private static final GrpcJerseyConfig ENABLED = GrpcJerseyConfig.builder().compressResponses(true).build();
+
+    private final RecordingSink resumed = new RecordingSink();
+
+    @Test
+    public void negotiatesEncoding() {
+        assertThat(ResponseCompression.negotiate(null)).isEmpty();
+        assertThat(ResponseCompression.negotiate(ImmutableList.of("identity"))).isEmpty();
+        assertThat(ResponseCompression.negotiate(ImmutableList.of("deflate, gzip"))).contains(Encoding.GZIP);
+        assertThat(ResponseCompression.negotiate(ImmutableList.of("gzip;q=0.5", "deflate"))).contains(Encoding.DEFLATE);
+        assertThat(ResponseCompression.negotiate(ImmutableList.of("*"))).contains(Encoding.GZIP);
+        assertThat(ResponseCompression.negotiate(ImmutableList.of("*, gzip;q=0"))).contains(Encoding.DEFLATE);
+    }
+
+    @Test
+    public void compressesLargeResponses() throws Exception {
+        UnaryResponseSink sink = ResponseCompression.compressing(acceptingGzip(), resumed, ENABLED);
+        sink.resume(Response.ok(BODY).header(HttpHeaders.ETAG, "\"tag\"").build());
+        sink.resume(Response.ok("{}").build());
+
+        Response compressed = resumed.get(0);
+        assertThat(compressed.getHeaderString(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(compressed.getHeaderString(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(compressed.getHeaderString(HttpHeaders.ETAG)).isEqualTo("W/\"tag\"");
+        byte[] body = ByteStreams.toByteArray(
+                new GZIPInputStream(new ByteArrayInputStream((byte[]) compressed.getEntity())));
+        assertThat(new String(body, "UTF-8")).isEqualTo(BODY);
+
+        assertThat(resumed.get(1).getEntity()).isEqualTo("{}");
+        assertThat(resumed.get(1).getHeaderString(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    public void compressesSharedBodiesOnce() {
+        byte[] body = BODY.getBytes();
+        ResponseCompression.compressing(acceptingGzip(), resumed, ENABLED).resume(Response.ok(body).build());
+        ResponseCompression.compressing(acceptingGzip(), resumed, ENABLED).resume(Response.ok(body).build());
+
+        assertThat(resumed.get(0).getEntity()).isSameAs(resumed.get(1).getEntity());
+    }
+
+    @Test
+    public void disabledByDefault() {
+        GrpcJerseyConfig defaults = GrpcJerseyConfig.defaults();
+        assertThat(ResponseCompression.compressing(acceptingGzip(), resumed, defaults)).isSameAs(resumed);
+        assertThat(defaults.getCompressionMinimumSize()).isEqualTo(ResponseCompression.DEFAULT_MINIMUM_SIZE);
+        assertThat(ResponseCompression.isEnabled()).isFalse();
+    }
+
+    private static HttpHeadersMap acceptingGzip() {
+        return new HttpHeadersMap().put(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+}
@@ -0,0 +1,72 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.NestedType;
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ResponseMask}
+ */
+@RunWith(JUnit4.class)
+public class ResponseMaskTest {
+    private static final TestResponse RESPONSE = TestResponse.newBuilder()
+            .setRequest(TestRequest.newBuilder()
+                    .setS("s")
+                    .setUint3(3)
+                    .addRepStr("a")
+                    .setNt(NestedType.newBuilder().setF1("f1")))
+            .build();
+
+    @Test
+    public void trimsResponses() throws Exception {
+        ResponseMask mask = ResponseMask.compile(TestResponse.getDescriptor(), "request.s, request.repStr,request.nt");
+
+        assertThat(mask.apply(RESPONSE)).isEqualTo(TestResponse.newBuilder()
+                .setRequest(TestRequest.newBuilder()
+                        .setS("s")
+                        .addRepStr("a")
+                        .setNt(NestedType.newBuilder().setF1("f1")))
+                .build());
+        assertThat(mask.toString()).isEqualTo("request.nt,request.rep_str,request.s");
+    }
+
+    @Test
+    public void printsMaskedDefaultValues() throws Exception {
+        ResponseMask mask = ResponseMask.compile(TestResponse.getDescriptor(), "request.int3,request.nt");
+
+        String json = mask.print(TestResponse.newBuilder()
+                .setRequest(TestRequest.newBuilder().setUint3(3).setNt(NestedType.getDefaultInstance()))
+                .build())
+                .replaceAll("\\s", "");
+
+        // Messages selected as a whole are printed like unmasked responses.
+        assertThat(json).isEqualTo("{\"request\":{\"int3\":0,\"nt\":{\"f1\":\"\"}}}");
+    }
+
+    @Test
+    public void compiledMasksAreCached() throws Exception {
+        assertThat(ResponseMask.compile(TestResponse.getDescriptor(), "request.s"))
+                .isSameAs(ResponseMask.compile(TestResponse.getDescriptor(), "request.s"));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void rejectsUnknownFields() throws Exception {
+        ResponseMask.compile(TestResponse.getDescriptor(), "request.nope");
+    }
+
+    @Test
+    public void forwardsToRequestFieldMask() throws Exception {
+        ResponseMask mask = ResponseMask.compile(TestResponse.getDescriptor(), "request.s");
+        TestRequest.Builder request = TestRequest.newBuilder();
+
+        mask.forward(request);
+
+        assertThat(request.getReadMask().getPathsList()).containsExactly("request.s");
+    }
+}
@@ -0,0 +1,88 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link RpcExecutor}
+ */
+@RunWith(JUnit4.class)
+public class RpcExecutorTest {
+    private static final Context.Key<String> KEY = Context.key("key");
+
+    private final Executor defaultExecutor = RpcExecutor.executor();
+
+    @After
+    public void tearDown() {
+        RpcExecutor.setExecutor(defaultExecutor);
+    }
+
+    @Test
+    public void propagatesContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RpcExecutor.setExecutor(executor);
+
+        AtomicReference<String> value = new AtomicReference<>();
+        Context.current().withValue(KEY, "value").run(() ->
+                RpcExecutor.execute(new RecordingObserver(), () -> value.set(KEY.get())));
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(value.get()).isEqualTo("value");
+    }
+
+    @Test
+    public void rejectionFailsObserver() {
+        RpcExecutor.setExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+
+        RecordingObserver observer = new RecordingObserver();
+        RpcExecutor.execute(observer, () -> {});
+
+        assertThat(Status.fromThrowable(observer.error).getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+    }
+
+    @Test
+    public void throwingTaskFailsObserver() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        RecordingObserver observer = new RecordingObserver();
+        RpcExecutor.execute(executor, observer, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Status.fromThrowable(observer.error).getCode()).isEqualTo(Status.Code.UNKNOWN);
+        assertThat(observer.error.getCause()).hasMessage("boom");
+    }
+
+    private static class RecordingObserver implements StreamObserver<Object> {
+        private volatile Throwable error;
+
+        @Override
+        public void onNext(Object value) {}
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {}
+    }
+}
@@ -0,0 +1,43 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link ServerSentEvents}
+ */
+@RunWith(JUnit4.class)
+public class ServerSentEventsTest {
+    private static final ServerSentEvents<TestRequest> EVENTS = ServerSentEvents.<TestRequest>builder()
+            .eventId(TestRequest::getS)
+            .retryMillis(3_000)
+            .build();
+
+    @Test
+    public void none() throws Exception {
+        assertThat(ServerSentEvents.none().streamPrefix()).isEmpty();
+        assertThat(ServerSentEvents.<TestRequest>none().eventPrefix(TestRequest.getDefaultInstance())).isEmpty();
+    }
+
+    @Test
+    public void retryIsSentWhenTheStreamStarts() throws Exception {
+        assertThat(EVENTS.streamPrefix()).isEqualTo("retry: 3000\n\n");
+    }
+
+    @Test
+    public void eventId() throws Exception {
+        assertThat(EVENTS.eventPrefix(TestRequest.newBuilder().setS("42").build())).isEqualTo("id: 42\n");
+        assertThat(EVENTS.eventPrefix(TestRequest.getDefaultInstance())).isEqualTo("id: \n");
+    }
+
+    @Test
+    public void idsWhichWouldBreakTheEventAreLeftOut() throws Exception {
+        assertThat(EVENTS.eventPrefix(TestRequest.newBuilder().setS("4\n2").build())).isEmpty();
+        assertThat(EVENTS.eventPrefix(TestRequest.newBuilder().setS("4\r2").build())).isEmpty();
+        assertThat(EVENTS.eventPrefix(TestRequest.newBuilder().setS("4\u00002").build())).isEmpty();
+    }
+}
@@ -0,0 +1,102 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.google.common.collect.ImmutableMultimap;
+import io.grpc.stub.StreamObserver;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link SingleFlight}
+ */
+@RunWith(JUnit4.class)
+public class SingleFlightTest {
+    private static final TestRequest REQUEST = TestRequest.newBuilder().setS("s").build();
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void coalescesIdenticalRequests() {
+        RequestKey key = key(REQUEST, new HttpHeadersMap());
+
+        UnaryResponseSink leader = singleFlight.join(key, sink);
+        UnaryResponseSink follower = singleFlight.join(key, sink);
+
+        assertThat(leader).isNotNull();
+        assertThat(follower).isNull();
+        assertThat(singleFlight.size()).isEqualTo(1);
+
+        JerseyUnaryObserver<TestRequest> observer = new JerseyUnaryObserver<>(leader, interceptor());
+        observer.onNext(REQUEST);
+        observer.onCompleted();
+
+        assertThat(sink.responses()).hasSize(2);
+        Response first = sink.get(0);
+        Response second = sink.get(1);
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getEntity()).isSameAs(second.getEntity());
+        assertThat(singleFlight.size()).isEqualTo(0);
+
+        // Next request starts a new flight.
+        assertThat(singleFlight.join(key, sink)).isNotNull();
+    }
+
+    @Test
+    public void errorsAreShared() {
+        RequestKey key = key(REQUEST, new HttpHeadersMap());
+
+        UnaryResponseSink leader = singleFlight.join(key, sink);
+        singleFlight.join(key, sink);
+        new JerseyUnaryObserver<TestRequest>(leader, interceptor())
+                .onError(io.grpc.Status.NOT_FOUND.asRuntimeException());
+
+        assertThat(sink.responses()).extracting(Response::getStatus).containsExactly(404, 404);
+    }
+
+    @Test
+    public void leaderThrowingLandsFlight() {
+        RequestKey key = key(REQUEST, new HttpHeadersMap());
+
+        UnaryResponseSink leader = singleFlight.join(key, sink);
+        singleFlight.join(key, sink);
+        // As generated resources do when the stub throws instead of failing the observer.
+        JerseyUnaryObserver<TestRequest> observer = new JerseyUnaryObserver<>(leader, interceptor());
+        try {
+            throwingStub(REQUEST, observer);
+        } catch (RuntimeException e) {
+            observer.onError(e);
+        }
+
+        assertThat(sink.responses()).extracting(Response::getStatus).containsExactly(500, 500);
+        assertThat(singleFlight.size()).isEqualTo(0);
+        assertThat(singleFlight.join(key, sink)).isNotNull();
+    }
+
+    @Test
+    public void keyHeadersDifferentiateRequests() {
+        RequestKey alice = key(REQUEST, new HttpHeadersMap().put("Authorization", "alice").put("X-Other", "1"));
+        RequestKey bob = key(REQUEST, new HttpHeadersMap().put("Authorization", "bob").put("X-Other", "1"));
+        RequestKey alice2 = key(REQUEST, new HttpHeadersMap().put("Authorization", "alice").put("X-Other", "2"));
+
+        assertThat(alice).isNotEqualTo(bob);
+        assertThat(alice).isEqualTo(alice2);
+        assertThat(alice).isNotEqualTo(key(REQUEST.toBuilder().setS("t").build(), new HttpHeadersMap()));
+    }
+
+    private static void throwingStub(TestRequest request, StreamObserver<TestRequest> observer) {
+        throw new IllegalStateException("Service failed before answering " + request.getS());
+    }
+
+    private static RequestKey key(TestRequest request, HttpHeadersMap headers) {
+        return RequestKey.of("TestService/TestMethod", request, headers, "Authorization");
+    }
+
+    private static HttpHeaderInterceptors.HttpHeaderClientInterceptor interceptor() {
+        return HttpHeaderInterceptors.clientInterceptor(ImmutableMultimap.of());
+    }
+}
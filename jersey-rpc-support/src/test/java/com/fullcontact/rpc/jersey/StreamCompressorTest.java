@@ -0,0 +1,95 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.jersey.ResponseCompression.Encoding;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link StreamCompressor}
+ */
+@RunWith(JUnit4.class)
+public class StreamCompressorTest {
+    private static final byte[] MESSAGE = ("{\"s\":\"" + Strings.repeat("a", 256) + "\"}\n").getBytes();
+
+    private static final GrpcJerseyConfig CONFIG = GrpcJerseyConfig.builder()
+            .compressResponses(true)
+            .compressionMinimumSize(1024)
+            .streamFlushMessages(4)
+            .streamFlushBytes(1 << 20)
+            .build();
+
+    private final FlushCountingStream out = new FlushCountingStream();
+    private final AtomicBoolean compressed = new AtomicBoolean();
+    private final StreamCompressor stream =
+            new StreamCompressor(out, Encoding.GZIP, CONFIG, () -> compressed.set(true));
+
+    @Test
+    public void sendsShortStreamsAsIs() throws Exception {
+        stream.write(MESSAGE);
+        assertThat(stream.endMessage()).isTrue();
+        assertThat(out.size()).isZero();
+
+        stream.flush();
+        stream.close();
+        assertThat(compressed).isFalse();
+        assertThat(out.toByteArray()).isEqualTo(MESSAGE);
+    }
+
+    @Test
+    public void flushesEveryFewMessagesOnceCompressed() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            stream.write(MESSAGE);
+            assertThat(stream.endMessage()).isTrue();
+        }
+        assertThat(out.flushes).isZero();
+
+        // Reaches the minimum size and the number of messages between flushes.
+        stream.write(MESSAGE);
+        assertThat(stream.endMessage()).isFalse();
+        assertThat(compressed).isTrue();
+        assertThat(out.flushes).isEqualTo(1);
+        assertThat(decompressed(out.toByteArray(), 4)).isEqualTo(messages(4));
+
+        // Held back until flushed, e.x. by the flush delay.
+        stream.write(MESSAGE);
+        assertThat(stream.endMessage()).isTrue();
+        stream.flush();
+        assertThat(out.flushes).isEqualTo(2);
+        assertThat(decompressed(out.toByteArray(), 5)).isEqualTo(messages(5));
+
+        stream.close();
+        assertThat(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))))
+                .isEqualTo(messages(5));
+    }
+
+    /**
+     * Reads the given number of messages from a (possibly unfinished) gzip stream.
+     */
+    private static byte[] decompressed(byte[] body, int messages) throws Exception {
+        byte[] read = new byte[messages * MESSAGE.length];
+        ByteStreams.readFully(new GZIPInputStream(new ByteArrayInputStream(body)), read);
+        return read;
+    }
+
+    private static byte[] messages(int messages) {
+        return Strings.repeat(new String(MESSAGE), messages).getBytes();
+    }
+
+    private static class FlushCountingStream extends ByteArrayOutputStream {
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
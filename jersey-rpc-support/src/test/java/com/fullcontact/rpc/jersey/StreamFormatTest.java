@@ -0,0 +1,47 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link StreamFormat}
+ */
+@RunWith(JUnit4.class)
+public class StreamFormatTest {
+    @Test
+    public void fromAccept() throws Exception {
+        assertThat(StreamFormat.fromAccept(null)).isEqualTo(StreamFormat.NDJSON);
+        assertThat(StreamFormat.fromAccept("*/*")).isEqualTo(StreamFormat.NDJSON);
+        assertThat(StreamFormat.fromAccept("application/json")).isEqualTo(StreamFormat.NDJSON);
+        assertThat(StreamFormat.fromAccept("text/event-stream")).isEqualTo(StreamFormat.SSE);
+        assertThat(StreamFormat.fromAccept("application/json; stream=array")).isEqualTo(StreamFormat.JSON_ARRAY);
+        assertThat(StreamFormat.fromAccept("text/plain, Application/JSON;q=0.9; Stream=\"array\""))
+                .isEqualTo(StreamFormat.JSON_ARRAY);
+        assertThat(StreamFormat.fromAccept("text/plain; stream=array")).isEqualTo(StreamFormat.NDJSON);
+        // Binary streams are only served by Jersey resources.
+        assertThat(StreamFormat.fromAccept("application/x-protobuf-stream")).isEqualTo(StreamFormat.NDJSON);
+    }
+
+    @Test
+    public void jsonArray() throws Exception {
+        assertThat(frame(StreamFormat.JSON_ARRAY)).isEqualTo("[1,2]");
+        assertThat(StreamFormat.JSON_ARRAY.end(true)).isEqualTo("[]");
+    }
+
+    @Test
+    public void ndjsonAndSse() throws Exception {
+        assertThat(frame(StreamFormat.NDJSON)).isEqualTo("1\n2\n");
+        assertThat(frame(StreamFormat.SSE)).isEqualTo("data: 1\n\ndata: 2\n\n");
+        assertThat(StreamFormat.NDJSON.end(true)).isEmpty();
+        assertThat(StreamFormat.SSE.end(true)).isEmpty();
+    }
+
+    private static String frame(StreamFormat format) {
+        return format.prefix(true) + "1" + format.suffix()
+                + format.prefix(false) + "2" + format.suffix()
+                + format.end(false);
+    }
+}
@@ -0,0 +1,446 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.FanoutOptions;
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link StreamHub}
+ */
+@RunWith(JUnit4.class)
+public class StreamHubTest {
+    private static final RequestKey KEY = key("s");
+
+    @Test
+    public void sharesStreamBetweenIdenticalRequests() throws Exception {
+        StreamHub<TestResponse> hub = hub(FanoutOptions.getDefaultInstance());
+        Client first = new Client();
+        Client second = new Client();
+
+        StreamObserver<TestResponse> upstream = first.subscribe(hub, KEY);
+        assertThat(upstream).isNotNull();
+        assertThat(second.subscribe(hub, KEY)).isNull();
+        assertThat(new Client().subscribe(hub, key("t"))).isNotNull();
+        assertThat(hub.size()).isEqualTo(2);
+
+        upstream.onNext(response(1));
+        upstream.onNext(response(2));
+        upstream.onCompleted();
+
+        assertThat(first.messages()).containsExactly(1, 2);
+        assertThat(second.messages()).containsExactly(1, 2);
+        assertThat(hub.size()).isEqualTo(1);
+
+        // Next request opens a new stream.
+        assertThat(new Client().subscribe(hub, KEY)).isNotNull();
+    }
+
+    @Test
+    public void subscribersStartFromTheLiveMessage() throws Exception {
+        StreamHub<TestResponse> hub = hub(FanoutOptions.getDefaultInstance());
+        Client first = new Client();
+        StreamObserver<TestResponse> upstream = first.subscribe(hub, KEY);
+
+        upstream.onNext(response(1));
+        first.awaitBody();
+
+        Client second = new Client();
+        assertThat(second.subscribe(hub, KEY)).isNull();
+        upstream.onNext(response(2));
+        upstream.onCompleted();
+
+        assertThat(first.messages()).containsExactly(1, 2);
+        assertThat(second.messages()).containsExactly(2);
+    }
+
+    @Test
+    public void errorsAreShared() throws Exception {
+        StreamHub<TestResponse> hub = hub(FanoutOptions.getDefaultInstance());
+        Client first = new Client();
+        Client second = new Client();
+        StreamObserver<TestResponse> upstream = first.subscribe(hub, KEY);
+        second.subscribe(hub, KEY);
+
+        upstream.onNext(response(1));
+        upstream.onError(Status.NOT_FOUND.asRuntimeException());
+
+        for (Client client : new Client[] {first, second}) {
+            List<String> lines = client.lines();
+            assertThat(lines).hasSize(2);
+            assertThat(lines.get(1)).startsWith("{\"code\":5,");
+        }
+    }
+
+    @Test
+    public void slowConsumerDisconnect() throws Exception {
+        List<String> lines = slowConsumer(FanoutOptions.SlowConsumer.DISCONNECT);
+
+        assertThat(lines).hasSize(2);
+        assertThat(parse(lines.get(0))).isEqualTo(0);
+        assertThat(lines.get(1)).startsWith("{\"code\":8,");
+    }
+
+    @Test
+    public void slowConsumerDrop() throws Exception {
+        List<String> lines = slowConsumer(FanoutOptions.SlowConsumer.DROP);
+
+        // The oldest of the 4 buffered messages is the one being overwritten next, 3 remain readable.
+        assertThat(lines).extracting(StreamHubTest::parse).containsExactly(0, 7, 8, 9);
+    }
+
+    @Test
+    public void slowConsumerCoalesceLatest() throws Exception {
+        List<String> lines = slowConsumer(FanoutOptions.SlowConsumer.COALESCE_LATEST);
+
+        assertThat(lines).extracting(StreamHubTest::parse).containsExactly(0, 9);
+    }
+
+    /**
+     * Blocks a subscriber on the first message while the stream writes 10 messages through a buffer of 4.
+     */
+    private static List<String> slowConsumer(FanoutOptions.SlowConsumer policy) throws Exception {
+        StreamHub<TestResponse> hub = hub(FanoutOptions.newBuilder()
+                .setBufferSize(4)
+                .setSlowConsumer(policy)
+                .build());
+        CountDownLatch gate = new CountDownLatch(1);
+        Client fast = new Client();
+        Client slow = new Client(gate);
+        StreamObserver<TestResponse> upstream = slow.subscribe(hub, KEY);
+        fast.subscribe(hub, KEY);
+
+        upstream.onNext(response(0));
+        slow.awaitWriting();
+        for (int i = 1; i < 10; i++) {
+            upstream.onNext(response(i));
+        }
+        upstream.onCompleted();
+
+        assertThat(fast.messages()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        gate.countDown();
+        return slow.lines();
+    }
+
+    @Test
+    public void cancelsStreamOnceAllSubscribersLeft() throws Exception {
+        StreamHub<TestResponse> hub = hub(FanoutOptions.getDefaultInstance());
+        Client first = new Client();
+        Client second = new Client();
+        StreamObserver<TestResponse> upstream = first.subscribe(hub, KEY);
+        second.subscribe(hub, KEY);
+
+        first.observer.handleError(new EOFException());
+        assertThat(hub.size()).isEqualTo(1);
+        second.observer.handleError(new EOFException());
+        assertThat(hub.size()).isEqualTo(0);
+
+        try {
+            upstream.onNext(response(1));
+            throw new AssertionError("Expected the abandoned stream to be cancelled");
+        } catch (StatusRuntimeException e) {
+            assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.CANCELLED);
+        }
+    }
+
+    @Test
+    public void endOfStreamQueuedBehindExpiryIsDropped() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            Client client = new Client(gate, executor, GrpcJerseyConfig.defaults().toBuilder()
+                    .streamMaxDuration(Duration.ofMillis(100))
+                    .build());
+
+            // Expires while the first message is being written, the expiry is queued behind it.
+            client.observer.onNext(response(0));
+            client.awaitWriting();
+            while (!client.observer.isClosed()) {
+                Thread.sleep(10);
+            }
+            // The timer marks the stream expired right before queuing the expiry.
+            Thread.sleep(50);
+            // Like a fan-out subscriber ending its stream, the end of the call is queued behind the expiry.
+            client.observer.dispatch(client.observer::handleCompleted);
+            client.observer.dispatch(() -> client.observer.handleError(Status.INTERNAL.asRuntimeException()));
+            gate.countDown();
+
+            List<String> lines = client.lines();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(lines).hasSize(2);
+            assertThat(parse(lines.get(0))).isEqualTo(0);
+            assertThat(lines.get(1)).startsWith("{\"code\":4,");
+            assertThat(client.completions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestsMessagesFromTheCallAsTheyAreWritten() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            Client client = new Client(gate, executor, GrpcJerseyConfig.defaults());
+            RecordingCall call = new RecordingCall();
+            client.observer.beforeStart(call);
+
+            client.observer.onNext(response(0));
+            client.observer.onNext(response(1));
+            client.awaitWriting();
+            assertThat(call.autoFlowControl).isFalse();
+            assertThat(call.requested.get()).isEqualTo(0);
+
+            gate.countDown();
+            client.observer.onCompleted();
+            assertThat(client.messages()).containsExactly(0, 1);
+            assertThat(call.requested.get()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void servicesCalledDirectlyBlockWhileWritesArePending() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            Client client = new Client(gate, executor, GrpcJerseyConfig.defaults());
+
+            Future<?> sent = service.submit(() -> {
+                for (int i = 0; i <= JerseyStreamingObserver.MAX_PENDING_WRITES; i++) {
+                    client.observer.onNext(response(i));
+                }
+            });
+            client.awaitWriting();
+            Thread.sleep(100);
+            assertThat(sent.isDone()).isFalse();
+
+            gate.countDown();
+            sent.get(5, TimeUnit.SECONDS);
+            client.observer.onCompleted();
+            assertThat(client.messages()).hasSize(JerseyStreamingObserver.MAX_PENDING_WRITES + 1);
+        } finally {
+            executor.shutdownNow();
+            service.shutdownNow();
+        }
+    }
+
+    private static StreamHub<TestResponse> hub(FanoutOptions options) {
+        return new StreamHub<>(options);
+    }
+
+    private static RequestKey key(String s) {
+        return RequestKey.of("TestService/StreamMethod1", TestRequest.newBuilder().setS(s).build(),
+                new HttpHeadersMap(), "Authorization");
+    }
+
+    private static TestResponse response(int i) {
+        return TestResponse.newBuilder().setRequest(TestRequest.newBuilder().setInt3(i)).build();
+    }
+
+    private static int parse(String line) {
+        try {
+            TestResponse.Builder response = TestResponse.newBuilder();
+            JsonFormat.parser().merge(line, response);
+            return response.getRequest().getInt3();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * NDJSON response written by a {@link JerseyStreamingObserver} to an in-memory servlet response.
+     */
+    private static class Client {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final AtomicInteger completions = new AtomicInteger();
+        private final JerseyStreamingObserver<TestResponse> observer;
+
+        Client() throws IOException {
+            this(new CountDownLatch(0));
+        }
+
+        /**
+         * @param gate holds back writes until it's opened
+         */
+        Client(CountDownLatch gate) throws IOException {
+            this(gate, null, GrpcJerseyConfig.defaults());
+        }
+
+        /**
+         * @param gate holds back writes until it's opened
+         * @param writeExecutor write executor of the observer, if any
+         * @param config stream timeouts of the observer
+         */
+        Client(CountDownLatch gate, Executor writeExecutor, GrpcJerseyConfig config) throws IOException {
+            ServletOutputStream outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {}
+
+                @Override
+                public void write(int b) throws IOException {
+                    writing.countDown();
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    synchronized (body) {
+                        body.write(b);
+                    }
+                }
+            };
+            HttpServletResponse response = fake(HttpServletResponse.class, (proxy, method, args) ->
+                    method.getName().equals("getOutputStream") ? outputStream : null);
+            AsyncContext asyncContext = fake(AsyncContext.class, (proxy, method, args) -> {
+                if (method.getName().equals("complete")) {
+                    completions.incrementAndGet();
+                    completed.countDown();
+                }
+                return method.getName().equals("getResponse") ? response : null;
+            });
+            HttpServletRequest request = fake(HttpServletRequest.class, (proxy, method, args) -> {
+                if (method.getName().equals("getHeaders")) {
+                    return Collections.emptyEnumeration();
+                }
+                return method.getName().equals("getAsyncContext") ? asyncContext : null;
+            });
+
+            this.observer = new JerseyStreamingObserver<>(
+                    HttpHeaderInterceptors.clientInterceptor(ImmutableMultimap.of()),
+                    request,
+                    response,
+                    StreamFormat.NDJSON,
+                    ServerSentEvents.none(),
+                    writeExecutor,
+                    config);
+        }
+
+        StreamObserver<TestResponse> subscribe(StreamHub<TestResponse> hub, RequestKey key) {
+            return hub.subscribe(key, observer, HttpHeaderInterceptors.clientInterceptor(ImmutableMultimap.of()),
+                    ServerSentEvents.none(), GrpcJerseyConfig.defaults());
+        }
+
+        void awaitWriting() throws InterruptedException {
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void awaitBody() throws InterruptedException {
+            for (int i = 0; i < 500; i++) {
+                synchronized (body) {
+                    if (body.size() > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("Nothing was written");
+        }
+
+        List<String> lines() throws InterruptedException {
+            assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+            synchronized (body) {
+                return Splitter.on('\n').omitEmptyStrings()
+                        .splitToList(new String(body.toByteArray(), StandardCharsets.UTF_8));
+            }
+        }
+
+        List<Integer> messages() throws InterruptedException {
+            List<Integer> messages = new ArrayList<>();
+            for (String line : lines()) {
+                messages.add(parse(line));
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Upstream call recording the messages requested from it.
+     */
+    private static class RecordingCall extends ClientCallStreamObserver<Message> {
+        private final AtomicInteger requested = new AtomicInteger();
+        private volatile boolean autoFlowControl = true;
+
+        @Override
+        public void cancel(String message, Throwable cause) {}
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {}
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+            autoFlowControl = false;
+        }
+
+        @Override
+        public void request(int count) {
+            requested.addAndGet(count);
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {}
+
+        @Override
+        public void onNext(Message value) {}
+
+        @Override
+        public void onError(Throwable t) {}
+
+        @Override
+        public void onCompleted() {}
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
@@ -0,0 +1,139 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link StreamTimer}
+ */
+@RunWith(JUnit4.class)
+public class StreamTimerTest {
+    // 10ms ticks and 8 slots, so most deadlines take several rounds of the wheel.
+    private final StreamTimer timer = new StreamTimer(10, 8, Thread::new);
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void nothingToWatch() throws Exception {
+        assertThat(timer.watch(new Recorder(), Duration.ZERO, Duration.ZERO, Duration.ZERO)).isNull();
+    }
+
+    @Test
+    public void heartbeatsWhileIdle() throws Exception {
+        Recorder recorder = new Recorder();
+        timer.watch(recorder, Duration.ofMillis(50), Duration.ZERO, Duration.ZERO);
+
+        assertThat(recorder.heartbeats.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(recorder.expired).isEmpty();
+    }
+
+    @Test
+    public void messagesPostponeHeartbeatsAndIdleTimeout() throws Exception {
+        Recorder recorder = new Recorder();
+        StreamTimer.Watch watch = timer.watch(recorder, Duration.ofMillis(150), Duration.ofMillis(200), Duration.ZERO);
+
+        for (int i = 0; i < 25; i++) {
+            watch.touch();
+            Thread.sleep(20);
+        }
+        assertThat(recorder.heartbeatCount.get()).isZero();
+        assertThat(recorder.expired).isEmpty();
+
+        Status status = recorder.expired.poll(2, TimeUnit.SECONDS);
+        assertThat(status.getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+        assertThat(status.getDescription()).isEqualTo("Stream idle for 200ms");
+        // Idle for 150ms before it timed out.
+        assertThat(recorder.heartbeatCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void maxDuration() throws Exception {
+        Recorder recorder = new Recorder();
+        StreamTimer.Watch watch = timer.watch(recorder, Duration.ZERO, Duration.ofMillis(100), Duration.ofMillis(300));
+
+        long start = System.nanoTime();
+        Status status = null;
+        while (status == null) {
+            watch.touch();
+            status = recorder.expired.poll(20, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(status.getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+        assertThat(status.getDescription()).isEqualTo("Stream exceeded its maximum duration of 300ms");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void cancelled() throws Exception {
+        Recorder recorder = new Recorder();
+        StreamTimer.Watch watch = timer.watch(recorder, Duration.ofMillis(20), Duration.ofMillis(50), Duration.ZERO);
+        watch.cancel();
+
+        Thread.sleep(200);
+        assertThat(recorder.heartbeatCount.get()).isZero();
+        assertThat(recorder.expired).isEmpty();
+    }
+
+    @Test
+    public void manyStreams() throws Exception {
+        Recorder recorder = new Recorder();
+        for (int i = 0; i < 10_000; i++) {
+            StreamTimer.Watch watch = timer.watch(recorder, Duration.ZERO, Duration.ofMillis(100), Duration.ZERO);
+            if (i % 2 == 0) {
+                watch.cancel();
+            }
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(recorder.expired.poll(2, TimeUnit.SECONDS)).isNotNull();
+        }
+        Thread.sleep(100);
+        assertThat(recorder.expired).isEmpty();
+    }
+
+    @Test
+    public void runsTasksAtTheirDeadline() throws Exception {
+        BlockingQueue<String> ran = new LinkedBlockingQueue<>();
+        long start = System.nanoTime();
+        timer.schedule(() -> ran.add("late"), 35, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> {
+            throw new IllegalStateException("broken");
+        }, 5, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> ran.add("early"), 15, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.poll(2, TimeUnit.SECONDS)).isEqualTo("early");
+        assertThat(ran.poll(2, TimeUnit.SECONDS)).isEqualTo("late");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(35));
+    }
+
+    private static class Recorder implements StreamTimer.Listener {
+        final CountDownLatch heartbeats = new CountDownLatch(2);
+        final AtomicInteger heartbeatCount = new AtomicInteger();
+        final BlockingQueue<Status> expired = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onHeartbeat() {
+            heartbeatCount.incrementAndGet();
+            heartbeats.countDown();
+        }
+
+        @Override
+        public void onExpired(Status status) {
+            expired.add(status);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.NestedType;
+import com.fullcontact.rpc.TestRequest;
+import com.google.protobuf.Any;
+import com.google.protobuf.util.JsonFormat;
+import com.google.rpc.DebugInfo;
+import com.google.rpc.Status;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link TypeRegistries}
+ */
+@RunWith(JUnit4.class)
+public class TypeRegistriesTest {
+    @Test
+    public void forFile() throws Exception {
+        JsonFormat.TypeRegistry registry = TypeRegistries.forFile(TestRequest.getDescriptor().getFile());
+
+        assertThat(TypeRegistries.forFile(TestRequest.getDescriptor().getFile())).isSameAs(registry);
+        assertThat(registry.find("NestedType")).isEqualTo(NestedType.getDescriptor());
+        assertThat(registry.find("google.protobuf.FieldMask")).isNotNull();
+        assertThat(registry.find("google.rpc.RetryInfo")).isNotNull();
+    }
+
+    @Test
+    public void printAny() throws Exception {
+        TestRequest request = TestRequest.newBuilder()
+                .setAny(Any.pack(NestedType.newBuilder().setF1("x").build()))
+                .build();
+        JsonFormat.TypeRegistry registry = TypeRegistries.forFile(TestRequest.getDescriptor().getFile());
+
+        String json = JsonFormat.printer().usingTypeRegistry(registry).omittingInsignificantWhitespace().print(request);
+
+        assertThat(json).isEqualTo("{\"any\":{\"@type\":\"type.googleapis.com/NestedType\",\"f1\":\"x\"}}");
+    }
+
+    @Test
+    public void printPayloadLeavesOutUnknownDetails() throws Exception {
+        Status payload = Status.newBuilder()
+                .setCode(15)
+                .addDetails(Any.pack(DebugInfo.newBuilder().setDetail("test").build()))
+                .addDetails(Any.newBuilder().setTypeUrl("type.googleapis.com/unknown.Type"))
+                .build();
+
+        String json = GrpcErrorUtil.printPayload(payload, JsonFormat.printer().omittingInsignificantWhitespace());
+
+        assertThat(json).isEqualTo(
+                "{\"code\":15,\"details\":[{\"@type\":\"type.googleapis.com/google.rpc.DebugInfo\",\"detail\":\"test\"}]}");
+    }
+
+    @Test
+    public void printPayloadResolvesDetailsWithRegistry() throws Exception {
+        Status payload = Status.newBuilder()
+                .setCode(15)
+                .addDetails(Any.pack(NestedType.newBuilder().setF1("x").build()))
+                .build();
+        JsonFormat.Printer printer = JsonFormat.printer().omittingInsignificantWhitespace();
+        JsonFormat.TypeRegistry registry = TypeRegistries.forFile(TestRequest.getDescriptor().getFile());
+
+        assertThat(GrpcErrorUtil.printPayload(payload, printer)).isEqualTo("{\"code\":15}");
+        assertThat(GrpcErrorUtil.printPayload(payload, printer, registry)).isEqualTo(
+                "{\"code\":15,\"details\":[{\"@type\":\"type.googleapis.com/NestedType\",\"f1\":\"x\"}]}");
+    }
+}
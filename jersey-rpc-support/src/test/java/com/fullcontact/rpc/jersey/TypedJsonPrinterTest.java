@@ -0,0 +1,160 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.NestedNestedType;
+import com.fullcontact.rpc.NestedType;
+import com.fullcontact.rpc.Test2.TestMessage2;
+import com.fullcontact.rpc.TestEnum;
+import com.fullcontact.rpc.TestPrintedMessage;
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.util.JsonFormat;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link TypedJsonPrinter}, which must print exactly like JsonFormat.
+ */
+@RunWith(JUnit4.class)
+public class TypedJsonPrinterTest {
+    private static final TestRequest REQUEST = TestRequest.newBuilder()
+            .setS("<a href='x'>&\"\\\n\t\u0001\u2028\u00e9")
+            .setUint3(-1)
+            .setUint6(-1L)
+            .setInt3(-5)
+            .setInt6(Long.MIN_VALUE)
+            .setBytearray(ByteString.copyFromUtf8("bytes"))
+            .setBoolean(true)
+            .setF(Float.NaN)
+            .setD(Double.NEGATIVE_INFINITY)
+            .setEnuValue(42)
+            .setNt(NestedType.newBuilder()
+                    .setF1("f1")
+                    .setNnt(NestedNestedType.newBuilder().addF1("a").addF1("b")))
+            .addRep(1)
+            .addRep(-1)
+            .addRepStr("")
+            .setReadMask(FieldMask.newBuilder().addPaths("rep_str").addPaths("nt.f1"))
+            .setTs(Timestamp.newBuilder().setSeconds(1234567890).setNanos(1000))
+            .setDur(Duration.newBuilder().setSeconds(-3).setNanos(-500))
+            .setWrappedUint3(UInt32Value.newBuilder().setValue(0))
+            .setSint3(-3)
+            .build();
+
+    private static final TestPrintedMessage PRINTED = TestPrintedMessage.newBuilder()
+            .putNestedByName("a", NestedType.newBuilder().setF1("f1").build())
+            .putNestedByName("b\"", NestedType.getDefaultInstance())
+            .putEnumsById(-1L, TestEnum.SECOND)
+            .putEnumsById(2L, TestEnum.FIRST)
+            .putStringsByFlag(true, "yes")
+            .addEnums(TestEnum.SECOND)
+            .addEnumsValue(7)
+            .addRequests(REQUEST)
+            .addRequests(TestRequest.getDefaultInstance())
+            .addByteArrays(ByteString.EMPTY)
+            .addDoubles(-0.0)
+            .addDoubles(1e100)
+            .setChoiceInt3(0)
+            .setWrappedInt6(Int64Value.newBuilder().setValue(5))
+            .setFixed6(-2L)
+            .setRecursive(TestPrintedMessage.newBuilder()
+                    .setChoiceNt(NestedType.getDefaultInstance())
+                    .setRecursive(TestPrintedMessage.getDefaultInstance()))
+            .build();
+
+    private static final List<Message> MESSAGES = ImmutableList.of(
+            TestRequest.getDefaultInstance(),
+            REQUEST,
+            TestResponse.newBuilder().setRequest(REQUEST).build(),
+            TestPrintedMessage.getDefaultInstance(),
+            PRINTED,
+            WarmUp.sample(TestResponse.getDefaultInstance()));
+
+    @Test
+    public void printsLikeJsonFormat() throws Exception {
+        for (JsonOutput options : allOptions()) {
+            JsonFormat.Printer printer = TypedJsonPrinter.printer(options);
+            for (Message message : MESSAGES) {
+                String expected = printer.print(message);
+
+                assertThat(TypedJsonPrinter.print(printer, message)).as(options.toString()).isEqualTo(expected);
+
+                StringBuilder appended = new StringBuilder();
+                TypedJsonPrinter.appendTo(printer, message, appended);
+                assertThat(appended.toString()).as(options.toString()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void fallsBackToJsonFormatInsideTypedMessages() throws Exception {
+        JsonFormat.TypeRegistry registry = JsonFormat.TypeRegistry.newBuilder()
+                .add(TestMessage2.getDescriptor())
+                .build();
+        TestPrintedMessage message = PRINTED.toBuilder()
+                .setAny(Any.pack(TestMessage2.newBuilder().setF1("packed").build()))
+                .build();
+
+        for (JsonOutput options : allOptions()) {
+            JsonFormat.Printer printer = TypedJsonPrinter.usingTypeRegistry(TypedJsonPrinter.printer(options), registry);
+
+            assertThat(TypedJsonPrinter.print(printer, message)).as(options.toString())
+                    .isEqualTo(printer.print(message))
+                    .contains("packed");
+        }
+    }
+
+    @Test
+    public void printsBuildersWithJsonFormat() throws Exception {
+        JsonFormat.Printer printer = TypedJsonPrinter.printer(JsonOutput.getDefaultInstance());
+
+        assertThat(TypedJsonPrinter.print(printer, REQUEST.toBuilder())).isEqualTo(printer.print(REQUEST));
+    }
+
+    @Test
+    public void usesOtherPrintersAsTheyAre() throws Exception {
+        JsonFormat.Printer printer = JsonFormat.printer().includingDefaultValueFields(
+                ImmutableSet.of(TestRequest.getDescriptor().findFieldByName("int3")));
+
+        assertThat(TypedJsonPrinter.print(printer, TestRequest.getDefaultInstance()))
+                .isEqualTo(printer.print(TestRequest.getDefaultInstance()));
+    }
+
+    @Test
+    public void defaultPrintersPrintAsBefore() throws Exception {
+        assertThat(TypedJsonPrinter.print(GrpcJerseyConfig.defaults().getUnaryPrinter(), REQUEST))
+                .isEqualTo(JsonFormat.printer().includingDefaultValueFields().print(REQUEST));
+        assertThat(TypedJsonPrinter.print(GrpcJerseyConfig.defaults().getStreamPrinter(), REQUEST))
+                .isEqualTo(JsonFormat.printer().includingDefaultValueFields().omittingInsignificantWhitespace()
+                        .print(REQUEST));
+    }
+
+    private static List<JsonOutput> allOptions() {
+        List<JsonOutput> options = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            options.add(JsonOutput.newBuilder()
+                    .setOmitDefaultValues((i & 1) != 0)
+                    .setEnumsAsInts((i & 2) != 0)
+                    .setPreserveProtoFieldNames((i & 4) != 0)
+                    .setCompact((i & 8) != 0)
+                    .build());
+        }
+
+        return options;
+    }
+}
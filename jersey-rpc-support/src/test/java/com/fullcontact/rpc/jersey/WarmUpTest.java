@@ -0,0 +1,88 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestEnum;
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.fullcontact.rpc.TestServiceGrpc;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.util.JsonFormat;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link WarmUp}
+ */
+@RunWith(JUnit4.class)
+public class WarmUpTest {
+    @Test
+    public void samplesSetEveryField() throws Exception {
+        TestRequest sample = WarmUp.sample(TestRequest.getDefaultInstance());
+
+        assertThat(sample.getS()).isEqualTo("sample");
+        assertThat(sample.getEnu()).isEqualTo(TestEnum.SECOND);
+        assertThat(sample.getNt().getNnt().getF1List()).containsExactly("sample", "sample");
+        assertThat(sample.getReadMask().getPathsList()).containsExactly("sample");
+        assertThat(sample.hasTs()).isTrue();
+        assertThat(sample.hasAny()).isFalse();
+
+        WarmUp.serialize(WarmUp.sample(TestResponse.getDefaultInstance()), JsonFormat.printer());
+    }
+
+    @Test
+    public void parametersBindBackToTheSample() throws Exception {
+        TestRequest sample = WarmUp.sample(TestRequest.getDefaultInstance());
+        TestRequest.Builder bound = TestRequest.newBuilder();
+
+        RequestParser.parseQueryParams(WarmUp.queryParameters(sample), bound);
+
+        assertThat(bound.build()).isEqualTo(sample);
+        assertThat(WarmUp.pathParameter(sample, "nt.f1")).isEqualTo("sample");
+        assertThat(WarmUp.pathParameter(sample, "enu")).isEqualTo("SECOND");
+    }
+
+    @Test
+    public void runnerCollectsFailures() throws Exception {
+        WarmUp.Runner runner = new WarmUp.Runner(10);
+        int[] runs = new int[1];
+
+        runner.run("GET /ok", () -> runs[0]++);
+        runner.run("GET /fails", () -> {
+            throw new IllegalStateException("nope");
+        });
+
+        assertThat(runs[0]).isEqualTo(10);
+        assertThat(runner.failures()).containsOnlyKeys("GET /fails");
+    }
+
+    @Test
+    public void channelAnswersWithSamples() {
+        TestResponse response = TestServiceGrpc.newBlockingStub(WarmUp.channel())
+                .testMethod(TestRequest.getDefaultInstance());
+
+        assertThat(response).isEqualTo(WarmUp.sample(TestResponse.getDefaultInstance()));
+    }
+
+    @Test
+    public void callsAskForEveryFieldCompressed() {
+        WarmUpCall call = new WarmUpCall(ImmutableMap.of(), TestResponse.getDescriptor());
+
+        assertThat(call.uriInfo().getQueryParameters().getFirst(ResponseMask.QUERY_PARAMETER)).isEqualTo("request");
+        assertThat(call.headers().getHeaderString(HttpHeaders.ACCEPT_ENCODING)).isEqualTo("gzip");
+        call.check();
+        call.resume(Response.ok().build());
+        call.check();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void callsFailOnErrors() {
+        WarmUpCall call = new WarmUpCall(ImmutableMap.of(), TestResponse.getDescriptor());
+
+        call.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+        call.check();
+    }
+}
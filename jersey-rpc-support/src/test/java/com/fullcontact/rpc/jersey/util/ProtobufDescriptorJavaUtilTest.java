@@ -66,6 +66,30 @@ public class ProtobufDescriptorJavaUtilTest {
         // single file, custom class name
         assertThat(ProtobufDescriptorJavaUtil.genClassName(Test3Protos.TestMessage3.getDescriptor()))
                 .isEqualTo("com.fullcontact.rpc.Test3Protos.TestMessage3");
+        // nested types
+        assertThat(ProtobufDescriptorJavaUtil.genClassName(DescriptorProtos.FieldDescriptorProto.Type.getDescriptor()))
+                .isEqualTo("com.google.protobuf.DescriptorProtos.FieldDescriptorProto.Type");
+    }
+
+    @Test
+    public void binaryClassName() throws Exception {
+        assertThat(ProtobufDescriptorJavaUtil.binaryClassName(TestRequest.getDescriptor()))
+                .isEqualTo("com.fullcontact.rpc.TestRequest");
+        assertThat(ProtobufDescriptorJavaUtil.binaryClassName(Test2.TestMessage2.getDescriptor()))
+                .isEqualTo("com.fullcontact.rpc.Test2$TestMessage2");
+        assertThat(ProtobufDescriptorJavaUtil.binaryClassName(DescriptorProtos.FieldDescriptorProto.Type.getDescriptor()))
+                .isEqualTo(DescriptorProtos.FieldDescriptorProto.Type.class.getName());
+    }
+
+    @Test
+    public void javaAccessorName() throws Exception {
+        assertThat(ProtobufDescriptorJavaUtil.javaAccessorName(TestRequest.getDescriptor().findFieldByName("rep_str")))
+                .isEqualTo("RepStr");
+        assertThat(ProtobufDescriptorJavaUtil.javaAccessorName(TestRequest.getDescriptor().findFieldByName("uint3")))
+                .isEqualTo("Uint3");
+
+        // Ensure accessor exists
+        TestRequest.class.getMethod("getRepStrList");
     }
 
     @Test
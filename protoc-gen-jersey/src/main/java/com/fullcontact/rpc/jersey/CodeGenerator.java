@@ -1,8 +1,15 @@
 package com.fullcontact.rpc.jersey;
 
+import com.fullcontact.rpc.BatchOptions;
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.MethodOptions;
+import com.fullcontact.rpc.OptionsProto;
+import com.fullcontact.rpc.ServiceOptions;
+import com.fullcontact.rpc.SseOptions;
 import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
 import com.fullcontact.rpc.jersey.yaml.YamlHttpConfig;
 import com.fullcontact.rpc.jersey.yaml.YamlHttpRule;
+import com.fullcontact.rpc.jersey.yaml.YamlHttpRuleIndex;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
@@ -16,12 +23,13 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.protobuf.DescriptorProtos;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.compiler.PluginProtos;
+import com.google.protobuf.util.Durations;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -41,6 +49,11 @@ import lombok.Value;
  * @author Michael Rose (xorlev)
  */
 public class CodeGenerator {
+    // Compiled once, executing a compiled template is thread-safe.
+    private static final MustacheFactory MUSTACHE_FACTORY = new DefaultMustacheFactory();
+    private static final Mustache RESOURCE_TEMPLATE = MUSTACHE_FACTORY.compile("resource.tmpl.java");
+    private static final Mustache ROUTES_TEMPLATE = MUSTACHE_FACTORY.compile("routes.tmpl.java");
+    private static final Mustache BINDERS_TEMPLATE = MUSTACHE_FACTORY.compile("binders.tmpl.java");
 
     public static ImmutableList<PathParam> parsePathParams(Descriptors.Descriptor inputDescriptor,
             PathParser.ParsedPath path) {
@@ -77,28 +90,48 @@ public class CodeGenerator {
         Set<String> options = Sets.newHashSet(Splitter.on(',').split(request.getParameter()));
 
         boolean isProxy = !options.contains("direct");
+        boolean generateRoutes = options.contains("routes");
+        boolean useExecutor = options.contains("executor");
+        boolean debug = options.contains("debug");
+        boolean staticBinding = options.contains("static");
+        boolean warmUp = options.contains("warmup");
 
         Map<String, Descriptors.Descriptor> lookup = new HashMap<>();
         PluginProtos.CodeGeneratorResponse.Builder response = PluginProtos.CodeGeneratorResponse.newBuilder();
 
-        List<Descriptors.FileDescriptor> fileDescriptors = Lists.newArrayList(
+        // Files the plugin itself links against, protos in the request with the same name resolve to these.
+        Map<String, Descriptors.FileDescriptor> fileDescriptors = new HashMap<>();
+        for (Descriptors.FileDescriptor fd : ImmutableList.of(
                 DescriptorProtos.MethodOptions.getDescriptor().getFile(),
                 AnnotationsProto.getDescriptor(),
-                HttpRule.getDescriptor().getFile()
-        );
+                HttpRule.getDescriptor().getFile(),
+                OptionsProto.getDescriptor())) {
+            fileDescriptors.put(fd.getName(), fd);
+        }
 
-        Optional<YamlHttpConfig> yamlConfig = YamlHttpConfig.getFromOptions(options);
+        Set<String> filesToGenerate = ImmutableSet.copyOf(request.getFileToGenerateList());
+        Optional<YamlHttpRuleIndex> yamlRules =
+                YamlHttpConfig.getFromOptions(options).map(c -> new YamlHttpRuleIndex(c.getRules()));
+        List<ResourceToGenerate> resources = new ArrayList<>();
 
         for (DescriptorProtos.FileDescriptorProto fdProto : request.getProtoFileList()) {
-            // Descriptors are provided in dependency-topological order
-            // each time we collect a new FileDescriptor, we add it to a
-            // mutable list of descriptors and append the entire dependency
-            // chain to each new FileDescriptor to allow crossLink() to function.
-            // TODO(xorlev): might have to be more selective about deps in future
-            Descriptors.FileDescriptor fd = Descriptors.FileDescriptor.buildFrom(
-                    fdProto, fileDescriptors.toArray(new Descriptors.FileDescriptor[]{})
-            );
-            fileDescriptors.add(fd);
+            // Descriptors are provided in dependency-topological order, so the dependencies of each file are built
+            // before it. Each file is linked against exactly the files it imports.
+            Descriptors.FileDescriptor fd = fileDescriptors.get(fdProto.getName());
+            if (fd == null) {
+                Descriptors.FileDescriptor[] dependencies =
+                        new Descriptors.FileDescriptor[fdProto.getDependencyCount()];
+                for (int i = 0; i < dependencies.length; i++) {
+                    dependencies[i] = fileDescriptors.get(fdProto.getDependency(i));
+                    if (dependencies[i] == null) {
+                        throw new IllegalArgumentException("Dependency " + fdProto.getDependency(i) + " of "
+                                + fdProto.getName() + " is missing from the request");
+                    }
+                }
+
+                fd = Descriptors.FileDescriptor.buildFrom(fdProto, dependencies);
+                fileDescriptors.put(fd.getName(), fd);
+            }
 
             // if type starts with a ".", it's in this package
             // otherwise it's fully qualified
@@ -113,24 +146,23 @@ public class CodeGenerator {
                 lookup.put(prefix + d.getName(), fd.findMessageTypeByName(d.getName()));
             }
 
+            // Imported files are only needed for their messages, protoc only expects output for the files it was
+            // asked to generate.
+            if (!filesToGenerate.contains(fdProto.getName())) {
+                continue;
+            }
+
             // Find RPC methods with HTTP extensions
             List<ServiceAndMethod> methodsToGenerate = new ArrayList<>();
             for (Descriptors.ServiceDescriptor serviceDescriptor : fd.getServices()) {
                 DescriptorProtos.ServiceDescriptorProto serviceDescriptorProto = serviceDescriptor.toProto();
                 for (DescriptorProtos.MethodDescriptorProto methodProto : serviceDescriptorProto.getMethodList()) {
                     String fullMethodName = serviceDescriptor.getFullName() + "." + methodProto.getName();
-                    if (yamlConfig.isPresent()) {   //Check to see if the rules are defined in the YAML
-                        for (YamlHttpRule rule : yamlConfig.get().getRules()) {
-                            if (rule.getSelector().equals(fullMethodName) || rule.getSelector()
-                                    .equals("*")) { //TODO:  com.foo.*
-                                DescriptorProtos.MethodOptions yamlOptions = DescriptorProtos.MethodOptions.newBuilder()
-                                        .setExtension(AnnotationsProto.http, rule.buildHttpRule())
-                                        .build();
-                                methodProto = DescriptorProtos.MethodDescriptorProto.newBuilder()
-                                        .mergeFrom(methodProto)
-                                        .setOptions(yamlOptions)
-                                        .build();
-                            }
+                    if (yamlRules.isPresent()) {   //Check to see if the rules are defined in the YAML
+                        for (YamlHttpRule rule : yamlRules.get().rulesFor(fullMethodName)) {
+                            methodProto = methodProto.toBuilder()
+                                    .setOptions(rule.applyTo(methodProto.getOptions()))
+                                    .build();
                         }
                     }
                     if (methodProto.getOptions().hasExtension(AnnotationsProto.http)) {
@@ -144,32 +176,76 @@ public class CodeGenerator {
                 }
             }
             if (!methodsToGenerate.isEmpty()) {
-                generateResource(response, lookup, fdProto, methodsToGenerate, isProxy);
+                resources.add(buildResourceSpec(
+                        lookup, fdProto, methodsToGenerate, isProxy, useExecutor, staticBinding, warmUp));
             }
         }
 
+        yamlRules.ifPresent(index -> index.unmatchedRules().forEach(rule -> System.err.println(
+                "WARNING: YAML rule " + rule.getSelector() + " does not match any generated method")));
+        if (generateRoutes) {
+            resources.forEach(r -> r.getMethods().forEach(m -> {
+                List<String> ignored = m.optionsIgnoredByRoutes();
+                if (!ignored.isEmpty()) {
+                    System.err.println("WARNING: routes of " + m.getMethod() + " " + m.getPath() + " ("
+                            + m.getFullMethodName() + ") ignore its " + Joiner.on(", ").join(ignored) + " options");
+                }
+            }));
+        }
+
+        // Specs are cheap to build, rendering dominates on large requests and doesn't share any state.
+        List<List<PluginProtos.CodeGeneratorResponse.File>> files = resources.parallelStream()
+                .map(r -> renderResource(r, generateRoutes, debug))
+                .collect(Collectors.toList());
+        files.forEach(response::addAllFile);
+
         return response.build();
     }
 
-    private void generateResource(
-            PluginProtos.CodeGeneratorResponse.Builder response,
-            Map<String, Descriptors.Descriptor> descriptorTable,
-            DescriptorProtos.FileDescriptorProto fileDescriptorProto,
-            List<ServiceAndMethod> generate,
-            boolean isProxy) {
-        ResourceToGenerate r = buildResourceSpec(descriptorTable, fileDescriptorProto, generate, isProxy);
+    private static List<PluginProtos.CodeGeneratorResponse.File> renderResource(
+            ResourceToGenerate r,
+            boolean generateRoutes,
+            boolean debug) {
+        ImmutableList.Builder<PluginProtos.CodeGeneratorResponse.File> files = ImmutableList.builder();
 
-        MustacheFactory mf = new DefaultMustacheFactory();
-        Mustache mustache = mf.compile("resource.tmpl.java");
         StringWriter writer = new StringWriter();
-        mustache.execute(writer, r);
+        RESOURCE_TEMPLATE.execute(writer, r);
 
-        response.addFile(PluginProtos.CodeGeneratorResponse.File.newBuilder()
+        files.add(PluginProtos.CodeGeneratorResponse.File.newBuilder()
                 .setContent(writer.toString())
                 .setName(r.getFileName())
                 .build());
 
-        System.err.println(writer.toString());
+        if (debug) {
+            System.err.println(writer.toString());
+        }
+
+        if (generateRoutes) {
+            // Container-neutral routing model, used by runtimes other than Jersey (e.x. jersey-rpc-netty).
+            StringWriter routesWriter = new StringWriter();
+            ROUTES_TEMPLATE.execute(routesWriter, r);
+
+            files.add(PluginProtos.CodeGeneratorResponse.File.newBuilder()
+                    .setContent(routesWriter.toString())
+                    .setName(r.getRoutesFileName())
+                    .build());
+        }
+
+        if (r.isStaticBinding()) {
+            StringWriter bindersWriter = new StringWriter();
+            BINDERS_TEMPLATE.execute(bindersWriter, r);
+
+            files.add(PluginProtos.CodeGeneratorResponse.File.newBuilder()
+                    .setContent(bindersWriter.toString())
+                    .setName(r.getBindersFileName())
+                    .build());
+            files.add(PluginProtos.CodeGeneratorResponse.File.newBuilder()
+                    .setContent(r.reflectConfig(generateRoutes))
+                    .setName(r.getReflectConfigFileName())
+                    .build());
+        }
+
+        return files.build();
     }
 
     /**
@@ -179,21 +255,33 @@ public class CodeGenerator {
      * @param fileDescriptorProto file descriptor of the origin service
      * @param methodSpecs list of methods in the given service
      * @param isProxy should this resource use client stubs or implbase?
+     * @param useExecutor should this resource dispatch RPCs and stream writes onto the {@link RpcExecutor}?
+     * @param staticBinding should this resource bind parameters through generated setters instead of descriptors?
+     * @param warmUp should this resource have warmUp() methods?
      */
     @VisibleForTesting
     ResourceToGenerate buildResourceSpec(
             Map<String, Descriptors.Descriptor> descriptorTable,
             DescriptorProtos.FileDescriptorProto fileDescriptorProto,
             List<ServiceAndMethod> methodSpecs,
-            boolean isProxy) {
+            boolean isProxy,
+            boolean useExecutor,
+            boolean staticBinding,
+            boolean warmUp) {
         Descriptors.ServiceDescriptor serviceDescriptor = methodSpecs.get(0).getServiceDescriptor();
         DescriptorProtos.ServiceDescriptorProto sdp = methodSpecs.get(0).getServiceDescriptor().toProto();
         String packageName = ProtobufDescriptorJavaUtil.javaPackage(fileDescriptorProto);
         String className = ProtobufDescriptorJavaUtil.jerseyResourceClassName(sdp);
+        String routesClassName = ProtobufDescriptorJavaUtil.routesClassName(sdp);
+        String bindersClassName = ProtobufDescriptorJavaUtil.bindersClassName(sdp);
         String grpcImplClass = (isProxy) ?
                 ProtobufDescriptorJavaUtil.grpcStubClass(fileDescriptorProto, sdp) :
                 ProtobufDescriptorJavaUtil.grpcImplBaseClass(fileDescriptorProto, sdp);
         String fileName = packageName.replace('.', '/') + "/" + className + ".java";
+        String routesFileName = packageName.replace('.', '/') + "/" + routesClassName + ".java";
+        String bindersFileName = packageName.replace('.', '/') + "/" + bindersClassName + ".java";
+        String reflectConfigFileName = "META-INF/native-image/" + packageName.replace('.', '/') + "/"
+                + serviceDescriptor.getName() + "/reflect-config.json";
 
         ImmutableList.Builder<ResourceMethodToGenerate> methods = ImmutableList.builder();
         for (ServiceAndMethod sam : methodSpecs) {
@@ -208,10 +296,19 @@ public class CodeGenerator {
                 .serviceDescriptor(serviceDescriptor)
                 .javaPackage(ProtobufDescriptorJavaUtil.javaPackage(fileDescriptorProto))
                 .className(className)
+                .routesClassName(routesClassName)
+                .bindersClassName(bindersClassName)
                 .grpcStub(grpcImplClass)
+                .grpcClass(ProtobufDescriptorJavaUtil.grpcClass(fileDescriptorProto, sdp))
                 .methods(methods.build())
                 .isProxy(isProxy)
+                .useExecutor(useExecutor)
+                .staticBinding(staticBinding)
+                .warmUp(warmUp)
                 .fileName(fileName)
+                .routesFileName(routesFileName)
+                .bindersFileName(bindersFileName)
+                .reflectConfigFileName(reflectConfigFileName)
                 .build();
     }
 
@@ -236,6 +333,34 @@ public class CodeGenerator {
                 .addAll(baseRule.getAdditionalBindingsList())
                 .build();
 
+        MethodOptions methodOptions = sam.getMethodDescriptor().getOptions().getExtension(OptionsProto.method);
+        if (sam.getMethodDescriptor().getServerStreaming()
+                && (methodOptions.getSingleFlight() || methodOptions.getCache() || methodOptions.getEtag())) {
+            throw new IllegalArgumentException("single_flight, cache and etag are not supported for streaming methods: "
+                    + sam.getMethodDescriptor().getName());
+        }
+        BatchSpec batch = null;
+        if (methodOptions.hasBatch()) {
+            if (sam.getMethodDescriptor().getServerStreaming()) {
+                throw new IllegalArgumentException("batch is not supported for streaming methods: "
+                        + sam.getMethodDescriptor().getName());
+            }
+            batch = parseBatch(sam, methodOptions.getBatch(), inputDescriptor, outputDescriptor);
+        }
+        JsonOutput jsonOutput = parseJsonOutput(sam, methodOptions);
+        SseSpec sse = null;
+        if (methodOptions.hasSse()) {
+            if (!sam.getMethodDescriptor().getServerStreaming()) {
+                throw new IllegalArgumentException("sse only applies to server-streaming methods: "
+                        + sam.getMethodDescriptor().getName());
+            }
+            sse = parseSse(methodOptions.getSse(), inputDescriptor, outputDescriptor);
+        }
+        if (methodOptions.hasFanout() && !sam.getMethodDescriptor().getServerStreaming()) {
+            throw new IllegalArgumentException("fanout only applies to server-streaming methods: "
+                    + sam.getMethodDescriptor().getName());
+        }
+
         ImmutableList.Builder<ResourceMethodToGenerate> methodsToGenerate = ImmutableList.builder();
         int methodIndex = 0;
         for (HttpRule rule : rules) {
@@ -273,60 +398,240 @@ public class CodeGenerator {
 
             String bodyFieldPath = Strings.emptyToNull(rule.getBody());
 
-            if (bodyFieldPath != null && !bodyFieldPath.equals("*")) {
-                ImmutableList<Descriptors.FieldDescriptor> fieldDescriptor =
-                        ProtobufDescriptorJavaUtil.fieldPath(inputDescriptor, bodyFieldPath);
-
-                if (fieldDescriptor.isEmpty()) {
-                    List<String> pathSegments = Splitter.on('.').omitEmptyStrings().trimResults().splitToList(path);
-
-                    while (!pathSegments.isEmpty()) {
-                        pathSegments.remove(pathSegments.size() - 1);
-
-                        fieldDescriptor = ProtobufDescriptorJavaUtil.fieldPath(inputDescriptor, bodyFieldPath);
-
-                        if (!fieldDescriptor.isEmpty()) {
-                            // TODO: remove bodyFieldPath segments until we have a fieldDescriptor
-                            List<String> availableFields = Iterables.getLast(fieldDescriptor).getMessageType()
-                                    .getFields()
-                                    .stream()
-                                    .map(Descriptors.FieldDescriptor::getName)
-                                    .collect(Collectors.toList());
-                            throw new IllegalArgumentException("'body' attribute refers to non-existent field " +
-                                    "'" + bodyFieldPath + "'. Available fields: " +
-                                    availableFields);
-                        }
-                    }
-                }
-            }
+            ImmutableList<Descriptors.FieldDescriptor> bodyFields = parseBodyFields(inputDescriptor, bodyFieldPath);
 
             methodsToGenerate.add(new ResourceMethodToGenerate(
+                    sam.getServiceDescriptor().getFullName() + "/" + sam.getMethodDescriptor().getName(),
                     sam.getMethodDescriptor().getName(),
                     method,
                     parsedPath.toPath(),
                     pathParams,
                     bodyFieldPath,
+                    bodyFields,
+                    inputDescriptor,
                     ProtobufDescriptorJavaUtil.genClassName(inputDescriptor),
                     ProtobufDescriptorJavaUtil.genClassName(outputDescriptor),
                     methodIndex++,
                     sam.getMethodDescriptor().hasClientStreaming(),
-                    sam.getMethodDescriptor().hasServerStreaming()
+                    sam.getMethodDescriptor().hasServerStreaming(),
+                    methodOptions,
+                    batch,
+                    jsonOutput,
+                    sse
             ));
         }
 
         return methodsToGenerate.build();
     }
 
+    /**
+     * Resolves the 'body' of a rule to the fields leading to the message the body is merged into, so generated code can
+     * reach it through builder accessors instead of resolving the path on every request. Every field of the path must
+     * be a singular message.
+     *
+     * @return empty for "*" or no body
+     */
+    static ImmutableList<Descriptors.FieldDescriptor> parseBodyFields(Descriptors.Descriptor inputDescriptor,
+            String bodyFieldPath) {
+        if (bodyFieldPath == null || bodyFieldPath.equals("*")) {
+            return ImmutableList.of();
+        }
+
+        ImmutableList.Builder<Descriptors.FieldDescriptor> bodyFields = ImmutableList.builder();
+        Descriptors.Descriptor descriptor = inputDescriptor;
+        for (String segment : Splitter.on('.').trimResults().split(bodyFieldPath)) {
+            Descriptors.FieldDescriptor field = descriptor.findFieldByName(segment);
+            if (field == null) {
+                List<String> availableFields = descriptor.getFields()
+                        .stream()
+                        .map(Descriptors.FieldDescriptor::getName)
+                        .collect(Collectors.toList());
+                throw new IllegalArgumentException("'body' attribute refers to non-existent field " +
+                        "'" + bodyFieldPath + "'. Available fields: " +
+                        availableFields);
+            }
+            if (field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE || field.isRepeated()) {
+                throw new IllegalArgumentException("'body' attribute '" + bodyFieldPath + "' must refer to a " +
+                        "singular message field, '" + segment + "' is " + field.getType() +
+                        (field.isRepeated() ? " (repeated)" : ""));
+            }
+
+            bodyFields.add(field);
+            descriptor = field.getMessageType();
+        }
+
+        return bodyFields.build();
+    }
+
+    /**
+     * Resolves the json option of a method, which replaces the one of its service as a whole.
+     *
+     * @return null if neither the method nor its service has the option
+     */
+    static JsonOutput parseJsonOutput(ServiceAndMethod sam, MethodOptions methodOptions) {
+        if (methodOptions.hasJson()) {
+            return methodOptions.getJson();
+        }
+
+        ServiceOptions serviceOptions = sam.getServiceDescriptor().getOptions().getExtension(OptionsProto.service);
+        return serviceOptions.hasJson() ? serviceOptions.getJson() : null;
+    }
+
+    /**
+     * Resolves the batch RPC of a method with the {@code batch} option, and the repeated fields its requests and
+     * responses are carried in.
+     */
+    @VisibleForTesting
+    static BatchSpec parseBatch(ServiceAndMethod sam,
+            BatchOptions options,
+            Descriptors.Descriptor inputDescriptor,
+            Descriptors.Descriptor outputDescriptor) {
+        Descriptors.MethodDescriptor batchMethod = sam.getServiceDescriptor().findMethodByName(options.getMethod());
+        if (batchMethod == null) {
+            throw new IllegalArgumentException("batch method '" + options.getMethod() + "' of "
+                    + sam.getMethodDescriptor().getName() + " not found in "
+                    + sam.getServiceDescriptor().getFullName());
+        }
+        if (batchMethod.toProto().getClientStreaming() || batchMethod.toProto().getServerStreaming()) {
+            throw new IllegalArgumentException("batch method must be unary: " + batchMethod.getFullName());
+        }
+
+        Descriptors.FieldDescriptor requestField =
+                batchField(batchMethod.getInputType(), options.getRequestField(), inputDescriptor, "request_field");
+        Descriptors.FieldDescriptor responseField =
+                batchField(batchMethod.getOutputType(), options.getResponseField(), outputDescriptor, "response_field");
+
+        return new BatchSpec(
+                CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_CAMEL, batchMethod.getName()),
+                ProtobufDescriptorJavaUtil.genClassName(batchMethod.getInputType()),
+                ProtobufDescriptorJavaUtil.genClassName(batchMethod.getOutputType()),
+                ProtobufDescriptorJavaUtil.javaAccessorName(requestField),
+                ProtobufDescriptorJavaUtil.javaAccessorName(responseField),
+                options.hasWindow() ? Durations.toMicros(options.getWindow()) : BatchSpec.DEFAULT_WINDOW_MICROS,
+                options.getMaxSize() > 0 ? options.getMaxSize() : BatchSpec.DEFAULT_MAX_SIZE);
+    }
+
+    private static Descriptors.FieldDescriptor batchField(Descriptors.Descriptor batchType,
+            String name,
+            Descriptors.Descriptor itemType,
+            String option) {
+        List<Descriptors.FieldDescriptor> candidates = batchType.getFields()
+                .stream()
+                .filter(field -> field.isRepeated()
+                        && !field.isMapField()
+                        && field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+                        && field.getMessageType().getFullName().equals(itemType.getFullName()))
+                .collect(Collectors.toList());
+
+        if (!name.isEmpty()) {
+            Descriptors.FieldDescriptor field = batchType.findFieldByName(name);
+            if (!candidates.contains(field)) {
+                throw new IllegalArgumentException("batch " + option + " '" + name + "' must be a repeated "
+                        + itemType.getFullName() + " field of " + batchType.getFullName());
+            }
+            return field;
+        }
+
+        if (candidates.size() != 1) {
+            throw new IllegalArgumentException("batch " + option + " must be set, " + batchType.getFullName()
+                    + " doesn't have exactly one repeated " + itemType.getFullName() + " field");
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * Resolves the fields of the {@code sse} option of a method.
+     */
+    @VisibleForTesting
+    static SseSpec parseSse(SseOptions options,
+            Descriptors.Descriptor inputDescriptor,
+            Descriptors.Descriptor outputDescriptor) {
+        String eventId = null;
+        if (!options.getIdField().isEmpty()) {
+            ImmutableList<Descriptors.FieldDescriptor> path =
+                    sseField(outputDescriptor, options.getIdField(), "id_field");
+            StringBuilder getter = new StringBuilder("response");
+            for (Descriptors.FieldDescriptor field : path) {
+                getter.append(".get").append(ProtobufDescriptorJavaUtil.javaAccessorName(field)).append("()");
+            }
+            eventId = eventIdString(Iterables.getLast(path), getter.toString());
+        }
+
+        List<Descriptors.FieldDescriptor> lastEventIdPath = null;
+        if (!options.getLastEventIdField().isEmpty()) {
+            lastEventIdPath = sseField(inputDescriptor, options.getLastEventIdField(), "last_event_id_field");
+        }
+
+        return new SseSpec(
+                eventId,
+                Strings.emptyToNull(options.getLastEventIdField()),
+                lastEventIdPath,
+                options.hasRetry() ? Durations.toMillis(options.getRetry()) : 0);
+    }
+
+    private static ImmutableList<Descriptors.FieldDescriptor> sseField(Descriptors.Descriptor type,
+            String path,
+            String option) {
+        ImmutableList<Descriptors.FieldDescriptor> fields = ProtobufDescriptorJavaUtil.fieldPath(type, path);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("sse " + option + " '" + path + "' not found in " + type.getFullName());
+        }
+
+        for (Descriptors.FieldDescriptor field : fields) {
+            if (field.isRepeated()) {
+                throw new IllegalArgumentException("sse " + option + " '" + path + "' must be singular, '"
+                        + field.getName() + "' is repeated");
+            }
+        }
+
+        Descriptors.FieldDescriptor last = Iterables.getLast(fields);
+        if (last.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+                || last.getJavaType() == Descriptors.FieldDescriptor.JavaType.BYTE_STRING) {
+            throw new IllegalArgumentException("sse " + option + " '" + path + "' must be a scalar field, it's "
+                    + last.getType());
+        }
+
+        return fields;
+    }
+
+    /**
+     * Java expression of the event id for the value of the field, e.x. {@code Long.toUnsignedString(value)} for a
+     * uint64 field.
+     */
+    private static String eventIdString(Descriptors.FieldDescriptor field, String value) {
+        switch (field.getType()) {
+            case STRING:
+                return value;
+            case UINT32:
+            case FIXED32:
+                return "Integer.toUnsignedString(" + value + ")";
+            case UINT64:
+            case FIXED64:
+                return "Long.toUnsignedString(" + value + ")";
+            default:
+                return "String.valueOf(" + value + ")";
+        }
+    }
+
     @Value
     @Builder
     static class ResourceToGenerate {
         Descriptors.ServiceDescriptor serviceDescriptor;
         String javaPackage;
         String className;
+        String routesClassName;
+        String bindersClassName;
         String grpcStub; // fully-qualified class name;
+        String grpcClass; // fully-qualified class name of the grpc-java outer class, e.x. com.foo.FooServiceGrpc
         List<ResourceMethodToGenerate> methods;
         boolean isProxy;
+        boolean useExecutor;
+        boolean staticBinding;
+        boolean warmUp;
         String fileName;
+        String routesFileName;
+        String bindersFileName;
+        String reflectConfigFileName;
 
         String grpcJerseyVersion() {
             return Build.version();
@@ -343,6 +648,95 @@ public class CodeGenerator {
         List<ResourceMethodToGenerate> streamMethods() {
             return FluentIterable.from(methods).filter(ResourceMethodToGenerate::isStreaming).toList();
         }
+
+        boolean hasSingleFlight() {
+            return methods.stream().anyMatch(ResourceMethodToGenerate::singleFlight);
+        }
+
+        /**
+         * Methods with the batch option, once each regardless of their number of bindings.
+         */
+        List<ResourceMethodToGenerate> batchedMethods() {
+            Set<String> methodNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.getBatch() != null && methodNames.add(m.getMethodName()))
+                    .toList();
+        }
+
+        /**
+         * Request types bound from query parameters, once each.
+         */
+        List<QueryBinder> queryBinders() {
+            Set<String> typeNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.getBodyFieldPath() == null
+                            && typeNames.add(m.getInputDescriptor().getFullName()))
+                    .transform(m -> new QueryBinder(
+                            StaticBinding.queryMethodName(m.getInputDescriptor()),
+                            m.getRequestType(),
+                            StaticBinding.queryParams(m.getInputDescriptor())))
+                    .toList();
+        }
+
+        /**
+         * native-image reflection metadata for the generated classes and the messages of the service.
+         */
+        String reflectConfig(boolean generateRoutes) {
+            List<String> generatedClasses = new ArrayList<>();
+            generatedClasses.add(javaPackage + "." + className);
+            if (generateRoutes) {
+                generatedClasses.add(javaPackage + "." + routesClassName);
+            }
+
+            List<Descriptors.Descriptor> roots = new ArrayList<>();
+            for (Descriptors.MethodDescriptor method : serviceDescriptor.getMethods()) {
+                roots.add(method.getInputType());
+                roots.add(method.getOutputType());
+            }
+
+            return StaticBinding.reflectConfig(generatedClasses, roots);
+        }
+
+        /**
+         * Methods with a json option, once each regardless of their number of bindings.
+         */
+        List<ResourceMethodToGenerate> jsonProfiledMethods() {
+            Set<String> methodNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.getJsonOutput() != null && methodNames.add(m.getMethodName()))
+                    .toList();
+        }
+
+        /**
+         * Methods with the fanout option and a GET binding, once each.
+         */
+        List<ResourceMethodToGenerate> fanoutMethods() {
+            Set<String> methodNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.fanout() && methodNames.add(m.getMethodName()))
+                    .toList();
+        }
+
+        /**
+         * Methods whose handlers are called by warmUp(), once each. The warm-up stub of direct resources overrides
+         * them.
+         */
+        List<ResourceMethodToGenerate> warmUpMethods() {
+            Set<String> methodNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.warmUpHandler() && methodNames.add(m.getMethodName()))
+                    .toList();
+        }
+
+        /**
+         * Methods with the sse option, once each.
+         */
+        List<ResourceMethodToGenerate> sseMethods() {
+            Set<String> methodNames = Sets.newHashSet();
+            return FluentIterable.from(methods)
+                    .filter(m -> m.getSse() != null && methodNames.add(m.getMethodName()))
+                    .toList();
+        }
     }
 
     @Value
@@ -363,28 +757,217 @@ public class CodeGenerator {
         String descriptorJoined() {
             return Joiner.on(',').join(descriptorPath());
         }
+
+        /**
+         * Typed setter of the static option, for the resource method parameter holding the value.
+         */
+        String staticSetter() {
+            return StaticBinding.setter(fieldDescriptor, "r", nameSanitized());
+        }
+
+        /**
+         * Typed setter of the static option, for route binders.
+         */
+        String routeStaticSetter() {
+            return StaticBinding.setter(fieldDescriptor, "r", "request.pathParameter(\"" + name + "\")");
+        }
+    }
+
+    @Value
+    static class QueryBinder {
+        String methodName;
+        String requestType;
+        List<StaticBinding.QueryParam> params;
     }
 
     @Value
     static class ResourceMethodToGenerate {
+        private static final ImmutableList<String> DEFAULT_KEY_HEADERS = ImmutableList.of("Authorization", "Cookie");
+
+        String fullMethodName; // e.x. package.Service/Method
         String methodName;
         String method; // GET, POST...
         String path;
         List<PathParam> pathParams;
         String bodyFieldPath;
+        List<Descriptors.FieldDescriptor> bodyFields; // empty for "*"
+        Descriptors.Descriptor inputDescriptor;
         String requestType;
         String responseType;
         int methodIndex;
         boolean isClientStreaming;
         boolean isServerStreaming;
+        MethodOptions options;
+        BatchSpec batch; // null unless the method has the batch option
+        JsonOutput jsonOutput; // null unless the method or its service has the json option
+        SseSpec sse; // null unless the method has the sse option
 
         String methodNameLower() {
             return CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_CAMEL, methodName);
         }
 
+        /**
+         * Generated method binding the query parameters of the request type, see the static option.
+         */
+        String queryMethod() {
+            return StaticBinding.queryMethodName(inputDescriptor);
+        }
+
+        /**
+         * Part of the warm-up sample request printed as the body, e.x. "warmUpRequest.getNt().getNnt()" for body
+         * "nt.nnt".
+         */
+        String bodySample() {
+            StringBuilder sample = new StringBuilder("warmUpRequest");
+            for (Descriptors.FieldDescriptor field : bodyFields) {
+                sample.append(".get").append(ProtobufDescriptorJavaUtil.javaAccessorName(field)).append("()");
+            }
+            return sample.toString();
+        }
+
+        /**
+         * Printer of the responses of this method in its GrpcJerseyConfig.
+         */
+        String responsePrinter() {
+            return isStreaming() ? "getStreamPrinter" : "getUnaryPrinter";
+        }
+
+        /**
+         * Builder the body is merged into, e.x. "r.getNtBuilder().getNntBuilder()" for body "nt.nnt".
+         */
+        String bodyTarget() {
+            StringBuilder target = new StringBuilder("r");
+            for (Descriptors.FieldDescriptor field : bodyFields) {
+                target.append(".get").append(ProtobufDescriptorJavaUtil.javaAccessorName(field)).append("Builder()");
+            }
+            return target.toString();
+        }
+
         boolean isStreaming() {
             return isServerStreaming || isClientStreaming;
         }
+
+        /**
+         * Options of this binding implemented by the Jersey resource only, ignored by the routes of the routes option.
+         */
+        List<String> optionsIgnoredByRoutes() {
+            ImmutableList.Builder<String> ignored = ImmutableList.builder();
+            if (singleFlight()) {
+                ignored.add("single_flight");
+            }
+            if (cache()) {
+                ignored.add("cache");
+            }
+            if (etag()) {
+                ignored.add("etag");
+            }
+            if (batch != null) {
+                ignored.add("batch");
+            }
+            if (fanout()) {
+                ignored.add("fanout");
+            }
+            return ignored.build();
+        }
+
+        /**
+         * Whether warmUp() calls the handler of this binding. Stream handlers need the servlet request of a container,
+         * and batched calls are answered after the batch window, only their binding and serialization are warmed up.
+         */
+        boolean warmUpHandler() {
+            return !isStreaming() && batch == null;
+        }
+
+        /**
+         * Single-flight only applies to GET bindings, other bindings of the same method aren't coalesced.
+         */
+        boolean singleFlight() {
+            return options.getSingleFlight() && method.equals("GET") && !isStreaming();
+        }
+
+        /**
+         * Like single-flight, caching only applies to GET bindings.
+         */
+        boolean cache() {
+            return options.getCache() && method.equals("GET") && !isStreaming();
+        }
+
+        long cacheTtlMillis() {
+            return Durations.toMillis(options.getCacheTtl());
+        }
+
+        /**
+         * ETags are only computed for GET bindings.
+         */
+        boolean etag() {
+            return options.getEtag() && method.equals("GET") && !isStreaming();
+        }
+
+        boolean keyed() {
+            return singleFlight() || cache();
+        }
+
+        /**
+         * Like single-flight, fan-out only applies to GET bindings.
+         */
+        boolean fanout() {
+            return options.hasFanout() && method.equals("GET") && isServerStreaming;
+        }
+
+        int fanoutBufferSize() {
+            return options.getFanout().getBufferSize();
+        }
+
+        String fanoutSlowConsumer() {
+            return options.getFanout().getSlowConsumer().name();
+        }
+
+        /**
+         * Field of the generated class holding the {@code GrpcJerseyConfig} of this method.
+         */
+        String configField() {
+            return jsonOutput == null ? "config" : methodNameLower() + "Config";
+        }
+
+        List<String> keyHeaders() {
+            return options.getKeyHeadersList().isEmpty() ? DEFAULT_KEY_HEADERS : options.getKeyHeadersList();
+        }
+
+        /**
+         * Expression of the {@code ServerSentEvents} of this method.
+         */
+        String sseEvents() {
+            return sse == null ? "ServerSentEvents.none()" : methodNameLower() + "Events";
+        }
+    }
+
+    @Value
+    static class SseSpec {
+        String eventId; // Java expression of the id of "response", null without an id_field
+        String lastEventIdField; // null without a last_event_id_field
+        List<Descriptors.FieldDescriptor> lastEventIdPath;
+        long retryMillis;
+
+        /**
+         * Typed setter of the static option, from the "lastEventId" header value.
+         */
+        String lastEventIdSetter() {
+            return StaticBinding.setter(lastEventIdPath, "r", "lastEventId");
+        }
+    }
+
+    @Value
+    static class BatchSpec {
+        static final long DEFAULT_WINDOW_MICROS = 2_000;
+        static final int DEFAULT_MAX_SIZE = 100;
+
+        String batchMethodNameLower;
+        String batchRequestType;
+        String batchResponseType;
+        String requestField; // Java accessor name, e.x. "Requests" for addAllRequests
+        String responseField;
+        long windowMicros;
+        int maxSize;
     }
 
     /**
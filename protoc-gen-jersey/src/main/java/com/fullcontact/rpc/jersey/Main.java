@@ -1,5 +1,6 @@
 package com.fullcontact.rpc.jersey;
 
+import com.fullcontact.rpc.OptionsProto;
 import com.google.api.AnnotationsProto;
 import com.google.common.io.ByteStreams;
 import com.google.protobuf.Descriptors;
@@ -32,6 +33,7 @@ public class Main {
 
         ExtensionRegistryLite registryLite = ExtensionRegistryLite.newInstance();
         AnnotationsProto.registerAllExtensions(registryLite);
+        OptionsProto.registerAllExtensions(registryLite);
 
         CodeGenerator codeGenerator = new CodeGenerator();
         PluginProtos.CodeGeneratorRequest request = PluginProtos.CodeGeneratorRequest.parseFrom(is, registryLite);
@@ -0,0 +1,279 @@
+package com.fullcontact.rpc.jersey;
+
+import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.GsonBuilder;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DoubleValue;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.UInt64Value;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Value;
+
+/**
+ * Java source for the {@code static} option, which binds path and query parameters through the typed setters of the
+ * request builders and {@link ParamDecoders}, never looking up descriptors at request time. Also generates the
+ * reflection metadata GraalVM's native-image needs for the classes only reached reflectively (by Jersey and protobuf's
+ * JSON support).
+ */
+final class StaticBinding {
+    private static final ImmutableSet<String> WRAPPERS = ImmutableSet.of(
+            DoubleValue.getDescriptor().getFullName(),
+            FloatValue.getDescriptor().getFullName(),
+            Int64Value.getDescriptor().getFullName(),
+            UInt64Value.getDescriptor().getFullName(),
+            Int32Value.getDescriptor().getFullName(),
+            UInt32Value.getDescriptor().getFullName(),
+            BoolValue.getDescriptor().getFullName(),
+            StringValue.getDescriptor().getFullName(),
+            BytesValue.getDescriptor().getFullName());
+
+    private StaticBinding() {}
+
+    /**
+     * Name of the generated method binding the query parameters of a request type.
+     */
+    static String queryMethodName(Descriptors.Descriptor type) {
+        return "parseQuery_" + type.getFullName().replace('.', '_');
+    }
+
+    /**
+     * Statement setting the field at the end of the path from a single value, e.x.
+     * {@code r.getNtBuilder().setF1(value);}.
+     *
+     * @param value Java expression of the String value
+     */
+    static String setter(List<FieldDescriptor> path, String target, String value) {
+        FieldDescriptor field = path.get(path.size() - 1);
+        String builder = builder(path, target);
+        String accessor = ProtobufDescriptorJavaUtil.javaAccessorName(field);
+
+        if (field.isMapField()) {
+            return "ParamDecoders.unsupported(\"" + field.getFullName() + "\", " + value + ");";
+        }
+        if (field.isRepeated()) {
+            return builder + ".clear" + accessor + "().add" + accessor + "(" + decode(field, value) + ");";
+        }
+        return builder + ".set" + accessor + "(" + decode(field, value) + ");";
+    }
+
+    /**
+     * Statements setting the field at the end of the path from the values of a query parameter.
+     *
+     * @param values Java expression of the List&lt;String&gt; of values
+     */
+    static List<String> querySetter(List<FieldDescriptor> path, String target, String values) {
+        FieldDescriptor field = path.get(path.size() - 1);
+        String builder = builder(path, target);
+        String accessor = ProtobufDescriptorJavaUtil.javaAccessorName(field);
+
+        if (field.isMapField()) {
+            return ImmutableList.of(
+                    "ParamDecoders.unsupported(\"" + field.getFullName() + "\", String.valueOf(" + values + "));");
+        }
+        if (field.isRepeated()) {
+            return ImmutableList.of(
+                    builder + ".clear" + accessor + "();",
+                    "for (String value : " + values + ") {",
+                    "    " + builder + ".add" + accessor + "(" + decode(field, "value") + ");",
+                    "}");
+        }
+        return ImmutableList.of(builder + ".set" + accessor + "("
+                + decode(field, "ParamDecoders.single(\"" + field.getFullName() + "\", " + values + ")") + ");");
+    }
+
+    /**
+     * Query parameters bound to a request type, one per field path. Like the descriptor-driven binding, paths descend
+     * into singular message fields. Recursive types are only descended into once per path.
+     */
+    static List<QueryParam> queryParams(Descriptors.Descriptor type) {
+        List<QueryParam> params = new ArrayList<>();
+        Set<String> onPath = new LinkedHashSet<>();
+        onPath.add(type.getFullName());
+        collectQueryParams(type, "", ImmutableList.of(), onPath, params);
+
+        return params;
+    }
+
+    private static void collectQueryParams(Descriptors.Descriptor type,
+            String prefix,
+            List<FieldDescriptor> parents,
+            Set<String> onPath,
+            List<QueryParam> params) {
+        for (FieldDescriptor field : type.getFields()) {
+            List<FieldDescriptor> path = ImmutableList.<FieldDescriptor>builder().addAll(parents).add(field).build();
+            params.add(new QueryParam(prefix + field.getName(), querySetter(path, "r", "values")));
+
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && !field.isRepeated()
+                    && onPath.add(field.getMessageType().getFullName())) {
+                collectQueryParams(field.getMessageType(), prefix + field.getName() + ".", path, onPath, params);
+                onPath.remove(field.getMessageType().getFullName());
+            }
+        }
+    }
+
+    private static String builder(List<FieldDescriptor> path, String target) {
+        StringBuilder builder = new StringBuilder(target);
+        for (FieldDescriptor field : path.subList(0, path.size() - 1)) {
+            builder.append(".get").append(ProtobufDescriptorJavaUtil.javaAccessorName(field)).append("Builder()");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Java expression decoding a String expression into the type of the field's setter.
+     */
+    private static String decode(FieldDescriptor field, String value) {
+        String name = "\"" + field.getFullName() + "\"";
+        switch (field.getType()) {
+            case DOUBLE:
+                return "ParamDecoders.parseDouble(" + name + ", " + value + ")";
+            case FLOAT:
+                return "ParamDecoders.parseFloat(" + name + ", " + value + ")";
+            case BOOL:
+                return "Boolean.parseBoolean(" + value + ")";
+            case STRING:
+                return value;
+            case BYTES:
+                return "ParamDecoders.parseBytes(" + name + ", " + value + ")";
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return "ParamDecoders.parseInt32(" + name + ", " + value + ")";
+            case UINT32:
+            case FIXED32:
+                return "ParamDecoders.parseUInt32(" + name + ", " + value + ")";
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return "ParamDecoders.parseInt64(" + name + ", " + value + ")";
+            case UINT64:
+            case FIXED64:
+                return "ParamDecoders.parseUInt64(" + name + ", " + value + ")";
+            case ENUM:
+                return "ParamDecoders.parseEnum(" + name + ", " + value + ", "
+                        + ProtobufDescriptorJavaUtil.genClassName(field.getEnumType()) + ".class)";
+            case MESSAGE:
+                return decodeMessage(field, name, value);
+            default:
+                // Groups
+                return unsupported(ProtobufDescriptorJavaUtil.genClassName(field.getMessageType()), name, value);
+        }
+    }
+
+    private static String decodeMessage(FieldDescriptor field, String name, String value) {
+        String typeName = field.getMessageType().getFullName();
+        if (typeName.equals(Timestamp.getDescriptor().getFullName())) {
+            return "ParamDecoders.parseTimestamp(" + name + ", " + value + ")";
+        }
+        if (typeName.equals(Duration.getDescriptor().getFullName())) {
+            return "ParamDecoders.parseDuration(" + name + ", " + value + ")";
+        }
+        if (typeName.equals(FieldMask.getDescriptor().getFullName())) {
+            return "ParamDecoders.parseFieldMask(" + name + ", " + value + ")";
+        }
+        if (WRAPPERS.contains(typeName)) {
+            FieldDescriptor valueField = field.getMessageType().findFieldByName("value");
+            return ProtobufDescriptorJavaUtil.genClassName(field.getMessageType()) + ".newBuilder().setValue("
+                    + decode(valueField, value) + ").build()";
+        }
+
+        return unsupported(ProtobufDescriptorJavaUtil.genClassName(field.getMessageType()), name, value);
+    }
+
+    private static String unsupported(String type, String name, String value) {
+        // Typed explicitly, message setters are overloaded with their builder.
+        return "ParamDecoders.<" + type + ">unsupported(" + name + ", " + value + ")";
+    }
+
+    /**
+     * native-image reflection metadata of a resource: the generated classes Jersey instantiates and calls, and the
+     * messages, builders and enums protobuf reaches reflectively when parsing and printing JSON.
+     */
+    static String reflectConfig(Collection<String> generatedClasses, Collection<Descriptors.Descriptor> roots) {
+        Set<Descriptors.Descriptor> messages = new LinkedHashSet<>();
+        Set<Descriptors.EnumDescriptor> enums = new LinkedHashSet<>();
+        for (Descriptors.Descriptor root : roots) {
+            collectTypes(root, messages, enums);
+        }
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (String generatedClass : generatedClasses) {
+            entries.add(reflectEntry(generatedClass, true));
+        }
+        for (Descriptors.Descriptor message : messages) {
+            entries.add(reflectEntry(ProtobufDescriptorJavaUtil.binaryClassName(message), false));
+            entries.add(reflectEntry(ProtobufDescriptorJavaUtil.binaryClassName(message) + "$Builder", false));
+        }
+        for (Descriptors.EnumDescriptor enumType : enums) {
+            entries.add(reflectEntry(ProtobufDescriptorJavaUtil.binaryClassName(enumType), false));
+        }
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(entries);
+    }
+
+    private static void collectTypes(Descriptors.Descriptor type,
+            Set<Descriptors.Descriptor> messages,
+            Set<Descriptors.EnumDescriptor> enums) {
+        if (!messages.add(type)) {
+            return;
+        }
+
+        for (FieldDescriptor field : type.getFields()) {
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                // Map entries are only reached through their key and value types.
+                if (field.isMapField()) {
+                    for (FieldDescriptor entryField : field.getMessageType().getFields()) {
+                        if (entryField.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                            collectTypes(entryField.getMessageType(), messages, enums);
+                        } else if (entryField.getJavaType() == FieldDescriptor.JavaType.ENUM) {
+                            enums.add(entryField.getEnumType());
+                        }
+                    }
+                } else {
+                    collectTypes(field.getMessageType(), messages, enums);
+                }
+            } else if (field.getJavaType() == FieldDescriptor.JavaType.ENUM) {
+                enums.add(field.getEnumType());
+            }
+        }
+    }
+
+    private static Map<String, Object> reflectEntry(String className, boolean constructors) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("name", className);
+        if (constructors) {
+            entry.put("allPublicConstructors", true);
+        }
+        entry.put("allPublicMethods", true);
+
+        return ImmutableMap.copyOf(entry);
+    }
+
+    /**
+     * Case of the generated query parameter switch, e.x. "nt.f1".
+     */
+    @Value
+    static class QueryParam {
+        String name;
+        List<String> statements;
+    }
+}
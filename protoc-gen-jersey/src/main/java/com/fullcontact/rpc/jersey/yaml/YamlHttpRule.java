@@ -1,7 +1,15 @@
 package com.fullcontact.rpc.jersey.yaml;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fullcontact.rpc.MethodOptions;
+import com.fullcontact.rpc.OptionsProto;
+import com.google.api.AnnotationsProto;
 import com.google.api.HttpRule;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Value;
 
@@ -20,6 +28,42 @@ public class YamlHttpRule {
     String delete;
     String body;
     List<YamlHttpRule> additionalBindings;
+    /**
+     * grpc-jersey {@link MethodOptions}, keyed by their JSON field names.
+     */
+    Map<String, Object> options;
+
+    /**
+     * Applies this rule over the options declared in the .proto. A binding defined in the rule replaces the declared
+     * HTTP rule, grpc-jersey options are merged over the declared ones.
+     */
+    public DescriptorProtos.MethodOptions applyTo(DescriptorProtos.MethodOptions declared) {
+        DescriptorProtos.MethodOptions.Builder builder = declared.toBuilder();
+        if (get != null || put != null || delete != null || post != null) {
+            builder.setExtension(AnnotationsProto.http, buildHttpRule());
+        }
+        if (options != null) {
+            builder.setExtension(OptionsProto.method, declared.getExtension(OptionsProto.method)
+                    .toBuilder()
+                    .mergeFrom(buildMethodOptions())
+                    .build());
+        }
+
+        return builder.build();
+    }
+
+    public MethodOptions buildMethodOptions() {
+        MethodOptions.Builder builder = MethodOptions.newBuilder();
+        if (options != null) {
+            try {
+                JsonFormat.parser().merge(new ObjectMapper().writeValueAsString(options), builder);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid options for selector " + selector + ": " + e.getMessage(), e);
+            }
+        }
+
+        return builder.build();
+    }
 
     public HttpRule buildHttpRule() {
         HttpRule.Builder builder = HttpRule.newBuilder();
@@ -45,6 +89,4 @@ public class YamlHttpRule {
 
         return builder.build();
     }
-
-
 }
@@ -0,0 +1,102 @@
+package com.fullcontact.rpc.jersey.yaml;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selector index over the rules of a {@link YamlHttpConfig}, built once per generation. Exact selectors are hashed,
+ * wildcard selectors (`*` or `com.foo.*`) are kept in a trie keyed by package segment.
+ *
+ * All rules matching a method apply, least specific first: `*`, then wildcards from the shortest prefix to the
+ * longest, then exact selectors. Rules with the same selector apply in file order, so the most specific rule wins.
+ */
+public class YamlHttpRuleIndex {
+    private static final Splitter DOT = Splitter.on('.');
+
+    private final Map<String, List<YamlHttpRule>> exact = new HashMap<>();
+    private final Node wildcards = new Node();
+    private final List<YamlHttpRule> rules;
+    private final Set<YamlHttpRule> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public YamlHttpRuleIndex(List<YamlHttpRule> rules) {
+        this.rules = rules == null ? ImmutableList.of() : ImmutableList.copyOf(rules);
+
+        for (YamlHttpRule rule : this.rules) {
+            String selector = rule.getSelector();
+            if (selector == null || selector.isEmpty()) {
+                throw new IllegalArgumentException("YAML rule is missing a selector");
+            }
+
+            if (selector.equals("*")) {
+                wildcards.rules.add(rule);
+            } else if (selector.endsWith(".*")) {
+                Node node = wildcards;
+                for (String segment : DOT.split(selector.substring(0, selector.length() - 2))) {
+                    node = node.children.computeIfAbsent(checkSegment(selector, segment), s -> new Node());
+                }
+                node.rules.add(rule);
+            } else {
+                for (String segment : DOT.split(selector)) {
+                    checkSegment(selector, segment);
+                }
+                exact.computeIfAbsent(selector, s -> new ArrayList<>()).add(rule);
+            }
+        }
+    }
+
+    private static String checkSegment(String selector, String segment) {
+        if (segment.isEmpty() || segment.contains("*")) {
+            throw new IllegalArgumentException("Invalid YAML selector " + selector
+                    + ", wildcards are only supported as the last segment (e.x. com.foo.*)");
+        }
+
+        return segment;
+    }
+
+    /**
+     * Rules matching a fully-qualified method name (e.x. com.foo.Service.Method), in the order they apply.
+     */
+    public synchronized List<YamlHttpRule> rulesFor(String fullMethodName) {
+        ImmutableList.Builder<YamlHttpRule> builder = ImmutableList.builder();
+
+        // A wildcard only matches names with at least one more segment, the method's own segment is never walked.
+        List<String> segments = DOT.splitToList(fullMethodName);
+        Node node = wildcards;
+        for (int i = 0; node != null; i++) {
+            builder.addAll(node.rules);
+            node = i < segments.size() - 1 ? node.children.get(segments.get(i)) : null;
+        }
+        builder.addAll(exact.getOrDefault(fullMethodName, ImmutableList.of()));
+
+        List<YamlHttpRule> result = builder.build();
+        matched.addAll(result);
+
+        return result;
+    }
+
+    /**
+     * Rules that haven't matched any method passed to {@link #rulesFor(String)} so far, in file order.
+     */
+    public synchronized List<YamlHttpRule> unmatchedRules() {
+        ImmutableList.Builder<YamlHttpRule> builder = ImmutableList.builder();
+        for (YamlHttpRule rule : rules) {
+            if (!matched.contains(rule)) {
+                builder.add(rule);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<YamlHttpRule> rules = new ArrayList<>();
+    }
+}
@@ -0,0 +1,39 @@
+package {{javaPackage}};
+
+import com.fullcontact.rpc.jersey.ParamDecoders;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds query parameters through the typed setters of the request builders, generated by the static option.
+ */
+@javax.annotation.Generated(
+    value = "by grpc-jersey compiler (version {{grpcJerseyVersion}})",
+    comments = "Source: {{sourceProtoFile}}")
+final class {{bindersClassName}} {
+    private {{bindersClassName}}() {}
+    {{#queryBinders}}
+
+    static void {{methodName}}(Map<String, List<String>> params, {{requestType}}.Builder r)
+            throws InvalidProtocolBufferException {
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            List<String> values = param.getValue();
+            switch (param.getKey()) {
+                {{#params}}
+                case "{{name}}":
+                    {{#statements}}
+                    {{{.}}}
+                    {{/statements}}
+                    break;
+                {{/params}}
+                default:
+                    // Not a field of the request, e.x. "fields".
+                    break;
+            }
+        }
+    }
+    {{/queryBinders}}
+}
@@ -1,16 +1,39 @@
 package {{javaPackage}};
 
+import com.fullcontact.rpc.jersey.ConcurrencyLimits;
+import com.fullcontact.rpc.jersey.EntityTags;
+import com.fullcontact.rpc.jersey.GrpcJerseyConfig;
 import com.fullcontact.rpc.jersey.HttpHeaderInterceptors;
 import com.fullcontact.rpc.jersey.JerseyUnaryObserver;
 import com.fullcontact.rpc.jersey.JerseyStreamingObserver;
+import com.fullcontact.rpc.jersey.JsonOutputProfile;
+import com.fullcontact.rpc.jersey.MicroBatcher;
+import com.fullcontact.rpc.jersey.ParamDecoders;
+import com.fullcontact.rpc.jersey.RequestKey;
 import com.fullcontact.rpc.jersey.RequestParser;
+import com.fullcontact.rpc.jersey.ResponseCaching;
+import com.fullcontact.rpc.jersey.ResponseCompression;
+import com.fullcontact.rpc.jersey.ResponseMask;
+import com.fullcontact.rpc.jersey.RpcExecutor;
+import com.fullcontact.rpc.jersey.ServerSentEvents;
+import com.fullcontact.rpc.jersey.SingleFlight;
+import com.fullcontact.rpc.jersey.StreamFormat;
+import com.fullcontact.rpc.jersey.StreamHub;
+import com.fullcontact.rpc.jersey.TypeRegistries;
+import com.fullcontact.rpc.jersey.UnaryResponseSink;
+import com.fullcontact.rpc.jersey.WarmUp;
+import com.fullcontact.rpc.jersey.WarmUpCall;
 
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.Message;
+import io.grpc.stub.StreamObserver;
 
 import java.io.OutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -19,8 +42,6 @@ import javax.ws.rs.core.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 
-import static com.fullcontact.rpc.jersey.JerseyStreamingObserver.VARIANT_LIST;
-
 @javax.annotation.Generated(
     value = "by grpc-jersey compiler (version {{grpcJerseyVersion}})",
     comments = "Source: {{sourceProtoFile}}")
@@ -28,10 +49,68 @@ import static com.fullcontact.rpc.jersey.JerseyStreamingObserver.VARIANT_LIST;
 @Consumes({"application/json; charset=UTF-8"})
 @Path("/")
 public class {{className}} {
+    // Resolves google.protobuf.Any fields of the messages of {{sourceProtoFile}} and its imports.
+    private static final com.google.protobuf.util.JsonFormat.TypeRegistry TYPE_REGISTRY =
+            TypeRegistries.forService({{grpcClass}}.getServiceDescriptor());
+    {{#jsonProfiledMethods}}
+    private static final JsonOutputProfile {{methodNameLower}}Json = JsonOutputProfile.of(
+            com.fullcontact.rpc.JsonOutput.newBuilder()
+                    {{#jsonOutput}}
+                    .setOmitDefaultValues({{omitDefaultValues}})
+                    .setEnumsAsInts({{enumsAsInts}})
+                    .setPreserveProtoFieldNames({{preserveProtoFieldNames}})
+                    .setCompact({{compact}})
+                    {{/jsonOutput}}
+                    .build());
+    {{/jsonProfiledMethods}}
+    {{#sseMethods}}
+    private static final ServerSentEvents<{{responseType}}> {{methodNameLower}}Events =
+            ServerSentEvents.<{{responseType}}>builder()
+                    {{#sse}}
+                    {{#eventId}}
+                    .eventId(response -> {{{eventId}}})
+                    {{/eventId}}
+                    .retryMillis({{retryMillis}}L)
+                    {{/sse}}
+                    .build();
+    {{/sseMethods}}
     private {{grpcStub}} stub;
+    private final GrpcJerseyConfig config;
+    {{#jsonProfiledMethods}}
+    private final GrpcJerseyConfig {{methodNameLower}}Config;
+    {{/jsonProfiledMethods}}
+    {{#hasSingleFlight}}
+    private final SingleFlight singleFlight = new SingleFlight();
+    {{/hasSingleFlight}}
+    {{#batchedMethods}}
+    private final MicroBatcher<{{grpcStub}}, {{requestType}}, {{responseType}}> {{methodNameLower}}Batcher;
+    {{/batchedMethods}}
+    {{#fanoutMethods}}
+    private final StreamHub<{{responseType}}> {{methodNameLower}}Hub = new StreamHub<>(
+            com.fullcontact.rpc.FanoutOptions.newBuilder()
+                    .setBufferSize({{fanoutBufferSize}})
+                    .setSlowConsumer(com.fullcontact.rpc.FanoutOptions.SlowConsumer.{{fanoutSlowConsumer}})
+                    .build());
+    {{/fanoutMethods}}
 
     public {{className}}({{grpcStub}} stub) {
+        this(stub, GrpcJerseyConfig.global());
+    }
+
+    public {{className}}({{grpcStub}} stub, GrpcJerseyConfig config) {
         this.stub = stub;
+        this.config = config.withTypeRegistry(TYPE_REGISTRY);
+        {{#jsonProfiledMethods}}
+        this.{{methodNameLower}}Config = config.withJsonOutput({{methodNameLower}}Json).withTypeRegistry(TYPE_REGISTRY);
+        {{/jsonProfiledMethods}}
+        {{#batchedMethods}}
+        this.{{methodNameLower}}Batcher =
+                new MicroBatcher<>({{#batch}}{{windowMicros}}L, {{maxSize}}, (batchStub, requests, observer) ->
+                        batchStub.{{batchMethodNameLower}}(
+                                {{batchRequestType}}.newBuilder().addAll{{requestField}}(requests).build(),
+                                MicroBatcher.responses(observer, {{batchResponseType}}::get{{responseField}}List)),
+                        config.getRpcExecutor());{{/batch}}
+        {{/batchedMethods}}
     }
     {{#unaryMethods}}
 
@@ -47,37 +126,127 @@ public class {{className}} {
             ,String body
 {{/bodyFieldPath}}
             ,@Suspended final AsyncResponse asyncResponse) throws IOException {
+        ConcurrencyLimits.Permit permit = {{configField}}.getLimits().acquire("{{fullMethodName}}");
+        if (permit == null) {
+            {{configField}}.getLimits().reject(asyncResponse, "{{fullMethodName}}", {{configField}}.getErrorHandler());
+            return;
+        }
+        {{#batch}}
+        // The batch RPC is shared by the requests of the batch, only their (identical) key headers are forwarded.
+        com.google.common.collect.ImmutableMultimap<String, String> forwardedHeaders =
+            HttpHeaderInterceptors.selectHeaders(headers{{#keyHeaders}}, "{{.}}"{{/keyHeaders}});
+        HttpHeaderInterceptors.HttpHeaderClientInterceptor interceptor =
+            HttpHeaderInterceptors.clientInterceptor(forwardedHeaders);
+        {{/batch}}
+        {{^batch}}
         HttpHeaderInterceptors.HttpHeaderClientInterceptor interceptor =
             HttpHeaderInterceptors.clientInterceptor(headers);
-        JerseyUnaryObserver<{{responseType}}> observer = new JerseyUnaryObserver<>(asyncResponse, interceptor);
+        {{/batch}}
+        UnaryResponseSink sink =
+                ResponseCompression.compressing(headers, UnaryResponseSink.of(asyncResponse), {{configField}});
+        JerseyUnaryObserver<{{responseType}}> observer =
+                new JerseyUnaryObserver<>(sink, interceptor, null, {{configField}});
         {{requestType}}.Builder r = {{requestType}}.newBuilder();
         {{grpcStub}} stub = this.stub;
+        ResponseMask responseMask;
         try {
             {{#isProxy}}
             stub = RequestParser.parseHeaders(headers, stub);
             stub = stub.withInterceptors(interceptor);
             {{/isProxy}}
             {{#bodyFieldPath}}
-            RequestParser.handleBody("{{bodyFieldPath}}", r, body);
+            RequestParser.mergeBody({{bodyTarget}}, body, {{configField}}.getParser());
             {{/bodyFieldPath}}
             {{^bodyFieldPath}}
+            {{#staticBinding}}
+            {{bindersClassName}}.{{queryMethod}}(uriInfo.getQueryParameters(), r);
+            {{/staticBinding}}
+            {{^staticBinding}}
             RequestParser.parseQueryParams(uriInfo, r);
+            {{/staticBinding}}
             {{/bodyFieldPath}}
             {{#pathParams}}
+            {{#staticBinding}}
+            {{{staticSetter}}}
+            {{/staticBinding}}
+            {{^staticBinding}}
             RequestParser.setFieldSafely(r, "{{name}}", {{nameSanitized}});
+            {{/staticBinding}}
             {{/pathParams}}
+            responseMask = ResponseMask.fromQuery(uriInfo, {{responseType}}.getDescriptor());
+            if (responseMask != null) {
+                responseMask.forward(r);
+            }
         } catch(Exception e) {
+            permit.release();
             observer.onError(e);
             return;
         }
-        stub.{{methodNameLower}}(r.build(), observer);
+        {{requestType}} rpcRequest = r.build();
+        {{#keyed}}
+        RequestKey requestKey =
+                RequestKey.of("{{fullMethodName}}", rpcRequest, headers{{#keyHeaders}}, "{{.}}"{{/keyHeaders}})
+                        .withFields(responseMask);
+        {{/keyed}}
+        {{#etag}}
+        sink = EntityTags.conditional(headers, sink);
+        {{/etag}}
+        {{#cache}}
+        if (ResponseCaching.resumeIfCached({{configField}}.getResponseCache(), requestKey, sink)) {
+            permit.release();
+            return;
+        }
+        {{/cache}}
+        {{#singleFlight}}
+        sink = singleFlight.join(requestKey, sink);
+        if (sink == null) {
+            // Joined an identical call already in flight.
+            permit.release();
+            return;
+        }
+        {{/singleFlight}}
+        {{#cache}}
+        sink = ResponseCaching.storing({{configField}}.getResponseCache(), requestKey, {{cacheTtlMillis}}L, sink);
+        {{/cache}}
+        StreamObserver<{{responseType}}> rpcObserver =
+                permit.releasing(new JerseyUnaryObserver<>(sink, interceptor, responseMask, {{configField}}));
+        {{#batch}}
+        {{methodNameLower}}Batcher.add(
+                RequestKey.ofHeaders("{{fullMethodName}}", headers{{#keyHeaders}}, "{{.}}"{{/keyHeaders}}),
+                {{#isProxy}}
+                RequestParser.parseHeaders(forwardedHeaders, this.stub).withInterceptors(interceptor),
+                {{/isProxy}}
+                {{^isProxy}}
+                stub,
+                {{/isProxy}}
+                rpcRequest,
+                interceptor,
+                rpcObserver);
+        {{/batch}}
+        {{^batch}}
+        {{#useExecutor}}
+        {{grpcStub}} rpcStub = stub;
+        RpcExecutor.execute({{configField}}.getRpcExecutor(), rpcObserver,
+                () -> rpcStub.{{methodNameLower}}(rpcRequest, rpcObserver));
+        {{/useExecutor}}
+        {{^useExecutor}}
+        try {
+            stub.{{methodNameLower}}(rpcRequest, rpcObserver);
+        } catch (RuntimeException e) {
+            // E.x. a service or client interceptor throwing, the call in flight must still complete and release its
+            // permit.
+            rpcObserver.onError(e);
+        }
+        {{/useExecutor}}
+        {{/batch}}
     }
     {{/unaryMethods}}
     {{#streamMethods}}
 
     @{{method}}
     @Path("{{path}}")
-    @Produces({"application/json; charset=utf-8", "text/event-stream; charset=utf-8"})
+    @Produces({"application/json; charset=utf-8", "text/event-stream; charset=utf-8",
+            "application/x-protobuf-stream"})
     public void {{methodName}}_{{method}}_{{methodIndex}}(
             {{#pathParams}}
             @PathParam("{{name}}") String {{nameSanitized}},
@@ -90,13 +259,19 @@ public class {{className}} {
             @Context Request context
             {{#bodyFieldPath}}
             ,String body{{/bodyFieldPath}}) throws IOException {
-        Variant variant = context.selectVariant(VARIANT_LIST);
-        boolean sse = "text/event-stream".equals(variant.getMediaType().toString());
+        StreamFormat format = StreamFormat.negotiate(context, headers);
 
+        ConcurrencyLimits.Permit permit = {{configField}}.getLimits().acquireStream("{{fullMethodName}}");
+        if (permit == null) {
+            {{configField}}.getLimits().reject(asyncResponse, "{{fullMethodName}}", {{configField}}.getErrorHandler());
+            return;
+        }
         HttpHeaderInterceptors.HttpHeaderClientInterceptor interceptor =
             HttpHeaderInterceptors.clientInterceptor(headers);
         JerseyStreamingObserver<{{responseType}}> observer =
-            new JerseyStreamingObserver<>(interceptor, servletRequest, servletResponse, sse);
+            new JerseyStreamingObserver<>(interceptor, servletRequest, servletResponse, format, {{sseEvents}},
+                {{#useExecutor}}{{configField}}.getRpcExecutor(){{/useExecutor}}{{^useExecutor}}null{{/useExecutor}},
+                {{configField}});
         {{requestType}}.Builder r = {{requestType}}.newBuilder();
         {{grpcStub}} stub = this.stub;
         try {
@@ -105,20 +280,172 @@ public class {{className}} {
             stub = stub.withInterceptors(interceptor);
             {{/isProxy}}
             {{#bodyFieldPath}}
-            RequestParser.handleBody("{{bodyFieldPath}}", r, body);
+            RequestParser.mergeBody({{bodyTarget}}, body, {{configField}}.getParser());
             {{/bodyFieldPath}}
             {{^bodyFieldPath}}
+            {{#staticBinding}}
+            {{bindersClassName}}.{{queryMethod}}(uriInfo.getQueryParameters(), r);
+            {{/staticBinding}}
+            {{^staticBinding}}
             RequestParser.parseQueryParams(uriInfo, r);
+            {{/staticBinding}}
             {{/bodyFieldPath}}
             {{#pathParams}}
+            {{#staticBinding}}
+            {{{staticSetter}}}
+            {{/staticBinding}}
+            {{^staticBinding}}
             RequestParser.setFieldSafely(r, "{{name}}", {{nameSanitized}});
+            {{/staticBinding}}
             {{/pathParams}}
+            {{#sse}}
+            {{#lastEventIdField}}
+            String lastEventId = headers.getHeaderString(ServerSentEvents.LAST_EVENT_ID);
+            if (lastEventId != null) {
+                {{#staticBinding}}
+                {{{lastEventIdSetter}}}
+                {{/staticBinding}}
+                {{^staticBinding}}
+                RequestParser.setFieldSafely(r, "{{lastEventIdField}}", lastEventId);
+                {{/staticBinding}}
+            }
+            {{/lastEventIdField}}
+            {{/sse}}
         } catch(Exception e) {
+            permit.release();
             observer.onError(e);
             return;
         }
 
-        stub.{{methodNameLower}}(r.build(), observer);
+        {{requestType}} rpcRequest = r.build();
+        {{#fanout}}
+        StreamObserver<{{responseType}}> upstream = {{methodNameLower}}Hub.subscribe(
+                RequestKey.of("{{fullMethodName}}", rpcRequest, headers{{#keyHeaders}}, "{{.}}"{{/keyHeaders}}),
+                observer,
+                interceptor,
+                {{sseEvents}},
+                {{configField}});
+        if (upstream == null) {
+            // Subscribed to an identical stream already open.
+            permit.release();
+            return;
+        }
+        StreamObserver<{{responseType}}> rpcObserver = permit.releasing(upstream);
+        {{/fanout}}
+        {{^fanout}}
+        StreamObserver<{{responseType}}> rpcObserver = permit.releasing(observer);
+        {{/fanout}}
+        {{#useExecutor}}
+        {{grpcStub}} rpcStub = stub;
+        RpcExecutor.execute({{configField}}.getRpcExecutor(), rpcObserver,
+                () -> rpcStub.{{methodNameLower}}(rpcRequest, rpcObserver));
+        {{/useExecutor}}
+        {{^useExecutor}}
+        try {
+            stub.{{methodNameLower}}(rpcRequest, rpcObserver);
+        } catch (RuntimeException e) {
+            // E.x. a service or client interceptor throwing, the stream must still end and release its permit.
+            rpcObserver.onError(e);
+        }
+        {{/useExecutor}}
     }
     {{/streamMethods}}
+    {{#warmUp}}
+
+    /**
+     * Exercises binding and serialization of every route {@link WarmUp#DEFAULT_ITERATIONS} times with synthesized
+     * requests and responses, without calling the service. Unary handlers are called on a resource of their own, with
+     * a stub answering the synthesized response. Meant to be called before the server reports ready.
+     *
+     * @return routes which failed to warm up, empty if all of them did
+     */
+    public Map<String, Exception> warmUp() {
+        return warmUp(WarmUp.DEFAULT_ITERATIONS);
+    }
+
+    public Map<String, Exception> warmUp(int iterations) {
+        WarmUp.Runner runner = new WarmUp.Runner(iterations);
+        {{className}} warmUpResource = new {{className}}(warmUpStub(), WarmUp.config(config));
+        {{#methods}}
+        {
+            {{requestType}} warmUpRequest = WarmUp.sample({{requestType}}.getDefaultInstance());
+            {{responseType}} warmUpResponse = WarmUp.sample({{responseType}}.getDefaultInstance());
+            {{#bodyFieldPath}}
+            Map<String, List<String>> warmUpQuery = Collections.emptyMap();
+            {{/bodyFieldPath}}
+            {{^bodyFieldPath}}
+            Map<String, List<String>> warmUpQuery = WarmUp.queryParameters(warmUpRequest);
+            {{/bodyFieldPath}}
+            {{#pathParams}}
+            String {{nameSanitized}} = WarmUp.pathParameter(warmUpRequest, "{{name}}");
+            {{/pathParams}}
+            runner.run("{{method}} {{path}}", () -> {
+                {{requestType}}.Builder r = {{requestType}}.newBuilder();
+                {{#bodyFieldPath}}
+                String warmUpBody = {{configField}}.getUnaryPrinter().print({{bodySample}});
+                RequestParser.mergeBody({{bodyTarget}}, warmUpBody, {{configField}}.getParser());
+                {{/bodyFieldPath}}
+                {{^bodyFieldPath}}
+                {{#staticBinding}}
+                {{bindersClassName}}.{{queryMethod}}(warmUpQuery, r);
+                {{/staticBinding}}
+                {{^staticBinding}}
+                RequestParser.parseQueryParams(warmUpQuery, r);
+                {{/staticBinding}}
+                {{/bodyFieldPath}}
+                {{#pathParams}}
+                {{#staticBinding}}
+                {{{staticSetter}}}
+                {{/staticBinding}}
+                {{^staticBinding}}
+                RequestParser.setFieldSafely(r, "{{name}}", {{nameSanitized}});
+                {{/staticBinding}}
+                {{/pathParams}}
+                WarmUp.serialize(r.build(), {{configField}}.getUnaryPrinter());
+                WarmUp.serialize(warmUpResponse, {{configField}}.{{responsePrinter}}());
+                {{#warmUpHandler}}
+
+                WarmUpCall warmUpCall = new WarmUpCall(warmUpQuery, {{responseType}}.getDescriptor());
+                warmUpResource.{{methodName}}_{{method}}_{{methodIndex}}(
+                        {{#pathParams}}
+                        {{nameSanitized}},
+                        {{/pathParams}}
+                        warmUpCall.uriInfo(),
+                        warmUpCall.headers(),
+                        {{#bodyFieldPath}}
+                        warmUpBody,
+                        {{/bodyFieldPath}}
+                        warmUpCall);
+                warmUpCall.check();
+                {{/warmUpHandler}}
+            });
+        }
+        {{/methods}}
+        return runner.failures();
+    }
+
+    /**
+     * Stub of the warm-up resource, answering with synthesized responses without calling the service.
+     */
+    private static {{grpcStub}} warmUpStub() {
+        {{#isProxy}}
+        return {{grpcClass}}.newStub(WarmUp.channel());
+        {{/isProxy}}
+        {{^isProxy}}
+        return new {{grpcStub}}() {
+            {{#warmUpMethods}}
+            private final {{responseType}} {{methodNameLower}}Response =
+                    WarmUp.sample({{responseType}}.getDefaultInstance());
+
+            @Override
+            public void {{methodNameLower}}({{requestType}} request,
+                    StreamObserver<{{responseType}}> responseObserver) {
+                responseObserver.onNext({{methodNameLower}}Response);
+                responseObserver.onCompleted();
+            }
+            {{/warmUpMethods}}
+        };
+        {{/isProxy}}
+    }
+    {{/warmUp}}
 }
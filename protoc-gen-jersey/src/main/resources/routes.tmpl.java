@@ -0,0 +1,119 @@
+package {{javaPackage}};
+
+import com.fullcontact.rpc.jersey.GrpcJerseyConfig;
+import com.fullcontact.rpc.jersey.GrpcRoute;
+import com.fullcontact.rpc.jersey.JsonOutputProfile;
+import com.fullcontact.rpc.jersey.ParamDecoders;
+import com.fullcontact.rpc.jersey.PathTemplate;
+import com.fullcontact.rpc.jersey.RequestParser;
+import com.fullcontact.rpc.jersey.ServerSentEvents;
+import com.fullcontact.rpc.jersey.TypeRegistries;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+@javax.annotation.Generated(
+    value = "by grpc-jersey compiler (version {{grpcJerseyVersion}})",
+    comments = "Source: {{sourceProtoFile}}")
+public final class {{routesClassName}} {
+    // Resolves google.protobuf.Any fields of the messages of {{sourceProtoFile}} and its imports.
+    private static final com.google.protobuf.util.JsonFormat.TypeRegistry TYPE_REGISTRY =
+            TypeRegistries.forService({{grpcClass}}.getServiceDescriptor());
+
+    {{#jsonProfiledMethods}}
+    private static final JsonOutputProfile {{methodNameLower}}Json = JsonOutputProfile.of(
+            com.fullcontact.rpc.JsonOutput.newBuilder()
+                    {{#jsonOutput}}
+                    .setOmitDefaultValues({{omitDefaultValues}})
+                    .setEnumsAsInts({{enumsAsInts}})
+                    .setPreserveProtoFieldNames({{preserveProtoFieldNames}})
+                    .setCompact({{compact}})
+                    {{/jsonOutput}}
+                    .build());
+
+    {{/jsonProfiledMethods}}
+    {{#sseMethods}}
+    private static final ServerSentEvents<{{responseType}}> {{methodNameLower}}Events =
+            ServerSentEvents.<{{responseType}}>builder()
+                    {{#sse}}
+                    {{#eventId}}
+                    .eventId(response -> {{{eventId}}})
+                    {{/eventId}}
+                    .retryMillis({{retryMillis}}L)
+                    {{/sse}}
+                    .build();
+
+    {{/sseMethods}}
+    private {{routesClassName}}() {}
+
+    public static List<GrpcRoute<?, ?>> routes(final {{grpcStub}} stub) {
+        return routes(stub, GrpcJerseyConfig.global());
+    }
+
+    public static List<GrpcRoute<?, ?>> routes(final {{grpcStub}} stub, final GrpcJerseyConfig resourceConfig) {
+        GrpcJerseyConfig config = resourceConfig.withTypeRegistry(TYPE_REGISTRY);
+        {{#jsonProfiledMethods}}
+        GrpcJerseyConfig {{methodNameLower}}Config =
+                resourceConfig.withJsonOutput({{methodNameLower}}Json).withTypeRegistry(TYPE_REGISTRY);
+        {{/jsonProfiledMethods}}
+        ImmutableList.Builder<GrpcRoute<?, ?>> routes = ImmutableList.builder();
+        {{#methods}}
+        routes.add(GrpcRoute.<{{requestType}}, {{responseType}}>builder()
+                .methodName("{{methodName}}")
+                .fullMethodName("{{fullMethodName}}")
+                .httpMethod("{{method}}")
+                .pathTemplate(PathTemplate.compile("{{path}}"))
+                .serverStreaming({{isServerStreaming}})
+                .config({{configField}})
+                .events({{sseEvents}})
+                .binder(request -> {
+                    {{requestType}}.Builder r = {{requestType}}.newBuilder();
+                    {{#bodyFieldPath}}
+                    RequestParser.mergeBody(
+                            {{bodyTarget}}, request.getBody().openReader(), {{configField}}.getParser());
+                    {{/bodyFieldPath}}
+                    {{^bodyFieldPath}}
+                    {{#staticBinding}}
+                    {{bindersClassName}}.{{queryMethod}}(request.getQueryParameters(), r);
+                    {{/staticBinding}}
+                    {{^staticBinding}}
+                    RequestParser.parseQueryParams(request.getQueryParameters(), r);
+                    {{/staticBinding}}
+                    {{/bodyFieldPath}}
+                    {{#pathParams}}
+                    {{#staticBinding}}
+                    {{{routeStaticSetter}}}
+                    {{/staticBinding}}
+                    {{^staticBinding}}
+                    RequestParser.setFieldSafely(r, "{{name}}", request.pathParameter("{{name}}"));
+                    {{/staticBinding}}
+                    {{/pathParams}}
+                    {{#sse}}
+                    {{#lastEventIdField}}
+                    String lastEventId = request.header(ServerSentEvents.LAST_EVENT_ID);
+                    if (lastEventId != null) {
+                        {{#staticBinding}}
+                        {{{lastEventIdSetter}}}
+                        {{/staticBinding}}
+                        {{^staticBinding}}
+                        RequestParser.setFieldSafely(r, "{{lastEventIdField}}", lastEventId);
+                        {{/staticBinding}}
+                    }
+                    {{/lastEventIdField}}
+                    {{/sse}}
+                    return r.build();
+                })
+                .invoker((r, request, interceptor, observer) -> {
+                    {{grpcStub}} s = stub;
+                    {{#isProxy}}
+                    s = RequestParser.parseHeaders(request.getHeaders(), s);
+                    s = s.withInterceptors(interceptor);
+                    {{/isProxy}}
+                    s.{{methodNameLower}}(r, observer);
+                })
+                .build());
+        {{/methods}}
+        return routes.build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.fullcontact.rpc.jersey;
+
+import com.google.api.AnnotationsProto;
+import com.google.api.HttpRule;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.compiler.PluginProtos;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link CodeGenerator} on a synthetic request the size of a large monorepo, rendering resources serially
+ * then in parallel. Not part of the test suite: run its {@link #main} from the test classpath (e.x. from an IDE).
+ */
+public final class CodeGeneratorBenchmark {
+    private static final int FILES = 900;
+    private static final int WARM_UP = 5;
+    private static final int RUNS = 10;
+
+    private CodeGeneratorBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        PluginProtos.CodeGeneratorRequest request = largeRequest(FILES);
+
+        // Parallel streams run on the pool of the task they're started from, a pool of one renders serially.
+        ForkJoinPool serial = new ForkJoinPool(1);
+        try {
+            long serialNanos = time(() -> serial.submit(() -> generate(request)).get());
+            long parallelNanos = time(() -> generate(request));
+
+            System.out.printf("%d protos (%d requested): serial %dms, parallel %dms (%d threads)%n",
+                    FILES,
+                    request.getFileToGenerateCount(),
+                    TimeUnit.NANOSECONDS.toMillis(serialNanos),
+                    TimeUnit.NANOSECONDS.toMillis(parallelNanos),
+                    ForkJoinPool.commonPool().getParallelism());
+        } finally {
+            serial.shutdown();
+        }
+    }
+
+    /**
+     * Synthetic stand-in for a large monorepo, each file imports the one before it and declares one service. Only
+     * every other file is requested, the rest are plain imports.
+     */
+    static PluginProtos.CodeGeneratorRequest largeRequest(int files) {
+        PluginProtos.CodeGeneratorRequest.Builder request = PluginProtos.CodeGeneratorRequest.newBuilder()
+                .setParameter("routes")
+                .addProtoFile(DescriptorProtos.DescriptorProto.getDescriptor().getFile().toProto())
+                .addProtoFile(HttpRule.getDescriptor().getFile().toProto())
+                .addProtoFile(AnnotationsProto.getDescriptor().toProto());
+        for (int i = 0; i < files; i++) {
+            DescriptorProtos.FileDescriptorProto.Builder file = DescriptorProtos.FileDescriptorProto.newBuilder()
+                    .setName("large/service_" + i + ".proto")
+                    .setPackage("large" + i)
+                    .setSyntax("proto3")
+                    .setOptions(DescriptorProtos.FileOptions.newBuilder()
+                            .setJavaPackage("com.fullcontact.rpc.large" + i)
+                            .setJavaMultipleFiles(true))
+                    .addDependency(AnnotationsProto.getDescriptor().getName())
+                    .addMessageType(DescriptorProtos.DescriptorProto.newBuilder()
+                            .setName("Request")
+                            .addField(DescriptorProtos.FieldDescriptorProto.newBuilder()
+                                    .setName("id")
+                                    .setNumber(1)
+                                    .setType(DescriptorProtos.FieldDescriptorProto.Type.TYPE_STRING)));
+            String responseType = ".large" + i + ".Request";
+            if (i > 0) {
+                file.addDependency("large/service_" + (i - 1) + ".proto");
+                responseType = ".large" + (i - 1) + ".Request";
+            }
+            file.addService(DescriptorProtos.ServiceDescriptorProto.newBuilder()
+                    .setName("Service" + i)
+                    .addMethod(DescriptorProtos.MethodDescriptorProto.newBuilder()
+                            .setName("Get")
+                            .setInputType(".large" + i + ".Request")
+                            .setOutputType(responseType)
+                            .setOptions(DescriptorProtos.MethodOptions.newBuilder()
+                                    .setExtension(AnnotationsProto.http,
+                                            HttpRule.newBuilder().setGet("/large/" + i + "/{id}").build()))));
+            request.addProtoFile(file);
+            if (i % 2 == 0) {
+                request.addFileToGenerate(file.getName());
+            }
+        }
+        return request.build();
+    }
+
+    /**
+     * Best time of the runs, after warming up.
+     */
+    private static long time(Run run) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            run.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static PluginProtos.CodeGeneratorResponse generate(PluginProtos.CodeGeneratorRequest request) {
+        try {
+            return new CodeGenerator().generate(request);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Run {
+        void run() throws Exception;
+    }
+}
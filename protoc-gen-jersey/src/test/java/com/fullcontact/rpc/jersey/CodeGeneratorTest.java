@@ -2,8 +2,23 @@ package com.fullcontact.rpc.jersey;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fullcontact.rpc.BatchOptions;
+import com.fullcontact.rpc.FanoutOptions;
+import com.fullcontact.rpc.JsonOutput;
+import com.fullcontact.rpc.MethodOptions;
+import com.fullcontact.rpc.OptionsProto;
+import com.fullcontact.rpc.ServiceOptions;
+import com.fullcontact.rpc.SseOptions;
 import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.TestResponse;
+import com.google.api.AnnotationsProto;
+import com.google.api.HttpRule;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.compiler.PluginProtos;
+import com.google.protobuf.util.Durations;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -27,4 +42,210 @@ public class CodeGeneratorTest {
                 .containsExactly("s", "uint3", "f1");
     }
 
+    @Test
+    public void bodyResolvesToBuilderAccessors() throws Exception {
+        HttpRule rule = HttpRule.newBuilder()
+                .setPost("/users")
+                .setBody("*")
+                .addAdditionalBindings(HttpRule.newBuilder().setPost("/users_nested").setBody("nt.nnt"))
+                .build();
+        DescriptorProtos.MethodDescriptorProto method = DescriptorProtos.MethodDescriptorProto.newBuilder()
+                .setName("TestMethod2")
+                .setOptions(DescriptorProtos.MethodOptions.newBuilder().setExtension(AnnotationsProto.http, rule))
+                .build();
+
+        ImmutableList<CodeGenerator.ResourceMethodToGenerate> methods = new CodeGenerator().parseRule(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"), method),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+
+        assertThat(methods).extracting(CodeGenerator.ResourceMethodToGenerate::bodyTarget)
+                .containsExactly("r", "r.getNtBuilder().getNntBuilder()");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bodyMustBeASingularMessage() throws Exception {
+        CodeGenerator.parseBodyFields(TestRequest.getDescriptor(), "nt.f1");
+    }
+
+    @Test
+    public void keyedOptionsOnlyApplyToGetBindings() throws Exception {
+        HttpRule rule = HttpRule.newBuilder()
+                .setGet("/users/{s}")
+                .addAdditionalBindings(HttpRule.newBuilder().setPost("/users").setBody("*"))
+                .build();
+        DescriptorProtos.MethodDescriptorProto method = DescriptorProtos.MethodDescriptorProto.newBuilder()
+                .setName("TestMethod")
+                .setOptions(DescriptorProtos.MethodOptions.newBuilder()
+                        .setExtension(AnnotationsProto.http, rule)
+                        .setExtension(OptionsProto.method, MethodOptions.newBuilder()
+                                .setSingleFlight(true)
+                                .setCache(true)
+                                .setCacheTtl(Durations.fromSeconds(30))
+                                .setEtag(true)
+                                .build()))
+                .build();
+
+        ImmutableList<CodeGenerator.ResourceMethodToGenerate> methods = new CodeGenerator().parseRule(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"), method),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+
+        assertThat(methods).extracting(CodeGenerator.ResourceMethodToGenerate::singleFlight).containsExactly(true, false);
+        assertThat(methods).extracting(CodeGenerator.ResourceMethodToGenerate::cache).containsExactly(true, false);
+        assertThat(methods).extracting(CodeGenerator.ResourceMethodToGenerate::etag).containsExactly(true, false);
+        assertThat(methods.get(0).cacheTtlMillis()).isEqualTo(30_000);
+        assertThat(methods.get(0).getFullMethodName()).isEqualTo("TestService/TestMethod");
+        assertThat(methods.get(0).keyHeaders()).containsExactly("Authorization", "Cookie");
+        assertThat(methods.get(0).optionsIgnoredByRoutes()).containsExactly("single_flight", "cache", "etag");
+        assertThat(methods.get(1).optionsIgnoredByRoutes()).isEmpty();
+    }
+
+    @Test
+    public void batchResolvesBatchMethodAndFields() throws Exception {
+        CodeGenerator.BatchSpec batch = CodeGenerator.parseBatch(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"),
+                        DescriptorProtos.MethodDescriptorProto.newBuilder().setName("TestMethod7").build()),
+                BatchOptions.newBuilder().setMethod("BatchTestMethod").build(),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+
+        assertThat(batch.getBatchMethodNameLower()).isEqualTo("batchTestMethod");
+        assertThat(batch.getBatchRequestType()).isEqualTo("com.fullcontact.rpc.TestBatchRequest");
+        assertThat(batch.getRequestField()).isEqualTo("Requests");
+        assertThat(batch.getResponseField()).isEqualTo("Responses");
+        assertThat(batch.getWindowMicros()).isEqualTo(2_000);
+        assertThat(batch.getMaxSize()).isEqualTo(100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchFieldMustCarryTheMethodType() throws Exception {
+        CodeGenerator.parseBatch(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"),
+                        DescriptorProtos.MethodDescriptorProto.newBuilder().setName("TestMethod7").build()),
+                BatchOptions.newBuilder().setMethod("BatchTestMethod").setRequestField("nope").build(),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+    }
+
+    @Test
+    public void sseResolvesTypedEventIdAndLastEventIdSetter() throws Exception {
+        CodeGenerator.SseSpec sse = CodeGenerator.parseSse(
+                SseOptions.newBuilder()
+                        .setIdField("request.uint6")
+                        .setLastEventIdField("uint6")
+                        .setRetry(Durations.fromSeconds(3))
+                        .build(),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+
+        assertThat(sse.getEventId()).isEqualTo("Long.toUnsignedString(response.getRequest().getUint6())");
+        assertThat(sse.getLastEventIdField()).isEqualTo("uint6");
+        assertThat(sse.lastEventIdSetter()).startsWith("r.setUint6(");
+        assertThat(sse.getRetryMillis()).isEqualTo(3_000);
+
+        CodeGenerator.SseSpec retryOnly = CodeGenerator.parseSse(
+                SseOptions.newBuilder().setRetry(Durations.fromSeconds(1)).build(),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+        assertThat(retryOnly.getEventId()).isNull();
+        assertThat(retryOnly.getLastEventIdField()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sseIdFieldMustBeScalar() throws Exception {
+        CodeGenerator.parseSse(
+                SseOptions.newBuilder().setIdField("request.nt").build(),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sseOnlyAppliesToServerStreamingMethods() throws Exception {
+        DescriptorProtos.MethodDescriptorProto method = DescriptorProtos.MethodDescriptorProto.newBuilder()
+                .setName("TestMethod")
+                .setOptions(DescriptorProtos.MethodOptions.newBuilder()
+                        .setExtension(AnnotationsProto.http, HttpRule.newBuilder().setGet("/users/{s}").build())
+                        .setExtension(OptionsProto.method, MethodOptions.newBuilder()
+                                .setSse(SseOptions.newBuilder().setIdField("request.s"))
+                                .build()))
+                .build();
+
+        new CodeGenerator().parseRule(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"), method),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fanoutOnlyAppliesToServerStreamingMethods() throws Exception {
+        DescriptorProtos.MethodDescriptorProto method = DescriptorProtos.MethodDescriptorProto.newBuilder()
+                .setName("TestMethod")
+                .setOptions(DescriptorProtos.MethodOptions.newBuilder()
+                        .setExtension(AnnotationsProto.http, HttpRule.newBuilder().setGet("/users/{s}").build())
+                        .setExtension(OptionsProto.method, MethodOptions.newBuilder()
+                                .setFanout(FanoutOptions.getDefaultInstance())
+                                .build()))
+                .build();
+
+        new CodeGenerator().parseRule(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"), method),
+                TestRequest.getDescriptor(),
+                TestResponse.getDescriptor());
+    }
+
+    @Test
+    public void jsonOutputOfMethodReplacesServiceOne() throws Exception {
+        JsonOutput serviceOutput = JsonOutput.newBuilder().setOmitDefaultValues(true).setCompact(true).build();
+        JsonOutput methodOutput = JsonOutput.newBuilder().setEnumsAsInts(true).build();
+        Descriptors.ServiceDescriptor service = Descriptors.FileDescriptor.buildFrom(
+                DescriptorProtos.FileDescriptorProto.newBuilder()
+                        .setName("json_output_test.proto")
+                        .addDependency(TestRequest.getDescriptor().getFile().getName())
+                        .addService(DescriptorProtos.ServiceDescriptorProto.newBuilder()
+                                .setName("JsonService")
+                                .setOptions(DescriptorProtos.ServiceOptions.newBuilder()
+                                        .setExtension(OptionsProto.service,
+                                                ServiceOptions.newBuilder().setJson(serviceOutput).build()))
+                                .addMethod(DescriptorProtos.MethodDescriptorProto.newBuilder()
+                                        .setName("Get")
+                                        .setInputType(".TestRequest")
+                                        .setOutputType(".TestResponse")))
+                        .build(),
+                new Descriptors.FileDescriptor[]{TestRequest.getDescriptor().getFile()})
+                .findServiceByName("JsonService");
+        CodeGenerator.ServiceAndMethod sam =
+                new CodeGenerator.ServiceAndMethod(service, service.getMethods().get(0).toProto());
+
+        assertThat(CodeGenerator.parseJsonOutput(sam, MethodOptions.getDefaultInstance())).isEqualTo(serviceOutput);
+        assertThat(CodeGenerator.parseJsonOutput(sam, MethodOptions.newBuilder().setJson(methodOutput).build()))
+                .isEqualTo(methodOutput);
+        assertThat(CodeGenerator.parseJsonOutput(
+                new CodeGenerator.ServiceAndMethod(
+                        TestRequest.getDescriptor().getFile().findServiceByName("TestService"),
+                        DescriptorProtos.MethodDescriptorProto.newBuilder().setName("TestMethod").build()),
+                MethodOptions.getDefaultInstance()))
+                .isNull();
+    }
+
+    @Test
+    public void generatesOnlyRequestedFilesOfLargeRequests() throws Exception {
+        int files = 500;
+        PluginProtos.CodeGeneratorRequest request = CodeGeneratorBenchmark.largeRequest(files);
+
+        PluginProtos.CodeGeneratorResponse response = new CodeGenerator().generate(request);
+
+        assertThat(response.getFileList())
+                .extracting(PluginProtos.CodeGeneratorResponse.File::getName)
+                .hasSize(files)
+                .contains("com/fullcontact/rpc/large0/Service0GrpcJerseyResource.java",
+                        "com/fullcontact/rpc/large498/Service498GrpcJerseyResource.java")
+                .doesNotContain("com/fullcontact/rpc/large1/Service1GrpcJerseyResource.java");
+    }
 }
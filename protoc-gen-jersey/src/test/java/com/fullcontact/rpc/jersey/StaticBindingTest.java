@@ -0,0 +1,70 @@
+package com.fullcontact.rpc.jersey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.TestRequest;
+import com.fullcontact.rpc.jersey.util.ProtobufDescriptorJavaUtil;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link StaticBinding}
+ */
+@RunWith(JUnit4.class)
+public class StaticBindingTest {
+    @Test
+    public void pathParamsUseTypedSetters() throws Exception {
+        assertThat(setter("s", "s")).isEqualTo("r.setS(s);");
+        assertThat(setter("uint3", "uint3"))
+                .isEqualTo("r.setUint3(ParamDecoders.parseUInt32(\"TestRequest.uint3\", uint3));");
+        assertThat(setter("nt.f1", "ntf1")).isEqualTo("r.getNtBuilder().setF1(ntf1);");
+        assertThat(setter("enu", "enu"))
+                .isEqualTo("r.setEnu(ParamDecoders.parseEnum(\"TestRequest.enu\", enu, com.fullcontact.rpc.TestEnum.class));");
+        assertThat(setter("rep", "rep"))
+                .isEqualTo("r.clearRep().addRep(ParamDecoders.parseUInt32(\"TestRequest.rep\", rep));");
+        assertThat(setter("wrapped_uint3", "w")).isEqualTo("r.setWrappedUint3(com.google.protobuf.UInt32Value.newBuilder()"
+                + ".setValue(ParamDecoders.parseUInt32(\"google.protobuf.UInt32Value.value\", w)).build());");
+        assertThat(setter("nt", "nt"))
+                .isEqualTo("r.setNt(ParamDecoders.<com.fullcontact.rpc.NestedType>unsupported(\"TestRequest.nt\", nt));");
+    }
+
+    @Test
+    public void queryParamsCoverNestedPaths() throws Exception {
+        Map<String, List<String>> params = StaticBinding.queryParams(TestRequest.getDescriptor())
+                .stream()
+                .collect(Collectors.toMap(StaticBinding.QueryParam::getName, StaticBinding.QueryParam::getStatements));
+
+        assertThat(params).containsKeys("s", "nt.f1", "nt.nnt.f1", "ts.seconds", "rep_str");
+        assertThat(params.get("nt.f1"))
+                .containsExactly("r.getNtBuilder().setF1(ParamDecoders.single(\"NestedType.f1\", values));");
+        assertThat(params.get("nt.nnt.f1")).containsExactly(
+                "r.getNtBuilder().getNntBuilder().clearF1();",
+                "for (String value : values) {",
+                "    r.getNtBuilder().getNntBuilder().addF1(value);",
+                "}");
+    }
+
+    @Test
+    public void reflectConfigCoversReachableTypes() throws Exception {
+        String config = StaticBinding.reflectConfig(
+                ImmutableList.of("com.fullcontact.rpc.TestServiceGrpcJerseyResource"),
+                ImmutableList.of(TestRequest.getDescriptor()));
+
+        assertThat(config)
+                .contains("\"com.fullcontact.rpc.TestServiceGrpcJerseyResource\"")
+                .contains("\"com.fullcontact.rpc.TestRequest$Builder\"")
+                .contains("\"com.fullcontact.rpc.NestedNestedType\"")
+                .contains("\"com.fullcontact.rpc.TestEnum\"")
+                .contains("\"com.google.protobuf.Timestamp\"");
+    }
+
+    private static String setter(String path, String value) {
+        return StaticBinding.setter(
+                ProtobufDescriptorJavaUtil.fieldPath(TestRequest.getDescriptor(), path), "r", value);
+    }
+}
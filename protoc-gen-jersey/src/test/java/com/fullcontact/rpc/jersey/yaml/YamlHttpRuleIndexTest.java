@@ -0,0 +1,47 @@
+package com.fullcontact.rpc.jersey.yaml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link YamlHttpRuleIndex}
+ */
+@RunWith(JUnit4.class)
+public class YamlHttpRuleIndexTest {
+    private static final YamlHttpRule EXACT = rule("com.foo.Service.Get", "/exact");
+    private static final YamlHttpRule FOO = rule("com.foo.*", "/foo");
+    private static final YamlHttpRule COM = rule("com.*", "/com");
+    private static final YamlHttpRule ALL = rule("*", "/all");
+    private static final YamlHttpRule UNUSED = rule("org.bar.Service.Get", "/unused");
+
+    @Test
+    public void rulesApplyFromLeastToMostSpecific() {
+        YamlHttpRuleIndex index = new YamlHttpRuleIndex(ImmutableList.of(EXACT, FOO, COM, ALL, UNUSED));
+
+        assertThat(index.rulesFor("com.foo.Service.Get")).containsExactly(ALL, COM, FOO, EXACT);
+        assertThat(index.rulesFor("com.foo.Service.Put")).containsExactly(ALL, COM, FOO);
+        assertThat(index.rulesFor("com.foobar.Service.Get")).containsExactly(ALL, COM);
+        assertThat(index.unmatchedRules()).containsExactly(UNUSED);
+    }
+
+    @Test
+    public void wildcardNeedsAnotherSegment() {
+        YamlHttpRuleIndex index = new YamlHttpRuleIndex(ImmutableList.of(FOO));
+
+        assertThat(index.rulesFor("com.foo")).isEmpty();
+        assertThat(index.unmatchedRules()).containsExactly(FOO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wildcardOnlyAsLastSegment() {
+        new YamlHttpRuleIndex(ImmutableList.of(rule("com.*.Service", "/nope")));
+    }
+
+    private static YamlHttpRule rule(String selector, String get) {
+        return new YamlHttpRule(selector, get, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.fullcontact.rpc.jersey.yaml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fullcontact.rpc.MethodOptions;
+import com.fullcontact.rpc.OptionsProto;
+import com.google.api.AnnotationsProto;
+import com.google.api.HttpRule;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.DescriptorProtos;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test for {@link YamlHttpRule}
+ */
+@RunWith(JUnit4.class)
+public class YamlHttpRuleTest {
+    private static final DescriptorProtos.MethodOptions DECLARED = DescriptorProtos.MethodOptions.newBuilder()
+            .setDeprecated(true)
+            .setExtension(AnnotationsProto.http, HttpRule.newBuilder().setGet("/declared").build())
+            .setExtension(OptionsProto.method, MethodOptions.newBuilder().addKeyHeaders("X-Tenant").build())
+            .build();
+
+    @Test
+    public void bindingReplacesDeclaredRule() {
+        YamlHttpRule rule = new YamlHttpRule("TestService.TestMethod", "/yaml", null, null, null, null, null, null);
+
+        DescriptorProtos.MethodOptions options = rule.applyTo(DECLARED);
+
+        assertThat(options.getExtension(AnnotationsProto.http).getGet()).isEqualTo("/yaml");
+        assertThat(options.getDeprecated()).isTrue();
+        assertThat(options.getExtension(OptionsProto.method)).isEqualTo(DECLARED.getExtension(OptionsProto.method));
+    }
+
+    @Test
+    public void optionsAreMerged() {
+        YamlHttpRule rule = new YamlHttpRule("TestService.TestMethod", null, null, null, null, null, null,
+                ImmutableMap.of("singleFlight", true));
+
+        DescriptorProtos.MethodOptions options = rule.applyTo(DECLARED);
+
+        assertThat(options.getExtension(AnnotationsProto.http).getGet()).isEqualTo("/declared");
+        assertThat(options.getExtension(OptionsProto.method)).isEqualTo(MethodOptions.newBuilder()
+                .setSingleFlight(true)
+                .addKeyHeaders("X-Tenant")
+                .build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOption() {
+        new YamlHttpRule("TestService.TestMethod", null, null, null, null, null, null,
+                ImmutableMap.of("noSuchOption", true)).buildMethodOptions();
+    }
+}